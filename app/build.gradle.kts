@@ -16,6 +16,12 @@ android {
         versionName = "1.0"
 
         testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
+
+        javaCompileOptions {
+            annotationProcessorOptions {
+                arguments += mapOf("room.schemaLocation" to "$projectDir/schemas")
+            }
+        }
     }
 
     buildTypes {
@@ -31,6 +37,10 @@ android {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
     }
+    sourceSets {
+        // Exported Room schemas, read by MigrationTestHelper
+        getByName("androidTest").assets.srcDir("$projectDir/schemas")
+    }
 }
 
 dependencies {
@@ -70,4 +80,13 @@ dependencies {
     testImplementation(libs.junit)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
-}
\ No newline at end of file
+    androidTestImplementation(libs.room.testing)
+}
+// Room rewrites app/schemas on every compile. Fails if that changed a committed
+// schema, i.e. the JSON does not match the entities; run with the migration tests
+// (connectedDebugAndroidTest) before merging a schema change.
+tasks.register<Exec>("verifyRoomSchemas") {
+    dependsOn("compileDebugJavaWithJavac")
+    workingDir = projectDir
+    commandLine("git", "diff", "--exit-code", "--stat", "--", "schemas")
+}
@@ -0,0 +1,134 @@
+package com.example.trackexpense.data;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.lifecycle.Observer;
+import androidx.room.Room;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.trackexpense.data.local.AppDatabase;
+import com.example.trackexpense.data.local.Expense;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Time to first page of the transactions list with 50k rows in the table.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ExpensePagerTest {
+
+    private static final String TAG = "ExpensePagerTest";
+    private static final int ROWS = 50_000;
+    private static final int PINNED = 10;
+    private static final int PAGE_SIZE = 20;
+    // Generous bound for slow emulators; a full-table load takes several times longer
+    private static final long FIRST_PAGE_BUDGET_MS = 500;
+
+    private AppDatabase db;
+
+    @Before
+    public void createDb() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        db = Room.inMemoryDatabaseBuilder(context, AppDatabase.class).build();
+
+        List<Expense> expenses = new ArrayList<>(ROWS);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < ROWS; i++) {
+            Expense e = new Expense(10 + i % 500, i % 2 == 0 ? "Food" : "Transport",
+                    now - i * 60_000L, "Row " + i, i % 3 == 0 ? "INCOME" : "EXPENSE");
+            e.setPinned(i < PINNED);
+            expenses.add(e);
+        }
+        db.runInTransaction(() -> {
+            db.expenseDao().insertAll(expenses);
+        });
+    }
+
+    @After
+    public void closeDb() {
+        db.close();
+    }
+
+    @Test
+    public void firstPageIsFast() throws InterruptedException {
+        ExpensePager pager = new ExpensePager(db, PAGE_SIZE);
+
+        long start = SystemClock.elapsedRealtime();
+        ExpensePager.Page page = awaitPage(pager, pager::refresh);
+        long elapsed = SystemClock.elapsedRealtime() - start;
+        Log.d(TAG, "firstPageIsFast: First page of " + ROWS + " rows in " + elapsed + " ms");
+
+        assertEquals(PINNED, page.pinned.size());
+        assertEquals(PAGE_SIZE, page.rows.size());
+        assertEquals(ROWS, page.totalCount);
+        assertTrue(page.hasMore);
+        assertTrue("First page took " + elapsed + " ms", elapsed < FIRST_PAGE_BUDGET_MS);
+    }
+
+    @Test
+    public void nextPageContinuesFromLastRow() throws InterruptedException {
+        ExpensePager pager = new ExpensePager(db, PAGE_SIZE);
+        ExpensePager.Page first = awaitPage(pager, pager::refresh);
+        ExpensePager.Page second = awaitPage(pager, pager::loadNextPage);
+
+        assertEquals(PAGE_SIZE * 2, second.rows.size());
+        assertEquals(first.rows, second.rows.subList(0, PAGE_SIZE));
+        Expense last = first.rows.get(PAGE_SIZE - 1);
+        Expense next = second.rows.get(PAGE_SIZE);
+        assertTrue(next.getDate() < last.getDate());
+    }
+
+    @Test
+    public void filterCountsOnlyMatchingRows() throws InterruptedException {
+        ExpensePager pager = new ExpensePager(db, PAGE_SIZE);
+        ExpensePager.Page page = awaitPage(pager,
+                () -> pager.setFilter(new ExpensePager.Filter("ALL", "Food", 0)));
+
+        assertEquals(ROWS / 2, page.totalCount);
+        for (Expense e : page.rows) {
+            assertEquals("Food", e.getCategory());
+        }
+    }
+
+    /**
+     * Run {@code action} and wait for the page it posts.
+     */
+    private ExpensePager.Page awaitPage(ExpensePager pager, Runnable action) throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicReference<ExpensePager.Page> result = new AtomicReference<>();
+        AtomicReference<ExpensePager.Page> previous = new AtomicReference<>();
+        Observer<ExpensePager.Page> observer = page -> {
+            if (page != previous.get()) {
+                result.set(page);
+                latch.countDown();
+            }
+        };
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            // observeForever delivers the current value at once; skip it
+            previous.set(pager.getPages().getValue());
+            pager.getPages().observeForever(observer);
+        });
+        action.run();
+        try {
+            assertTrue("No page loaded", latch.await(10, TimeUnit.SECONDS));
+        } finally {
+            InstrumentationRegistry.getInstrumentation().runOnMainSync(
+                    () -> pager.getPages().removeObserver(observer));
+        }
+        return result.get();
+    }
+}
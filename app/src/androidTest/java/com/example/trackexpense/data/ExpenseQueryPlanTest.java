@@ -0,0 +1,150 @@
+package com.example.trackexpense.data;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SimpleSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteProgram;
+import androidx.sqlite.db.SupportSQLiteQuery;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.trackexpense.data.local.AppDatabase;
+import com.example.trackexpense.data.local.Expense;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Query plans of the hot expense queries with 100k rows in the table: each
+ * must be served by its index, with no full scan and no sort of the result.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ExpenseQueryPlanTest {
+
+    private static final String TAG = "ExpenseQueryPlanTest";
+    private static final int ROWS = 100_000;
+    private static final int PAGE_SIZE = 20;
+    private static final String[] CATEGORIES = { "Food", "Transport", "Rent", "Fun" };
+
+    private AppDatabase db;
+    private Expense cursor;
+
+    @Before
+    public void createDb() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        db = Room.inMemoryDatabaseBuilder(context, AppDatabase.class).build();
+
+        List<Expense> expenses = new ArrayList<>(ROWS);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < ROWS; i++) {
+            Expense e = new Expense(10 + i % 500, CATEGORIES[i % CATEGORIES.length],
+                    now - i * 60_000L, "Row " + i, i % 3 == 0 ? "INCOME" : "EXPENSE");
+            e.setFirestoreId("doc" + i);
+            e.updateContentHash();
+            expenses.add(e);
+        }
+        db.runInTransaction(() -> {
+            db.expenseDao().insertAll(expenses);
+        });
+
+        cursor = new Expense();
+        cursor.setId(ROWS / 2);
+        cursor.setDate(now - ROWS / 2 * 60_000L);
+    }
+
+    @After
+    public void closeDb() {
+        db.close();
+    }
+
+    @Test
+    public void pagesUseTheDateIndexes() {
+        ExpensePager.Filter all = new ExpensePager.Filter("ALL", "ALL", 0);
+        ExpensePager.Filter byType = new ExpensePager.Filter("INCOME", "ALL", 0);
+        ExpensePager.Filter byCategory = new ExpensePager.Filter("ALL", "Food", 0);
+        ExpensePager.Filter since = new ExpensePager.Filter("ALL", "ALL", cursor.getDate());
+
+        assertUsesIndex("index_expenses_date", ExpensePager.pageQuery(all, false, null, PAGE_SIZE));
+        assertUsesIndex("index_expenses_date", ExpensePager.pageQuery(all, false, cursor, PAGE_SIZE));
+        assertUsesIndex("index_expenses_type_date", ExpensePager.pageQuery(byType, false, null, PAGE_SIZE));
+        assertUsesIndex("index_expenses_type_date", ExpensePager.pageQuery(byType, false, cursor, PAGE_SIZE));
+        assertUsesIndex("index_expenses_category_date",
+                ExpensePager.pageQuery(byCategory, false, cursor, PAGE_SIZE));
+        assertUsesIndex("index_expenses_date", ExpensePager.pageQuery(since, false, null, PAGE_SIZE));
+        assertUsesIndex("index_expenses_type_date", ExpensePager.countQuery(byType));
+    }
+
+    @Test
+    public void lookupsUseTheirIndexes() {
+        assertUsesIndex("index_expenses_category_date", new SimpleSQLiteQuery(
+                "SELECT DISTINCT category FROM expenses WHERE category IS NOT NULL AND category != '' "
+                        + "ORDER BY category"));
+        assertUsesIndex("index_expenses_firestoreId", new SimpleSQLiteQuery(
+                "SELECT * FROM expenses WHERE firestoreId IN (?, ?)", new Object[] { "doc1", "doc2" }));
+        assertUsesIndex("index_expenses_contentHash", new SimpleSQLiteQuery(
+                "SELECT * FROM expenses WHERE contentHash IN (?, ?)", new Object[] { 1L, 2L }));
+        assertUsesIndex("index_expenses_type_date", new SimpleSQLiteQuery(
+                "SELECT * FROM expenses WHERE type = ? ORDER BY date DESC, id DESC LIMIT " + PAGE_SIZE,
+                new Object[] { "INCOME" }));
+    }
+
+    private void assertUsesIndex(String index, SupportSQLiteQuery query) {
+        List<String> plan = explain(query);
+        Log.d(TAG, "assertUsesIndex: " + query.getSql() + " -> " + plan);
+
+        boolean usesIndex = false;
+        for (String step : plan) {
+            // Older SQLite versions print "SCAN TABLE" and "SEARCH TABLE"
+            assertFalse(query.getSql() + " sorts its result: " + plan, step.contains("TEMP B-TREE"));
+            assertFalse(query.getSql() + " scans the table: " + plan,
+                    step.startsWith("SCAN") && !step.contains(" INDEX "));
+            usesIndex |= step.contains("INDEX " + index);
+        }
+        assertTrue(query.getSql() + " does not use " + index + ": " + plan, usesIndex);
+
+        long start = SystemClock.elapsedRealtime();
+        try (Cursor rows = db.query(query)) {
+            rows.moveToLast();
+        }
+        Log.d(TAG, "assertUsesIndex: ran in " + (SystemClock.elapsedRealtime() - start) + " ms");
+    }
+
+    private List<String> explain(SupportSQLiteQuery query) {
+        SupportSQLiteQuery explain = new SupportSQLiteQuery() {
+            @Override
+            public String getSql() {
+                return "EXPLAIN QUERY PLAN " + query.getSql();
+            }
+
+            @Override
+            public void bindTo(SupportSQLiteProgram statement) {
+                query.bindTo(statement);
+            }
+
+            @Override
+            public int getArgCount() {
+                return query.getArgCount();
+            }
+        };
+
+        List<String> plan = new ArrayList<>();
+        try (Cursor rows = db.query(explain)) {
+            int detail = rows.getColumnIndexOrThrow("detail");
+            while (rows.moveToNext()) {
+                plan.add(rows.getString(detail));
+            }
+        }
+        return plan;
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.trackexpense.data.local;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteConstraintException;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.room.Room;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Bulk inserts: time for 10k rows with their rollups in one transaction, and
+ * the full-text index staying in step with inserts and upserts and filtering
+ * its matches by type, category and date.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ExpenseInsertTest {
+
+    private static final String TAG = "ExpenseInsertTest";
+    private static final int ROWS = 10_000;
+    // Generous bound for slow emulators
+    private static final long INSERT_BUDGET_MS = 10_000;
+
+    private AppDatabase db;
+    private ExpenseDao expenseDao;
+    private RollupDao rollupDao;
+
+    @Before
+    public void createDb() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        db = Room.inMemoryDatabaseBuilder(context, AppDatabase.class).build();
+        expenseDao = db.expenseDao();
+        rollupDao = db.rollupDao();
+    }
+
+    @After
+    public void closeDb() {
+        db.close();
+    }
+
+    private static Expense expense(int i, String notes) {
+        Expense e = new Expense(10 + i % 500, i % 2 == 0 ? "Food" : "Transport",
+                1_700_000_000_000L - i * 3_600_000L, notes, i % 3 == 0 ? "INCOME" : "EXPENSE");
+        e.updateContentHash();
+        return e;
+    }
+
+    @Test
+    public void insertTenThousandWithRollups() {
+        List<Expense> expenses = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            expenses.add(expense(i, "Row " + i));
+        }
+
+        long start = SystemClock.elapsedRealtime();
+        db.runInTransaction(() -> {
+            List<Long> ids = expenseDao.insertAll(expenses);
+            for (int i = 0; i < expenses.size(); i++) {
+                Expense e = expenses.get(i);
+                e.setId(ids.get(i).intValue());
+                rollupDao.apply(e, 1);
+            }
+        });
+        long elapsed = SystemClock.elapsedRealtime() - start;
+        Log.d(TAG, "insertTenThousandWithRollups: " + ROWS + " rows in " + elapsed + " ms");
+
+        assertEquals(ROWS, expenseDao.getAllExpensesSync().size());
+        assertEquals(0, rollupDao.countInconsistentDailyBuckets());
+        assertEquals(0, rollupDao.countInconsistentMonthlyBuckets());
+        assertEquals(1, expenseDao.searchSync("row* 1234*", null, null, 0).size());
+        assertTrue("Insert took " + elapsed + " ms", elapsed < INSERT_BUDGET_MS);
+    }
+
+    @Test
+    public void insertAllRejectsAnExistingRow() {
+        Expense original = expense(1, "alpha");
+        original.setId((int) expenseDao.insertAndGetId(original));
+
+        Expense conflicting = expense(1, "beta");
+        conflicting.setId(original.getId());
+        try {
+            expenseDao.insertAll(Collections.singletonList(conflicting));
+            fail("Expected a constraint failure");
+        } catch (SQLiteConstraintException expected) {
+            // The row and its index entry are unchanged
+        }
+
+        assertEquals(1, expenseDao.searchSync("alpha*", null, null, 0).size());
+        assertEquals(0, expenseDao.searchSync("beta*", null, null, 0).size());
+    }
+
+    @Test
+    public void upsertReplacesTheIndexedText() {
+        Expense original = expense(1, "alpha");
+        original.setId((int) expenseDao.insertAndGetId(original));
+
+        Expense edited = expense(1, "beta");
+        edited.setId(original.getId());
+        expenseDao.upsertAll(Collections.singletonList(edited));
+
+        assertEquals(0, expenseDao.searchSync("alpha*", null, null, 0).size());
+        assertEquals(1, expenseDao.searchSync("beta*", null, null, 0).size());
+    }
+
+    @Test
+    public void searchFiltersTheMatches() {
+        List<Expense> expenses = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            expenses.add(expense(i, "coffee " + i));
+        }
+        expenseDao.insertAll(expenses);
+
+        assertEquals(12, expenseDao.searchSync("coffee*", null, null, 0).size());
+        // i % 3 == 0 are income, even rows are Food, row i is i hours before the base date
+        assertEquals(4, expenseDao.searchSync("coffee*", "INCOME", null, 0).size());
+        assertEquals(6, expenseDao.searchSync("coffee*", null, "food", 0).size());
+        assertEquals(2, expenseDao.searchSync("coffee*", "INCOME", "Food", 0).size());
+        assertEquals(3, expenseDao.searchSync("coffee*", null, null,
+                1_700_000_000_000L - 2 * 3_600_000L).size());
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.trackexpense.data.local;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.room.migration.Migration;
+import androidx.room.testing.MigrationTestHelper;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Schema migrations against the exported schemas in app/schemas: each step is
+ * validated against the schema of the version it produces, and the data
+ * backfills are checked on real rows.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MigrationTest {
+
+    private static final String TEST_DB = "migration-test";
+    private static final long DATE = 1_700_000_000_000L;
+
+    private static final Migration[] ALL_MIGRATIONS = {
+            AppDatabase.MIGRATION_4_5, AppDatabase.MIGRATION_5_6, AppDatabase.MIGRATION_6_7,
+            AppDatabase.MIGRATION_7_8, AppDatabase.MIGRATION_8_9, AppDatabase.MIGRATION_9_10,
+            AppDatabase.MIGRATION_10_11, AppDatabase.MIGRATION_11_12, AppDatabase.MIGRATION_12_13 };
+
+    @Rule
+    public MigrationTestHelper helper = new MigrationTestHelper(
+            InstrumentationRegistry.getInstrumentation(), AppDatabase.class);
+
+    private static void insertExpense(SupportSQLiteDatabase db, double amount, String category,
+            String type, long date, String notes) {
+        db.execSQL("INSERT INTO expenses (amount, category, date, notes, type, isPinned) "
+                + "VALUES (?, ?, ?, ?, ?, 0)", new Object[] { amount, category, date, notes, type });
+    }
+
+    @Test
+    public void migrate7To8BackfillsContentHash() throws IOException {
+        SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 7);
+        insertExpense(db, 12.5, "Food", "EXPENSE", DATE, " Lunch ");
+        insertExpense(db, 1200, "Salary", "INCOME", DATE + 1, null);
+        db.close();
+
+        db = helper.runMigrationsAndValidate(TEST_DB, 8, true, AppDatabase.MIGRATION_7_8);
+
+        try (Cursor cursor = db.query("SELECT contentHash FROM expenses ORDER BY id")) {
+            assertTrue(cursor.moveToNext());
+            assertEquals(Expense.computeContentHash(12.5, "Food", "EXPENSE", DATE, " Lunch "),
+                    cursor.getLong(0));
+            assertTrue(cursor.moveToNext());
+            assertEquals(Expense.computeContentHash(1200, "Salary", "INCOME", DATE + 1, null),
+                    cursor.getLong(0));
+            assertFalse(cursor.moveToNext());
+        }
+        // The backfilled values are found through the new index
+        try (Cursor cursor = db.query("SELECT COUNT(*) FROM expenses WHERE contentHash = ?",
+                new Object[] { Expense.computeContentHash(12.5, "Food", "EXPENSE", DATE, " Lunch ") })) {
+            assertTrue(cursor.moveToFirst());
+            assertEquals(1, cursor.getInt(0));
+        }
+    }
+
+    @Test
+    public void migrate11To12IndexesExistingRows() throws IOException {
+        SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 11);
+        insertExpense(db, 4.5, "Groceries", "EXPENSE", DATE, "coffee beans");
+        insertExpense(db, 9, "Transport", "EXPENSE", DATE + 1, "train ticket");
+        db.close();
+
+        db = helper.runMigrationsAndValidate(TEST_DB, 12, true, AppDatabase.MIGRATION_11_12);
+
+        assertEquals(1, countMatches(db, "coffee"));
+        assertEquals(1, countMatches(db, "groceries"));
+        assertEquals(1, countMatches(db, "train"));
+
+        // The content sync triggers keep the index in step after the upgrade
+        insertExpense(db, 3, "Food", "EXPENSE", DATE + 2, "coffee to go");
+        assertEquals(2, countMatches(db, "coffee"));
+        db.execSQL("UPDATE expenses SET notes = 'tea leaves' WHERE notes = 'coffee beans'");
+        assertEquals(1, countMatches(db, "coffee"));
+        assertEquals(1, countMatches(db, "tea"));
+        db.execSQL("DELETE FROM expenses WHERE notes = 'train ticket'");
+        assertEquals(0, countMatches(db, "train"));
+    }
+
+    @Test
+    public void migrateAllFromVersion4() throws IOException {
+        SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 4);
+        insertExpense(db, 20, "Food", "EXPENSE", DATE, "dinner");
+        db.close();
+
+        helper.runMigrationsAndValidate(TEST_DB, 13, true, ALL_MIGRATIONS).close();
+
+        // Room opens the migrated file with the schema it was compiled with
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        AppDatabase appDb = Room.databaseBuilder(context, AppDatabase.class, TEST_DB)
+                .addMigrations(ALL_MIGRATIONS)
+                .build();
+        try {
+            assertEquals(1, appDb.expenseDao().getLocalExpenseCount());
+            assertEquals(1, appDb.expenseDao().searchSync("dinner", null, null, 0).size());
+            assertEquals(0, appDb.rollupDao().countInconsistentDailyBuckets());
+            assertEquals(0, appDb.rollupDao().countInconsistentMonthlyBuckets());
+        } finally {
+            appDb.close();
+        }
+    }
+
+    private static int countMatches(SupportSQLiteDatabase db, String match) {
+        try (Cursor cursor = db.query("SELECT COUNT(*) FROM expenses_fts WHERE expenses_fts MATCH ?",
+                new Object[] { match })) {
+            assertTrue(cursor.moveToFirst());
+            return cursor.getInt(0);
+        }
+    }
+}
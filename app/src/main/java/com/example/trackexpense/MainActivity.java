@@ -31,11 +31,13 @@ import androidx.work.ExistingPeriodicWorkPolicy;
 import androidx.work.PeriodicWorkRequest;
 import androidx.work.WorkManager;
 
+import com.example.trackexpense.data.ExpenseRepository;
 import com.example.trackexpense.data.local.Expense;
-import com.example.trackexpense.data.local.AppDatabase;
 import com.example.trackexpense.utils.BeautifulNotification;
+import com.example.trackexpense.utils.ExportUtils;
 import com.example.trackexpense.utils.PreferenceManager;
 import com.example.trackexpense.utils.ReminderWorker;
+import com.example.trackexpense.utils.TransactionImporter;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 import com.google.android.material.navigation.NavigationView;
@@ -43,12 +45,9 @@ import com.google.android.material.textfield.TextInputEditText;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.List;
@@ -58,6 +57,10 @@ import java.util.concurrent.TimeUnit;
 
 public class MainActivity extends AppCompatActivity implements NavigationView.OnNavigationItemSelectedListener {
 
+    private static final int DAILY_IMPORT_LIMIT = 50;
+    // Imported rows are written to Room + outbox in chunks of this size
+    private static final int IMPORT_BATCH_SIZE = 200;
+
     private NavController navController;
     private FloatingActionButton fabAdd;
     private View bottomNavContainer;
@@ -71,6 +74,8 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
 
     // File picker launcher for import
     private ActivityResultLauncher<String[]> filePickerLauncher;
+    // File picker launcher for restoring a backup
+    private ActivityResultLauncher<String[]> backupPickerLauncher;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -103,6 +108,13 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
                         processImportFile(uri);
                     }
                 });
+        backupPickerLauncher = registerForActivityResult(
+                new ActivityResultContracts.OpenDocument(),
+                uri -> {
+                    if (uri != null) {
+                        restoreBackup(uri);
+                    }
+                });
     }
 
     private void setupBackPressHandler() {
@@ -419,6 +431,8 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
 
         com.google.android.material.card.MaterialCardView cardCSV = dialogView.findViewById(R.id.cardCSV);
         com.google.android.material.card.MaterialCardView cardJSON = dialogView.findViewById(R.id.cardJSON);
+        com.google.android.material.switchmaterial.SwitchMaterial switchGzip = dialogView
+                .findViewById(R.id.switchGzip);
         com.google.android.material.button.MaterialButton btnCancel = dialogView.findViewById(R.id.btnCancel);
 
         AlertDialog dialog = new MaterialAlertDialogBuilder(this)
@@ -427,12 +441,12 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
 
         cardCSV.setOnClickListener(v -> {
             dialog.dismiss();
-            exportAsCSV();
+            exportTransactions(ExportUtils.FORMAT_CSV, switchGzip.isChecked());
         });
 
         cardJSON.setOnClickListener(v -> {
             dialog.dismiss();
-            exportAsJSON();
+            exportTransactions(ExportUtils.FORMAT_JSON, switchGzip.isChecked());
         });
 
         btnCancel.setOnClickListener(v -> dialog.dismiss());
@@ -443,61 +457,61 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
         dialog.show();
     }
 
-    private void exportAsCSV() {
-        Executors.newSingleThreadExecutor().execute(() -> {
-            List<Expense> expenses = AppDatabase.getDatabase(this).expenseDao().getAllExpensesSync();
-
-            StringBuilder csv = new StringBuilder();
-            csv.append("Date,Type,Category,Amount,Note\n");
-
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
-            for (Expense e : expenses) {
-                csv.append(sdf.format(new Date(e.getDate()))).append(",");
-                csv.append(e.getType()).append(",");
-                csv.append(e.getCategory()).append(",");
-                csv.append(e.getAmount()).append(",");
-                csv.append(e.getNotes() != null ? e.getNotes().replace(",", ";") : "").append("\n");
-            }
+    private void exportTransactions(String format, boolean gzip) {
+        // Repository registers LiveData observers, so build it on the main thread
+        ExpenseRepository repository = new ExpenseRepository(getApplication());
+        AlertDialog progressDialog = showProgressDialog("Exporting…", "Preparing your transactions");
+        TextView tvMessage = progressDialog.findViewById(R.id.tvProgressMessage);
+        android.widget.ProgressBar progressBar = progressDialog.findViewById(R.id.progressBar);
 
-            saveToFile(csv.toString(), "expenses_" + System.currentTimeMillis() + ".csv");
-        });
-    }
+        String filename = "expenses_" + System.currentTimeMillis() + "." + format + (gzip ? ".gz" : "");
+        File file = new File(Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS),
+                filename);
 
-    private void exportAsJSON() {
         Executors.newSingleThreadExecutor().execute(() -> {
-            List<Expense> expenses = AppDatabase.getDatabase(this).expenseDao().getAllExpensesSync();
-
-            StringBuilder json = new StringBuilder();
-            json.append("[\n");
-
-            for (int i = 0; i < expenses.size(); i++) {
-                Expense e = expenses.get(i);
-                json.append("  {\n");
-                json.append("    \"date\": ").append(e.getDate()).append(",\n");
-                json.append("    \"type\": \"").append(e.getType()).append("\",\n");
-                json.append("    \"category\": \"").append(e.getCategory()).append("\",\n");
-                json.append("    \"amount\": ").append(e.getAmount()).append(",\n");
-                json.append("    \"note\": \"").append(e.getNotes() != null ? e.getNotes() : "").append("\"\n");
-                json.append("  }").append(i < expenses.size() - 1 ? "," : "").append("\n");
-            }
+            // Signed-in users' older remote history is paged into Room before the cursor opens
+            try (android.database.Cursor cursor = repository.openExportCursor()) {
+                ExportUtils.exportToFile(file, cursor, format, gzip, null, (rowsWritten, totalRows) -> {
+                    int percent = totalRows > 0 ? rowsWritten * 100 / totalRows : 100;
+                    runOnUiThread(() -> {
+                        tvMessage.setText(rowsWritten + " of " + totalRows + " transactions");
+                        progressBar.setIndeterminate(false);
+                        progressBar.setProgress(percent);
+                    });
+                });
 
-            json.append("]");
-            saveToFile(json.toString(), "expenses_" + System.currentTimeMillis() + ".json");
+                runOnUiThread(() -> {
+                    progressDialog.dismiss();
+                    BeautifulNotification.showSuccess(this, "Exported to Downloads/" + filename);
+                });
+            } catch (Exception e) {
+                android.util.Log.e("Export", "Error exporting transactions", e);
+                runOnUiThread(() -> {
+                    progressDialog.dismiss();
+                    BeautifulNotification.showError(this, "Export failed: " + e.getMessage());
+                });
+            }
         });
     }
 
-    private void saveToFile(String content, String filename) {
-        try {
-            File downloadDir = Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS);
-            File file = new File(downloadDir, filename);
-            FileWriter writer = new FileWriter(file);
-            writer.write(content);
-            writer.close();
-
-            runOnUiThread(() -> BeautifulNotification.showSuccess(this, "Exported to Downloads/" + filename));
-        } catch (IOException e) {
-            runOnUiThread(() -> BeautifulNotification.showError(this, "Export failed: " + e.getMessage()));
+    /**
+     * Non-cancelable dialog with an indeterminate progress bar; callers update
+     * tvProgressMessage and progressBar through the returned dialog.
+     */
+    private AlertDialog showProgressDialog(String title, String message) {
+        View dialogView = getLayoutInflater().inflate(R.layout.dialog_progress, null);
+        ((TextView) dialogView.findViewById(R.id.tvProgressTitle)).setText(title);
+        ((TextView) dialogView.findViewById(R.id.tvProgressMessage)).setText(message);
+
+        AlertDialog dialog = new MaterialAlertDialogBuilder(this)
+                .setView(dialogView)
+                .setCancelable(false)
+                .create();
+        if (dialog.getWindow() != null) {
+            dialog.getWindow().setBackgroundDrawableResource(android.R.color.transparent);
         }
+        dialog.show();
+        return dialog;
     }
 
     // ==================== IMPORT DATA ====================
@@ -559,46 +573,146 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
             BeautifulNotification.showError(this, "Please log in to import data");
             return;
         }
+        String userId = currentUser.getUid();
+
+        // Repository registers LiveData observers, so build it on the main thread
+        ExpenseRepository repository = new ExpenseRepository(getApplication());
+
+        AlertDialog progressDialog = showProgressDialog("Importing…", "Checking import limits");
+        TextView tvMessage = progressDialog.findViewById(R.id.tvProgressMessage);
+        android.widget.ProgressBar progressBar = progressDialog.findViewById(R.id.progressBar);
 
         Executors.newSingleThreadExecutor().execute(() -> {
             try {
-                InputStream inputStream = getContentResolver().openInputStream(uri);
-                if (inputStream == null) {
-                    runOnUiThread(() -> BeautifulNotification.showError(this, "Could not read file"));
+                com.google.firebase.firestore.FirebaseFirestore db = com.google.firebase.firestore.FirebaseFirestore
+                        .getInstance();
+
+                // Step 1: Check daily import count from user document in Firestore
+                com.google.firebase.firestore.DocumentSnapshot userDoc = com.google.android.gms.tasks.Tasks.await(
+                        db.collection("users").document(userId).get(), 30, TimeUnit.SECONDS);
+                String todayDate = getTodayDateString();
+                String lastImportDate = userDoc.getString("lastImportDate");
+                Long storedCount = userDoc.getLong("dailyImportCount");
+                int currentDayCount = todayDate.equals(lastImportDate) && storedCount != null
+                        ? storedCount.intValue()
+                        : 0;
+
+                int remainingLimit = DAILY_IMPORT_LIMIT - currentDayCount;
+                if (remainingLimit <= 0) {
+                    runOnUiThread(() -> {
+                        progressDialog.dismiss();
+                        BeautifulNotification.showWarning(this,
+                                "Daily import limit reached (50/day). Try again tomorrow.");
+                    });
                     return;
                 }
 
-                BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
-                StringBuilder content = new StringBuilder();
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    content.append(line).append("\n");
-                }
-                reader.close();
-                inputStream.close();
-
-                String fileContent = content.toString().trim();
+                // Step 2: Stream the file; candidates are checked against the content hash
+                // index in batches, and new rows are written to Room + outbox
                 String fileName = getFileNameFromUri(uri);
+                long totalBytes = getFileSizeFromUri(uri);
+                runOnUiThread(() -> tvMessage.setText("Reading " + (fileName != null ? fileName : "file")));
+
+                TransactionImporter importer = new TransactionImporter((bytesRead, total) -> {
+                    if (total <= 0)
+                        return;
+                    int percent = (int) Math.min(100, bytesRead * 100 / total);
+                    runOnUiThread(() -> {
+                        progressBar.setIndeterminate(false);
+                        progressBar.setProgress(percent);
+                    });
+                });
 
-                // Detect format and parse
-                java.util.List<java.util.Map<String, Object>> transactions;
-                if (fileName != null && fileName.toLowerCase().endsWith(".csv")) {
-                    transactions = parseCSV(fileContent);
-                } else {
-                    transactions = parseJSON(fileContent);
+                // Hashes in the pending batch, so rows repeated within it are skipped. It is
+                // cleared with the batch: rows of earlier batches are already in Room, where
+                // filterNewExpenses finds repeats through the contentHash index
+                java.util.Set<Long> seenHashes = new java.util.HashSet<>(IMPORT_BATCH_SIZE * 2);
+                List<Expense> pending = new java.util.ArrayList<>(IMPORT_BATCH_SIZE);
+                int[] counts = new int[3]; // imported, duplicates, over limit
+                TransactionImporter.RowHandler handler = expense -> {
+                    expense.updateContentHash();
+                    if (!seenHashes.add(expense.getContentHash())) {
+                        counts[1]++;
+                        return true;
+                    }
+                    pending.add(expense);
+                    if (pending.size() < IMPORT_BATCH_SIZE)
+                        return true;
+                    boolean more = importBatch(repository, pending, remainingLimit, counts);
+                    pending.clear();
+                    seenHashes.clear();
+                    return more; // Stop reading once nothing more can be imported today
+                };
+
+                int rows;
+                try (InputStream inputStream = getContentResolver().openInputStream(uri)) {
+                    if (inputStream == null) {
+                        runOnUiThread(() -> {
+                            progressDialog.dismiss();
+                            BeautifulNotification.showError(this, "Could not read file");
+                        });
+                        return;
+                    }
+                    String lowerName = fileName != null ? fileName.toLowerCase(Locale.ROOT) : "";
+                    if (lowerName.endsWith(".gz"))
+                        lowerName = lowerName.substring(0, lowerName.length() - 3);
+                    if (lowerName.endsWith(".csv")) {
+                        rows = importer.importCsv(inputStream, totalBytes, handler);
+                    } else {
+                        rows = importer.importJson(inputStream, totalBytes, handler);
+                    }
+                }
+                if (!pending.isEmpty()) {
+                    importBatch(repository, pending, remainingLimit, counts);
                 }
 
-                if (transactions == null || transactions.isEmpty()) {
-                    runOnUiThread(() -> BeautifulNotification.showError(this, "No valid transactions found in file"));
+                final int importedCount = counts[0];
+                final int skippedDuplicates = counts[1];
+                final boolean hitLimit = counts[2] > 0;
+
+                if (rows == 0) {
+                    runOnUiThread(() -> {
+                        progressDialog.dismiss();
+                        BeautifulNotification.showError(this, "No valid transactions found in file");
+                    });
                     return;
                 }
+                if (importedCount == 0) {
+                    runOnUiThread(() -> {
+                        progressDialog.dismiss();
+                        BeautifulNotification.showWarning(this, "All " + skippedDuplicates
+                                + " transactions already exist. No new data to import.");
+                    });
+                    return;
+                }
+
+                // Update daily import count in Firestore user document
+                updateDailyImportCount(db, userId, currentDayCount + importedCount);
+
+                runOnUiThread(() -> {
+                    progressDialog.dismiss();
 
-                // Import to Firestore
-                importTransactionsToFirestore(currentUser.getUid(), transactions);
+                    // Build detailed message
+                    StringBuilder message = new StringBuilder();
+                    message.append("Imported ").append(importedCount).append(" transactions!");
+
+                    if (skippedDuplicates > 0) {
+                        message.append("\n").append(skippedDuplicates).append(" duplicates skipped.");
+                    }
+                    if (hitLimit) {
+                        message.append("\nDaily limit reached, remaining rows skipped.");
+                    }
+
+                    BeautifulNotification.showSuccess(this, message.toString());
+                    sendImportNotification(userId, importedCount);
+                });
 
             } catch (Exception e) {
                 android.util.Log.e("Import", "Error importing file", e);
-                runOnUiThread(() -> BeautifulNotification.showError(this, "Import failed: " + e.getMessage()));
+                runOnUiThread(() -> {
+                    progressDialog.dismiss();
+                    BeautifulNotification.showError(this, "Import failed: " + e.getMessage());
+                });
             }
         });
     }
@@ -625,298 +739,42 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
         return result;
     }
 
-    private java.util.List<java.util.Map<String, Object>> parseJSON(String content) {
-        java.util.List<java.util.Map<String, Object>> transactions = new java.util.ArrayList<>();
-
-        try {
-            org.json.JSONArray jsonArray = new org.json.JSONArray(content);
-
-            for (int i = 0; i < jsonArray.length(); i++) {
-                org.json.JSONObject obj = jsonArray.getJSONObject(i);
-                java.util.Map<String, Object> transaction = new java.util.HashMap<>();
-
-                // Required: amount
-                if (!obj.has("amount"))
-                    continue;
-                double amount = obj.getDouble("amount");
-                transaction.put("amount", amount);
-
-                // Required: category
-                String category = obj.optString("category", "Other");
-                transaction.put("category", category);
-
-                // Required: type (INCOME or EXPENSE)
-                String type = obj.optString("type", "EXPENSE").toUpperCase();
-                if (!type.equals("INCOME") && !type.equals("EXPENSE")) {
-                    type = "EXPENSE";
+    /**
+     * @return file size in bytes, or -1 if the provider doesn't report one
+     */
+    private long getFileSizeFromUri(Uri uri) {
+        if ("content".equals(uri.getScheme())) {
+            try (android.database.Cursor cursor = getContentResolver().query(uri,
+                    new String[] { android.provider.OpenableColumns.SIZE }, null, null, null)) {
+                if (cursor != null && cursor.moveToFirst() && !cursor.isNull(0)) {
+                    return cursor.getLong(0);
                 }
-                transaction.put("type", type);
-
-                // Optional: notes
-                String notes = obj.optString("notes", "");
-                transaction.put("notes", notes);
-
-                // Optional: date
-                String dateStr = obj.optString("date", "");
-                long timestamp = parseDate(dateStr);
-                transaction.put("date", timestamp);
-
-                transactions.add(transaction);
-            }
-        } catch (org.json.JSONException e) {
-            android.util.Log.e("Import", "JSON parse error", e);
-            return null;
-        }
-
-        return transactions;
-    }
-
-    private java.util.List<java.util.Map<String, Object>> parseCSV(String content) {
-        java.util.List<java.util.Map<String, Object>> transactions = new java.util.ArrayList<>();
-
-        String[] lines = content.split("\n");
-        if (lines.length < 2)
-            return transactions; // Need header + at least 1 row
-
-        // Parse header to find column indices
-        String[] headers = lines[0].toLowerCase().split(",");
-        int amountIdx = -1, categoryIdx = -1, typeIdx = -1, notesIdx = -1, dateIdx = -1;
-
-        for (int i = 0; i < headers.length; i++) {
-            String h = headers[i].trim();
-            if (h.equals("amount"))
-                amountIdx = i;
-            else if (h.equals("category"))
-                categoryIdx = i;
-            else if (h.equals("type"))
-                typeIdx = i;
-            else if (h.equals("notes") || h.equals("note"))
-                notesIdx = i;
-            else if (h.equals("date"))
-                dateIdx = i;
-        }
-
-        if (amountIdx == -1)
-            return transactions; // Amount is required
-
-        for (int i = 1; i < lines.length; i++) {
-            String line = lines[i].trim();
-            if (line.isEmpty())
-                continue;
-
-            String[] values = line.split(",");
-            java.util.Map<String, Object> transaction = new java.util.HashMap<>();
-
-            try {
-                // Amount
-                if (amountIdx >= values.length)
-                    continue;
-                double amount = Double.parseDouble(values[amountIdx].trim());
-                transaction.put("amount", amount);
-
-                // Category
-                String category = categoryIdx >= 0 && categoryIdx < values.length ? values[categoryIdx].trim()
-                        : "Other";
-                if (category.isEmpty())
-                    category = "Other";
-                transaction.put("category", category);
-
-                // Type
-                String type = typeIdx >= 0 && typeIdx < values.length ? values[typeIdx].trim().toUpperCase()
-                        : "EXPENSE";
-                if (!type.equals("INCOME") && !type.equals("EXPENSE")) {
-                    type = "EXPENSE";
-                }
-                transaction.put("type", type);
-
-                // Notes
-                String notes = notesIdx >= 0 && notesIdx < values.length ? values[notesIdx].trim() : "";
-                transaction.put("notes", notes);
-
-                // Date
-                String dateStr = dateIdx >= 0 && dateIdx < values.length ? values[dateIdx].trim() : "";
-                long timestamp = parseDate(dateStr);
-                transaction.put("date", timestamp);
-
-                transactions.add(transaction);
-            } catch (NumberFormatException e) {
-                // Skip invalid rows
             }
         }
-
-        return transactions;
+        return -1;
     }
 
-    private long parseDate(String dateStr) {
-        if (dateStr == null || dateStr.isEmpty()) {
-            return System.currentTimeMillis();
-        }
-
-        String[] formats = {
-                "yyyy-MM-dd",
-                "dd/MM/yyyy",
-                "MM/dd/yyyy",
-                "yyyy-MM-dd'T'HH:mm:ss",
-                "yyyy-MM-dd HH:mm:ss"
-        };
-
-        for (String format : formats) {
-            try {
-                SimpleDateFormat sdf = new SimpleDateFormat(format, Locale.getDefault());
-                Date date = sdf.parse(dateStr);
-                if (date != null)
-                    return date.getTime();
-            } catch (Exception ignored) {
-            }
+    /**
+     * Write the new rows of one candidate batch, up to the remaining daily limit.
+     *
+     * @param counts imported, duplicate and over-limit counters, updated in place
+     * @return false once the daily limit has been reached
+     */
+    private boolean importBatch(ExpenseRepository repository, List<Expense> candidates,
+            int remainingLimit, int[] counts) throws Exception {
+        List<Expense> unique = repository.filterNewExpenses(candidates);
+        counts[1] += candidates.size() - unique.size();
+
+        int room = remainingLimit - counts[0];
+        if (unique.size() > room) {
+            counts[2] += unique.size() - room;
+            unique = unique.subList(0, room);
         }
-
-        return System.currentTimeMillis();
-    }
-
-    private void importTransactionsToFirestore(String userId,
-            java.util.List<java.util.Map<String, Object>> transactions) {
-        com.google.firebase.firestore.FirebaseFirestore db = com.google.firebase.firestore.FirebaseFirestore
-                .getInstance();
-
-        // Step 1: Check daily import count from user document in Firestore
-        db.collection("users").document(userId).get()
-                .addOnSuccessListener(userDoc -> {
-                    String todayDate = getTodayDateString();
-                    int todayImportCount = 0;
-
-                    // Get stored import data
-                    String lastImportDate = userDoc.getString("lastImportDate");
-                    Long storedCount = userDoc.getLong("dailyImportCount");
-
-                    // Check if it's the same day
-                    if (todayDate.equals(lastImportDate) && storedCount != null) {
-                        todayImportCount = storedCount.intValue();
-                    }
-
-                    // Check daily limit
-                    int remainingLimit = 50 - todayImportCount;
-                    if (remainingLimit <= 0) {
-                        runOnUiThread(() -> BeautifulNotification.showWarning(this,
-                                "Daily import limit reached (50/day). Try again tomorrow."));
-                        return;
-                    }
-
-                    final int currentDayCount = todayImportCount;
-
-                    // Step 2: Fetch ALL existing transactions for duplicate check
-                    fetchAllTransactionsForDuplicateCheck(db, userId, transactions, remainingLimit, currentDayCount);
-                })
-                .addOnFailureListener(e -> {
-                    runOnUiThread(() -> BeautifulNotification.showError(this,
-                            "Failed to check import limits: " + e.getMessage()));
-                });
-    }
-
-    private void fetchAllTransactionsForDuplicateCheck(
-            com.google.firebase.firestore.FirebaseFirestore db,
-            String userId,
-            java.util.List<java.util.Map<String, Object>> transactions,
-            int remainingLimit,
-            int currentDayCount) {
-
-        db.collection("users").document(userId).collection("expenses")
-                .get()
-                .addOnSuccessListener(allSnapshot -> {
-                    // Build complete hash set of all existing transactions
-                    java.util.Set<String> existingHashes = new java.util.HashSet<>();
-                    for (com.google.firebase.firestore.QueryDocumentSnapshot doc : allSnapshot) {
-                        String hash = buildTransactionHash(doc);
-                        if (hash != null) {
-                            existingHashes.add(hash);
-                        }
-                    }
-
-                    // Filter out duplicates
-                    java.util.List<java.util.Map<String, Object>> uniqueTransactions = new java.util.ArrayList<>();
-                    int duplicateCount = 0;
-
-                    for (java.util.Map<String, Object> transaction : transactions) {
-                        String hash = buildTransactionHashFromMap(transaction);
-                        if (!existingHashes.contains(hash)) {
-                            uniqueTransactions.add(transaction);
-                            existingHashes.add(hash); // Prevent duplicates within same import
-                        } else {
-                            duplicateCount++;
-                        }
-                    }
-
-                    if (uniqueTransactions.isEmpty()) {
-                        final int skipped = duplicateCount;
-                        runOnUiThread(() -> BeautifulNotification.showWarning(this,
-                                "All " + skipped + " transactions already exist. No new data to import."));
-                        return;
-                    }
-
-                    // Apply daily limit
-                    int toImport = Math.min(uniqueTransactions.size(), remainingLimit);
-                    java.util.List<java.util.Map<String, Object>> finalTransactions = uniqueTransactions.subList(0,
-                            toImport);
-
-                    final int skippedDuplicates = duplicateCount;
-                    final int skippedLimit = uniqueTransactions.size() - toImport;
-
-                    // Proceed with import
-                    performBatchImport(db, userId, finalTransactions, skippedDuplicates, skippedLimit, currentDayCount);
-                })
-                .addOnFailureListener(e -> {
-                    runOnUiThread(() -> BeautifulNotification.showError(this,
-                            "Failed to check for duplicates: " + e.getMessage()));
-                });
-    }
-
-    private void performBatchImport(
-            com.google.firebase.firestore.FirebaseFirestore db,
-            String userId,
-            java.util.List<java.util.Map<String, Object>> transactions,
-            int skippedDuplicates,
-            int skippedLimit,
-            int currentDayCount) {
-
-        com.google.firebase.firestore.WriteBatch batch = db.batch();
-        long now = System.currentTimeMillis();
-
-        for (java.util.Map<String, Object> transaction : transactions) {
-            transaction.put("userId", userId);
-            transaction.put("createdAt", now);
-            transaction.put("importedAt", now); // Mark as imported
-
-            com.google.firebase.firestore.DocumentReference docRef = db.collection("users").document(userId)
-                    .collection("expenses").document();
-            batch.set(docRef, transaction);
+        if (!unique.isEmpty()) {
+            repository.insertAllAndWait(new java.util.ArrayList<>(unique));
+            counts[0] += unique.size();
         }
-
-        final int importedCount = transactions.size();
-
-        batch.commit()
-                .addOnSuccessListener(v -> {
-                    // Update daily import count in Firestore user document
-                    updateDailyImportCount(db, userId, currentDayCount + importedCount);
-
-                    runOnUiThread(() -> {
-                        // Build detailed message
-                        StringBuilder message = new StringBuilder();
-                        message.append("Imported ").append(importedCount).append(" transactions!");
-
-                        if (skippedDuplicates > 0) {
-                            message.append("\n").append(skippedDuplicates).append(" duplicates skipped.");
-                        }
-                        if (skippedLimit > 0) {
-                            message.append("\n").append(skippedLimit).append(" skipped (daily limit).");
-                        }
-
-                        BeautifulNotification.showSuccess(this, message.toString());
-                        sendImportNotification(userId, importedCount);
-                    });
-                })
-                .addOnFailureListener(e -> {
-                    runOnUiThread(() -> BeautifulNotification.showError(this,
-                            "Import failed: " + e.getMessage()));
-                });
+        return counts[0] < remainingLimit;
     }
 
     private void updateDailyImportCount(com.google.firebase.firestore.FirebaseFirestore db,
@@ -941,46 +799,6 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
         return sdf.format(new Date());
     }
 
-    private String buildTransactionHash(com.google.firebase.firestore.QueryDocumentSnapshot doc) {
-        try {
-            Double amount = doc.getDouble("amount");
-            String category = doc.getString("category");
-            String type = doc.getString("type");
-            Long date = doc.getLong("date");
-            String notes = doc.getString("notes");
-
-            if (amount == null)
-                return null;
-
-            return String.format(Locale.US, "%.2f|%s|%s|%d|%s",
-                    amount,
-                    category != null ? category : "",
-                    type != null ? type : "",
-                    date != null ? date : 0L,
-                    notes != null ? notes.trim().toLowerCase() : "");
-        } catch (Exception e) {
-            return null;
-        }
-    }
-
-    private String buildTransactionHashFromMap(java.util.Map<String, Object> transaction) {
-        try {
-            Object amountObj = transaction.get("amount");
-            double amount = amountObj instanceof Number ? ((Number) amountObj).doubleValue() : 0;
-            String category = (String) transaction.getOrDefault("category", "");
-            String type = (String) transaction.getOrDefault("type", "");
-            Object dateObj = transaction.get("date");
-            long date = dateObj instanceof Number ? ((Number) dateObj).longValue() : 0L;
-            String notes = (String) transaction.getOrDefault("notes", "");
-
-            return String.format(Locale.US, "%.2f|%s|%s|%d|%s",
-                    amount, category, type, date,
-                    notes != null ? notes.trim().toLowerCase() : "");
-        } catch (Exception e) {
-            return "";
-        }
-    }
-
     private void sendImportNotification(String userId, int count) {
         java.util.Map<String, Object> notification = new java.util.HashMap<>();
         notification.put("userId", userId);
@@ -1386,13 +1204,21 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
 
         cardBackup.setOnClickListener(v -> {
             dialog.dismiss();
-            exportAsJSON();
-            preferenceManager.setLastBackupTime(System.currentTimeMillis());
+            if (lastBackup <= 0) {
+                createBackup(0);
+                return;
+            }
+            // A restore needs the full backup plus every later incremental one
+            new MaterialAlertDialogBuilder(this)
+                    .setTitle("Backup Now")
+                    .setItems(new String[] { "Changes since " + lastBackupText, "Full backup" },
+                            (d, which) -> createBackup(which == 0 ? lastBackup : 0))
+                    .show();
         });
 
         cardRestore.setOnClickListener(v -> {
             dialog.dismiss();
-            BeautifulNotification.showInfo(this, "Restore feature coming soon!");
+            backupPickerLauncher.launch(new String[] { "application/octet-stream", "*/*" });
         });
 
         btnCancel.setOnClickListener(v -> dialog.dismiss());
@@ -1403,6 +1229,68 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
         dialog.show();
     }
 
+    /**
+     * @param since only rows written at or after this time, or 0 for a full backup
+     */
+    private void createBackup(long since) {
+        ExpenseRepository repository = new ExpenseRepository(getApplication());
+        AlertDialog progressDialog = showProgressDialog("Backing up…",
+                since > 0 ? "Saving changes since your last backup" : "Saving all transactions");
+
+        // Rows written while the backup runs are picked up by the next incremental one
+        long startedAt = System.currentTimeMillis();
+        String filename = "trackexpense_" + (since > 0 ? "incremental_" : "full_") + startedAt + ".teb";
+        File file = new File(Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS),
+                filename);
+
+        Executors.newSingleThreadExecutor().execute(() -> {
+            try {
+                long count;
+                try (java.io.OutputStream out = new java.io.FileOutputStream(file)) {
+                    count = repository.backupSync(out, since, startedAt);
+                }
+                preferenceManager.setLastBackupTime(startedAt);
+                runOnUiThread(() -> {
+                    progressDialog.dismiss();
+                    BeautifulNotification.showSuccess(this,
+                            "Backed up " + count + " transactions to Downloads/" + filename);
+                });
+            } catch (Exception e) {
+                file.delete();
+                android.util.Log.e("Backup", "Error creating backup", e);
+                runOnUiThread(() -> {
+                    progressDialog.dismiss();
+                    BeautifulNotification.showError(this, "Backup failed: " + e.getMessage());
+                });
+            }
+        });
+    }
+
+    private void restoreBackup(Uri uri) {
+        ExpenseRepository repository = new ExpenseRepository(getApplication());
+        AlertDialog progressDialog = showProgressDialog("Restoring…", "Loading your backup");
+
+        Executors.newSingleThreadExecutor().execute(() -> {
+            try (InputStream inputStream = getContentResolver().openInputStream(uri)) {
+                if (inputStream == null)
+                    throw new IOException("Could not read file");
+                int applied = repository.restoreSync(inputStream);
+                runOnUiThread(() -> {
+                    progressDialog.dismiss();
+                    BeautifulNotification.showSuccess(this, applied > 0
+                            ? "Restored " + applied + " transactions"
+                            : "Everything in this backup is already here");
+                });
+            } catch (Exception e) {
+                android.util.Log.e("Backup", "Error restoring backup", e);
+                runOnUiThread(() -> {
+                    progressDialog.dismiss();
+                    BeautifulNotification.showError(this, "Restore failed: " + e.getMessage());
+                });
+            }
+        });
+    }
+
     // ==================== HELP & FAQ ====================
     private void showHelpDialog() {
         View dialogView = getLayoutInflater().inflate(R.layout.dialog_help, null);
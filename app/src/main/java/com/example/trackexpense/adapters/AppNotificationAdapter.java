@@ -9,10 +9,12 @@ import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.core.content.ContextCompat;
 import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.trackexpense.R;
 import com.example.trackexpense.data.model.AppNotification;
+import com.example.trackexpense.utils.StableIds;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -23,12 +25,36 @@ import java.util.concurrent.TimeUnit;
 
 /**
  * Adapter for displaying Firebase-backed app notifications.
+ * Lists are diffed off the main thread; a change to the read flag alone
+ * rebinds just the unread indicator.
  */
-public class AppNotificationAdapter extends RecyclerView.Adapter<AppNotificationAdapter.NotificationViewHolder> {
+public class AppNotificationAdapter extends ListAdapter<AppNotification, AppNotificationAdapter.NotificationViewHolder> {
+
+    private static final Object PAYLOAD_READ = new Object();
+
+    private static final DiffUtil.ItemCallback<AppNotification> DIFF_CALLBACK =
+            new DiffUtil.ItemCallback<AppNotification>() {
+                @Override
+                public boolean areItemsTheSame(@NonNull AppNotification oldItem, @NonNull AppNotification newItem) {
+                    return oldItem.getId() != null && oldItem.getId().equals(newItem.getId());
+                }
+
+                @Override
+                public boolean areContentsTheSame(@NonNull AppNotification oldItem, @NonNull AppNotification newItem) {
+                    // equals() does not include the read flag
+                    return oldItem.equals(newItem) && oldItem.isRead() == newItem.isRead();
+                }
+
+                @Override
+                public Object getChangePayload(@NonNull AppNotification oldItem, @NonNull AppNotification newItem) {
+                    return oldItem.equals(newItem) ? PAYLOAD_READ : null;
+                }
+            };
 
-    private List<AppNotification> notifications = new ArrayList<>();
     private OnNotificationActionListener listener;
     private String currencySymbol = "৳";
+    // Size of the latest list, which the displayed list matches once its diff is applied
+    private int notificationCount = 0;
 
     public interface OnNotificationActionListener {
         void onDelete(AppNotification notification, int position);
@@ -36,6 +62,11 @@ public class AppNotificationAdapter extends RecyclerView.Adapter<AppNotification
         void onClick(AppNotification notification);
     }
 
+    public AppNotificationAdapter() {
+        super(DIFF_CALLBACK);
+        setHasStableIds(true);
+    }
+
     public void setOnNotificationActionListener(OnNotificationActionListener listener) {
         this.listener = listener;
     }
@@ -44,44 +75,41 @@ public class AppNotificationAdapter extends RecyclerView.Adapter<AppNotification
         this.currencySymbol = symbol;
     }
 
+    /**
+     * Show a copy of the list, so callers may keep modifying their own.
+     */
     public void setNotifications(List<AppNotification> newNotifications) {
-        DiffUtil.DiffResult diffResult = DiffUtil.calculateDiff(new DiffUtil.Callback() {
-            @Override
-            public int getOldListSize() {
-                return notifications.size();
-            }
-
-            @Override
-            public int getNewListSize() {
-                return newNotifications.size();
-            }
-
-            @Override
-            public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
-                String oldId = notifications.get(oldItemPosition).getId();
-                String newId = newNotifications.get(newItemPosition).getId();
-                return oldId != null && oldId.equals(newId);
-            }
-
-            @Override
-            public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
-                return notifications.get(oldItemPosition).equals(newNotifications.get(newItemPosition));
-            }
-        });
-
-        this.notifications = new ArrayList<>(newNotifications);
-        diffResult.dispatchUpdatesTo(this);
+        notificationCount = newNotifications.size();
+        submitList(new ArrayList<>(newNotifications));
     }
 
     public void removeNotification(int position) {
-        if (position >= 0 && position < notifications.size()) {
-            notifications.remove(position);
-            notifyItemRemoved(position);
+        List<AppNotification> current = getCurrentList();
+        if (position >= 0 && position < current.size()) {
+            List<AppNotification> updated = new ArrayList<>(current);
+            updated.remove(position);
+            notificationCount = updated.size();
+            submitList(updated);
         }
     }
 
+    /**
+     * Rebind the unread indicator of a notification marked read in place.
+     */
+    public void notifyReadChanged(AppNotification notification) {
+        int position = getCurrentList().indexOf(notification);
+        if (position >= 0)
+            notifyItemChanged(position, PAYLOAD_READ);
+    }
+
     public int getNotificationCount() {
-        return notifications.size();
+        return notificationCount;
+    }
+
+    @Override
+    public long getItemId(int position) {
+        String id = getItem(position).getId();
+        return id != null ? StableIds.of(id) : RecyclerView.NO_ID;
     }
 
     @NonNull
@@ -94,12 +122,17 @@ public class AppNotificationAdapter extends RecyclerView.Adapter<AppNotification
 
     @Override
     public void onBindViewHolder(@NonNull NotificationViewHolder holder, int position) {
-        holder.bind(notifications.get(position), position);
+        holder.bind(getItem(position));
     }
 
     @Override
-    public int getItemCount() {
-        return notifications.size();
+    public void onBindViewHolder(@NonNull NotificationViewHolder holder, int position,
+            @NonNull List<Object> payloads) {
+        if (payloads.size() == 1 && payloads.get(0) == PAYLOAD_READ) {
+            holder.bindReadState(getItem(position));
+        } else {
+            onBindViewHolder(holder, position);
+        }
     }
 
     class NotificationViewHolder extends RecyclerView.ViewHolder {
@@ -122,9 +155,25 @@ public class AppNotificationAdapter extends RecyclerView.Adapter<AppNotification
             btnDelete = itemView.findViewById(R.id.btnDeleteNotification);
             iconBackground = itemView.findViewById(R.id.iconBackground);
             unreadIndicator = itemView.findViewById(R.id.unreadIndicator);
+
+            // Delete button click
+            btnDelete.setOnClickListener(v -> {
+                int position = getBindingAdapterPosition();
+                if (listener != null && position != RecyclerView.NO_POSITION) {
+                    listener.onDelete(getItem(position), position);
+                }
+            });
+
+            // Item click
+            itemView.setOnClickListener(v -> {
+                int position = getBindingAdapterPosition();
+                if (listener != null && position != RecyclerView.NO_POSITION) {
+                    listener.onClick(getItem(position));
+                }
+            });
         }
 
-        void bind(AppNotification notification, int position) {
+        void bind(AppNotification notification) {
             // Set title and message
             tvTitle.setText(notification.getTitle());
             tvMessage.setText(notification.getMessage());
@@ -160,24 +209,14 @@ public class AppNotificationAdapter extends RecyclerView.Adapter<AppNotification
             iconBg.setColor(getTypeBackgroundColor(notification.getType()));
             iconBackground.setBackground(iconBg);
 
+            bindReadState(notification);
+        }
+
+        void bindReadState(AppNotification notification) {
             // Show/hide unread indicator
             if (unreadIndicator != null) {
                 unreadIndicator.setVisibility(notification.isRead() ? View.GONE : View.VISIBLE);
             }
-
-            // Delete button click
-            btnDelete.setOnClickListener(v -> {
-                if (listener != null) {
-                    listener.onDelete(notification, position);
-                }
-            });
-
-            // Item click
-            itemView.setOnClickListener(v -> {
-                if (listener != null) {
-                    listener.onClick(notification);
-                }
-            });
         }
 
         private String getTypeDisplayText(String type) {
@@ -0,0 +1,244 @@
+package com.example.trackexpense.data;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.room.InvalidationTracker;
+import androidx.sqlite.db.SimpleSQLiteQuery;
+
+import com.example.trackexpense.data.local.AppDatabase;
+import com.example.trackexpense.data.local.Expense;
+import com.example.trackexpense.data.local.ExpenseDao;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keyset pager over the local expenses table.
+ * Unpinned rows are paged in (date DESC, id DESC) order and each page
+ * continues from the last row of the previous one, so loading page N never
+ * scans the rows before it. Pinned rows are few and always loaded in full.
+ * While started, a change to the table reloads the rows already shown
+ * rather than the whole table.
+ */
+public class ExpensePager {
+
+    private static final String TAG = "ExpensePager";
+
+    private final AppDatabase db;
+    private final ExpenseDao expenseDao;
+    private final int pageSize;
+    private final MutableLiveData<Page> pages = new MutableLiveData<>();
+
+    // Guarded by this
+    private Filter filter = Filter.ALL;
+    private final List<Expense> loaded = new ArrayList<>();
+    private boolean loading = false;
+    private boolean hasMore = true;
+    // Bumped on refresh so a page that was in flight is not applied afterwards
+    private int generation = 0;
+
+    private final InvalidationTracker.Observer tableObserver = new InvalidationTracker.Observer("expenses") {
+        @Override
+        public void onInvalidated(@NonNull Set<String> tables) {
+            reload();
+        }
+    };
+
+    /**
+     * Which rows to page through. "ALL" for no type or category filter and
+     * 0 for no start date.
+     */
+    public static final class Filter {
+        static final Filter ALL = new Filter("ALL", "ALL", 0);
+
+        final String type;
+        final String category;
+        final long since;
+
+        public Filter(String type, String category, long since) {
+            this.type = type;
+            this.category = category;
+            this.since = since;
+        }
+
+        void appendWhere(StringBuilder sql, List<Object> args) {
+            if (!"ALL".equals(type)) {
+                sql.append(" AND type = ?");
+                args.add(type);
+            }
+            if (!"ALL".equals(category)) {
+                sql.append(" AND category = ?");
+                args.add(category);
+            }
+            if (since > 0) {
+                sql.append(" AND date >= ?");
+                args.add(since);
+            }
+        }
+    }
+
+    /**
+     * What to show: every matching pinned row, the unpinned rows loaded so far,
+     * and the number of matching rows in the table.
+     */
+    public static final class Page {
+        public final List<Expense> pinned;
+        public final List<Expense> rows;
+        public final int totalCount;
+        public final boolean hasMore;
+
+        Page(List<Expense> pinned, List<Expense> rows, int totalCount, boolean hasMore) {
+            this.pinned = Collections.unmodifiableList(pinned);
+            this.rows = Collections.unmodifiableList(rows);
+            this.totalCount = totalCount;
+            this.hasMore = hasMore;
+        }
+    }
+
+    public ExpensePager(AppDatabase db, int pageSize) {
+        this.db = db;
+        this.expenseDao = db.expenseDao();
+        this.pageSize = pageSize;
+    }
+
+    public LiveData<Page> getPages() {
+        return pages;
+    }
+
+    public synchronized boolean hasMore() {
+        return hasMore;
+    }
+
+    /**
+     * Reload the shown rows whenever the expenses table changes, until {@link #stop()}.
+     */
+    public void start() {
+        db.getInvalidationTracker().addObserver(tableObserver);
+    }
+
+    public void stop() {
+        db.getInvalidationTracker().removeObserver(tableObserver);
+    }
+
+    /**
+     * Page through the rows matching {@code filter}, starting again at the first page.
+     */
+    public void setFilter(Filter filter) {
+        synchronized (this) {
+            this.filter = filter;
+        }
+        refresh();
+    }
+
+    /**
+     * Drop everything loaded so far and fetch the first page again.
+     */
+    public void refresh() {
+        synchronized (this) {
+            generation++;
+            loaded.clear();
+            hasMore = true;
+            loading = false;
+        }
+        load(null, pageSize, false);
+    }
+
+    /**
+     * Load the page after the last loaded row. No-op while a page is loading or
+     * when the end of the table has been reached.
+     */
+    public void loadNextPage() {
+        Expense cursor;
+        synchronized (this) {
+            if (loading || !hasMore)
+                return;
+            loading = true;
+            cursor = loaded.isEmpty() ? null : loaded.get(loaded.size() - 1);
+        }
+        load(cursor, pageSize, true);
+    }
+
+    /**
+     * Load the rows already shown again, e.g. after a write, keeping the window size.
+     */
+    private void reload() {
+        int window;
+        synchronized (this) {
+            generation++;
+            window = Math.max(pageSize, loaded.size());
+        }
+        load(null, window, false);
+    }
+
+    private void load(Expense cursor, int limit, boolean append) {
+        final int requestGeneration;
+        final Filter requestFilter;
+        synchronized (this) {
+            loading = true;
+            requestGeneration = generation;
+            requestFilter = filter;
+        }
+
+        AppDatabase.databaseReadExecutor.execute(() -> {
+            List<Expense> rows;
+            List<Expense> pinned;
+            int count;
+            try {
+                rows = expenseDao.getExpensesSync(pageQuery(requestFilter, false, cursor, limit));
+                pinned = expenseDao.getExpensesSync(pageQuery(requestFilter, true, null, 0));
+                count = expenseDao.countSync(countQuery(requestFilter));
+            } catch (Exception e) {
+                Log.e(TAG, "load: Failed", e);
+                synchronized (this) {
+                    if (requestGeneration == generation)
+                        loading = false;
+                }
+                return;
+            }
+
+            synchronized (this) {
+                if (requestGeneration != generation)
+                    return;
+                if (!append)
+                    loaded.clear();
+                loaded.addAll(rows);
+                hasMore = rows.size() == limit;
+                loading = false;
+                pages.postValue(new Page(pinned, new ArrayList<>(loaded), count, hasMore));
+                Log.d(TAG, "load: Loaded " + rows.size() + " rows, total " + loaded.size() + " of " + count);
+            }
+        });
+    }
+
+    /**
+     * Pinned or unpinned rows matching {@code filter}, newest first, after
+     * {@code cursor} if given and at most {@code limit} rows if positive.
+     */
+    static SimpleSQLiteQuery pageQuery(Filter filter, boolean pinned, Expense cursor, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT * FROM expenses WHERE isPinned = ").append(pinned ? 1 : 0);
+        List<Object> args = new ArrayList<>();
+        filter.appendWhere(sql, args);
+        if (cursor != null) {
+            sql.append(" AND (date < ? OR (date = ? AND id < ?))");
+            args.add(cursor.getDate());
+            args.add(cursor.getDate());
+            args.add(cursor.getId());
+        }
+        sql.append(" ORDER BY date DESC, id DESC");
+        if (limit > 0)
+            sql.append(" LIMIT ").append(limit);
+        return new SimpleSQLiteQuery(sql.toString(), args.toArray());
+    }
+
+    static SimpleSQLiteQuery countQuery(Filter filter) {
+        StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM expenses WHERE 1 = 1");
+        List<Object> args = new ArrayList<>();
+        filter.appendWhere(sql, args);
+        return new SimpleSQLiteQuery(sql.toString(), args.toArray());
+    }
+}
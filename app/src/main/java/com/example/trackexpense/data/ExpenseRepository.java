@@ -1,69 +1,637 @@
 package com.example.trackexpense.data;
 
 import android.app.Application;
+import android.database.Cursor;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
 import androidx.lifecycle.LiveData;
-import androidx.lifecycle.MediatorLiveData;
 
 import com.example.trackexpense.data.local.AppDatabase;
+import com.example.trackexpense.data.local.CategoryTotal;
+import com.example.trackexpense.data.local.DeletedExpense;
+import com.example.trackexpense.data.local.DeletedExpenseDao;
 import com.example.trackexpense.data.local.Expense;
 import com.example.trackexpense.data.local.ExpenseDao;
+import com.example.trackexpense.data.local.ExpenseSearchHit;
+import com.example.trackexpense.data.local.OutboxDao;
+import com.example.trackexpense.data.local.OutboxEntry;
+import com.example.trackexpense.data.local.PeriodTotal;
+import com.example.trackexpense.data.local.RollupDao;
+import com.example.trackexpense.data.local.SummaryDao;
+import com.example.trackexpense.data.local.TypeTotal;
 import com.example.trackexpense.data.remote.FirestoreService;
+import com.example.trackexpense.data.remote.OutboxSyncWorker;
+import com.example.trackexpense.data.repository.GuestNotificationRepository;
 import com.example.trackexpense.data.repository.NotificationRepository;
+import com.example.trackexpense.utils.BackupCodec;
 import com.example.trackexpense.utils.PreferenceManager;
 
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class ExpenseRepository {
 
     private static final String TAG = "ExpenseRepository";
 
+    // SQLite's default bound-parameter limit for IN (...) lists
+    private static final int MAX_SQL_VARIABLES = 999;
+
+    // Rollups are verified against the expenses table once per process
+    private static final AtomicBoolean rollupsVerified = new AtomicBoolean(false);
+
+    // Remote changes are mirrored into Room by one process-wide listener
+    private static final AtomicBoolean mirrorRegistered = new AtomicBoolean(false);
+
+    // Older remote history is paged into Room one cursor query at a time
+    private static final int REMOTE_PAGE_SIZE = 50;
+    private static final AtomicBoolean remotePageLoading = new AtomicBoolean(false);
+    // Rows per keyset page when writing or applying a backup
+    private static final int BACKUP_PAGE_SIZE = 500;
+    // Page size for bulk loads that need the whole ledger, e.g. export
+    private static final int REMOTE_BULK_PAGE_SIZE = 500;
+    private static final AtomicBoolean remoteHistoryComplete = new AtomicBoolean(false);
+    // Shared across repository instances; see getTypeTotals()
+    private static LiveData<List<TypeTotal>> typeTotals;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private final Application application;
+    private final AppDatabase db;
     private final ExpenseDao expenseDao;
+    private final SummaryDao summaryDao;
+    private final RollupDao rollupDao;
+    private final OutboxDao outboxDao;
+    private final DeletedExpenseDao deletedExpenseDao;
     private final FirestoreService firestoreService;
     private final NotificationRepository notificationRepository;
     private final PreferenceManager preferenceManager;
-    private final LiveData<List<Expense>> allExpenses;
-    private final MediatorLiveData<List<Expense>> mergedExpenses = new MediatorLiveData<>();
 
     public ExpenseRepository(Application application) {
-        AppDatabase db = AppDatabase.getDatabase(application);
+        this.application = application;
+        db = AppDatabase.getDatabase(application);
         expenseDao = db.expenseDao();
+        summaryDao = db.summaryDao();
+        rollupDao = db.rollupDao();
+        outboxDao = db.outboxDao();
+        deletedExpenseDao = db.deletedExpenseDao();
         firestoreService = FirestoreService.getInstance();
         notificationRepository = NotificationRepository.getInstance();
         preferenceManager = new PreferenceManager(application);
-        allExpenses = expenseDao.getAllExpenses();
 
         Log.d(TAG, "ExpenseRepository initialized, user logged in: " + firestoreService.isUserLoggedIn());
-        setupMergedExpenses();
+        verifyRollups();
+        startRemoteMirror();
+
+        // Flush anything left in the outbox by a previous process
+        if (firestoreService.isUserLoggedIn()) {
+            OutboxSyncWorker.enqueue(application);
+        }
+    }
+
+    /**
+     * Check the rollups against the expenses table once per schema version and
+     * time zone. Writes keep them in step, but a migration can change either
+     * table and bucket keys are local dates, so a new time zone moves rows
+     * between buckets. Otherwise the full scan is skipped.
+     */
+    private void verifyRollups() {
+        if (!rollupsVerified.compareAndSet(false, true))
+            return;
+        AppDatabase.databaseWriteExecutor.execute(() -> {
+            try {
+                String marker = db.getOpenHelper().getWritableDatabase().getVersion()
+                        + "/" + TimeZone.getDefault().getID();
+                if (marker.equals(preferenceManager.getRollupsVerified()))
+                    return;
+                if (rollupDao.verifyOrRebuild()) {
+                    Log.w(TAG, "verifyRollups: Rollups were inconsistent and have been rebuilt");
+                }
+                preferenceManager.setRollupsVerified(marker);
+            } catch (Exception e) {
+                Log.e(TAG, "verifyRollups: Failed", e);
+            }
+        });
+    }
+
+    // ==================== LOCAL WRITES ====================
+    // Each write updates the expense row, its rollup buckets and, when syncUserId
+    // is set, its sync_outbox entry in one transaction. A change is therefore
+    // never applied locally without also being queued for Firestore. Rows are
+    // stamped with their contentHash and updatedAt on the way in, and deleted
+    // rows are logged in deleted_expenses for incremental backups.
+
+    private static void touch(Expense expense) {
+        expense.updateContentHash();
+        expense.setUpdatedAt(System.currentTimeMillis());
+    }
+
+    private long insertLocal(Expense expense, String syncUserId) {
+        touch(expense);
+        return db.runInTransaction(() -> {
+            long id = expenseDao.insertAndGetId(expense);
+            expense.setId((int) id);
+            rollupDao.apply(expense, 1);
+            queueRemote(expense, syncUserId, OutboxEntry.OP_CREATE);
+            return id;
+        });
+    }
+
+    private void updateLocal(Expense expense, String syncUserId) {
+        updateLocal(expense, syncUserId, true);
+    }
+
+    /**
+     * @param stamp false to keep the row's updatedAt, for a row restored from a
+     *              backup; its contentHash must already be set
+     */
+    private void updateLocal(Expense expense, String syncUserId, boolean stamp) {
+        if (stamp)
+            touch(expense);
+        db.runInTransaction(() -> {
+            Expense stored = expenseDao.getExpenseByIdSync(expense.getId());
+            expenseDao.update(expense);
+            if (stored != null) {
+                rollupDao.apply(stored, -1);
+                rollupDao.apply(expense, 1);
+            }
+            queueRemote(expense, syncUserId, OutboxEntry.OP_UPDATE);
+        });
+    }
+
+    private void deleteLocal(Expense expense, String syncUserId) {
+        deleteLocal(expense, syncUserId, System.currentTimeMillis());
+    }
+
+    private void deleteLocal(Expense expense, String syncUserId, long deletedAt) {
+        db.runInTransaction(() -> {
+            Expense stored = expenseDao.getExpenseByIdSync(expense.getId());
+            expenseDao.delete(expense);
+            if (stored != null) {
+                rollupDao.apply(stored, -1);
+                deletedExpenseDao.insert(DeletedExpense.of(stored, deletedAt));
+            }
+            queueRemote(expense, syncUserId, OutboxEntry.OP_DELETE);
+        });
+    }
+
+    private void insertAllLocal(List<Expense> expenses, String syncUserId) {
+        insertAllLocal(expenses, syncUserId, true);
+    }
+
+    /**
+     * @param stamp false to keep each row's updatedAt, for rows restored from a
+     *              backup; their contentHash must already be set
+     */
+    private void insertAllLocal(List<Expense> expenses, String syncUserId, boolean stamp) {
+        if (stamp) {
+            for (Expense e : expenses) {
+                touch(e);
+            }
+        }
+        db.runInTransaction(() -> {
+            List<Long> ids = expenseDao.insertAll(expenses);
+            List<OutboxEntry> entries = new ArrayList<>();
+            for (int i = 0; i < expenses.size(); i++) {
+                Expense e = expenses.get(i);
+                e.setId(ids.get(i).intValue());
+                rollupDao.apply(e, 1);
+                if (syncUserId != null && e.getFirestoreId() != null)
+                    entries.add(OutboxEntry.of(e, syncUserId, OutboxEntry.OP_CREATE));
+            }
+            if (!entries.isEmpty())
+                outboxDao.insertAll(entries);
+        });
+    }
+
+    private void queueRemote(Expense expense, String syncUserId, String operation) {
+        if (syncUserId == null)
+            return;
+        if (expense.getFirestoreId() == null || expense.getFirestoreId().isEmpty()) {
+            Log.w(TAG, "queueRemote: No firestoreId, skipping " + operation);
+            return;
+        }
+        outboxDao.insert(OutboxEntry.of(expense, syncUserId, operation));
+    }
+
+    private void upsertAllLocal(List<Expense> expenses) {
+        for (Expense e : expenses) {
+            touch(e);
+        }
+        db.runInTransaction(() -> {
+            // Take replaced rows out of their buckets before they are overwritten
+            List<Integer> existingIds = new ArrayList<>();
+            for (Expense e : expenses) {
+                if (e.getId() != 0)
+                    existingIds.add(e.getId());
+            }
+            for (int start = 0; start < existingIds.size(); start += MAX_SQL_VARIABLES) {
+                List<Integer> chunk = existingIds.subList(start,
+                        Math.min(start + MAX_SQL_VARIABLES, existingIds.size()));
+                for (Expense stored : expenseDao.getExpensesByIdsSync(chunk)) {
+                    rollupDao.apply(stored, -1);
+                }
+            }
+
+            List<Long> ids = expenseDao.upsertAll(expenses);
+            for (int i = 0; i < expenses.size(); i++) {
+                Expense e = expenses.get(i);
+                if (ids.get(i) != -1L)
+                    e.setId(ids.get(i).intValue());
+                rollupDao.apply(e, 1);
+            }
+        });
+    }
+
+    /**
+     * Give every row without a firestoreId a client-generated one and persist it
+     * before anything is uploaded, so a retried or repeated upload targets the
+     * same documents. Only firestoreId and updatedAt change, so rollups are untouched.
+     *
+     * @return the IDs assigned now, whose documents the upload creates
+     */
+    private Set<String> assignRemoteIds(List<Expense> expenses) {
+        List<Expense> changed = new ArrayList<>();
+        Set<String> assigned = new HashSet<>();
+        for (Expense e : expenses) {
+            if (e.getFirestoreId() == null || e.getFirestoreId().isEmpty()) {
+                e.setFirestoreId(firestoreService.newExpenseId());
+                e.setUpdatedAt(System.currentTimeMillis());
+                changed.add(e);
+                assigned.add(e.getFirestoreId());
+            }
+        }
+        if (!changed.isEmpty()) {
+            expenseDao.updateAll(changed);
+        }
+        return assigned;
+    }
+
+    private void deleteAllLocal() {
+        db.runInTransaction(() -> {
+            expenseDao.deleteAll();
+            rollupDao.clear();
+        });
     }
 
-    private void setupMergedExpenses() {
-        mergedExpenses.addSource(allExpenses, localExpenses -> {
-            if (!firestoreService.isUserLoggedIn()) {
-                mergedExpenses.setValue(localExpenses);
+    /**
+     * Drop every row of the signed-out account so the next one cannot see or edit
+     * it. Unpushed changes are parked in the old user's outbox entries, which are
+     * only drained under that uid; local-only rows are not touched.
+     */
+    private int deleteSyncedMirrorLocal() {
+        return db.runInTransaction(() -> {
+            int deleted = expenseDao.deleteSyncedMirror();
+            if (deleted > 0)
+                rollupDao.rebuild();
+            return deleted;
+        });
+    }
+
+    /**
+     * Bring back the rows parked by {@link #deleteSyncedMirrorLocal()} when their
+     * user signs in again: each document with a pending create or update is
+     * rebuilt from its newest outbox entry unless Room already has it. The entries
+     * stay queued, so the mirror keeps skipping these documents until they are pushed.
+     */
+    private int unparkPendingLocal(String userId) {
+        return db.runInTransaction(() -> {
+            List<OutboxEntry> latest = outboxDao.getLatestPendingByDocument(userId);
+            Set<String> stored = new HashSet<>();
+            for (int start = 0; start < latest.size(); start += MAX_SQL_VARIABLES) {
+                List<String> chunk = new ArrayList<>();
+                for (OutboxEntry entry : latest.subList(start, Math.min(start + MAX_SQL_VARIABLES, latest.size()))) {
+                    chunk.add(entry.documentId);
+                }
+                for (Expense e : expenseDao.getExpensesByFirestoreIdsSync(chunk)) {
+                    stored.add(e.getFirestoreId());
+                }
             }
+
+            List<Expense> parked = new ArrayList<>();
+            for (OutboxEntry entry : latest) {
+                if (OutboxEntry.OP_DELETE.equals(entry.operation) || stored.contains(entry.documentId))
+                    continue;
+                Expense e = new Expense(entry.amount, entry.category, entry.date, entry.notes, entry.type);
+                e.setFirestoreId(entry.documentId);
+                e.setPinned(entry.isPinned);
+                e.updateContentHash();
+                e.setUpdatedAt(entry.createdAt);
+                parked.add(e);
+            }
+            if (!parked.isEmpty()) {
+                expenseDao.insertAll(parked);
+                for (Expense e : parked) {
+                    rollupDao.apply(e, 1);
+                }
+            }
+            return parked.size();
         });
+    }
+
+    // ==================== REMOTE MIRROR ====================
+    // Room is the only read model. Signed-in users' Firestore documents are
+    // mirrored into it by firestoreId, and every screen queries Room.
+
+    private void startRemoteMirror() {
+        if (mirrorRegistered.compareAndSet(false, true)) {
+            firestoreService.addExpenseChangesListener(new FirestoreService.OnExpenseChangesListener() {
+                @Override
+                public void onExpenseChanges(List<Expense> added, List<Expense> modified, List<String> removedIds) {
+                    String userId = firestoreService.getUserId();
+                    if (userId == null)
+                        return;
+                    List<Expense> changed = new ArrayList<>(added);
+                    changed.addAll(modified);
+                    AppDatabase.databaseWriteExecutor.execute(() -> {
+                        try {
+                            mirrorRemoteChangesLocal(userId, changed, removedIds);
+                        } catch (Exception e) {
+                            Log.e(TAG, "onExpenseChanges: Failed to mirror remote changes", e);
+                        }
+                    });
+                }
+
+                @Override
+                public void onExpensesDetached(String userId) {
+                    // The mirror belongs to the signed-out user; unsynced edits stay parked in their outbox
+                    remoteHistoryComplete.set(false);
+                    // The next account pages its history from the newest document
+                    preferenceManager.clearRemoteCursor();
+                    AppDatabase.databaseWriteExecutor.execute(() -> {
+                        try {
+                            int deleted = deleteSyncedMirrorLocal();
+                            Log.d(TAG, "onExpensesDetached: Cleared " + deleted + " mirrored rows for " + userId);
+                        } catch (Exception e) {
+                            Log.e(TAG, "onExpensesDetached: Failed to clear local mirror", e);
+                        }
+                    });
+                }
+            });
+        }
 
         if (firestoreService.isUserLoggedIn()) {
-            mergedExpenses.addSource(firestoreService.getExpenses(), remoteExpenses -> {
-                if (remoteExpenses != null) {
-                    mergedExpenses.setValue(remoteExpenses);
+            String userId = firestoreService.getUserId();
+            AppDatabase.databaseWriteExecutor.execute(() -> {
+                try {
+                    int restored = unparkPendingLocal(userId);
+                    if (restored > 0)
+                        Log.d(TAG, "startRemoteMirror: Restored " + restored + " parked rows for " + userId);
+                } catch (Exception e) {
+                    Log.e(TAG, "startRemoteMirror: Failed to restore parked rows", e);
                 }
             });
+            firestoreService.getExpenses();
+        }
+    }
+
+    /**
+     * Upsert changed remote documents and delete removed ones, matching rows by
+     * firestoreId. Documents with a local change still waiting in the outbox are
+     * skipped so a stale snapshot cannot overwrite an edit that has not been pushed.
+     */
+    private void mirrorRemoteChangesLocal(String userId, List<Expense> changed, List<String> removedIds) {
+        db.runInTransaction(() -> {
+            List<String> documentIds = new ArrayList<>(removedIds);
+            for (Expense e : changed) {
+                documentIds.add(e.getFirestoreId());
+            }
+
+            // One variable is taken by userId in the outbox query
+            Set<String> pending = new HashSet<>();
+            Map<String, Expense> stored = new HashMap<>();
+            int chunkSize = MAX_SQL_VARIABLES - 1;
+            for (int start = 0; start < documentIds.size(); start += chunkSize) {
+                List<String> chunk = documentIds.subList(start, Math.min(start + chunkSize, documentIds.size()));
+                pending.addAll(outboxDao.getPendingDocumentIds(userId, chunk));
+                for (Expense e : expenseDao.getExpensesByFirestoreIdsSync(chunk)) {
+                    stored.put(e.getFirestoreId(), e);
+                }
+            }
+
+            List<Expense> upserts = new ArrayList<>();
+            for (Expense remote : changed) {
+                if (pending.contains(remote.getFirestoreId()))
+                    continue;
+                Expense local = stored.get(remote.getFirestoreId());
+                remote.setId(local != null ? local.getId() : 0);
+                upserts.add(remote);
+            }
+            if (!upserts.isEmpty()) {
+                upsertAllLocal(upserts);
+            }
+
+            for (String documentId : removedIds) {
+                Expense local = stored.get(documentId);
+                if (local == null || pending.contains(documentId))
+                    continue;
+                expenseDao.delete(local);
+                rollupDao.apply(local, -1);
+                deletedExpenseDao.insert(DeletedExpense.of(local, System.currentTimeMillis()));
+            }
+        });
+        Log.d(TAG, "mirrorRemoteChangesLocal: " + changed.size() + " changed, " + removedIds.size() + " removed");
+    }
+
+    /**
+     * Whether older remote expenses may still be missing from Room.
+     */
+    public boolean hasMoreRemoteExpenses() {
+        return firestoreService.isUserLoggedIn() && !remoteHistoryComplete.get();
+    }
+
+    /**
+     * Page the next {@value #REMOTE_PAGE_SIZE} remote expenses into Room,
+     * continuing after the last document of the previous page. The cursor is
+     * persisted per user and cleared on sign-out, so later sessions continue
+     * from where this one stopped. It is never taken from Room, where rows
+     * skipped by the mirror or added locally would move it.
+     *
+     * @return false if nothing was started (guest, history complete, or a page
+     *         already in flight); the listener is only called when true
+     */
+    public boolean loadOlderRemoteExpenses(OnCompleteListener listener) {
+        String userId = firestoreService.getUserId();
+        if (userId == null || remoteHistoryComplete.get() || !remotePageLoading.compareAndSet(false, true))
+            return false;
+
+        firestoreService.fetchExpensesPage(preferenceManager.getRemoteCursorDate(userId),
+                preferenceManager.getRemoteCursorId(userId), REMOTE_PAGE_SIZE,
+                new FirestoreService.OnExpensesPageLoadedListener() {
+                    @Override
+                    public void onLoaded(List<Expense> expenses) {
+                        if (expenses.size() < REMOTE_PAGE_SIZE)
+                            remoteHistoryComplete.set(true);
+                        AppDatabase.databaseWriteExecutor.execute(() -> {
+                            try {
+                                mirrorRemoteChangesLocal(userId, expenses, Collections.emptyList());
+                                // Advance only once the page is stored
+                                saveRemoteCursor(userId, expenses);
+                                remotePageLoading.set(false);
+                                if (listener != null)
+                                    listener.onSuccess();
+                            } catch (Exception e) {
+                                remotePageLoading.set(false);
+                                Log.e(TAG, "loadOlderRemoteExpenses: Failed to store page", e);
+                                if (listener != null)
+                                    listener.onError(e.getMessage());
+                            }
+                        });
+                    }
+
+                    @Override
+                    public void onFailure(Exception e) {
+                        remotePageLoading.set(false);
+                        if (listener != null)
+                            listener.onError(e.getMessage());
+                    }
+                });
+        return true;
+    }
+
+    /**
+     * Store the last document of a stored remote page as the next page's cursor.
+     */
+    private void saveRemoteCursor(String userId, List<Expense> page) {
+        if (page.isEmpty())
+            return;
+        Expense last = page.get(page.size() - 1);
+        preferenceManager.setRemoteCursor(userId, last.getDate(), last.getFirestoreId());
+    }
+
+    /**
+     * Page all remaining remote history into Room, so Room holds the whole
+     * ledger. Uses pages of {@value #REMOTE_BULK_PAGE_SIZE}; memory use does
+     * not grow with the ledger. Blocks, so never call it on the main thread.
+     */
+    public void loadAllRemoteExpensesSync() throws Exception {
+        String userId = firestoreService.getUserId();
+        if (userId == null)
+            return;
+
+        // Continue from the persisted cursor, not Room: rows skipped by the mirror never reach Room
+        while (!remoteHistoryComplete.get()) {
+            List<Expense> page = firestoreService.fetchExpensesPageSync(
+                    preferenceManager.getRemoteCursorDate(userId),
+                    preferenceManager.getRemoteCursorId(userId),
+                    REMOTE_BULK_PAGE_SIZE);
+
+            FutureTask<Void> task = new FutureTask<>(() -> {
+                mirrorRemoteChangesLocal(userId, page, Collections.emptyList());
+                saveRemoteCursor(userId, page);
+                return null;
+            });
+            AppDatabase.databaseWriteExecutor.execute(task);
+            task.get();
+
+            if (page.size() < REMOTE_BULK_PAGE_SIZE)
+                remoteHistoryComplete.set(true);
         }
     }
 
-    public LiveData<List<Expense>> getAllExpenses() {
-        boolean loggedIn = firestoreService.isUserLoggedIn();
-        Log.d(TAG, "getAllExpenses: user logged in = " + loggedIn);
+    /**
+     * Cursor over every expense (date, type, category, amount, notes), newest
+     * first, for streaming export. For signed-in users the rest of the remote
+     * ledger is paged into Room first. Blocks; the caller must close the cursor.
+     */
+    public Cursor openExportCursor() throws Exception {
+        loadAllRemoteExpensesSync();
+        return expenseDao.getExportCursor();
+    }
 
-        if (loggedIn) {
-            return firestoreService.getExpenses();
+    /**
+     * Latest {@code limit} transactions, optionally filtered by type ("ALL" for no filter).
+     * Reads an indexed head window instead of the whole table.
+     */
+    public LiveData<List<Expense>> getRecentExpenses(String type, int limit) {
+        if ("ALL".equals(type)) {
+            return expenseDao.getRecentExpenses(limit);
         }
-        return allExpenses;
+        return expenseDao.getRecentExpensesByType(type, limit);
+    }
+
+    /**
+     * Create a keyset pager over the local expenses table.
+     */
+    public ExpensePager createPager(int pageSize) {
+        return new ExpensePager(db, pageSize);
+    }
+
+    // ==================== AGGREGATES ====================
+
+    /**
+     * All-time totals per transaction type. One LiveData is shared by every
+     * screen, so its value survives navigation; see {@link #hasLoadedTotals()}.
+     */
+    public LiveData<List<TypeTotal>> getTypeTotals() {
+        synchronized (ExpenseRepository.class) {
+            if (typeTotals == null)
+                typeTotals = summaryDao.getTypeTotals();
+            return typeTotals;
+        }
+    }
+
+    /**
+     * True once the type totals have been read from Room in this process, so a
+     * screen opened afterwards can skip its loading skeleton.
+     */
+    public boolean hasLoadedTotals() {
+        return getTypeTotals().getValue() != null;
+    }
+
+    /**
+     * Totals per transaction type for dates in [startDate, endDate).
+     */
+    public LiveData<List<TypeTotal>> getTypeTotalsBetween(long startDate, long endDate) {
+        return summaryDao.getTypeTotalsBetween(startDate, endDate);
+    }
+
+    /**
+     * Totals per transaction type for the calendar month containing {@code date}.
+     */
+    public LiveData<List<TypeTotal>> getTypeTotalsForMonth(long date) {
+        return summaryDao.getTypeTotalsForMonth(date);
+    }
+
+    /**
+     * Every category used by at least one expense, alphabetically.
+     */
+    public LiveData<List<String>> getDistinctCategories() {
+        return expenseDao.getDistinctCategories();
+    }
+
+    /**
+     * Per-category totals for one type, largest first.
+     */
+    public LiveData<List<CategoryTotal>> getCategoryTotals(String type) {
+        return summaryDao.getCategoryTotals(type);
+    }
+
+    /**
+     * Per-day, per-type totals for dates in [startDate, endDate).
+     */
+    public LiveData<List<PeriodTotal>> getDailyTotals(long startDate, long endDate) {
+        return summaryDao.getDailyTotals(startDate, endDate);
+    }
+
+    /**
+     * Per-month, per-type totals for dates in [startDate, endDate).
+     */
+    public LiveData<List<PeriodTotal>> getMonthlyTotals(long startDate, long endDate) {
+        return summaryDao.getMonthlyTotals(startDate, endDate);
     }
 
     public LiveData<Double> getTotalExpense() {
@@ -77,36 +645,19 @@ public class ExpenseRepository {
     public void insert(Expense expense) {
         Log.d(TAG, "insert: " + expense.getCategory() + ", Amount: " + expense.getAmount());
 
-        // Always save to local Room database first
+        // Fix the document ID up front so the queued create is idempotent
+        String syncUserId = firestoreService.getUserId();
+        firestoreService.invalidateMonthTotal();
+        if (syncUserId != null && (expense.getFirestoreId() == null || expense.getFirestoreId().isEmpty())) {
+            expense.setFirestoreId(firestoreService.newExpenseId());
+        }
+
         AppDatabase.databaseWriteExecutor.execute(() -> {
             try {
-                long id = expenseDao.insertAndGetId(expense);
-                expense.setId((int) id);
+                long id = insertLocal(expense, syncUserId);
                 Log.d(TAG, "insert: Saved to Room with ID: " + id);
-
-                // If user is logged in, also save to Firestore
-                if (firestoreService.isUserLoggedIn()) {
-                    firestoreService.saveExpense(expense, new FirestoreService.OnExpenseSavedListener() {
-                        @Override
-                        public void onSuccess(String firestoreId) {
-                            // Update local expense with Firestore ID - must run on executor
-                            AppDatabase.databaseWriteExecutor.execute(() -> {
-                                try {
-                                    expense.setFirestoreId(firestoreId);
-                                    expenseDao.update(expense);
-                                    Log.d(TAG, "insert: Updated Room with firestoreId: " + firestoreId);
-                                } catch (Exception e) {
-                                    Log.e(TAG, "insert: Failed to update Room with firestoreId", e);
-                                }
-                            });
-                        }
-
-                        @Override
-                        public void onFailure(Exception e) {
-                            Log.e(TAG, "insert: Failed to save to Firestore", e);
-                        }
-                    });
-                }
+                if (syncUserId != null)
+                    OutboxSyncWorker.enqueue(application);
             } catch (Exception e) {
                 Log.e(TAG, "insert: Failed to save to Room", e);
             }
@@ -126,30 +677,138 @@ public class ExpenseRepository {
             String title = "EXPENSE".equals(type) ? "Expense Added" : "Income Added";
             String message = String.format("Added %s%,.0f to %s", currencySymbol, expense.getAmount(),
                     expense.getCategory());
-            preferenceManager.addGuestNotification(type, title, message);
+            GuestNotificationRepository.getInstance(application).add(type, title, message);
             Log.d(TAG, "insert: Created local notification for guest user");
         }
     }
 
-    public void delete(Expense expense) {
-        Log.d(TAG, "delete: " + expense.getCategory() + ", firestoreId: " + expense.getFirestoreId());
-
+    /**
+     * Insert or replace many rows in a single Room transaction.
+     * Remote sync is left to the caller.
+     */
+    public void insertAll(List<Expense> expenses, OnCompleteListener listener) {
         AppDatabase.databaseWriteExecutor.execute(() -> {
             try {
-                expenseDao.delete(expense);
+                upsertAllLocal(expenses);
+                Log.d(TAG, "insertAll: Saved " + expenses.size() + " expenses to Room");
+                if (listener != null)
+                    listener.onSuccess();
             } catch (Exception e) {
-                Log.e(TAG, "delete: Failed to delete from Room", e);
+                Log.e(TAG, "insertAll: Failed", e);
+                if (listener != null)
+                    listener.onError(e.getMessage());
             }
         });
+    }
 
-        // Delete from Firestore if user is logged in
-        if (firestoreService.isUserLoggedIn()) {
+    /**
+     * Insert new expenses in one transaction and queue them for sync, blocking
+     * until the batch is committed. Meant for background producers such as
+     * file import that need back-pressure; never call it on the main thread.
+     */
+    public void insertAllAndWait(List<Expense> expenses) throws Exception {
+        String syncUserId = firestoreService.getUserId();
+        if (syncUserId != null) {
+            for (Expense e : expenses) {
+                if (e.getFirestoreId() == null || e.getFirestoreId().isEmpty())
+                    e.setFirestoreId(firestoreService.newExpenseId());
+            }
+        }
+
+        FutureTask<Void> task = new FutureTask<>(() -> {
+            insertAllLocal(expenses, syncUserId);
+            return null;
+        });
+        AppDatabase.databaseWriteExecutor.execute(task);
+        task.get();
+
+        firestoreService.invalidateMonthTotal();
+        if (syncUserId != null)
+            OutboxSyncWorker.enqueue(application);
+        Log.d(TAG, "insertAllAndWait: Saved " + expenses.size() + " expenses");
+    }
+
+    /**
+     * Drop candidates that already exist for the current user. Their content
+     * hashes are looked up in Room's contentHash index; only candidates Room
+     * cannot rule out, because they are dated at or before the remote paging
+     * cursor and that history has not been paged in yet, are looked up
+     * remotely by hash. Hash hits are confirmed field by field.
+     * Blocks, so never call it on the main thread.
+     */
+    public List<Expense> filterNewExpenses(List<Expense> candidates) throws Exception {
+        List<Long> hashes = new ArrayList<>();
+        for (Expense e : candidates) {
+            e.updateContentHash();
+            hashes.add(e.getContentHash());
+        }
+
+        List<Expense> remaining = new ArrayList<>(candidates);
+        for (int start = 0; start < hashes.size(); start += MAX_SQL_VARIABLES) {
+            List<Long> chunk = hashes.subList(start, Math.min(start + MAX_SQL_VARIABLES, hashes.size()));
+            removeDuplicates(remaining, expenseDao.getExpensesByContentHashesSync(chunk));
+        }
+
+        if (!remaining.isEmpty() && hasMoreRemoteExpenses()) {
+            // Remote history newer than the paging cursor is already mirrored in Room
+            Long cursorDate = preferenceManager.getRemoteCursorDate(firestoreService.getUserId());
+            List<Long> remainingHashes = new ArrayList<>();
+            for (Expense e : remaining) {
+                if (cursorDate == null || e.getDate() <= cursorDate)
+                    remainingHashes.add(e.getContentHash());
+            }
+            if (!remainingHashes.isEmpty())
+                removeDuplicates(remaining, firestoreService.findExpensesByContentHashesSync(remainingHashes));
+        }
+
+        Log.d(TAG, "filterNewExpenses: " + remaining.size() + " of " + candidates.size() + " are new");
+        return remaining;
+    }
+
+    private static void removeDuplicates(List<Expense> candidates, List<Expense> existing) {
+        if (existing.isEmpty())
+            return;
+        Map<Long, List<Expense>> existingByHash = new HashMap<>();
+        for (Expense e : existing) {
+            List<Expense> bucket = existingByHash.get(e.getContentHash());
+            if (bucket == null) {
+                bucket = new ArrayList<>();
+                existingByHash.put(e.getContentHash(), bucket);
+            }
+            bucket.add(e);
+        }
+
+        Iterator<Expense> it = candidates.iterator();
+        while (it.hasNext()) {
+            Expense candidate = it.next();
+            List<Expense> bucket = existingByHash.get(candidate.getContentHash());
+            if (bucket == null)
+                continue;
+            for (Expense e : bucket) {
+                if (candidate.hasSameContent(e)) {
+                    it.remove();
+                    break;
+                }
+            }
+        }
+    }
+
+    public void delete(Expense expense) {
+        Log.d(TAG, "delete: " + expense.getCategory() + ", firestoreId: " + expense.getFirestoreId());
+
+        String syncUserId = firestoreService.getUserId();
+        firestoreService.invalidateMonthTotal();
+        AppDatabase.databaseWriteExecutor.execute(() -> {
             try {
-                firestoreService.deleteExpense(expense);
+                deleteLocal(expense, syncUserId);
+                if (syncUserId != null)
+                    OutboxSyncWorker.enqueue(application);
             } catch (Exception e) {
-                Log.e(TAG, "delete: Failed to delete from Firestore", e);
+                Log.e(TAG, "delete: Failed to delete from Room", e);
             }
+        });
 
+        if (syncUserId != null) {
             // Create notification for transaction deleted
             String currencySymbol = preferenceManager.getCurrencySymbol();
             notificationRepository.notifyTransactionDeleted(
@@ -163,22 +822,19 @@ public class ExpenseRepository {
     public void update(Expense expense) {
         Log.d(TAG, "update: " + expense.getCategory() + ", firestoreId: " + expense.getFirestoreId());
 
+        String syncUserId = firestoreService.getUserId();
+        firestoreService.invalidateMonthTotal();
         AppDatabase.databaseWriteExecutor.execute(() -> {
             try {
-                expenseDao.update(expense);
+                updateLocal(expense, syncUserId);
+                if (syncUserId != null)
+                    OutboxSyncWorker.enqueue(application);
             } catch (Exception e) {
                 Log.e(TAG, "update: Failed to update Room", e);
             }
         });
 
-        // Update Firestore if user is logged in
-        if (firestoreService.isUserLoggedIn()) {
-            try {
-                firestoreService.updateExpense(expense);
-            } catch (Exception e) {
-                Log.e(TAG, "update: Failed to update Firestore", e);
-            }
-
+        if (syncUserId != null) {
             // Create notification for transaction updated
             String currencySymbol = preferenceManager.getCurrencySymbol();
             notificationRepository.notifyTransactionUpdated(
@@ -196,31 +852,42 @@ public class ExpenseRepository {
     public void updatePinStatus(Expense expense) {
         Log.d(TAG, "updatePinStatus: " + expense.getCategory() + ", isPinned: " + expense.isPinned());
 
-        AppDatabase.databaseWriteExecutor.execute(() -> {
+        // Rapid toggles on the same row collapse into the latest state,
+        // so only that state reaches the outbox (no notification)
+        String syncUserId = firestoreService.getUserId();
+        int id = expense.getId();
+        boolean pinned = expense.isPinned();
+        AppDatabase.databaseWriteExecutor.executeCoalesced("pin:" + id, () -> {
             try {
-                expenseDao.update(expense);
+                db.runInTransaction(() -> {
+                    // Write only the pin column, so an edit queued earlier is not overwritten
+                    if (expenseDao.updatePinned(id, pinned, System.currentTimeMillis()) == 0)
+                        return; // Deleted meanwhile
+                    queueRemote(expenseDao.getExpenseByIdSync(id), syncUserId, OutboxEntry.OP_UPDATE);
+                });
+                if (syncUserId != null)
+                    OutboxSyncWorker.enqueue(application);
             } catch (Exception e) {
                 Log.e(TAG, "updatePinStatus: Failed to update Room", e);
             }
         });
-
-        // Update Firestore if user is logged in (no notification)
-        if (firestoreService.isUserLoggedIn()) {
-            try {
-                firestoreService.updateExpense(expense);
-            } catch (Exception e) {
-                Log.e(TAG, "updatePinStatus: Failed to update Firestore", e);
-            }
-        }
     }
 
     public void syncLocalToCloud() {
-        if (firestoreService.isUserLoggedIn()) {
-            List<Expense> localExpenses = allExpenses.getValue();
-            if (localExpenses != null && !localExpenses.isEmpty()) {
-                firestoreService.syncLocalToFirestore(localExpenses);
+        if (!firestoreService.isUserLoggedIn())
+            return;
+
+        AppDatabase.databaseWriteExecutor.execute(() -> {
+            try {
+                List<Expense> localExpenses = expenseDao.getAllExpensesSync();
+                if (localExpenses != null && !localExpenses.isEmpty()) {
+                    Set<String> created = assignRemoteIds(localExpenses);
+                    firestoreService.syncLocalToFirestore(localExpenses, created);
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "syncLocalToCloud: Failed", e);
             }
-        }
+        });
     }
 
     public boolean isUserLoggedIn() {
@@ -231,7 +898,7 @@ public class ExpenseRepository {
      * Get count of local expenses (for checking if guest has data).
      */
     public void getLocalExpenseCount(OnCountLoadedListener listener) {
-        AppDatabase.databaseWriteExecutor.execute(() -> {
+        AppDatabase.databaseReadExecutor.execute(() -> {
             try {
                 int count = expenseDao.getLocalExpenseCount();
                 listener.onCount(count);
@@ -243,13 +910,20 @@ public class ExpenseRepository {
     }
 
     /**
-     * Delete all local expenses.
+     * Delete all local expenses. For a signed-in user this also empties the
+     * mirror of their remote ledger, so the paging cursor is reset and the
+     * listener re-attached to deliver the live window again.
      */
     public void deleteAllLocalExpenses(OnCompleteListener listener) {
         AppDatabase.databaseWriteExecutor.execute(() -> {
             try {
-                expenseDao.deleteAll();
+                deleteAllLocal();
                 Log.d(TAG, "deleteAllLocalExpenses: All local expenses deleted");
+                if (firestoreService.isUserLoggedIn()) {
+                    remoteHistoryComplete.set(false);
+                    preferenceManager.clearRemoteCursor();
+                    mainHandler.post(firestoreService::restartExpensesListener);
+                }
                 if (listener != null)
                     listener.onSuccess();
             } catch (Exception e) {
@@ -261,9 +935,11 @@ public class ExpenseRepository {
     }
 
     /**
-     * Sync guest data to Firestore and optionally delete local data.
+     * Upload guest data to the signed-in user's Firestore ledger. The rows keep
+     * the firestoreIds they were uploaded under and become part of the user's
+     * local mirror, so they stay in Room.
      */
-    public void syncGuestDataToCloud(boolean deleteLocalAfterSync, OnSyncCompleteListener listener) {
+    public void syncGuestDataToCloud(OnSyncCompleteListener listener) {
         if (!firestoreService.isUserLoggedIn()) {
             if (listener != null)
                 listener.onError("User not logged in");
@@ -283,29 +959,24 @@ public class ExpenseRepository {
                 int totalCount = localExpenses.size();
                 Log.d(TAG, "syncGuestDataToCloud: Syncing " + totalCount + " expenses");
 
-                // Sync each expense to Firestore
-                for (Expense expense : localExpenses) {
-                    firestoreService.saveExpense(expense, new FirestoreService.OnExpenseSavedListener() {
-                        @Override
-                        public void onSuccess(String firestoreId) {
-                            Log.d(TAG, "syncGuestDataToCloud: Synced expense " + expense.getCategory());
-                        }
+                // IDs are stored first, so a failed upload can simply be retried
+                Set<String> created = assignRemoteIds(localExpenses);
 
-                        @Override
-                        public void onFailure(Exception e) {
-                            Log.e(TAG, "syncGuestDataToCloud: Failed to sync expense", e);
-                        }
-                    });
-                }
+                firestoreService.saveExpenses(localExpenses, created, new FirestoreService.OnExpensesSavedListener() {
+                    @Override
+                    public void onSuccess(int savedCount) {
+                        Log.d(TAG, "syncGuestDataToCloud: Uploaded " + savedCount + " expenses");
+                        if (listener != null)
+                            listener.onSuccess(savedCount);
+                    }
 
-                // Delete local data if requested
-                if (deleteLocalAfterSync) {
-                    expenseDao.deleteAll();
-                    Log.d(TAG, "syncGuestDataToCloud: Deleted local data after sync");
-                }
-
-                if (listener != null)
-                    listener.onSuccess(totalCount);
+                    @Override
+                    public void onFailure(Exception e) {
+                        Log.e(TAG, "syncGuestDataToCloud: Failed to sync expenses", e);
+                        if (listener != null)
+                            listener.onError(e.getMessage());
+                    }
+                });
             } catch (Exception e) {
                 Log.e(TAG, "syncGuestDataToCloud: Failed", e);
                 if (listener != null)
@@ -325,20 +996,353 @@ public class ExpenseRepository {
         long now = System.currentTimeMillis();
 
         if (firestoreService.isUserLoggedIn()) {
-            firestoreService.getCurrentMonthTotal(startOfMonth, listener);
-        } else {
-            // Guest mode - query Room on background
-            AppDatabase.databaseWriteExecutor.execute(() -> {
-                Double total = expenseDao.getTotalExpenseBetweenSync(startOfMonth, now);
-                if (listener != null) {
-                    new android.os.Handler(android.os.Looper.getMainLooper())
-                            .post(() -> listener.onLoaded(total != null ? total : 0));
+            firestoreService.getCurrentMonthTotal(startOfMonth, new FirestoreService.OnTotalLoadedListener() {
+                @Override
+                public void onLoaded(double total) {
+                    if (listener != null)
+                        listener.onLoaded(total);
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    // Offline: the local mirror is the best available answer
+                    getLocalMonthTotal(startOfMonth, now, listener);
                 }
             });
+        } else {
+            getLocalMonthTotal(startOfMonth, now, listener);
+        }
+    }
+
+    private void getLocalMonthTotal(long startOfMonth, long now, FirestoreService.OnTotalLoadedListener listener) {
+        AppDatabase.databaseReadExecutor.execute(() -> {
+            Double total = expenseDao.getTotalExpenseBetweenSync(startOfMonth, now);
+            if (listener != null) {
+                mainHandler.post(() -> listener.onLoaded(total != null ? total : 0));
+            }
+        });
+    }
+
+    // ==================== SEARCH ====================
+
+    /**
+     * Find expenses whose notes or category have a word starting with each word
+     * of {@code text}, best match first, newest first among equal matches. A
+     * numeric query also matches amounts containing it, after the text matches.
+     * Runs on the full-text index, so only the matching rows are loaded.
+     * The listener is called on the main thread.
+     */
+    public void searchExpenses(String text, int limit, OnSearchResultsListener listener) {
+        AppDatabase.databaseReadExecutor.execute(() -> {
+            List<Expense> results = searchExpensesSync(text, limit);
+            mainHandler.post(() -> listener.onResults(results));
+        });
+    }
+
+    /**
+     * Blocking form of {@link #searchExpenses}; never call it on the main thread.
+     */
+    public List<Expense> searchExpensesSync(String text, int limit) {
+        return searchExpensesSync(text, null, null, 0, limit);
+    }
+
+    /**
+     * Search restricted to a type and category (null for any) and to dates from
+     * {@code since}. The restrictions are part of the query, so the limit counts
+     * only rows that pass them. Never call it on the main thread.
+     */
+    public List<Expense> searchExpensesSync(String text, String type, String category, long since, int limit) {
+        String match = toPrefixMatch(text);
+        limit = Math.min(limit, MAX_SQL_VARIABLES);
+        List<Expense> results = match.isEmpty()
+                ? new ArrayList<>()
+                : searchSync(match, type, category, since, limit);
+        if (isAmountQuery(text) && results.size() < limit) {
+            Set<Integer> found = new HashSet<>();
+            for (Expense expense : results) {
+                found.add(expense.getId());
+            }
+            for (Expense expense : expenseDao.searchByAmountSync(text.trim(), type, category, since, limit)) {
+                if (results.size() >= limit)
+                    break;
+                if (found.add(expense.getId()))
+                    results.add(expense);
+            }
+        }
+        return results;
+    }
+
+    private List<Expense> searchSync(String match, String type, String category, long since, int limit) {
+        List<ExpenseSearchHit> hits = expenseDao.searchSync(match, type, category, since);
+        Collections.sort(hits, (a, b) -> {
+            int byRank = Double.compare(b.rank(), a.rank());
+            return byRank != 0 ? byRank : Long.compare(b.date, a.date);
+        });
+
+        List<Integer> ids = new ArrayList<>(Math.min(limit, hits.size()));
+        for (int i = 0; i < hits.size() && i < limit; i++) {
+            ids.add(hits.get(i).id);
+        }
+        Map<Integer, Expense> byId = new HashMap<>();
+        for (Expense expense : expenseDao.getExpensesByIdsSync(ids)) {
+            byId.put(expense.getId(), expense);
+        }
+        List<Expense> results = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            Expense expense = byId.get(id);
+            if (expense != null)
+                results.add(expense);
         }
+        Log.d(TAG, "searchSync: " + hits.size() + " matches for " + match);
+        return results;
+    }
+
+    /**
+     * True if {@code text} could occur in a formatted amount: only digits,
+     * '.' and '-'.
+     */
+    public static boolean isAmountQuery(String text) {
+        if (text == null || text.trim().isEmpty())
+            return false;
+        String trimmed = text.trim();
+        for (int i = 0; i < trimmed.length(); i++) {
+            char c = trimmed.charAt(i);
+            if ((c < '0' || c > '9') && c != '.' && c != '-')
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Turn free text into an FTS prefix query, e.g. "coffee sho" becomes
+     * "coffee* sho*". Anything but letters and digits separates words, so the
+     * user cannot inject FTS operators. Returns "" if there are no words.
+     */
+    public static String toPrefixMatch(String text) {
+        StringBuilder match = new StringBuilder();
+        boolean inWord = false;
+        if (text != null) {
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (Character.isLetterOrDigit(c)) {
+                    if (!inWord && match.length() > 0)
+                        match.append(' ');
+                    match.append(c);
+                    inWord = true;
+                } else if (inWord) {
+                    match.append('*');
+                    inWord = false;
+                }
+            }
+        }
+        if (inWord)
+            match.append('*');
+        return match.toString();
+    }
+
+    // ==================== BACKUP / RESTORE ====================
+
+    /**
+     * Write every expense changed since {@code since} to a binary backup, or
+     * all of them when {@code since} is 0, followed by the expenses deleted in
+     * that time. A full backup of a signed-in ledger pages the rest of the
+     * remote history into Room first. Rows are read in keyset pages, so memory
+     * use does not grow with the ledger. Once the file is written, logged
+     * deletes older than {@code createdAt} are dropped: they are in this or an
+     * earlier backup. Blocks, so never call it on the main thread.
+     *
+     * @return number of records written
+     */
+    public long backupSync(OutputStream output, long since, long createdAt) throws Exception {
+        if (since == 0)
+            loadAllRemoteExpensesSync();
+
+        long count;
+        try (BackupCodec.Writer writer = new BackupCodec.Writer(output, since > 0, since, createdAt)) {
+            int afterId = 0;
+            while (true) {
+                List<Expense> page = expenseDao.getExpensesUpdatedSinceSync(since, afterId, BACKUP_PAGE_SIZE);
+                for (Expense e : page) {
+                    writer.write(e);
+                }
+                if (page.size() < BACKUP_PAGE_SIZE)
+                    break;
+                afterId = page.get(page.size() - 1).getId();
+            }
+            long afterDeletedId = 0;
+            while (true) {
+                List<DeletedExpense> page = deletedExpenseDao.getDeletedSinceSync(since, afterDeletedId,
+                        BACKUP_PAGE_SIZE);
+                for (DeletedExpense d : page) {
+                    writer.writeDeleted(d.toExpense());
+                }
+                if (page.size() < BACKUP_PAGE_SIZE)
+                    break;
+                afterDeletedId = page.get(page.size() - 1).id;
+            }
+            writer.finish();
+            count = writer.getCount();
+        }
+        Log.d(TAG, "backupSync: Wrote " + count + " records since " + since);
+
+        AppDatabase.databaseWriteExecutor.execute(() -> {
+            try {
+                deletedExpenseDao.deleteBefore(createdAt);
+            } catch (Exception e) {
+                Log.e(TAG, "backupSync: Failed to trim deleted expenses", e);
+            }
+        });
+        return count;
+    }
+
+    /**
+     * Load a backup into Room in one transaction; a corrupt or truncated file
+     * leaves the database untouched. Records matching a local row by firestoreId
+     * replace it unless the row was written after the record, exact content
+     * duplicates are skipped, and the rest are inserted. Deletion records remove the matching row (by firestoreId, or by
+     * content for local-only rows) unless it was written after the delete.
+     * Restored rows keep the updatedAt of their record, so an incremental
+     * backup applied on top of its full backup compares against it. Changes are
+     * queued for sync when signed in. Blocks, so never call it on the main thread.
+     *
+     * @return number of rows inserted, updated or deleted
+     */
+    public int restoreSync(InputStream input) throws Exception {
+        String syncUserId = firestoreService.getUserId();
+
+        FutureTask<Integer> task = new FutureTask<>(() -> {
+            try (BackupCodec.Reader reader = new BackupCodec.Reader(input)) {
+                return db.runInTransaction(() -> {
+                    int applied = 0;
+                    List<BackupCodec.Record> batch = new ArrayList<>(BACKUP_PAGE_SIZE);
+                    BackupCodec.Record record;
+                    while ((record = reader.next()) != null) {
+                        batch.add(record);
+                        if (batch.size() >= BACKUP_PAGE_SIZE) {
+                            applied += restoreBatchLocal(batch, syncUserId);
+                            batch.clear();
+                        }
+                    }
+                    if (!batch.isEmpty())
+                        applied += restoreBatchLocal(batch, syncUserId);
+                    return applied;
+                });
+            }
+        });
+        AppDatabase.databaseWriteExecutor.execute(task);
+        int applied = task.get();
+
+        firestoreService.invalidateMonthTotal();
+        if (syncUserId != null && applied > 0)
+            OutboxSyncWorker.enqueue(application);
+        Log.d(TAG, "restoreSync: Applied " + applied + " records");
+        return applied;
+    }
+
+    private int restoreBatchLocal(List<BackupCodec.Record> batch, String syncUserId) {
+        List<Expense> records = new ArrayList<>();
+        List<Expense> deletions = new ArrayList<>();
+        for (BackupCodec.Record r : batch) {
+            (r.deleted ? deletions : records).add(r.expense);
+        }
+        int applied = records.isEmpty() ? 0 : restoreExpensesLocal(records, syncUserId);
+        if (!deletions.isEmpty())
+            applied += restoreDeletionsLocal(deletions, syncUserId);
+        return applied;
+    }
+
+    private int restoreExpensesLocal(List<Expense> records, String syncUserId) {
+        List<String> firestoreIds = new ArrayList<>();
+        for (Expense r : records) {
+            if (r.getFirestoreId() != null && !r.getFirestoreId().isEmpty())
+                firestoreIds.add(r.getFirestoreId());
+        }
+        Map<String, Expense> byFirestoreId = new HashMap<>();
+        if (!firestoreIds.isEmpty()) {
+            for (Expense local : expenseDao.getExpensesByFirestoreIdsSync(firestoreIds)) {
+                byFirestoreId.put(local.getFirestoreId(), local);
+            }
+        }
+
+        int applied = 0;
+        List<Expense> candidates = new ArrayList<>();
+        List<Long> hashes = new ArrayList<>();
+        for (Expense r : records) {
+            Expense local = r.getFirestoreId() != null ? byFirestoreId.get(r.getFirestoreId()) : null;
+            if (local == null) {
+                r.updateContentHash();
+                candidates.add(r);
+                hashes.add(r.getContentHash());
+            } else if (r.getUpdatedAt() >= local.getUpdatedAt()
+                    && (!local.hasSameContent(r) || local.isPinned() != r.isPinned())) {
+                // A local row written after the record is newer and kept
+                r.setId(local.getId());
+                r.updateContentHash();
+                updateLocal(r, syncUserId, false);
+                applied++;
+            }
+        }
+        if (candidates.isEmpty())
+            return applied;
+
+        removeDuplicates(candidates, expenseDao.getExpensesByContentHashesSync(hashes));
+        for (Expense r : candidates) {
+            r.setId(0);
+            if (syncUserId != null && (r.getFirestoreId() == null || r.getFirestoreId().isEmpty()))
+                r.setFirestoreId(firestoreService.newExpenseId());
+        }
+        insertAllLocal(candidates, syncUserId, false);
+        return applied + candidates.size();
+    }
+
+    private int restoreDeletionsLocal(List<Expense> deletions, String syncUserId) {
+        List<String> firestoreIds = new ArrayList<>();
+        List<Long> hashes = new ArrayList<>();
+        for (Expense d : deletions) {
+            d.updateContentHash();
+            if (d.getFirestoreId() != null && !d.getFirestoreId().isEmpty())
+                firestoreIds.add(d.getFirestoreId());
+            else
+                hashes.add(d.getContentHash());
+        }
+        Map<String, Expense> byFirestoreId = new HashMap<>();
+        if (!firestoreIds.isEmpty()) {
+            for (Expense local : expenseDao.getExpensesByFirestoreIdsSync(firestoreIds)) {
+                byFirestoreId.put(local.getFirestoreId(), local);
+            }
+        }
+        List<Expense> byContent = hashes.isEmpty()
+                ? new ArrayList<>()
+                : new ArrayList<>(expenseDao.getExpensesByContentHashesSync(hashes));
+
+        int deleted = 0;
+        for (Expense d : deletions) {
+            Expense local = null;
+            if (d.getFirestoreId() != null && !d.getFirestoreId().isEmpty()) {
+                local = byFirestoreId.remove(d.getFirestoreId());
+            } else {
+                for (int i = 0; i < byContent.size(); i++) {
+                    Expense candidate = byContent.get(i);
+                    if (candidate.getContentHash() == d.getContentHash() && candidate.hasSameContent(d)) {
+                        local = byContent.remove(i);
+                        break;
+                    }
+                }
+            }
+            // A row written after the delete is kept
+            if (local == null || local.getUpdatedAt() > d.getUpdatedAt())
+                continue;
+            deleteLocal(local, syncUserId, d.getUpdatedAt());
+            deleted++;
+        }
+        return deleted;
     }
 
     // Callback interfaces
+    public interface OnSearchResultsListener {
+        void onResults(List<Expense> expenses);
+    }
+
     public interface OnCountLoadedListener {
         void onCount(int count);
     }
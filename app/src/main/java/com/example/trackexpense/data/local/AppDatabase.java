@@ -1,24 +1,188 @@
 package com.example.trackexpense.data.local;
 
+import android.content.ContentValues;
 import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
 
+import androidx.annotation.NonNull;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
 
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
-@Database(entities = { Expense.class, Category.class }, version = 4, exportSchema = false)
+@Database(entities = { Expense.class, Category.class, DailyRollup.class,
+        MonthlyRollup.class, OutboxEntry.class, GuestNotification.class,
+        ExpenseFts.class, DeletedExpense.class }, version = 13, exportSchema = true)
 public abstract class AppDatabase extends RoomDatabase {
 
     public abstract ExpenseDao expenseDao();
 
     public abstract CategoryDao categoryDao();
 
+    public abstract SummaryDao summaryDao();
+
+    public abstract RollupDao rollupDao();
+
+    public abstract OutboxDao outboxDao();
+
+    public abstract GuestNotificationDao guestNotificationDao();
+
+    public abstract DeletedExpenseDao deletedExpenseDao();
+
     private static volatile AppDatabase INSTANCE;
-    private static final int NUMBER_OF_THREADS = 4;
-    public static final ExecutorService databaseWriteExecutor = Executors.newFixedThreadPool(NUMBER_OF_THREADS);
+    private static final int NUMBER_OF_READ_THREADS = 2;
+
+    // All writes go through one ordered queue; reads use a separate bounded pool
+    public static final DatabaseWriteQueue databaseWriteExecutor = new DatabaseWriteQueue();
+    public static final ExecutorService databaseReadExecutor = Executors.newFixedThreadPool(NUMBER_OF_READ_THREADS,
+            r -> new Thread(r, "db-reader"));
+
+    // v5: indexes for the date-ordered, type/date, category/date and firestoreId lookups
+    static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_expenses_date` ON `expenses` (`date`)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_expenses_type_date` ON `expenses` (`type`, `date`)");
+            database.execSQL(
+                    "CREATE INDEX IF NOT EXISTS `index_expenses_category_date` ON `expenses` (`category`, `date`)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_expenses_firestoreId` ON `expenses` (`firestoreId`)");
+        }
+    };
+
+    // v6: materialized daily/monthly rollups, seeded from the existing expenses
+    static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `daily_rollups` (`day` TEXT NOT NULL, `type` TEXT NOT NULL, "
+                    + "`category` TEXT NOT NULL, `total` REAL NOT NULL, `count` INTEGER NOT NULL, "
+                    + "PRIMARY KEY(`day`, `type`, `category`))");
+            database.execSQL("CREATE TABLE IF NOT EXISTS `monthly_rollups` (`month` TEXT NOT NULL, "
+                    + "`type` TEXT NOT NULL, `category` TEXT NOT NULL, `total` REAL NOT NULL, "
+                    + "`count` INTEGER NOT NULL, PRIMARY KEY(`month`, `type`, `category`))");
+            database.execSQL("INSERT INTO daily_rollups (day, type, category, total, count) "
+                    + "SELECT strftime('%Y-%m-%d', date / 1000, 'unixepoch', 'localtime'), IFNULL(type, ''), "
+                    + "IFNULL(category, ''), SUM(amount), COUNT(*) FROM expenses GROUP BY 1, 2, 3");
+            database.execSQL("INSERT INTO monthly_rollups (month, type, category, total, count) "
+                    + "SELECT strftime('%Y-%m', date / 1000, 'unixepoch', 'localtime'), IFNULL(type, ''), "
+                    + "IFNULL(category, ''), SUM(amount), COUNT(*) FROM expenses GROUP BY 1, 2, 3");
+        }
+    };
+
+    // v7: durable outbox of pending Firestore mutations
+    static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `sync_outbox` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`userId` TEXT, `documentId` TEXT, `operation` TEXT, `amount` REAL NOT NULL, "
+                    + "`category` TEXT, `date` INTEGER NOT NULL, `notes` TEXT, `type` TEXT, "
+                    + "`isPinned` INTEGER NOT NULL, `localId` INTEGER NOT NULL, `createdAt` INTEGER NOT NULL, "
+                    + "`attempts` INTEGER NOT NULL)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_sync_outbox_userId` ON `sync_outbox` (`userId`)");
+        }
+    };
+
+    // v8: persisted content hash for import duplicate checks, backfilled for existing rows
+    static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE `expenses` ADD COLUMN `contentHash` INTEGER NOT NULL DEFAULT 0");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_expenses_contentHash` ON `expenses` (`contentHash`)");
+
+            ContentValues values = new ContentValues();
+            try (Cursor cursor = database.query("SELECT id, amount, category, type, date, notes FROM expenses")) {
+                while (cursor.moveToNext()) {
+                    values.put("contentHash", Expense.computeContentHash(
+                            cursor.getDouble(1),
+                            cursor.getString(2),
+                            cursor.getString(3),
+                            cursor.getLong(4),
+                            cursor.getString(5)));
+                    database.update("expenses", SQLiteDatabase.CONFLICT_NONE, values,
+                            "id = ?", new Object[] { cursor.getInt(0) });
+                }
+            }
+        }
+    };
+
+    // v9: last-write time for incremental backups. Existing rows count as written
+    // now, so the first incremental backup after upgrading includes them.
+    static final Migration MIGRATION_8_9 = new Migration(8, 9) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE `expenses` ADD COLUMN `updatedAt` INTEGER NOT NULL DEFAULT 0");
+            database.execSQL("UPDATE `expenses` SET `updatedAt` = CAST(strftime('%s', 'now') AS INTEGER) * 1000");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_expenses_updatedAt` ON `expenses` (`updatedAt`)");
+        }
+    };
+
+    // v10: guest notifications, previously a single delimited SharedPreferences string
+    static final Migration MIGRATION_9_10 = new Migration(9, 10) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `guest_notifications` (`id` INTEGER PRIMARY KEY "
+                    + "AUTOINCREMENT NOT NULL, `type` TEXT, `title` TEXT, `message` TEXT, "
+                    + "`createdAt` INTEGER NOT NULL, `isRead` INTEGER NOT NULL)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_guest_notifications_isRead` "
+                    + "ON `guest_notifications` (`isRead`)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_guest_notifications_createdAt` "
+                    + "ON `guest_notifications` (`createdAt`)");
+        }
+    };
+
+    // v11: categories gain type and list position so they can replace the cached
+    // preference strings. The table was never written to, so it is recreated.
+    static final Migration MIGRATION_10_11 = new Migration(10, 11) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("DROP TABLE IF EXISTS `categories`");
+            database.execSQL("CREATE TABLE IF NOT EXISTS `categories` (`id` INTEGER PRIMARY KEY "
+                    + "AUTOINCREMENT NOT NULL, `name` TEXT, `icon` TEXT, `color` TEXT, "
+                    + "`isDefault` INTEGER NOT NULL, `type` TEXT, `sortOrder` INTEGER NOT NULL)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_categories_type_sortOrder` "
+                    + "ON `categories` (`type`, `sortOrder`)");
+        }
+    };
+
+    // v12: full-text index over expense notes and categories, synced by triggers
+    static final Migration MIGRATION_11_12 = new Migration(11, 12) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `expenses_fts` USING FTS4(`notes` TEXT, "
+                    + "`category` TEXT, tokenize=unicode61, content=`expenses`)");
+            database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_expenses_fts_BEFORE_UPDATE "
+                    + "BEFORE UPDATE ON `expenses` BEGIN DELETE FROM `expenses_fts` "
+                    + "WHERE `docid`=OLD.`rowid`; END");
+            database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_expenses_fts_BEFORE_DELETE "
+                    + "BEFORE DELETE ON `expenses` BEGIN DELETE FROM `expenses_fts` "
+                    + "WHERE `docid`=OLD.`rowid`; END");
+            database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_expenses_fts_AFTER_UPDATE "
+                    + "AFTER UPDATE ON `expenses` BEGIN INSERT INTO `expenses_fts`(`docid`, `notes`, `category`) "
+                    + "VALUES (NEW.`rowid`, NEW.`notes`, NEW.`category`); END");
+            database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_expenses_fts_AFTER_INSERT "
+                    + "AFTER INSERT ON `expenses` BEGIN INSERT INTO `expenses_fts`(`docid`, `notes`, `category`) "
+                    + "VALUES (NEW.`rowid`, NEW.`notes`, NEW.`category`); END");
+            // Index the rows that already exist
+            database.execSQL("INSERT INTO `expenses_fts`(`expenses_fts`) VALUES('rebuild')");
+        }
+    };
+
+    // v13: log of deleted expenses, so incremental backups can carry deletes
+    static final Migration MIGRATION_12_13 = new Migration(12, 13) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `deleted_expenses` (`id` INTEGER PRIMARY KEY "
+                    + "AUTOINCREMENT NOT NULL, `firestoreId` TEXT, `amount` REAL NOT NULL, `category` TEXT, "
+                    + "`date` INTEGER NOT NULL, `notes` TEXT, `type` TEXT, `contentHash` INTEGER NOT NULL, "
+                    + "`deletedAt` INTEGER NOT NULL)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_deleted_expenses_deletedAt` "
+                    + "ON `deleted_expenses` (`deletedAt`)");
+        }
+    };
 
     public static AppDatabase getDatabase(final Context context) {
         if (INSTANCE == null) {
@@ -26,7 +190,14 @@ public abstract class AppDatabase extends RoomDatabase {
                 if (INSTANCE == null) {
                     INSTANCE = Room.databaseBuilder(context.getApplicationContext(),
                             AppDatabase.class, "expense_database")
-                            .fallbackToDestructiveMigration()
+                            .addMigrations(MIGRATION_4_5, MIGRATION_5_6, MIGRATION_6_7, MIGRATION_7_8,
+                                    MIGRATION_8_9, MIGRATION_9_10, MIGRATION_10_11, MIGRATION_11_12,
+                                    MIGRATION_12_13)
+                            // Schemas before v4 were never exported, so they cannot be migrated
+                            .fallbackToDestructiveMigrationFrom(1, 2, 3)
+                            // WAL lets the reader pool run alongside the single writer
+                            .setJournalMode(JournalMode.WRITE_AHEAD_LOGGING)
+                            .setQueryExecutor(databaseReadExecutor)
                             .build();
                 }
             }
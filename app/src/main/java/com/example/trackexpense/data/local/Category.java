@@ -1,9 +1,14 @@
 package com.example.trackexpense.data.local;
 
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
-@Entity(tableName = "categories")
+/**
+ * Local copy of the Firestore categories, read by
+ * {@link com.example.trackexpense.data.repository.CategoryStore}.
+ */
+@Entity(tableName = "categories", indices = { @Index(value = { "type", "sortOrder" }) })
 public class Category {
     @PrimaryKey(autoGenerate = true)
     private int id;
@@ -12,6 +17,9 @@ public class Category {
     private String icon;
     private String color;
     private boolean isDefault;
+    private String type;
+    // Position in the list Firestore returned
+    private int sortOrder;
 
     public Category(String name, String icon, String color, boolean isDefault) {
         this.name = name;
@@ -59,4 +67,20 @@ public class Category {
     public void setDefault(boolean aDefault) {
         isDefault = aDefault;
     }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public int getSortOrder() {
+        return sortOrder;
+    }
+
+    public void setSortOrder(int sortOrder) {
+        this.sortOrder = sortOrder;
+    }
 }
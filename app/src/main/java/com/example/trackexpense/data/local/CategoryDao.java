@@ -15,6 +15,9 @@ public interface CategoryDao {
     @Insert
     void insert(Category category);
 
+    @Insert
+    void insertAll(List<Category> categories);
+
     @Update
     void update(Category category);
 
@@ -29,4 +32,10 @@ public interface CategoryDao {
 
     @Query("SELECT name FROM categories")
     LiveData<List<String>> getCategoryNames();
+
+    @Query("SELECT * FROM categories ORDER BY type ASC, sortOrder ASC")
+    List<Category> getAllCategoriesSync();
+
+    @Query("DELETE FROM categories WHERE type = :type")
+    void deleteByType(String type);
 }
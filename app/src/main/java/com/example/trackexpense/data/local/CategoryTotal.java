@@ -0,0 +1,9 @@
+package com.example.trackexpense.data.local;
+
+/**
+ * Aggregate row: total amount for one category within a transaction type.
+ */
+public class CategoryTotal {
+    public String category;
+    public double total;
+}
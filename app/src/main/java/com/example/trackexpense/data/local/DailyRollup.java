@@ -0,0 +1,20 @@
+package com.example.trackexpense.data.local;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+
+/**
+ * Materialized per-day totals, keyed by local day ("yyyy-MM-dd"), type and category.
+ * Maintained by {@link RollupDao} in the same transaction as the expense write.
+ */
+@Entity(tableName = "daily_rollups", primaryKeys = { "day", "type", "category" })
+public class DailyRollup {
+    @NonNull
+    public String day = "";
+    @NonNull
+    public String type = "";
+    @NonNull
+    public String category = "";
+    public double total;
+    public int count;
+}
@@ -0,0 +1,127 @@
+package com.example.trackexpense.data.local;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single-threaded, strictly ordered queue for database writes.
+ * SQLite only allows one writer at a time, so a single thread loses nothing
+ * and guarantees that a write never overtakes one submitted before it.
+ */
+public class DatabaseWriteQueue implements Executor {
+
+    private static final String TAG = "DatabaseWriteQueue";
+    private static final long SLOW_WAIT_MS = 500;
+
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> new Thread(r, "db-writer"));
+    private final Map<String, Runnable> pendingByKey = new HashMap<>();
+
+    // Metrics
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicLong startedTasks = new AtomicLong();
+    private final AtomicLong completedTasks = new AtomicLong();
+    private final AtomicLong coalescedTasks = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    @Override
+    public void execute(@NonNull Runnable command) {
+        long enqueuedAt = System.nanoTime();
+        queueDepth.incrementAndGet();
+        worker.execute(() -> {
+            queueDepth.decrementAndGet();
+            recordWait(System.nanoTime() - enqueuedAt);
+            try {
+                command.run();
+            } finally {
+                completedTasks.incrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * Queue a write that supersedes any not-yet-started write with the same key.
+     * The superseded write is skipped and this one takes a new slot at the tail,
+     * so it still runs after every write submitted before it.
+     * Use for last-writer-wins updates such as repeated pin toggles on one row.
+     */
+    public void executeCoalesced(@NonNull String key, @NonNull Runnable command) {
+        Runnable slot = new Runnable() {
+            @Override
+            public void run() {
+                synchronized (pendingByKey) {
+                    if (pendingByKey.get(key) != this)
+                        return; // Superseded by a later write
+                    pendingByKey.remove(key);
+                }
+                command.run();
+            }
+        };
+        synchronized (pendingByKey) {
+            if (pendingByKey.put(key, slot) != null)
+                coalescedTasks.incrementAndGet();
+        }
+        execute(slot);
+    }
+
+    private void recordWait(long waitNanos) {
+        startedTasks.incrementAndGet();
+        totalWaitNanos.addAndGet(waitNanos);
+        long max;
+        do {
+            max = maxWaitNanos.get();
+        } while (waitNanos > max && !maxWaitNanos.compareAndSet(max, waitNanos));
+
+        long waitMs = TimeUnit.NANOSECONDS.toMillis(waitNanos);
+        if (waitMs >= SLOW_WAIT_MS) {
+            Log.w(TAG, "Write waited " + waitMs + "ms in queue, depth now " + queueDepth.get());
+        }
+    }
+
+    /**
+     * Writes submitted but not yet started.
+     */
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    public long getCompletedCount() {
+        return completedTasks.get();
+    }
+
+    /**
+     * Writes dropped because a newer write with the same key replaced them.
+     */
+    public long getCoalescedCount() {
+        return coalescedTasks.get();
+    }
+
+    public long getAverageWaitMillis() {
+        long started = startedTasks.get();
+        return started == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get() / started);
+    }
+
+    public long getMaxWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get());
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "DatabaseWriteQueue{depth=" + getQueueDepth()
+                + ", completed=" + getCompletedCount()
+                + ", coalesced=" + getCoalescedCount()
+                + ", avgWaitMs=" + getAverageWaitMillis()
+                + ", maxWaitMs=" + getMaxWaitMillis() + "}";
+    }
+}
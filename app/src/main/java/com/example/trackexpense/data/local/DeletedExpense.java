@@ -0,0 +1,49 @@
+package com.example.trackexpense.data.local;
+
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * The last state of a deleted expense, so incremental backups can carry the
+ * delete. Rows are trimmed once a backup has written them.
+ */
+@Entity(tableName = "deleted_expenses", indices = { @Index(value = { "deletedAt" }) })
+public class DeletedExpense {
+
+    @PrimaryKey(autoGenerate = true)
+    public long id;
+
+    public String firestoreId;
+    public double amount;
+    public String category;
+    public long date;
+    public String notes;
+    public String type;
+    public long contentHash; // Matches local-only rows, which have no firestoreId
+    public long deletedAt;
+
+    public static DeletedExpense of(Expense expense, long deletedAt) {
+        DeletedExpense deleted = new DeletedExpense();
+        deleted.firestoreId = expense.getFirestoreId();
+        deleted.amount = expense.getAmount();
+        deleted.category = expense.getCategory();
+        deleted.date = expense.getDate();
+        deleted.notes = expense.getNotes();
+        deleted.type = expense.getType();
+        deleted.contentHash = expense.getContentHash();
+        deleted.deletedAt = deletedAt;
+        return deleted;
+    }
+
+    /**
+     * The deleted row, with updatedAt set to the time of the delete.
+     */
+    public Expense toExpense() {
+        Expense expense = new Expense(amount, category, date, notes, type);
+        expense.setFirestoreId(firestoreId);
+        expense.setContentHash(contentHash);
+        expense.setUpdatedAt(deletedAt);
+        return expense;
+    }
+}
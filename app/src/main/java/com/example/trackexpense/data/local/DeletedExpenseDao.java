@@ -0,0 +1,25 @@
+package com.example.trackexpense.data.local;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.Query;
+
+import java.util.List;
+
+@Dao
+public interface DeletedExpenseDao {
+
+    @Insert
+    void insert(DeletedExpense deleted);
+
+    @Insert
+    void insertAll(List<DeletedExpense> deleted);
+
+    // Keyset pages of deletes since a point in time, for backups
+    @Query("SELECT * FROM deleted_expenses WHERE deletedAt >= :since AND id > :afterId ORDER BY id LIMIT :limit")
+    List<DeletedExpense> getDeletedSinceSync(long since, long afterId, int limit);
+
+    // Deletes already written to a backup
+    @Query("DELETE FROM deleted_expenses WHERE deletedAt < :before")
+    int deleteBefore(long before);
+}
@@ -1,10 +1,23 @@
 package com.example.trackexpense.data.local;
 
+import androidx.room.ColumnInfo;
 import androidx.room.Entity;
 import androidx.room.Ignore;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
-@Entity(tableName = "expenses")
+import com.example.trackexpense.utils.StableIds;
+
+import java.util.Locale;
+
+@Entity(tableName = "expenses", indices = {
+        @Index(value = { "date" }),
+        @Index(value = { "type", "date" }),
+        @Index(value = { "category", "date" }),
+        @Index(value = { "firestoreId" }),
+        @Index(value = { "contentHash" }),
+        @Index(value = { "updatedAt" })
+})
 public class Expense {
     @PrimaryKey(autoGenerate = true)
     private int id;
@@ -16,6 +29,10 @@ public class Expense {
     private String type; // "INCOME" or "EXPENSE"
     private String firestoreId; // Firestore document ID for sync
     private boolean isPinned; // For pinning transactions to top
+    @ColumnInfo(defaultValue = "0")
+    private long contentHash; // 64-bit hash of the user-visible fields, for duplicate checks
+    @ColumnInfo(defaultValue = "0")
+    private long updatedAt; // Last local write, for incremental backups
 
     // Constructor
     @Ignore
@@ -96,4 +113,85 @@ public class Expense {
     public void setPinned(boolean pinned) {
         isPinned = pinned;
     }
+
+    public long getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(long contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public long getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(long updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    /**
+     * Recompute contentHash from the current field values.
+     */
+    public void updateContentHash() {
+        contentHash = computeContentHash(amount, category, type, date, notes);
+    }
+
+    /**
+     * Two transactions with the same amount (to the cent), category, type, date
+     * and notes (trimmed, case-insensitive) are treated as duplicates. This is
+     * FNV-1a over those fields; equal hashes still need a field comparison.
+     */
+    public static long computeContentHash(double amount, String category, String type, long date, String notes) {
+        long hash = StableIds.FNV_OFFSET_BASIS;
+        hash = mix(hash, Math.round(amount * 100));
+        hash = mix(hash, date);
+        hash = mix(hash, category);
+        hash = mix(hash, type);
+        hash = mix(hash, notes != null ? notes.trim().toLowerCase(Locale.ROOT) : null);
+        return hash;
+    }
+
+    /**
+     * Field comparison matching {@link #computeContentHash}, used to confirm a hash hit.
+     */
+    public boolean hasSameContent(Expense other) {
+        return Math.round(amount * 100) == Math.round(other.amount * 100)
+                && date == other.date
+                && normalize(category).equals(normalize(other.category))
+                && normalize(type).equals(normalize(other.type))
+                && normalizeNotes(notes).equals(normalizeNotes(other.notes));
+    }
+
+    private static String normalize(String value) {
+        return value != null ? value : "";
+    }
+
+    private static String normalizeNotes(String notes) {
+        return notes != null ? notes.trim().toLowerCase(Locale.ROOT) : "";
+    }
+
+    private static long mix(long hash, long value) {
+        for (int i = 0; i < 8; i++) {
+            hash ^= (value >>> (i * 8)) & 0xff;
+            hash *= StableIds.FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, String value) {
+        if (value != null) {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                hash ^= c & 0xff;
+                hash *= StableIds.FNV_PRIME;
+                hash ^= c >>> 8;
+                hash *= StableIds.FNV_PRIME;
+            }
+        }
+        // Field separator, so ("ab", "c") and ("a", "bc") differ
+        hash ^= 0xff;
+        hash *= StableIds.FNV_PRIME;
+        return hash;
+    }
 }
@@ -1,11 +1,16 @@
 package com.example.trackexpense.data.local;
 
+import android.database.Cursor;
+
 import androidx.lifecycle.LiveData;
 import androidx.room.Dao;
 import androidx.room.Delete;
 import androidx.room.Insert;
 import androidx.room.Query;
+import androidx.room.RawQuery;
 import androidx.room.Update;
+import androidx.room.Upsert;
+import androidx.sqlite.db.SupportSQLiteQuery;
 
 import java.util.List;
 
@@ -18,15 +23,28 @@ public interface ExpenseDao {
     @Insert
     long insertAndGetId(Expense expense);
 
+    // New rows only. REPLACE would delete a conflicting row without running the
+    // FTS delete trigger, leaving its old text in the index; use upsertAll instead
+    @Insert
+    List<Long> insertAll(List<Expense> expenses);
+
+    // Returns the new row ID for inserted rows and -1 for rows that were updated in place
+    @Upsert
+    List<Long> upsertAll(List<Expense> expenses);
+
     @Update
     void update(Expense expense);
 
+    @Update
+    int updateAll(List<Expense> expenses);
+
+    // Pin state only; the content hash and rollups do not depend on it
+    @Query("UPDATE expenses SET isPinned = :pinned, updatedAt = :updatedAt WHERE id = :id")
+    int updatePinned(int id, boolean pinned, long updatedAt);
+
     @Delete
     void delete(Expense expense);
 
-    @Query("SELECT * FROM expenses ORDER BY date DESC")
-    LiveData<List<Expense>> getAllExpenses();
-
     @Query("SELECT * FROM expenses WHERE type = 'EXPENSE'")
     LiveData<List<Expense>> getAllExpenseEntries();
 
@@ -45,14 +63,76 @@ public interface ExpenseDao {
     @Query("SELECT SUM(amount) FROM expenses WHERE type = 'EXPENSE' AND date BETWEEN :startDate AND :endDate")
     Double getTotalExpenseBetweenSync(long startDate, long endDate);
 
+    @Query("SELECT * FROM expenses WHERE id = :id")
+    Expense getExpenseByIdSync(int id);
+
+    @Query("SELECT * FROM expenses WHERE id IN (:ids)")
+    List<Expense> getExpensesByIdsSync(List<Integer> ids);
+
+    // Amounts whose text form contains the query, for numeric searches. A null
+    // type or category matches any; the filters apply before the limit
+    @Query("SELECT * FROM expenses WHERE CAST(amount AS TEXT) LIKE '%' || :text || '%' "
+            + "AND (:type IS NULL OR type = :type) "
+            + "AND (:category IS NULL OR category = :category COLLATE NOCASE) AND date >= :since "
+            + "ORDER BY date DESC, id DESC LIMIT :limit")
+    List<Expense> searchByAmountSync(String text, String type, String category, long since, int limit);
+
+    // Walks the category/date index rather than the rows
+    @Query("SELECT DISTINCT category FROM expenses WHERE category IS NOT NULL AND category != '' "
+            + "ORDER BY category")
+    LiveData<List<String>> getDistinctCategories();
+
+    // Full-text match over notes and category, narrowed by type, category and
+    // date on the joined row; rank the hits with ExpenseSearchHit.rank()
+    @Query("SELECT expenses.id AS id, expenses.date AS date, matchinfo(expenses_fts, 'pcx') AS matchInfo "
+            + "FROM expenses_fts JOIN expenses ON expenses.id = expenses_fts.rowid "
+            + "WHERE expenses_fts MATCH :match "
+            + "AND (:type IS NULL OR expenses.type = :type) "
+            + "AND (:category IS NULL OR expenses.category = :category COLLATE NOCASE) "
+            + "AND expenses.date >= :since")
+    List<ExpenseSearchHit> searchSync(String match, String type, String category, long since);
+
+    @Query("SELECT * FROM expenses WHERE firestoreId IN (:firestoreIds)")
+    List<Expense> getExpensesByFirestoreIdsSync(List<String> firestoreIds);
+
+    @Query("SELECT * FROM expenses WHERE contentHash IN (:hashes)")
+    List<Expense> getExpensesByContentHashesSync(List<Long> hashes);
+
     // Synchronous query for export
     @Query("SELECT * FROM expenses ORDER BY date DESC")
     List<Expense> getAllExpensesSync();
 
+    // Keyset pages of rows written since a point in time, for backups
+    @Query("SELECT * FROM expenses WHERE updatedAt >= :since AND id > :afterId ORDER BY id LIMIT :limit")
+    List<Expense> getExpensesUpdatedSinceSync(long since, int afterId, int limit);
+
+    // Streaming export: rows are read through the cursor window, never all at once
+    @Query("SELECT date, type, category, amount, notes FROM expenses ORDER BY date DESC")
+    Cursor getExportCursor();
+
     // Delete all expenses (for sync feature)
     @Query("DELETE FROM expenses")
     void deleteAll();
 
+    // Every row of a signed-out user's account; local-only rows are kept. Unpushed
+    // changes stay in that user's outbox entries, which hold the full row
+    @Query("DELETE FROM expenses WHERE firestoreId IS NOT NULL AND firestoreId != ''")
+    int deleteSyncedMirror();
+
+    // Keyset pages and counts built by ExpensePager for the current filters
+    @RawQuery
+    List<Expense> getExpensesSync(SupportSQLiteQuery query);
+
+    @RawQuery
+    int countSync(SupportSQLiteQuery query);
+
+    // Live head window for screens that only show the latest rows
+    @Query("SELECT * FROM expenses ORDER BY date DESC, id DESC LIMIT :limit")
+    LiveData<List<Expense>> getRecentExpenses(int limit);
+
+    @Query("SELECT * FROM expenses WHERE type = :type ORDER BY date DESC, id DESC LIMIT :limit")
+    LiveData<List<Expense>> getRecentExpensesByType(String type, int limit);
+
     // Count all local expenses
     @Query("SELECT COUNT(*) FROM expenses")
     int getLocalExpenseCount();
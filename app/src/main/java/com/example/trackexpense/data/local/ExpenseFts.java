@@ -0,0 +1,17 @@
+package com.example.trackexpense.data.local;
+
+import androidx.room.Entity;
+import androidx.room.Fts4;
+import androidx.room.FtsOptions;
+
+/**
+ * Full-text index over expense notes and categories. Stores no text of its
+ * own: Room keeps it in sync with {@link Expense} through triggers, and each
+ * row's rowid is the expense id.
+ */
+@Fts4(contentEntity = Expense.class, tokenizer = FtsOptions.TOKENIZER_UNICODE61)
+@Entity(tableName = "expenses_fts")
+public class ExpenseFts {
+    public String notes;
+    public String category;
+}
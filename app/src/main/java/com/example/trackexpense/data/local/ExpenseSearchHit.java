@@ -0,0 +1,51 @@
+package com.example.trackexpense.data.local;
+
+import androidx.room.Ignore;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * One full-text match: the expense id, its date and the FTS4
+ * {@code matchinfo(expenses_fts, 'pcx')} blob used to rank it.
+ */
+public class ExpenseSearchHit {
+    // Column weights, in ExpenseFts column order: notes, category
+    private static final double[] COLUMN_WEIGHTS = { 1.0, 2.0 };
+
+    public int id;
+    public long date;
+    public byte[] matchInfo;
+
+    @Ignore
+    private double rank = Double.NaN;
+
+    /**
+     * Sum over query terms and columns of weight * (hits in this row / hits in
+     * all rows), so rare terms and category hits count for more. Computed once.
+     */
+    public double rank() {
+        if (Double.isNaN(rank))
+            rank = computeRank();
+        return rank;
+    }
+
+    private double computeRank() {
+        ByteBuffer info = ByteBuffer.wrap(matchInfo).order(ByteOrder.nativeOrder());
+        int phrases = info.getInt(0);
+        int columns = info.getInt(4);
+        double score = 0;
+        for (int p = 0; p < phrases; p++) {
+            for (int c = 0; c < columns; c++) {
+                int offset = 8 + 12 * (p * columns + c);
+                int hitsInRow = info.getInt(offset);
+                int hitsInAllRows = info.getInt(offset + 4);
+                if (hitsInRow > 0 && hitsInAllRows > 0) {
+                    double weight = c < COLUMN_WEIGHTS.length ? COLUMN_WEIGHTS[c] : 1.0;
+                    score += weight * hitsInRow / hitsInAllRows;
+                }
+            }
+        }
+        return score;
+    }
+}
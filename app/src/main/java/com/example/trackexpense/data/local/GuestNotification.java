@@ -0,0 +1,35 @@
+package com.example.trackexpense.data.local;
+
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * A notification for a guest user, kept on the device only.
+ * Signed-in users' notifications live in Firestore instead.
+ */
+@Entity(tableName = "guest_notifications", indices = {
+        @Index(value = { "isRead" }),
+        @Index(value = { "createdAt" })
+})
+public class GuestNotification {
+
+    @PrimaryKey(autoGenerate = true)
+    public long id;
+
+    public String type;
+    public String title;
+    public String message;
+    public long createdAt;
+    public boolean isRead;
+
+    public static GuestNotification of(String type, String title, String message, long createdAt) {
+        GuestNotification notification = new GuestNotification();
+        notification.type = type;
+        notification.title = title;
+        notification.message = message;
+        notification.createdAt = createdAt;
+        notification.isRead = false;
+        return notification;
+    }
+}
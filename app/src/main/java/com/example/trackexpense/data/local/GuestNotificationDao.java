@@ -0,0 +1,41 @@
+package com.example.trackexpense.data.local;
+
+import androidx.lifecycle.LiveData;
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.Query;
+
+import java.util.List;
+
+@Dao
+public interface GuestNotificationDao {
+
+    @Insert
+    void insert(GuestNotification notification);
+
+    @Insert
+    void insertAll(List<GuestNotification> notifications);
+
+    @Query("SELECT * FROM guest_notifications ORDER BY createdAt DESC, id DESC")
+    LiveData<List<GuestNotification>> getAll();
+
+    @Query("SELECT COUNT(*) FROM guest_notifications WHERE isRead = 0")
+    LiveData<Integer> getUnreadCount();
+
+    @Query("UPDATE guest_notifications SET isRead = 1 WHERE id = :id")
+    void markRead(long id);
+
+    @Query("UPDATE guest_notifications SET isRead = 1 WHERE isRead = 0")
+    void markAllRead();
+
+    @Query("DELETE FROM guest_notifications WHERE id = :id")
+    void delete(long id);
+
+    @Query("DELETE FROM guest_notifications")
+    void deleteAll();
+
+    // Retention cap: keep only the newest rows
+    @Query("DELETE FROM guest_notifications WHERE id NOT IN "
+            + "(SELECT id FROM guest_notifications ORDER BY createdAt DESC, id DESC LIMIT :keep)")
+    void trimTo(int keep);
+}
@@ -0,0 +1,20 @@
+package com.example.trackexpense.data.local;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+
+/**
+ * Materialized per-month totals, keyed by local month ("yyyy-MM"), type and category.
+ * Maintained by {@link RollupDao} in the same transaction as the expense write.
+ */
+@Entity(tableName = "monthly_rollups", primaryKeys = { "month", "type", "category" })
+public class MonthlyRollup {
+    @NonNull
+    public String month = "";
+    @NonNull
+    public String type = "";
+    @NonNull
+    public String category = "";
+    public double total;
+    public int count;
+}
@@ -0,0 +1,44 @@
+package com.example.trackexpense.data.local;
+
+import androidx.lifecycle.LiveData;
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.Query;
+
+import java.util.List;
+
+@Dao
+public interface OutboxDao {
+
+    @Insert
+    long insert(OutboxEntry entry);
+
+    @Insert
+    List<Long> insertAll(List<OutboxEntry> entries);
+
+    // Entries without a target document cannot be uploaded and are left aside
+    @Query("SELECT * FROM sync_outbox WHERE userId = :userId AND documentId IS NOT NULL AND documentId != '' "
+            + "ORDER BY id ASC LIMIT :limit")
+    List<OutboxEntry> getPendingSync(String userId, int limit);
+
+    @Query("SELECT COUNT(*) FROM sync_outbox WHERE userId = :userId AND (documentId IS NULL OR documentId = '')")
+    int countWithoutDocumentId(String userId);
+
+    // Documents with local changes that have not been pushed yet
+    @Query("SELECT DISTINCT documentId FROM sync_outbox WHERE userId = :userId AND documentId IN (:documentIds)")
+    List<String> getPendingDocumentIds(String userId, List<String> documentIds);
+
+    // Newest entry per document: the state a parked row had when its user signed out
+    @Query("SELECT * FROM sync_outbox WHERE id IN (SELECT MAX(id) FROM sync_outbox WHERE userId = :userId "
+            + "AND documentId IS NOT NULL AND documentId != '' GROUP BY documentId)")
+    List<OutboxEntry> getLatestPendingByDocument(String userId);
+
+    @Query("DELETE FROM sync_outbox WHERE id IN (:ids)")
+    void deleteByIds(List<Long> ids);
+
+    @Query("UPDATE sync_outbox SET attempts = attempts + 1 WHERE id IN (:ids)")
+    void incrementAttempts(List<Long> ids);
+
+    @Query("SELECT COUNT(*) FROM sync_outbox WHERE userId = :userId AND documentId IS NOT NULL AND documentId != ''")
+    LiveData<Integer> getPendingCount(String userId);
+}
@@ -0,0 +1,53 @@
+package com.example.trackexpense.data.local;
+
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * A pending Firestore mutation, written in the same transaction as the local change.
+ * Rows are drained in ID order by {@link com.example.trackexpense.data.remote.OutboxSyncWorker}
+ * and deleted once their batch has been committed.
+ */
+@Entity(tableName = "sync_outbox", indices = { @Index(value = { "userId" }) })
+public class OutboxEntry {
+
+    public static final String OP_CREATE = "CREATE";
+    public static final String OP_UPDATE = "UPDATE";
+    public static final String OP_DELETE = "DELETE";
+
+    @PrimaryKey(autoGenerate = true)
+    public long id;
+
+    public String userId;
+    public String documentId; // Target expense document, fixed before enqueueing so retries are idempotent
+    public String operation;
+
+    // Snapshot of the expense at the time of the change (unused for deletes)
+    public double amount;
+    public String category;
+    public long date;
+    public String notes;
+    public String type;
+    public boolean isPinned;
+    public int localId;
+
+    public long createdAt;
+    public int attempts;
+
+    public static OutboxEntry of(Expense expense, String userId, String operation) {
+        OutboxEntry entry = new OutboxEntry();
+        entry.userId = userId;
+        entry.documentId = expense.getFirestoreId();
+        entry.operation = operation;
+        entry.amount = expense.getAmount();
+        entry.category = expense.getCategory();
+        entry.date = expense.getDate();
+        entry.notes = expense.getNotes();
+        entry.type = expense.getType();
+        entry.isPinned = expense.isPinned();
+        entry.localId = expense.getId();
+        entry.createdAt = System.currentTimeMillis();
+        return entry;
+    }
+}
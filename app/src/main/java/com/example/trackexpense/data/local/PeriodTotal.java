@@ -0,0 +1,11 @@
+package com.example.trackexpense.data.local;
+
+/**
+ * Aggregate row: total amount for one type within a time bucket.
+ * {@code period} is a local-time key, "yyyy-MM-dd" for days and "yyyy-MM" for months.
+ */
+public class PeriodTotal {
+    public String period;
+    public String type;
+    public double total;
+}
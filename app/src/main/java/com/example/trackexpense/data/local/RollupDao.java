@@ -0,0 +1,144 @@
+package com.example.trackexpense.data.local;
+
+import androidx.room.Dao;
+import androidx.room.Query;
+import androidx.room.Transaction;
+
+/**
+ * Maintains the daily and monthly rollup tables.
+ * Bucket keys are derived in SQL from the expense timestamp so incremental
+ * updates and {@link #rebuild()} always agree on local-time boundaries.
+ */
+@Dao
+public abstract class RollupDao {
+
+    private static final String DAY_KEY = "strftime('%Y-%m-%d', :date / 1000, 'unixepoch', 'localtime')";
+    private static final String MONTH_KEY = "strftime('%Y-%m', :date / 1000, 'unixepoch', 'localtime')";
+
+    @Query("INSERT OR IGNORE INTO daily_rollups (day, type, category, total, count) " +
+            "VALUES (" + DAY_KEY + ", IFNULL(:type, ''), IFNULL(:category, ''), 0, 0)")
+    abstract void ensureDaily(long date, String type, String category);
+
+    @Query("UPDATE daily_rollups SET total = total + :amount, count = count + :count " +
+            "WHERE day = " + DAY_KEY + " AND type = IFNULL(:type, '') AND category = IFNULL(:category, '')")
+    abstract void addDaily(long date, String type, String category, double amount, int count);
+
+    @Query("INSERT OR IGNORE INTO monthly_rollups (month, type, category, total, count) " +
+            "VALUES (" + MONTH_KEY + ", IFNULL(:type, ''), IFNULL(:category, ''), 0, 0)")
+    abstract void ensureMonthly(long date, String type, String category);
+
+    @Query("UPDATE monthly_rollups SET total = total + :amount, count = count + :count " +
+            "WHERE month = " + MONTH_KEY + " AND type = IFNULL(:type, '') AND category = IFNULL(:category, '')")
+    abstract void addMonthly(long date, String type, String category, double amount, int count);
+
+    @Query("DELETE FROM daily_rollups WHERE day = " + DAY_KEY +
+            " AND type = IFNULL(:type, '') AND category = IFNULL(:category, '') AND count <= 0")
+    abstract void pruneDaily(long date, String type, String category);
+
+    @Query("DELETE FROM monthly_rollups WHERE month = " + MONTH_KEY +
+            " AND type = IFNULL(:type, '') AND category = IFNULL(:category, '') AND count <= 0")
+    abstract void pruneMonthly(long date, String type, String category);
+
+    @Query("DELETE FROM daily_rollups")
+    abstract void clearDaily();
+
+    @Query("DELETE FROM monthly_rollups")
+    abstract void clearMonthly();
+
+    @Query("INSERT INTO daily_rollups (day, type, category, total, count) " +
+            "SELECT strftime('%Y-%m-%d', date / 1000, 'unixepoch', 'localtime'), IFNULL(type, ''), " +
+            "IFNULL(category, ''), SUM(amount), COUNT(*) FROM expenses GROUP BY 1, 2, 3")
+    abstract void fillDailyFromExpenses();
+
+    @Query("INSERT INTO monthly_rollups (month, type, category, total, count) " +
+            "SELECT strftime('%Y-%m', date / 1000, 'unixepoch', 'localtime'), IFNULL(type, ''), " +
+            "IFNULL(category, ''), SUM(amount), COUNT(*) FROM expenses GROUP BY 1, 2, 3")
+    abstract void fillMonthlyFromExpenses();
+
+    /**
+     * Number of daily buckets whose stored total or count differs from the expenses table,
+     * in either direction. Zero means the rollups are consistent.
+     */
+    @Query("SELECT " +
+            "(SELECT COUNT(*) FROM (SELECT strftime('%Y-%m-%d', date / 1000, 'unixepoch', 'localtime') AS d, " +
+            "IFNULL(type, '') AS t, IFNULL(category, '') AS c, SUM(amount) AS s, COUNT(*) AS n " +
+            "FROM expenses GROUP BY 1, 2, 3) e " +
+            "LEFT JOIN daily_rollups r ON r.day = e.d AND r.type = e.t AND r.category = e.c " +
+            "WHERE r.day IS NULL OR r.count != e.n OR ABS(r.total - e.s) > 0.005) + " +
+            "(SELECT COUNT(*) FROM daily_rollups r LEFT JOIN (SELECT DISTINCT " +
+            "strftime('%Y-%m-%d', date / 1000, 'unixepoch', 'localtime') AS d, IFNULL(type, '') AS t, " +
+            "IFNULL(category, '') AS c FROM expenses) e ON e.d = r.day AND e.t = r.type AND e.c = r.category " +
+            "WHERE e.d IS NULL)")
+    public abstract int countInconsistentDailyBuckets();
+
+    /**
+     * Same check for the monthly table.
+     */
+    @Query("SELECT " +
+            "(SELECT COUNT(*) FROM (SELECT strftime('%Y-%m', date / 1000, 'unixepoch', 'localtime') AS m, " +
+            "IFNULL(type, '') AS t, IFNULL(category, '') AS c, SUM(amount) AS s, COUNT(*) AS n " +
+            "FROM expenses GROUP BY 1, 2, 3) e " +
+            "LEFT JOIN monthly_rollups r ON r.month = e.m AND r.type = e.t AND r.category = e.c " +
+            "WHERE r.month IS NULL OR r.count != e.n OR ABS(r.total - e.s) > 0.005) + " +
+            "(SELECT COUNT(*) FROM monthly_rollups r LEFT JOIN (SELECT DISTINCT " +
+            "strftime('%Y-%m', date / 1000, 'unixepoch', 'localtime') AS m, IFNULL(type, '') AS t, " +
+            "IFNULL(category, '') AS c FROM expenses) e ON e.m = r.month AND e.t = r.type AND e.c = r.category " +
+            "WHERE e.m IS NULL)")
+    public abstract int countInconsistentMonthlyBuckets();
+
+    /**
+     * Add ({@code sign = 1}) or remove ({@code sign = -1}) one expense from its buckets.
+     * Must run inside the transaction that writes the expense row.
+     */
+    public void apply(Expense expense, int sign) {
+        long date = expense.getDate();
+        String type = expense.getType();
+        String category = expense.getCategory();
+        double amount = sign * expense.getAmount();
+
+        ensureDaily(date, type, category);
+        addDaily(date, type, category, amount, sign);
+        ensureMonthly(date, type, category);
+        addMonthly(date, type, category, amount, sign);
+
+        // Only this expense's buckets can have emptied
+        if (sign < 0) {
+            pruneDaily(date, type, category);
+            pruneMonthly(date, type, category);
+        }
+    }
+
+    /**
+     * Empty both rollup tables, e.g. alongside a full wipe of the expenses table.
+     */
+    @Transaction
+    public void clear() {
+        clearDaily();
+        clearMonthly();
+    }
+
+    /**
+     * Recompute both rollup tables from the expenses table.
+     */
+    @Transaction
+    public void rebuild() {
+        clearDaily();
+        clearMonthly();
+        fillDailyFromExpenses();
+        fillMonthlyFromExpenses();
+    }
+
+    /**
+     * Rebuild the rollups if they have drifted from the expenses table.
+     *
+     * @return true if a rebuild was needed
+     */
+    @Transaction
+    public boolean verifyOrRebuild() {
+        if (countInconsistentDailyBuckets() == 0 && countInconsistentMonthlyBuckets() == 0) {
+            return false;
+        }
+        rebuild();
+        return true;
+    }
+}
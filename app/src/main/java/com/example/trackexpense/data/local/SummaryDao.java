@@ -0,0 +1,45 @@
+package com.example.trackexpense.data.local;
+
+import androidx.lifecycle.LiveData;
+import androidx.room.Dao;
+import androidx.room.Query;
+
+import java.util.List;
+
+/**
+ * GROUP BY queries for dashboard, analytics and profile stats.
+ * They read the materialized rollup tables, so cost grows with the number of
+ * buckets rather than the number of transactions. Date ranges are
+ * [startDate, endDate) and are resolved to whole local days.
+ */
+@Dao
+public interface SummaryDao {
+
+    String START_DAY = "strftime('%Y-%m-%d', :startDate / 1000, 'unixepoch', 'localtime')";
+    String END_DAY = "strftime('%Y-%m-%d', :endDate / 1000, 'unixepoch', 'localtime')";
+    String START_MONTH = "strftime('%Y-%m', :startDate / 1000, 'unixepoch', 'localtime')";
+    String END_MONTH = "strftime('%Y-%m', :endDate / 1000, 'unixepoch', 'localtime')";
+
+    @Query("SELECT type, SUM(total) AS total, SUM(count) AS count FROM monthly_rollups GROUP BY type")
+    LiveData<List<TypeTotal>> getTypeTotals();
+
+    @Query("SELECT type, SUM(total) AS total, SUM(count) AS count FROM daily_rollups " +
+            "WHERE day >= " + START_DAY + " AND day < " + END_DAY + " GROUP BY type")
+    LiveData<List<TypeTotal>> getTypeTotalsBetween(long startDate, long endDate);
+
+    @Query("SELECT type, SUM(total) AS total, SUM(count) AS count FROM monthly_rollups " +
+            "WHERE month = strftime('%Y-%m', :date / 1000, 'unixepoch', 'localtime') GROUP BY type")
+    LiveData<List<TypeTotal>> getTypeTotalsForMonth(long date);
+
+    @Query("SELECT category, SUM(total) AS total FROM monthly_rollups WHERE type = :type " +
+            "GROUP BY category ORDER BY total DESC")
+    LiveData<List<CategoryTotal>> getCategoryTotals(String type);
+
+    @Query("SELECT day AS period, type, SUM(total) AS total FROM daily_rollups " +
+            "WHERE day >= " + START_DAY + " AND day < " + END_DAY + " GROUP BY day, type")
+    LiveData<List<PeriodTotal>> getDailyTotals(long startDate, long endDate);
+
+    @Query("SELECT month AS period, type, SUM(total) AS total FROM monthly_rollups " +
+            "WHERE month >= " + START_MONTH + " AND month < " + END_MONTH + " GROUP BY month, type")
+    LiveData<List<PeriodTotal>> getMonthlyTotals(long startDate, long endDate);
+}
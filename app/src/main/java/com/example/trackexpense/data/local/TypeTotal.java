@@ -0,0 +1,10 @@
+package com.example.trackexpense.data.local;
+
+/**
+ * Aggregate row: total amount and row count for one transaction type.
+ */
+public class TypeTotal {
+    public String type;
+    public double total;
+    public int count;
+}
@@ -9,10 +9,14 @@ import com.example.trackexpense.data.local.Expense;
 import com.example.trackexpense.data.model.CategoryModel;
 import com.example.trackexpense.data.model.User;
 import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -20,6 +24,11 @@ import java.util.Map;
 public class AdminService {
 
     private static final String TAG = "AdminService";
+    // Firestore rejects batches with more than 500 writes
+    private static final int MAX_BATCH_WRITES = 500;
+    private static final int MAX_DELETE_RETRIES = 3;
+    // Deleted in this order: stats only once the expenses whose triggers update them are gone
+    private static final String[] USER_SUBCOLLECTIONS = { "expenses", "notifications", "stats", "stats_events" };
     private static AdminService instance;
 
     private final FirebaseFirestore db;
@@ -34,6 +43,10 @@ public class AdminService {
         void onFailure(Exception e);
     }
 
+    public interface OnProgressListener {
+        void onProgress(int deletedCount);
+    }
+
     private AdminService() {
         db = FirebaseFirestore.getInstance();
         auth = FirebaseAuth.getInstance();
@@ -143,8 +156,15 @@ public class AdminService {
     }
 
     public void deleteUser(String userId, OnCompleteListener listener) {
-        // Call Cloud Function to delete user from Firebase Authentication
-        // The Cloud Function will handle Auth deletion using Admin SDK
+        deleteUser(userId, null, listener);
+    }
+
+    /**
+     * Delete a user from Auth and remove all of their Firestore data.
+     * The deleteUser Cloud Function does both server-side with recursiveDelete;
+     * if it is unavailable, the data is deleted from here in batches instead.
+     */
+    public void deleteUser(String userId, OnProgressListener progress, OnCompleteListener listener) {
         com.google.firebase.functions.FirebaseFunctions functions = com.google.firebase.functions.FirebaseFunctions
                 .getInstance();
 
@@ -154,53 +174,106 @@ public class AdminService {
         functions.getHttpsCallable("deleteUser")
                 .call(data)
                 .addOnSuccessListener(result -> {
-                    Log.d(TAG, "Cloud Function deleted user from Auth");
-                    // Now delete Firestore data
-                    deleteUserFirestoreData(userId, listener);
+                    Object response = result.getData();
+                    boolean dataDeleted = response instanceof Map
+                            && Boolean.TRUE.equals(((Map<?, ?>) response).get("dataDeleted"));
+                    if (dataDeleted) {
+                        Log.d(TAG, "Cloud Function deleted user from Auth and Firestore");
+                        listener.onSuccess();
+                    } else {
+                        // Older function version: Auth only
+                        Log.d(TAG, "Cloud Function deleted user from Auth");
+                        deleteUserFirestoreData(userId, progress, listener);
+                    }
                 })
                 .addOnFailureListener(e -> {
                     Log.w(TAG, "Cloud Function failed, deleting Firestore data only: " + e.getMessage());
                     // If Cloud Function fails (maybe not deployed), still delete Firestore data
-                    deleteUserFirestoreData(userId, listener);
+                    deleteUserFirestoreData(userId, progress, listener);
                 });
     }
 
-    private void deleteUserFirestoreData(String userId, OnCompleteListener listener) {
-        // First delete all user's expenses
-        db.collection("users").document(userId).collection("expenses")
+    /**
+     * Delete every subcollection page by page, one WriteBatch of up to 500
+     * deletes in flight at a time, and the user document only once all of them
+     * have committed. Each page re-queries what is left, so a failed run can be
+     * resumed by simply calling this again. The user document is marked
+     * {@code deleting} first, as the Cloud Function does, so the stats trigger
+     * ignores the expense deletes instead of recreating stats behind us.
+     */
+    private void deleteUserFirestoreData(String userId, OnProgressListener progress, OnCompleteListener listener) {
+        db.collection("users").document(userId)
+                .set(Collections.singletonMap("deleting", true), SetOptions.merge())
+                .addOnSuccessListener(aVoid -> deleteUserSubcollections(userId, progress, listener))
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "deleteUserFirestoreData: Could not mark user as deleting", e);
+                    listener.onFailure(e);
+                });
+    }
+
+    private void deleteUserSubcollections(String userId, OnProgressListener progress, OnCompleteListener listener) {
+        deleteSubcollection(userId, 0, 0, 0, progress, new OnCompleteListener() {
+            @Override
+            public void onSuccess() {
+                db.collection("users").document(userId)
+                        .delete()
+                        .addOnSuccessListener(aVoid -> {
+                            Log.d(TAG, "User Firestore data deleted");
+                            listener.onSuccess();
+                        })
+                        .addOnFailureListener(listener::onFailure);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                Log.e(TAG, "deleteUserFirestoreData: Stopped, user document kept so the delete can be resumed", e);
+                listener.onFailure(e);
+            }
+        });
+    }
+
+    private void deleteSubcollection(String userId, int collectionIndex, int deletedCount, int attempt,
+            OnProgressListener progress, OnCompleteListener listener) {
+        if (collectionIndex >= USER_SUBCOLLECTIONS.length) {
+            listener.onSuccess();
+            return;
+        }
+
+        db.collection("users").document(userId).collection(USER_SUBCOLLECTIONS[collectionIndex])
+                .limit(MAX_BATCH_WRITES)
                 .get()
-                .addOnSuccessListener(expenseSnapshot -> {
-                    // Delete each expense
-                    for (var doc : expenseSnapshot.getDocuments()) {
-                        doc.getReference().delete();
+                .continueWithTask(task -> {
+                    WriteBatch batch = db.batch();
+                    for (DocumentSnapshot doc : task.getResult().getDocuments()) {
+                        batch.delete(doc.getReference());
                     }
-
-                    // Delete all user's notifications
-                    db.collection("users").document(userId).collection("notifications")
-                            .get()
-                            .addOnSuccessListener(notifSnapshot -> {
-                                for (var doc : notifSnapshot.getDocuments()) {
-                                    doc.getReference().delete();
-                                }
-
-                                // Finally delete the user document
-                                db.collection("users").document(userId)
-                                        .delete()
-                                        .addOnSuccessListener(aVoid -> {
-                                            Log.d(TAG, "User Firestore data deleted");
-                                            listener.onSuccess();
-                                        })
-                                        .addOnFailureListener(listener::onFailure);
-                            })
-                            .addOnFailureListener(e -> {
-                                // Continue with user deletion even if notifications fail
-                                db.collection("users").document(userId)
-                                        .delete()
-                                        .addOnSuccessListener(aVoid -> listener.onSuccess())
-                                        .addOnFailureListener(listener::onFailure);
-                            });
+                    int pageSize = task.getResult().size();
+                    return batch.commit().continueWith(commit -> {
+                        if (!commit.isSuccessful())
+                            throw commit.getException();
+                        return pageSize;
+                    });
                 })
-                .addOnFailureListener(listener::onFailure);
+                .addOnSuccessListener(pageSize -> {
+                    int total = deletedCount + pageSize;
+                    if (progress != null && pageSize > 0)
+                        progress.onProgress(total);
+                    // A short page means this subcollection is empty now
+                    int nextIndex = pageSize < MAX_BATCH_WRITES ? collectionIndex + 1 : collectionIndex;
+                    deleteSubcollection(userId, nextIndex, total, 0, progress, listener);
+                })
+                .addOnFailureListener(e -> {
+                    if (attempt + 1 >= MAX_DELETE_RETRIES) {
+                        listener.onFailure(e);
+                        return;
+                    }
+                    long delayMs = 1000L << attempt;
+                    Log.w(TAG, "deleteSubcollection: Page failed, retrying in " + delayMs + "ms", e);
+                    new android.os.Handler(android.os.Looper.getMainLooper()).postDelayed(
+                            () -> deleteSubcollection(userId, collectionIndex, deletedCount, attempt + 1, progress,
+                                    listener),
+                            delayMs);
+                });
     }
 
     public void updateUser(User user, OnCompleteListener listener) {
@@ -268,6 +341,8 @@ public class AdminService {
         updates.put("date", expense.getDate());
         updates.put("notes", expense.getNotes());
         updates.put("type", expense.getType());
+        updates.put("contentHash", Expense.computeContentHash(expense.getAmount(), expense.getCategory(),
+                expense.getType(), expense.getDate(), expense.getNotes()));
 
         db.collection("users").document(userId).collection("expenses").document(expense.getFirestoreId())
                 .update(updates)
@@ -285,8 +360,10 @@ public class AdminService {
         data.put("category", category);
         data.put("notes", notes);
         data.put("type", type);
-        data.put("date", System.currentTimeMillis());
-        data.put("createdAt", System.currentTimeMillis());
+        long now = System.currentTimeMillis();
+        data.put("date", now);
+        data.put("createdAt", now);
+        data.put("contentHash", Expense.computeContentHash(amount, category, type, now, notes));
 
         db.collection("users").document(userId).collection("expenses")
                 .add(data)
@@ -7,22 +7,44 @@ import androidx.lifecycle.MutableLiveData;
 
 import com.example.trackexpense.data.local.Expense;
 import com.example.trackexpense.data.model.Category;
+import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.AggregateField;
+import com.google.firebase.firestore.AggregateSource;
 import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
 import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 
 public class FirestoreService {
 
     private static final String TAG = "FirestoreService";
+    // Firestore rejects batches with more than 500 writes
+    private static final int MAX_BATCH_WRITES = 500;
+    private static final long MONTH_TOTAL_TTL_MS = 60_000;
+    // Newest expenses kept under the snapshot listener; older history is paged in on demand
+    private static final int LIVE_WINDOW_SIZE = 100;
+    // Firestore caps the number of values in a whereIn filter
+    private static final int MAX_IN_VALUES = 30;
+    private static final long LOOKUP_TIMEOUT_SECONDS = 30;
     private static FirestoreService instance;
 
     private final FirebaseFirestore db;
@@ -31,8 +53,40 @@ public class FirestoreService {
     private final MutableLiveData<List<Category>> expenseCategories = new MutableLiveData<>();
     private final MutableLiveData<List<Category>> incomeCategories = new MutableLiveData<>();
 
-    public interface OnExpenseSavedListener {
-        void onSuccess(String firestoreId);
+    // Live expense index in query order, patched from document changes.
+    // Only touched on the main thread, where snapshot and auth callbacks run.
+    private final List<Expense> orderedExpenses = new ArrayList<>();
+    private final List<OnExpenseChangesListener> expenseChangesListeners = new CopyOnWriteArrayList<>();
+    private ListenerRegistration expensesRegistration;
+    private String expensesUserId;
+
+    // Short-lived cache for the budget check's month total
+    private String monthTotalUserId;
+    private long monthTotalStart;
+    private double monthTotal;
+    private long monthTotalCachedAt;
+    private volatile int monthTotalGeneration;
+
+    /**
+     * Receives only the documents that changed in each remote snapshot.
+     */
+    public interface OnExpenseChangesListener {
+        void onExpenseChanges(List<Expense> added, List<Expense> modified, List<String> removedIds);
+
+        /**
+         * The user being listened to signed out or switched account.
+         */
+        void onExpensesDetached(String userId);
+    }
+
+    public interface OnExpensesPageLoadedListener {
+        void onLoaded(List<Expense> expenses);
+
+        void onFailure(Exception e);
+    }
+
+    public interface OnExpensesSavedListener {
+        void onSuccess(int savedCount);
 
         void onFailure(Exception e);
     }
@@ -46,6 +100,13 @@ public class FirestoreService {
     private FirestoreService() {
         db = FirebaseFirestore.getInstance();
         auth = FirebaseAuth.getInstance();
+        // Drop the expense listener as soon as its user signs out or switches account
+        auth.addAuthStateListener(firebaseAuth -> {
+            FirebaseUser user = firebaseAuth.getCurrentUser();
+            if (expensesUserId != null && (user == null || !expensesUserId.equals(user.getUid()))) {
+                stopExpensesListener();
+            }
+        });
         Log.d(TAG, "FirestoreService initialized");
     }
 
@@ -77,18 +138,81 @@ public class FirestoreService {
         return db.collection("users").document(userId).collection("expenses");
     }
 
-    public void saveExpense(Expense expense, OnExpenseSavedListener listener) {
-        Log.d(TAG, "saveExpense: " + expense.getCategory() + ", amount: " + expense.getAmount());
+    /**
+     * Reserve a document ID for a new expense without any network round trip.
+     * Returns null when no user is signed in.
+     */
+    public String newExpenseId() {
+        CollectionReference expensesRef = getExpensesCollection();
+        return expensesRef != null ? expensesRef.document().getId() : null;
+    }
+
+    /**
+     * Save many expenses with chunked {@link WriteBatch} commits instead of one
+     * request per row. Expenses that already carry a firestoreId are written to
+     * that document, so saving the same rows twice overwrites instead of
+     * duplicating. Missing IDs are generated on the client before the commit.
+     */
+    public void saveExpenses(List<Expense> expenses, OnExpensesSavedListener listener) {
+        saveExpenses(expenses, Collections.emptySet(), listener);
+    }
 
-        FirebaseUser currentUser = auth.getCurrentUser();
-        if (currentUser == null) {
-            Log.w(TAG, "saveExpense: User not logged in");
+    /**
+     * Documents are merged, so uploading a row again never rewrites its
+     * createdAt. createdAt is only written for documents created by this call:
+     * rows without a firestoreId and those listed in {@code newDocumentIds}.
+     */
+    public void saveExpenses(List<Expense> expenses, Set<String> newDocumentIds, OnExpensesSavedListener listener) {
+        CollectionReference expensesRef = getExpensesCollection();
+        if (expensesRef == null) {
             if (listener != null)
                 listener.onFailure(new Exception("User not logged in"));
             return;
         }
+        if (expenses.isEmpty()) {
+            if (listener != null)
+                listener.onSuccess(0);
+            return;
+        }
 
-        String userId = currentUser.getUid();
+        int batchCount = (expenses.size() + MAX_BATCH_WRITES - 1) / MAX_BATCH_WRITES;
+        final int[] completedBatches = { 0 };
+        final boolean[] hasError = { false };
+
+        for (int start = 0; start < expenses.size(); start += MAX_BATCH_WRITES) {
+            List<Expense> chunk = expenses.subList(start, Math.min(start + MAX_BATCH_WRITES, expenses.size()));
+            WriteBatch batch = db.batch();
+            for (Expense expense : chunk) {
+                String firestoreId = expense.getFirestoreId();
+                boolean hasId = firestoreId != null && !firestoreId.isEmpty();
+                DocumentReference docRef = hasId ? expensesRef.document(firestoreId) : expensesRef.document();
+                expense.setFirestoreId(docRef.getId());
+                Map<String, Object> data = expenseToMap(expense);
+                if (!hasId || newDocumentIds.contains(firestoreId))
+                    data.put("createdAt", System.currentTimeMillis());
+                batch.set(docRef, data, SetOptions.merge());
+            }
+
+            batch.commit()
+                    .addOnSuccessListener(aVoid -> {
+                        completedBatches[0]++;
+                        Log.d(TAG, "saveExpenses: Committed batch " + completedBatches[0] + "/" + batchCount);
+                        if (completedBatches[0] == batchCount && !hasError[0] && listener != null) {
+                            listener.onSuccess(expenses.size());
+                        }
+                    })
+                    .addOnFailureListener(e -> {
+                        Log.e(TAG, "saveExpenses: Batch commit failed", e);
+                        if (!hasError[0]) {
+                            hasError[0] = true;
+                            if (listener != null)
+                                listener.onFailure(e);
+                        }
+                    });
+        }
+    }
+
+    private Map<String, Object> expenseToMap(Expense expense) {
         Map<String, Object> expenseData = new HashMap<>();
         expenseData.put("amount", expense.getAmount());
         expenseData.put("category", expense.getCategory());
@@ -96,168 +220,342 @@ public class FirestoreService {
         expenseData.put("notes", expense.getNotes() != null ? expense.getNotes() : "");
         expenseData.put("type", expense.getType());
         expenseData.put("isPinned", expense.isPinned());
-        expenseData.put("createdAt", System.currentTimeMillis());
         expenseData.put("localId", expense.getId());
-
-        db.collection("users")
-                .document(userId)
-                .collection("expenses")
-                .add(expenseData)
-                .addOnSuccessListener(documentReference -> {
-                    String firestoreId = documentReference.getId();
-                    Log.d(TAG, "SUCCESS: Saved with ID: " + firestoreId);
-                    if (listener != null)
-                        listener.onSuccess(firestoreId);
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "FAILURE: " + e.getMessage(), e);
-                    if (listener != null)
-                        listener.onFailure(e);
-                });
+        expenseData.put("contentHash", Expense.computeContentHash(expense.getAmount(), expense.getCategory(),
+                expense.getType(), expense.getDate(), expense.getNotes()));
+        return expenseData;
     }
 
-    public void updateExpense(Expense expense) {
-        String firestoreId = expense.getFirestoreId();
-        if (firestoreId == null || firestoreId.isEmpty()) {
-            Log.w(TAG, "updateExpense: No firestoreId, cannot update");
-            return;
+    /**
+     * Live window of the signed-in user's newest expenses, newest first.
+     * The snapshot listener is registered once per user and shared by all callers.
+     * Use {@link #fetchExpensesPage} for anything older than the window.
+     */
+    public LiveData<List<Expense>> getExpenses() {
+        String userId = getUserId();
+        if (userId == null) {
+            Log.w(TAG, "getExpenses: User not logged in");
+            stopExpensesListener();
+            return remoteExpenses;
         }
 
-        CollectionReference expensesRef = getExpensesCollection();
-        if (expensesRef == null)
-            return;
+        if (expensesRegistration == null || !userId.equals(expensesUserId)) {
+            startExpensesListener(userId);
+        }
+        return remoteExpenses;
+    }
 
-        Map<String, Object> expenseData = new HashMap<>();
-        expenseData.put("amount", expense.getAmount());
-        expenseData.put("category", expense.getCategory());
-        expenseData.put("date", expense.getDate());
-        expenseData.put("notes", expense.getNotes() != null ? expense.getNotes() : "");
-        expenseData.put("type", expense.getType());
-        expenseData.put("isPinned", expense.isPinned());
-        expenseData.put("updatedAt", System.currentTimeMillis());
+    /**
+     * Register for per-document deltas. A late listener first receives the
+     * current index as one ADDED delta.
+     */
+    public void addExpenseChangesListener(OnExpenseChangesListener listener) {
+        expenseChangesListeners.add(listener);
+        if (!orderedExpenses.isEmpty()) {
+            listener.onExpenseChanges(new ArrayList<>(orderedExpenses), Collections.emptyList(),
+                    Collections.emptyList());
+        }
+    }
 
-        expensesRef.document(firestoreId)
-                .update(expenseData)
-                .addOnSuccessListener(aVoid -> Log.d(TAG, "updateExpense: SUCCESS"))
-                .addOnFailureListener(e -> Log.e(TAG, "updateExpense: FAILURE", e));
+    public void removeExpenseChangesListener(OnExpenseChangesListener listener) {
+        expenseChangesListeners.remove(listener);
     }
 
-    public void deleteExpense(Expense expense) {
-        String firestoreId = expense.getFirestoreId();
-        if (firestoreId == null || firestoreId.isEmpty()) {
-            Log.w(TAG, "deleteExpense: No firestoreId, cannot delete from Firestore");
+    /**
+     * Re-register the current user's expense listener without reporting a
+     * detach, so the next snapshot delivers the whole live window as ADDED.
+     * Used after the local mirror has been cleared. Main thread only.
+     */
+    public void restartExpensesListener() {
+        String userId = getUserId();
+        if (userId == null)
             return;
+        if (expensesRegistration != null) {
+            expensesRegistration.remove();
+            expensesRegistration = null;
         }
+        expensesUserId = null;
+        startExpensesListener(userId);
+    }
 
-        CollectionReference expensesRef = getExpensesCollection();
-        if (expensesRef == null)
-            return;
+    private void startExpensesListener(String userId) {
+        stopExpensesListener();
+        expensesUserId = userId;
+        CollectionReference expensesRef = db.collection("users").document(userId).collection("expenses");
+        expensesRegistration = expensesRef
+                .orderBy("date", Query.Direction.DESCENDING)
+                .limit(LIVE_WINDOW_SIZE)
+                .addSnapshotListener((value, error) -> {
+                    if (error != null) {
+                        Log.e(TAG, "Error listening to expenses", error);
+                        return;
+                    }
+                    if (value != null) {
+                        applyExpenseChanges(value, expensesRef);
+                    }
+                });
+        Log.d(TAG, "startExpensesListener: Listening for " + userId);
+    }
 
-        expensesRef.document(firestoreId)
-                .delete()
-                .addOnSuccessListener(aVoid -> Log.d(TAG, "deleteExpense: SUCCESS"))
-                .addOnFailureListener(e -> Log.e(TAG, "deleteExpense: FAILURE", e));
+    private void stopExpensesListener() {
+        String detachedUserId = expensesUserId;
+        if (expensesRegistration != null) {
+            expensesRegistration.remove();
+            expensesRegistration = null;
+            Log.d(TAG, "stopExpensesListener: Detached listener for " + detachedUserId);
+        }
+        expensesUserId = null;
+        if (detachedUserId != null) {
+            for (OnExpenseChangesListener listener : expenseChangesListeners) {
+                listener.onExpensesDetached(detachedUserId);
+            }
+        }
+        orderedExpenses.clear();
+        remoteExpenses.setValue(new ArrayList<>());
     }
 
-    public LiveData<List<Expense>> getExpenses() {
-        if (!isUserLoggedIn()) {
-            Log.w(TAG, "getExpenses: User not logged in");
-            remoteExpenses.setValue(new ArrayList<>());
-            return remoteExpenses;
+    /**
+     * Patch the index with the snapshot's document changes. Only changed
+     * documents are parsed; old and new indexes come from Firestore and stay
+     * valid when the changes are applied in order.
+     */
+    private void applyExpenseChanges(QuerySnapshot snapshot, CollectionReference expensesRef) {
+        List<DocumentChange> changes = snapshot.getDocumentChanges();
+        if (changes.isEmpty())
+            return;
+
+        List<Expense> added = new ArrayList<>();
+        List<Expense> modified = new ArrayList<>();
+        List<String> removedIds = new ArrayList<>();
+        // In a full window, REMOVED may just mean a document was pushed below the limit
+        boolean windowFull = snapshot.size() >= LIVE_WINDOW_SIZE;
+        List<String> maybeRemovedIds = new ArrayList<>();
+
+        for (DocumentChange change : changes) {
+            QueryDocumentSnapshot doc = change.getDocument();
+            switch (change.getType()) {
+                case ADDED: {
+                    Expense expense = documentToExpense(doc);
+                    orderedExpenses.add(change.getNewIndex(), expense);
+                    added.add(expense);
+                    break;
+                }
+                case MODIFIED: {
+                    Expense expense = documentToExpense(doc);
+                    orderedExpenses.remove(change.getOldIndex());
+                    orderedExpenses.add(change.getNewIndex(), expense);
+                    modified.add(expense);
+                    break;
+                }
+                case REMOVED:
+                    orderedExpenses.remove(change.getOldIndex());
+                    (windowFull ? maybeRemovedIds : removedIds).add(doc.getId());
+                    break;
+            }
         }
 
-        CollectionReference expensesRef = getExpensesCollection();
-        if (expensesRef == null) {
-            remoteExpenses.setValue(new ArrayList<>());
-            return remoteExpenses;
+        invalidateMonthTotal();
+        remoteExpenses.setValue(Collections.unmodifiableList(new ArrayList<>(orderedExpenses)));
+        for (OnExpenseChangesListener listener : expenseChangesListeners) {
+            listener.onExpenseChanges(added, modified, removedIds);
         }
+        Log.d(TAG, "applyExpenseChanges: +" + added.size() + " ~" + modified.size() + " -" + removedIds.size()
+                + ", total " + orderedExpenses.size());
 
-        expensesRef.orderBy("date", Query.Direction.DESCENDING)
-                .addSnapshotListener((value, error) -> {
-                    if (error != null) {
-                        Log.e(TAG, "Error listening to expenses", error);
+        for (String documentId : maybeRemovedIds) {
+            confirmRemoval(expensesRef, documentId);
+        }
+    }
+
+    /**
+     * Report a document that left the live window as removed only if it no longer exists.
+     */
+    private void confirmRemoval(CollectionReference expensesRef, String documentId) {
+        String userId = expensesUserId;
+        expensesRef.document(documentId).get()
+                .addOnSuccessListener(doc -> {
+                    if (doc.exists() || userId == null || !userId.equals(expensesUserId))
                         return;
+                    for (OnExpenseChangesListener listener : expenseChangesListeners) {
+                        listener.onExpenseChanges(Collections.emptyList(), Collections.emptyList(),
+                                Collections.singletonList(documentId));
                     }
+                })
+                .addOnFailureListener(e -> Log.w(TAG, "confirmRemoval: Could not check " + documentId, e));
+    }
 
-                    List<Expense> expenses = new ArrayList<>();
-                    if (value != null) {
-                        value.getDocuments().forEach(doc -> {
-                            Expense expense = new Expense();
-                            expense.setFirestoreId(doc.getId()); // Store Firestore ID
-                            expense.setAmount(doc.getDouble("amount") != null ? doc.getDouble("amount") : 0);
-                            expense.setCategory(doc.getString("category"));
-                            expense.setDate(doc.getLong("date") != null ? doc.getLong("date") : 0);
-                            expense.setNotes(doc.getString("notes"));
-                            expense.setType(doc.getString("type"));
-
-                            // Get isPinned field
-                            Boolean isPinned = doc.getBoolean("isPinned");
-                            expense.setPinned(isPinned != null ? isPinned : false);
-
-                            // Get local ID if exists
-                            Long localId = doc.getLong("localId");
-                            if (localId != null) {
-                                expense.setId(localId.intValue());
-                            }
+    /**
+     * Fetch one page of expenses older than the cursor (date, documentId), newest
+     * first. Pass a null cursor for the first page. Pages are plain reads, not
+     * listeners, so paging back through history costs one query per page.
+     */
+    public void fetchExpensesPage(Long beforeDate, String beforeId, int limit, OnExpensesPageLoadedListener listener) {
+        CollectionReference expensesRef = getExpensesCollection();
+        if (expensesRef == null) {
+            listener.onFailure(new Exception("User not logged in"));
+            return;
+        }
 
-                            expenses.add(expense);
-                        });
+        pageQuery(expensesRef, beforeDate, beforeId, limit).get()
+                .addOnSuccessListener(querySnapshot -> {
+                    List<Expense> expenses = new ArrayList<>();
+                    for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
+                        expenses.add(documentToExpense(doc));
                     }
-                    remoteExpenses.setValue(expenses);
-                    Log.d(TAG, "Fetched " + expenses.size() + " expenses from Firestore");
+                    Log.d(TAG, "fetchExpensesPage: Loaded " + expenses.size() + " expenses");
+                    listener.onLoaded(expenses);
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "fetchExpensesPage: Failed", e);
+                    listener.onFailure(e);
                 });
+    }
 
-        return remoteExpenses;
+    /**
+     * Blocking form of {@link #fetchExpensesPage}, for background bulk loads.
+     */
+    public List<Expense> fetchExpensesPageSync(Long beforeDate, String beforeId, int limit) throws Exception {
+        CollectionReference expensesRef = getExpensesCollection();
+        if (expensesRef == null) {
+            throw new Exception("User not logged in");
+        }
+
+        QuerySnapshot querySnapshot = Tasks.await(pageQuery(expensesRef, beforeDate, beforeId, limit).get(),
+                LOOKUP_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        List<Expense> expenses = new ArrayList<>();
+        for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
+            expenses.add(documentToExpense(doc));
+        }
+        Log.d(TAG, "fetchExpensesPageSync: Loaded " + expenses.size() + " expenses");
+        return expenses;
     }
 
-    public void syncLocalToFirestore(List<Expense> localExpenses) {
+    private Query pageQuery(CollectionReference expensesRef, Long beforeDate, String beforeId, int limit) {
+        Query query = expensesRef.orderBy("date", Query.Direction.DESCENDING)
+                .orderBy(FieldPath.documentId(), Query.Direction.DESCENDING);
+        if (beforeDate != null && beforeId != null) {
+            query = query.startAfter(beforeDate, beforeId);
+        }
+        return query.limit(limit);
+    }
+
+    /**
+     * Remote expenses whose contentHash is one of the given values. Only matching
+     * documents are read. Blocks, so call it off the main thread. Documents
+     * written before contentHash existed are not found.
+     */
+    public List<Expense> findExpensesByContentHashesSync(List<Long> hashes) throws Exception {
+        CollectionReference expensesRef = getExpensesCollection();
+        if (expensesRef == null) {
+            throw new Exception("User not logged in");
+        }
+
+        List<Expense> matches = new ArrayList<>();
+        for (int start = 0; start < hashes.size(); start += MAX_IN_VALUES) {
+            List<Long> chunk = hashes.subList(start, Math.min(start + MAX_IN_VALUES, hashes.size()));
+            QuerySnapshot snapshot = Tasks.await(expensesRef.whereIn("contentHash", new ArrayList<Object>(chunk)).get(),
+                    LOOKUP_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            for (DocumentSnapshot doc : snapshot.getDocuments()) {
+                matches.add(documentToExpense(doc));
+            }
+        }
+        Log.d(TAG, "findExpensesByContentHashesSync: " + matches.size() + " matches for " + hashes.size() + " hashes");
+        return matches;
+    }
+
+    private Expense documentToExpense(DocumentSnapshot doc) {
+        Expense expense = new Expense();
+        expense.setFirestoreId(doc.getId());
+        Double amount = doc.getDouble("amount");
+        expense.setAmount(amount != null ? amount : 0);
+        expense.setCategory(doc.getString("category"));
+        Long date = doc.getLong("date");
+        expense.setDate(date != null ? date : 0);
+        expense.setNotes(doc.getString("notes"));
+        expense.setType(doc.getString("type"));
+
+        Boolean isPinned = doc.getBoolean("isPinned");
+        expense.setPinned(isPinned != null ? isPinned : false);
+
+        // Get local ID if exists
+        Long localId = doc.getLong("localId");
+        if (localId != null) {
+            expense.setId(localId.intValue());
+        }
+        expense.updateContentHash();
+        return expense;
+    }
+
+    public void syncLocalToFirestore(List<Expense> localExpenses, Set<String> newDocumentIds) {
         if (!isUserLoggedIn()) {
             Log.w(TAG, "syncLocalToFirestore: User not logged in");
             return;
         }
 
         Log.d(TAG, "syncLocalToFirestore: Syncing " + localExpenses.size() + " expenses");
-        for (Expense expense : localExpenses) {
-            saveExpense(expense, null);
-        }
+        saveExpenses(localExpenses, newDocumentIds, null);
     }
 
+    /**
+     * Sum of this month's EXPENSE amounts, computed server-side with an
+     * aggregation query so no documents are downloaded. The result is cached
+     * for {@link #MONTH_TOTAL_TTL_MS} and dropped on any local or remote change.
+     */
     public void getCurrentMonthTotal(long startDate, OnTotalLoadedListener listener) {
-        if (!isUserLoggedIn()) {
+        String userId = getUserId();
+        CollectionReference expensesRef = getExpensesCollection();
+        if (userId == null || expensesRef == null) {
             if (listener != null)
                 listener.onLoaded(0);
             return;
         }
 
-        CollectionReference expensesRef = getExpensesCollection();
-        if (expensesRef == null) {
-            if (listener != null)
-                listener.onLoaded(0);
-            return;
+        synchronized (this) {
+            if (userId.equals(monthTotalUserId) && startDate == monthTotalStart
+                    && System.currentTimeMillis() - monthTotalCachedAt < MONTH_TOTAL_TTL_MS) {
+                if (listener != null)
+                    listener.onLoaded(monthTotal);
+                return;
+            }
         }
 
-        expensesRef.whereGreaterThanOrEqualTo("date", startDate)
-                .get()
-                .addOnSuccessListener(querySnapshot -> {
-                    double total = 0;
-                    for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
-                        String type = doc.getString("type");
-                        if ("EXPENSE".equals(type)) {
-                            Double amount = doc.getDouble("amount");
-                            if (amount != null) {
-                                total += amount;
-                            }
+        final int generation = monthTotalGeneration;
+        AggregateField amountSum = AggregateField.sum("amount");
+        expensesRef.whereEqualTo("type", "EXPENSE")
+                .whereGreaterThanOrEqualTo("date", startDate)
+                .aggregate(amountSum, AggregateField.count())
+                .get(AggregateSource.SERVER)
+                .addOnSuccessListener(snapshot -> {
+                    Double sum = snapshot.getDouble(amountSum);
+                    double total = sum != null ? sum : 0;
+                    Log.d(TAG, "getCurrentMonthTotal: " + total + " over " + snapshot.getCount() + " expenses");
+                    synchronized (this) {
+                        // A write since the query started makes this result stale
+                        if (generation == monthTotalGeneration) {
+                            monthTotalUserId = userId;
+                            monthTotalStart = startDate;
+                            monthTotal = total;
+                            monthTotalCachedAt = System.currentTimeMillis();
                         }
                     }
                     if (listener != null)
                         listener.onLoaded(total);
                 })
                 .addOnFailureListener(e -> {
+                    Log.w(TAG, "getCurrentMonthTotal: Aggregation failed", e);
                     if (listener != null)
                         listener.onFailure(e);
                 });
     }
 
+    /**
+     * Drop the cached month total. Call after any local expense write.
+     */
+    public synchronized void invalidateMonthTotal() {
+        monthTotalGeneration++;
+        monthTotalCachedAt = 0;
+    }
+
     // ==================== CATEGORY MANAGEMENT ====================
 
     /**
@@ -425,6 +723,7 @@ public class FirestoreService {
 
         for (Category category : defaults) {
             Map<String, Object> categoryData = categoryToMap(category);
+            categoryData.put("createdAt", System.currentTimeMillis());
 
             categoriesRef.add(categoryData)
                     .addOnSuccessListener(docRef -> {
@@ -459,6 +758,7 @@ public class FirestoreService {
         }
 
         Map<String, Object> categoryData = categoryToMap(category);
+        categoryData.put("createdAt", System.currentTimeMillis());
 
         categoriesRef.add(categoryData)
                 .addOnSuccessListener(docRef -> {
@@ -520,7 +820,8 @@ public class FirestoreService {
     }
 
     /**
-     * Convert a Category object to a Firestore-compatible map.
+     * Convert a Category object to a Firestore-compatible map. createdAt is
+     * left to the callers that create the document, so updates keep it.
      */
     private Map<String, Object> categoryToMap(Category category) {
         Map<String, Object> map = new HashMap<>();
@@ -529,7 +830,6 @@ public class FirestoreService {
         map.put("iconName", category.getIconName());
         map.put("colorHex", category.getColorHex());
         map.put("isDefault", category.isDefault());
-        map.put("createdAt", System.currentTimeMillis());
         return map;
     }
 
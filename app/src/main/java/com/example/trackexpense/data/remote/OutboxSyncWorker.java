@@ -0,0 +1,141 @@
+package com.example.trackexpense.data.remote;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.example.trackexpense.data.local.AppDatabase;
+import com.example.trackexpense.data.local.Expense;
+import com.example.trackexpense.data.local.OutboxDao;
+import com.example.trackexpense.data.local.OutboxEntry;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drains the sync_outbox table into Firestore.
+ * Entries are committed in order as WriteBatches of up to 500 writes. Every
+ * write targets a fixed document ID with set/merge or delete, so replaying a
+ * batch after a timeout or process death is harmless.
+ */
+public class OutboxSyncWorker extends Worker {
+
+    private static final String TAG = "OutboxSyncWorker";
+    private static final String WORK_NAME = "sync_outbox_drain";
+    private static final int MAX_BATCH_WRITES = 500;
+    private static final long COMMIT_TIMEOUT_SECONDS = 60;
+
+    public OutboxSyncWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
+        super(context, workerParams);
+    }
+
+    /**
+     * Schedule a drain once the device is online. Requests queue behind a
+     * running drain so entries written while it runs are always picked up.
+     */
+    public static void enqueue(Context context) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .build();
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(OutboxSyncWorker.class)
+                .setConstraints(constraints)
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, 10, TimeUnit.SECONDS)
+                .build();
+
+        WorkManager.getInstance(context).enqueueUniqueWork(
+                WORK_NAME,
+                ExistingWorkPolicy.APPEND_OR_REPLACE,
+                request);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        if (user == null) {
+            Log.d(TAG, "doWork: No user, leaving outbox untouched");
+            return Result.success();
+        }
+
+        OutboxDao outboxDao = AppDatabase.getDatabase(getApplicationContext()).outboxDao();
+        CollectionReference expensesRef = FirebaseFirestore.getInstance()
+                .collection("users").document(user.getUid()).collection("expenses");
+
+        // Kept in the table for inspection rather than deleted unsent
+        int withoutDocumentId = outboxDao.countWithoutDocumentId(user.getUid());
+        if (withoutDocumentId > 0) {
+            Log.e(TAG, "doWork: Skipping " + withoutDocumentId + " outbox entries without document ID");
+        }
+
+        int committed = 0;
+        while (true) {
+            List<OutboxEntry> pending = outboxDao.getPendingSync(user.getUid(), MAX_BATCH_WRITES);
+            if (pending.isEmpty()) {
+                Log.d(TAG, "doWork: Outbox drained, committed " + committed + " writes");
+                return Result.success();
+            }
+
+            WriteBatch batch = FirebaseFirestore.getInstance().batch();
+            List<Long> ids = new ArrayList<>();
+            for (OutboxEntry entry : pending) {
+                ids.add(entry.id);
+                DocumentReference docRef = expensesRef.document(entry.documentId);
+                if (OutboxEntry.OP_DELETE.equals(entry.operation)) {
+                    batch.delete(docRef);
+                } else {
+                    batch.set(docRef, toDocument(entry), SetOptions.merge());
+                }
+            }
+
+            try {
+                Tasks.await(batch.commit(), COMMIT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                Log.w(TAG, "doWork: Commit of " + pending.size() + " writes failed, will retry", e);
+                outboxDao.incrementAttempts(ids);
+                return Result.retry();
+            }
+
+            outboxDao.deleteByIds(ids);
+            committed += pending.size();
+        }
+    }
+
+    private static Map<String, Object> toDocument(OutboxEntry entry) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("amount", entry.amount);
+        data.put("category", entry.category);
+        data.put("date", entry.date);
+        data.put("notes", entry.notes != null ? entry.notes : "");
+        data.put("type", entry.type);
+        data.put("isPinned", entry.isPinned);
+        data.put("localId", entry.localId);
+        data.put("contentHash", Expense.computeContentHash(entry.amount, entry.category, entry.type,
+                entry.date, entry.notes));
+        if (OutboxEntry.OP_CREATE.equals(entry.operation)) {
+            data.put("createdAt", entry.createdAt);
+        } else {
+            data.put("updatedAt", entry.createdAt);
+        }
+        return data;
+    }
+}
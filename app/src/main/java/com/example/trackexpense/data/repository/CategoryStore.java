@@ -0,0 +1,373 @@
+package com.example.trackexpense.data.repository;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.example.trackexpense.data.local.AppDatabase;
+import com.example.trackexpense.data.local.CategoryDao;
+import com.example.trackexpense.data.model.Category;
+import com.example.trackexpense.data.remote.FirestoreService;
+import com.example.trackexpense.utils.PreferenceManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Process-wide category lookup shared by every screen.
+ * Categories are kept in Room and published as an immutable {@link Snapshot};
+ * each refresh from Firestore that changes anything publishes a new snapshot
+ * with a higher version, so observers can skip work when nothing changed.
+ */
+public class CategoryStore {
+
+    private static final String TAG = "CategoryStore";
+    private static final String TYPE_EXPENSE = "EXPENSE";
+    private static final String TYPE_INCOME = "INCOME";
+    // A type refreshed more recently than this is not fetched again unless invalidated
+    private static final long REFRESH_INTERVAL_MS = 5 * 60 * 1000;
+
+    private static CategoryStore instance;
+
+    private final AppDatabase db;
+    private final CategoryDao dao;
+    private final FirestoreService firestoreService;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final MutableLiveData<Snapshot> snapshotLiveData = new MutableLiveData<>();
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    // Main thread only
+    private final Map<String, Long> lastRefreshTimes = new HashMap<>();
+    private final Map<String, List<OnRefreshListener>> pendingRefreshes = new HashMap<>();
+
+    public interface OnRefreshListener {
+        /**
+         * Called on the main thread once the refresh has finished and any
+         * change has been published. {@link #getCategories(String)} is
+         * up to date at this point even if the refresh failed.
+         */
+        void onComplete(boolean success);
+    }
+
+    /**
+     * Immutable view of all categories: ordered lists per type and a lookup by
+     * lowercase name. Shared between threads and screens, so the contained
+     * Category objects must not be modified.
+     */
+    public static final class Snapshot {
+        static final Snapshot EMPTY = new Snapshot(0, Collections.emptyList(), Collections.emptyList());
+
+        private final long version;
+        private final List<Category> expenseCategories;
+        private final List<Category> incomeCategories;
+        private final Map<String, Category> byName;
+
+        private Snapshot(long version, List<Category> expenseCategories, List<Category> incomeCategories) {
+            this.version = version;
+            this.expenseCategories = Collections.unmodifiableList(expenseCategories);
+            this.incomeCategories = Collections.unmodifiableList(incomeCategories);
+
+            Map<String, Category> map = new HashMap<>();
+            for (Category category : expenseCategories) {
+                if (category.getName() != null)
+                    map.put(key(category.getName()), category);
+            }
+            // Income wins on a name shared by both types
+            for (Category category : incomeCategories) {
+                if (category.getName() != null)
+                    map.put(key(category.getName()), category);
+            }
+            this.byName = Collections.unmodifiableMap(map);
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * Categories of one type in display order, with "Other" last.
+         */
+        public List<Category> getCategories(String type) {
+            return TYPE_INCOME.equals(type) ? incomeCategories : expenseCategories;
+        }
+
+        /**
+         * Case-insensitive lookup by name.
+         */
+        public Category find(String name) {
+            if (name == null)
+                return null;
+            return byName.get(key(name));
+        }
+
+        private Snapshot withType(String type, List<Category> categories) {
+            return TYPE_INCOME.equals(type)
+                    ? new Snapshot(version + 1, expenseCategories, categories)
+                    : new Snapshot(version + 1, categories, incomeCategories);
+        }
+
+        private static String key(String name) {
+            return name.toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private CategoryStore(Context context) {
+        db = AppDatabase.getDatabase(context);
+        dao = db.categoryDao();
+        firestoreService = FirestoreService.getInstance();
+
+        // Loaded on the write queue so every refresh applies on top of it
+        PreferenceManager preferenceManager = new PreferenceManager(context);
+        AppDatabase.databaseWriteExecutor.execute(() -> load(preferenceManager));
+    }
+
+    public static synchronized CategoryStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new CategoryStore(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * The current snapshot; empty until the first load from Room completes.
+     */
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Emits each new snapshot, starting with the one loaded from Room.
+     */
+    public LiveData<Snapshot> getSnapshots() {
+        return snapshotLiveData;
+    }
+
+    public List<Category> getCategories(String type) {
+        return snapshot.getCategories(type);
+    }
+
+    public Category find(String name) {
+        return snapshot.find(name);
+    }
+
+    /**
+     * Make the next {@link #refresh} fetch from Firestore, e.g. after an admin edit.
+     */
+    public void invalidate() {
+        mainHandler.post(lastRefreshTimes::clear);
+    }
+
+    /**
+     * Fetch one type from Firestore and replace its stored rows if they differ.
+     * Skipped if the type was refreshed recently, and concurrent calls for the
+     * same type share one fetch. Must be called on the main thread.
+     */
+    public void refresh(String type, OnRefreshListener listener) {
+        Long lastRefresh = lastRefreshTimes.get(type);
+        if (lastRefresh != null && System.currentTimeMillis() - lastRefresh < REFRESH_INTERVAL_MS) {
+            complete(listener, true);
+            return;
+        }
+
+        List<OnRefreshListener> waiting = pendingRefreshes.get(type);
+        if (waiting != null) {
+            if (listener != null)
+                waiting.add(listener);
+            return;
+        }
+        waiting = new ArrayList<>();
+        if (listener != null)
+            waiting.add(listener);
+        pendingRefreshes.put(type, waiting);
+
+        firestoreService.fetchCategoriesOnce(type, new FirestoreService.OnCategoriesLoadedListener() {
+            @Override
+            public void onSuccess(List<Category> categories) {
+                AppDatabase.databaseWriteExecutor.execute(() -> {
+                    apply(type, categories);
+                    mainHandler.post(() -> {
+                        lastRefreshTimes.put(type, System.currentTimeMillis());
+                        finishRefresh(type, true);
+                    });
+                });
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                Log.e(TAG, "refresh: Failed to fetch " + type + " categories", e);
+                // Still wait for the initial load so callers see the stored categories
+                AppDatabase.databaseWriteExecutor.execute(() -> mainHandler.post(() -> finishRefresh(type, false)));
+            }
+        });
+    }
+
+    private void finishRefresh(String type, boolean success) {
+        List<OnRefreshListener> waiting = pendingRefreshes.remove(type);
+        if (waiting == null)
+            return;
+        for (OnRefreshListener listener : waiting) {
+            listener.onComplete(success);
+        }
+    }
+
+    private void complete(OnRefreshListener listener, boolean success) {
+        if (listener == null)
+            return;
+        // Queued behind the initial load, like a real refresh
+        AppDatabase.databaseWriteExecutor.execute(() -> mainHandler.post(() -> listener.onComplete(success)));
+    }
+
+    // ==================== Write queue ====================
+
+    private void load(PreferenceManager preferenceManager) {
+        List<com.example.trackexpense.data.local.Category> rows = dao.getAllCategoriesSync();
+        if (rows.isEmpty()) {
+            rows = migrateLegacyCategories(preferenceManager);
+        }
+
+        List<Category> expenseCategories = new ArrayList<>();
+        List<Category> incomeCategories = new ArrayList<>();
+        for (com.example.trackexpense.data.local.Category row : rows) {
+            if (row.getName() == null)
+                continue;
+            Category category = new Category(row.getName(), row.getType(), row.getIcon(), row.getColor(),
+                    row.getSortOrder(), row.isDefault());
+            if (TYPE_INCOME.equals(row.getType())) {
+                incomeCategories.add(category);
+            } else {
+                expenseCategories.add(category);
+            }
+        }
+        publish(new Snapshot(1, otherLast(expenseCategories), otherLast(incomeCategories)));
+        Log.d(TAG, "load: " + expenseCategories.size() + " expense, " + incomeCategories.size()
+                + " income categories");
+    }
+
+    /**
+     * Replace one type's rows, unless the fetched list matches what is stored.
+     * An empty result is ignored so a misconfigured backend cannot wipe the cache.
+     */
+    private void apply(String type, List<Category> fetched) {
+        if (fetched == null || fetched.isEmpty())
+            return;
+
+        List<Category> categories = new ArrayList<>(fetched.size());
+        List<com.example.trackexpense.data.local.Category> rows = new ArrayList<>(fetched.size());
+        Set<String> seen = new HashSet<>();
+        for (Category remote : fetched) {
+            if (remote.getName() == null || !seen.add(Snapshot.key(remote.getName())))
+                continue;
+            String icon = remote.getIconName() != null ? remote.getIconName() : "ic_other";
+            String color = remote.getColorHex() != null ? remote.getColorHex() : "#64748B";
+            int sortOrder = rows.size();
+
+            categories.add(new Category(remote.getName(), type, icon, color, sortOrder, remote.isDefault()));
+            com.example.trackexpense.data.local.Category row = new com.example.trackexpense.data.local.Category(
+                    remote.getName(), icon, color, remote.isDefault());
+            row.setType(type);
+            row.setSortOrder(sortOrder);
+            rows.add(row);
+        }
+        categories = otherLast(categories);
+
+        Snapshot current = snapshot;
+        if (sameContent(current.getCategories(type), categories)) {
+            Log.d(TAG, "apply: " + type + " categories unchanged");
+            return;
+        }
+
+        db.runInTransaction(() -> {
+            dao.deleteByType(type);
+            dao.insertAll(rows);
+        });
+        publish(current.withType(type, categories));
+        Log.d(TAG, "apply: Stored " + rows.size() + " " + type + " categories");
+    }
+
+    private void publish(Snapshot next) {
+        snapshot = next;
+        snapshotLiveData.postValue(next);
+    }
+
+    /**
+     * Move the old "name|iconName|colorHex;..." preference strings into Room
+     * once, then drop them.
+     */
+    private List<com.example.trackexpense.data.local.Category> migrateLegacyCategories(
+            PreferenceManager preferenceManager) {
+        List<com.example.trackexpense.data.local.Category> rows = new ArrayList<>();
+        parseLegacy(preferenceManager.getLegacyCategories(TYPE_EXPENSE), TYPE_EXPENSE, rows);
+        parseLegacy(preferenceManager.getLegacyCategories(TYPE_INCOME), TYPE_INCOME, rows);
+        if (!rows.isEmpty()) {
+            dao.insertAll(rows);
+            Log.d(TAG, "migrateLegacyCategories: Moved " + rows.size() + " categories");
+        }
+        preferenceManager.clearLegacyCategories();
+        return rows;
+    }
+
+    private static void parseLegacy(String data, String type,
+            List<com.example.trackexpense.data.local.Category> rows) {
+        if (data == null || data.isEmpty())
+            return;
+        String[] items = data.split(";");
+        for (int i = 0; i < items.length; i++) {
+            String[] parts = items[i].split("\\|");
+            if (parts.length < 3)
+                continue;
+            com.example.trackexpense.data.local.Category row = new com.example.trackexpense.data.local.Category(
+                    parts[0], parts[1], parts[2], true);
+            row.setType(type);
+            row.setSortOrder(i);
+            rows.add(row);
+        }
+    }
+
+    /**
+     * Keep the given order but move "Other" to the end.
+     */
+    private static List<Category> otherLast(List<Category> categories) {
+        Category other = null;
+        List<Category> sorted = new ArrayList<>(categories.size());
+        for (Category category : categories) {
+            if (other == null && "Other".equalsIgnoreCase(category.getName())) {
+                other = category;
+            } else {
+                sorted.add(category);
+            }
+        }
+        if (other != null)
+            sorted.add(other);
+        return sorted;
+    }
+
+    private static boolean sameContent(List<Category> a, List<Category> b) {
+        if (a.size() != b.size())
+            return false;
+        for (int i = 0; i < a.size(); i++) {
+            Category x = a.get(i);
+            Category y = b.get(i);
+            if (!x.getName().equals(y.getName())
+                    || !equalsNullable(x.getIconName(), y.getIconName())
+                    || !equalsNullable(x.getColorHex(), y.getColorHex())
+                    || x.isDefault() != y.isDefault())
+                return false;
+        }
+        return true;
+    }
+
+    private static boolean equalsNullable(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
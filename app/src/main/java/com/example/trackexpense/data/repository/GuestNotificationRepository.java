@@ -0,0 +1,111 @@
+package com.example.trackexpense.data.repository;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.lifecycle.LiveData;
+
+import com.example.trackexpense.data.local.AppDatabase;
+import com.example.trackexpense.data.local.GuestNotification;
+import com.example.trackexpense.data.local.GuestNotificationDao;
+import com.example.trackexpense.utils.PreferenceManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Repository for guest users' notifications, stored in Room.
+ * Each change touches only its own rows, and the table is capped at
+ * {@value #MAX_NOTIFICATIONS} rows, dropping the oldest.
+ */
+public class GuestNotificationRepository {
+
+    private static final String TAG = "GuestNotificationRepo";
+    private static final int MAX_NOTIFICATIONS = 100;
+
+    private static GuestNotificationRepository instance;
+
+    private final AppDatabase db;
+    private final GuestNotificationDao dao;
+
+    private GuestNotificationRepository(Context context) {
+        db = AppDatabase.getDatabase(context);
+        dao = db.guestNotificationDao();
+        migrateLegacyNotifications(new PreferenceManager(context));
+    }
+
+    public static synchronized GuestNotificationRepository getInstance(Context context) {
+        if (instance == null) {
+            instance = new GuestNotificationRepository(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Newest first.
+     */
+    public LiveData<List<GuestNotification>> getNotifications() {
+        return dao.getAll();
+    }
+
+    public LiveData<Integer> getUnreadCount() {
+        return dao.getUnreadCount();
+    }
+
+    public void add(String type, String title, String message) {
+        GuestNotification notification = GuestNotification.of(type, title, message, System.currentTimeMillis());
+        AppDatabase.databaseWriteExecutor.execute(() -> db.runInTransaction(() -> {
+            dao.insert(notification);
+            dao.trimTo(MAX_NOTIFICATIONS);
+        }));
+    }
+
+    public void markRead(long id) {
+        AppDatabase.databaseWriteExecutor.execute(() -> dao.markRead(id));
+    }
+
+    public void markAllRead() {
+        AppDatabase.databaseWriteExecutor.execute(dao::markAllRead);
+    }
+
+    public void delete(long id) {
+        AppDatabase.databaseWriteExecutor.execute(() -> dao.delete(id));
+    }
+
+    public void clear() {
+        AppDatabase.databaseWriteExecutor.execute(dao::deleteAll);
+    }
+
+    /**
+     * Move notifications from the old "id|type|title|message|timestamp|isRead;..."
+     * preference string into Room once, then drop the string.
+     */
+    private void migrateLegacyNotifications(PreferenceManager preferenceManager) {
+        String rawData = preferenceManager.getLegacyGuestNotifications();
+        if (rawData == null || rawData.isEmpty())
+            return;
+
+        AppDatabase.databaseWriteExecutor.execute(() -> {
+            List<GuestNotification> notifications = new ArrayList<>();
+            for (String item : rawData.split(";")) {
+                String[] parts = item.split("\\|");
+                if (parts.length < 6)
+                    continue;
+                try {
+                    GuestNotification notification = GuestNotification.of(parts[1], parts[2], parts[3],
+                            Long.parseLong(parts[4]));
+                    notification.isRead = "true".equals(parts[5]);
+                    notifications.add(notification);
+                } catch (NumberFormatException e) {
+                    Log.w(TAG, "migrateLegacyNotifications: Skipping malformed entry");
+                }
+            }
+            db.runInTransaction(() -> {
+                dao.insertAll(notifications);
+                dao.trimTo(MAX_NOTIFICATIONS);
+            });
+            preferenceManager.clearLegacyGuestNotifications();
+            Log.d(TAG, "migrateLegacyNotifications: Moved " + notifications.size() + " notifications");
+        });
+    }
+}
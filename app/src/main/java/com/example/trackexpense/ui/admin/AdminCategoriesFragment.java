@@ -16,14 +16,18 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.core.content.ContextCompat;
 import androidx.fragment.app.Fragment;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.GridLayoutManager;
 import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.trackexpense.R;
 import com.example.trackexpense.data.model.CategoryModel;
 import com.example.trackexpense.data.remote.AdminService;
+import com.example.trackexpense.data.repository.CategoryStore;
 import com.example.trackexpense.utils.CategoryHelper;
+import com.example.trackexpense.utils.StableIds;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.button.MaterialButtonToggleGroup;
 import com.google.android.material.chip.Chip;
@@ -35,6 +39,7 @@ import com.google.android.material.textfield.TextInputEditText;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 public class AdminCategoriesFragment extends Fragment {
@@ -287,11 +292,13 @@ public class AdminCategoriesFragment extends Fragment {
                 existingCategory.setIconName(selectedIcon[0]);
                 existingCategory.setColorHex(selectedColor[0]);
                 existingCategory.setType(type);
+                adapter.notifyCategoryChanged(existingCategory);
 
                 adminService.updateCategory(existingCategory, new AdminService.OnCompleteListener() {
                     @Override
                     public void onSuccess() {
                         dialog.dismiss();
+                        CategoryStore.getInstance(requireContext()).invalidate();
                         Snackbar.make(requireView(), "Category updated", Snackbar.LENGTH_SHORT).show();
                     }
 
@@ -307,6 +314,7 @@ public class AdminCategoriesFragment extends Fragment {
                     @Override
                     public void onSuccess() {
                         dialog.dismiss();
+                        CategoryStore.getInstance(requireContext()).invalidate();
                         Snackbar.make(requireView(), "Category added", Snackbar.LENGTH_SHORT).show();
                     }
 
@@ -574,6 +582,7 @@ public class AdminCategoriesFragment extends Fragment {
             adminService.deleteCategory(category.getId(), new AdminService.OnCompleteListener() {
                 @Override
                 public void onSuccess() {
+                    CategoryStore.getInstance(requireContext()).invalidate();
                     Snackbar.make(requireView(), "Category deleted", Snackbar.LENGTH_SHORT).show();
                 }
 
@@ -589,12 +598,47 @@ public class AdminCategoriesFragment extends Fragment {
     }
 
     // Category Adapter
-    class CategoryAdapter extends RecyclerView.Adapter<CategoryAdapter.ViewHolder> {
-        private List<CategoryModel> categories = new ArrayList<>();
+    private static final DiffUtil.ItemCallback<CategoryModel> CATEGORY_DIFF_CALLBACK =
+            new DiffUtil.ItemCallback<CategoryModel>() {
+                @Override
+                public boolean areItemsTheSame(@NonNull CategoryModel oldItem, @NonNull CategoryModel newItem) {
+                    return Objects.equals(oldItem.getId(), newItem.getId());
+                }
+
+                @Override
+                public boolean areContentsTheSame(@NonNull CategoryModel oldItem, @NonNull CategoryModel newItem) {
+                    return Objects.equals(oldItem.getName(), newItem.getName())
+                            && Objects.equals(oldItem.getIconName(), newItem.getIconName())
+                            && Objects.equals(oldItem.getColorHex(), newItem.getColorHex())
+                            && Objects.equals(oldItem.getType(), newItem.getType())
+                            && oldItem.isDefault() == newItem.isDefault();
+                }
+            };
+
+    class CategoryAdapter extends ListAdapter<CategoryModel, CategoryAdapter.ViewHolder> {
+
+        CategoryAdapter() {
+            super(CATEGORY_DIFF_CALLBACK);
+            setHasStableIds(true);
+        }
 
         public void setCategories(List<CategoryModel> categories) {
-            this.categories = categories;
-            notifyDataSetChanged();
+            submitList(categories);
+        }
+
+        /**
+         * Rebind a row whose category was edited in place, which the diff cannot see.
+         */
+        public void notifyCategoryChanged(CategoryModel category) {
+            int position = getCurrentList().indexOf(category);
+            if (position >= 0)
+                notifyItemChanged(position);
+        }
+
+        @Override
+        public long getItemId(int position) {
+            String id = getItem(position).getId();
+            return id != null ? StableIds.of(id) : RecyclerView.NO_ID;
         }
 
         @NonNull
@@ -606,12 +650,7 @@ public class AdminCategoriesFragment extends Fragment {
 
         @Override
         public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-            holder.bind(categories.get(position));
-        }
-
-        @Override
-        public int getItemCount() {
-            return categories.size();
+            holder.bind(getItem(position));
         }
 
         class ViewHolder extends RecyclerView.ViewHolder {
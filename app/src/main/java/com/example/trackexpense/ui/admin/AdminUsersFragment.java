@@ -19,7 +19,9 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.core.content.ContextCompat;
 import androidx.fragment.app.Fragment;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.trackexpense.R;
@@ -31,10 +33,12 @@ import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.snackbar.Snackbar;
 import com.example.trackexpense.utils.BeautifulNotification;
+import com.example.trackexpense.utils.StableIds;
 import com.google.android.material.textfield.TextInputEditText;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 public class AdminUsersFragment extends Fragment {
@@ -331,6 +335,7 @@ public class AdminUsersFragment extends Fragment {
                     String newName = etUsername.getText() != null ? etUsername.getText().toString().trim() : "";
                     if (!newName.isEmpty()) {
                         user.setDisplayName(newName);
+                        adapter.notifyUserChanged(user);
                         adminService.updateUser(user, new AdminService.OnCompleteListener() {
                             @Override
                             public void onSuccess() {
@@ -374,6 +379,7 @@ public class AdminUsersFragment extends Fragment {
     private void toggleAdminStatus(User user) {
         boolean newAdminStatus = !user.isAdmin();
         user.setAdmin(newAdminStatus);
+        adapter.notifyUserChanged(user);
 
         adminService.updateUser(user, new AdminService.OnCompleteListener() {
             @Override
@@ -425,31 +431,67 @@ public class AdminUsersFragment extends Fragment {
         btnDelete.setOnClickListener(v -> {
             btnDelete.setEnabled(false);
 
-            adminService.deleteUser(user.getId(), new AdminService.OnCompleteListener() {
-                @Override
-                public void onSuccess() {
-                    dialog.dismiss();
-                    BeautifulNotification.showSuccess(requireActivity(), "User deleted successfully!");
-                }
-
-                @Override
-                public void onFailure(Exception e) {
-                    dialog.dismiss();
-                    BeautifulNotification.showError(requireActivity(), "Failed to delete user: " + e.getMessage());
-                }
-            });
+            adminService.deleteUser(user.getId(), deletedCount -> btnDelete.setText("Deleting… " + deletedCount),
+                    new AdminService.OnCompleteListener() {
+                        @Override
+                        public void onSuccess() {
+                            dialog.dismiss();
+                            BeautifulNotification.showSuccess(requireActivity(), "User deleted successfully!");
+                        }
+
+                        @Override
+                        public void onFailure(Exception e) {
+                            dialog.dismiss();
+                            BeautifulNotification.showError(requireActivity(),
+                                    "Failed to delete user: " + e.getMessage());
+                        }
+                    });
         });
 
         dialog.show();
     }
 
     // Adapter
-    class UserAdapter extends RecyclerView.Adapter<UserAdapter.UserViewHolder> {
-        private List<User> users = new ArrayList<>();
+    private static final DiffUtil.ItemCallback<User> USER_DIFF_CALLBACK = new DiffUtil.ItemCallback<User>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull User oldItem, @NonNull User newItem) {
+            return Objects.equals(oldItem.getId(), newItem.getId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull User oldItem, @NonNull User newItem) {
+            return Objects.equals(oldItem.getDisplayName(), newItem.getDisplayName())
+                    && Objects.equals(oldItem.getEmail(), newItem.getEmail())
+                    && oldItem.isAdmin() == newItem.isAdmin()
+                    && oldItem.isBlocked() == newItem.isBlocked()
+                    && oldItem.isVerified() == newItem.isVerified();
+        }
+    };
+
+    class UserAdapter extends ListAdapter<User, UserAdapter.UserViewHolder> {
+
+        UserAdapter() {
+            super(USER_DIFF_CALLBACK);
+            setHasStableIds(true);
+        }
 
         public void setUsers(List<User> users) {
-            this.users = users;
-            notifyDataSetChanged();
+            submitList(users);
+        }
+
+        /**
+         * Rebind a row whose user was edited in place, which the diff cannot see.
+         */
+        public void notifyUserChanged(User user) {
+            int position = getCurrentList().indexOf(user);
+            if (position >= 0)
+                notifyItemChanged(position);
+        }
+
+        @Override
+        public long getItemId(int position) {
+            String id = getItem(position).getId();
+            return id != null ? StableIds.of(id) : RecyclerView.NO_ID;
         }
 
         @NonNull
@@ -461,12 +503,7 @@ public class AdminUsersFragment extends Fragment {
 
         @Override
         public void onBindViewHolder(@NonNull UserViewHolder holder, int position) {
-            holder.bind(users.get(position));
-        }
-
-        @Override
-        public int getItemCount() {
-            return users.size();
+            holder.bind(getItem(position));
         }
 
         class UserViewHolder extends RecyclerView.ViewHolder {
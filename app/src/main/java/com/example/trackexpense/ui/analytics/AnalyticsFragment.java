@@ -25,7 +25,9 @@ import androidx.lifecycle.ViewModelProvider;
 
 import com.example.trackexpense.MainActivity;
 import com.example.trackexpense.R;
-import com.example.trackexpense.data.local.Expense;
+import com.example.trackexpense.data.local.CategoryTotal;
+import com.example.trackexpense.data.local.PeriodTotal;
+import com.example.trackexpense.data.local.TypeTotal;
 import com.example.trackexpense.utils.CategoryHelper;
 import com.example.trackexpense.utils.PreferenceManager;
 import com.example.trackexpense.viewmodel.ExpenseViewModel;
@@ -45,13 +47,11 @@ import com.github.mikephil.charting.data.PieEntry;
 import com.github.mikephil.charting.formatter.IndexAxisValueFormatter;
 import com.google.android.material.card.MaterialCardView;
 
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.Locale;
 
 public class AnalyticsFragment extends Fragment {
 
@@ -87,9 +87,8 @@ public class AnalyticsFragment extends Fragment {
         expenseViewModel = new ViewModelProvider(requireActivity()).get(ExpenseViewModel.class);
         preferenceManager = new PreferenceManager(requireContext());
 
-        // Check if data is already available (cached)
-        List<com.example.trackexpense.data.local.Expense> cachedData = expenseViewModel.getAllExpenses().getValue();
-        if (cachedData == null || cachedData.isEmpty()) {
+        // Skip the skeleton if another screen has already loaded the totals
+        if (!expenseViewModel.hasLoadedTotals()) {
             isFirstLoad = true;
             showSkeletonLoading(view);
         } else {
@@ -190,34 +189,56 @@ public class AnalyticsFragment extends Fragment {
     }
 
     private void observeData() {
-        expenseViewModel.getAllExpenses().observe(getViewLifecycleOwner(), expenses -> {
-            if (expenses != null) {
+        expenseViewModel.getTypeTotals().observe(getViewLifecycleOwner(), totals -> {
+            if (totals != null) {
                 if (isFirstLoad && skeletonView != null) {
                     new android.os.Handler(android.os.Looper.getMainLooper()).postDelayed(() -> {
                         hideSkeletonLoading(() -> {
-                            updateSummary(expenses);
-                            updateCharts(expenses);
-                            updateCategoryProgress(expenses);
+                            updateSummary(totals);
+                            updatePieChart(totals);
                         });
                     }, 500);
                 } else {
-                    updateSummary(expenses);
-                    updateCharts(expenses);
-                    updateCategoryProgress(expenses);
+                    updateSummary(totals);
+                    updatePieChart(totals);
                 }
             }
         });
+
+        expenseViewModel.getCategoryTotals("EXPENSE").observe(getViewLifecycleOwner(), totals -> {
+            if (totals != null) {
+                updateCategoryProgress(totals);
+            }
+        });
+
+        // Last 7 days, today included
+        Calendar cal = Calendar.getInstance();
+        cal.set(Calendar.HOUR_OF_DAY, 0);
+        cal.set(Calendar.MINUTE, 0);
+        cal.set(Calendar.SECOND, 0);
+        cal.set(Calendar.MILLISECOND, 0);
+        cal.add(Calendar.DAY_OF_YEAR, 1);
+        long weekEnd = cal.getTimeInMillis();
+        cal.add(Calendar.DAY_OF_YEAR, -7);
+        long weekStart = cal.getTimeInMillis();
+
+        expenseViewModel.getDailyTotals(weekStart, weekEnd).observe(getViewLifecycleOwner(), totals -> {
+            if (totals != null) {
+                updateBarChart(totals);
+                updateLineChart(totals);
+            }
+        });
     }
 
-    private void updateSummary(List<Expense> expenses) {
+    private void updateSummary(List<TypeTotal> totals) {
         double totalIncome = 0;
         double totalExpense = 0;
 
-        for (Expense e : expenses) {
-            if ("INCOME".equals(e.getType())) {
-                totalIncome += e.getAmount();
+        for (TypeTotal t : totals) {
+            if ("INCOME".equals(t.type)) {
+                totalIncome += t.total;
             } else {
-                totalExpense += e.getAmount();
+                totalExpense += t.total;
             }
         }
 
@@ -286,36 +307,24 @@ public class AnalyticsFragment extends Fragment {
         }
     }
 
-    private void updateCategoryProgress(List<Expense> expenses) {
+    private void updateCategoryProgress(List<CategoryTotal> categoryTotals) {
         if (categoryProgressContainer == null)
             return;
         categoryProgressContainer.removeAllViews();
 
-        // Calculate category totals for expenses only
-        Map<String, Double> categoryMap = new HashMap<>();
-        double totalExpense = 0;
-
-        for (Expense e : expenses) {
-            if ("EXPENSE".equals(e.getType())) {
-                String cat = e.getCategory();
-                double current = categoryMap.getOrDefault(cat, 0.0);
-                categoryMap.put(cat, current + e.getAmount());
-                totalExpense += e.getAmount();
-            }
-        }
-
-        if (categoryMap.isEmpty())
+        if (categoryTotals.isEmpty())
             return;
 
-        // Sort by amount descending
-        List<Map.Entry<String, Double>> sortedCategories = new ArrayList<>(categoryMap.entrySet());
-        Collections.sort(sortedCategories, (a, b) -> Double.compare(b.getValue(), a.getValue()));
+        double totalExpense = 0;
+        for (CategoryTotal c : categoryTotals) {
+            totalExpense += c.total;
+        }
 
-        // Show top 5 categories
-        int count = Math.min(5, sortedCategories.size());
+        // Rows arrive sorted by amount descending; show top 5 categories
+        int count = Math.min(5, categoryTotals.size());
         for (int i = 0; i < count; i++) {
-            Map.Entry<String, Double> entry = sortedCategories.get(i);
-            addCategoryProgressBar(entry.getKey(), entry.getValue(), totalExpense);
+            CategoryTotal entry = categoryTotals.get(i);
+            addCategoryProgressBar(entry.category, entry.total, totalExpense);
         }
     }
 
@@ -463,21 +472,15 @@ public class AnalyticsFragment extends Fragment {
         return (int) (dp * getResources().getDisplayMetrics().density);
     }
 
-    private void updateCharts(List<Expense> expenses) {
-        updatePieChart(expenses);
-        updateBarChart(expenses);
-        updateLineChart(expenses);
-    }
-
-    private void updatePieChart(List<Expense> expenses) {
+    private void updatePieChart(List<TypeTotal> totals) {
         double totalIncome = 0;
         double totalExpense = 0;
 
-        for (Expense e : expenses) {
-            if ("INCOME".equals(e.getType())) {
-                totalIncome += e.getAmount();
+        for (TypeTotal t : totals) {
+            if ("INCOME".equals(t.type)) {
+                totalIncome += t.total;
             } else {
-                totalExpense += e.getAmount();
+                totalExpense += t.total;
             }
         }
 
@@ -527,8 +530,9 @@ public class AnalyticsFragment extends Fragment {
         pieChart.invalidate();
     }
 
-    private void updateBarChart(List<Expense> expenses) {
+    private void updateBarChart(List<PeriodTotal> dailyTotals) {
         Calendar cal = Calendar.getInstance();
+        SimpleDateFormat dayKeyFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
         String[] days = new String[7];
         float[] expenseAmounts = new float[7];
         float[] incomeAmounts = new float[7];
@@ -540,19 +544,13 @@ public class AnalyticsFragment extends Fragment {
             String[] dayNames = { "Sun", "Mon", "Tue", "Wed", "Thu", "Fri", "Sat" };
             days[6 - i] = dayNames[dayCal.get(Calendar.DAY_OF_WEEK) - 1];
 
-            dayCal.set(Calendar.HOUR_OF_DAY, 0);
-            dayCal.set(Calendar.MINUTE, 0);
-            dayCal.set(Calendar.SECOND, 0);
-            long dayStart = dayCal.getTimeInMillis();
-            dayCal.add(Calendar.DAY_OF_YEAR, 1);
-            long dayEnd = dayCal.getTimeInMillis();
-
-            for (Expense e : expenses) {
-                if (e.getDate() >= dayStart && e.getDate() < dayEnd) {
-                    if ("EXPENSE".equals(e.getType())) {
-                        expenseAmounts[6 - i] += e.getAmount();
+            String dayKey = dayKeyFormat.format(dayCal.getTime());
+            for (PeriodTotal t : dailyTotals) {
+                if (dayKey.equals(t.period)) {
+                    if ("EXPENSE".equals(t.type)) {
+                        expenseAmounts[6 - i] += t.total;
                     } else {
-                        incomeAmounts[6 - i] += e.getAmount();
+                        incomeAmounts[6 - i] += t.total;
                     }
                 }
             }
@@ -600,8 +598,9 @@ public class AnalyticsFragment extends Fragment {
         barChart.invalidate();
     }
 
-    private void updateLineChart(List<Expense> expenses) {
+    private void updateLineChart(List<PeriodTotal> dailyTotals) {
         Calendar cal = Calendar.getInstance();
+        SimpleDateFormat dayKeyFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
         String[] days = new String[7];
         float[] expenseAmounts = new float[7];
         float[] incomeAmounts = new float[7];
@@ -613,19 +612,13 @@ public class AnalyticsFragment extends Fragment {
             String[] dayNames = { "S", "M", "T", "W", "T", "F", "S" };
             days[6 - i] = dayNames[dayCal.get(Calendar.DAY_OF_WEEK) - 1];
 
-            dayCal.set(Calendar.HOUR_OF_DAY, 0);
-            dayCal.set(Calendar.MINUTE, 0);
-            dayCal.set(Calendar.SECOND, 0);
-            long dayStart = dayCal.getTimeInMillis();
-            dayCal.add(Calendar.DAY_OF_YEAR, 1);
-            long dayEnd = dayCal.getTimeInMillis();
-
-            for (Expense e : expenses) {
-                if (e.getDate() >= dayStart && e.getDate() < dayEnd) {
-                    if ("EXPENSE".equals(e.getType())) {
-                        expenseAmounts[6 - i] += e.getAmount();
+            String dayKey = dayKeyFormat.format(dayCal.getTime());
+            for (PeriodTotal t : dailyTotals) {
+                if (dayKey.equals(t.period)) {
+                    if ("EXPENSE".equals(t.type)) {
+                        expenseAmounts[6 - i] += t.total;
                     } else {
-                        incomeAmounts[6 - i] += e.getAmount();
+                        incomeAmounts[6 - i] += t.total;
                     }
                 }
             }
@@ -420,8 +420,8 @@ public class RegisterActivity extends AppCompatActivity {
                 dialog.dismiss();
                 showLoading(true);
 
-                // Sync guest data to cloud and delete local after
-                repository.syncGuestDataToCloud(true, new ExpenseRepository.OnSyncCompleteListener() {
+                // Upload guest data; the local rows become the account's mirror
+                repository.syncGuestDataToCloud(new ExpenseRepository.OnSyncCompleteListener() {
                     @Override
                     public void onSuccess(int syncedCount) {
                         runOnUiThread(() -> {
@@ -19,6 +19,8 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.example.trackexpense.MainActivity;
 import com.example.trackexpense.R;
 import com.example.trackexpense.data.local.Expense;
+import com.example.trackexpense.data.local.GuestNotification;
+import com.example.trackexpense.data.local.TypeTotal;
 import com.example.trackexpense.utils.PreferenceManager;
 import com.example.trackexpense.viewmodel.ExpenseViewModel;
 import com.github.mikephil.charting.charts.BarChart;
@@ -44,6 +46,8 @@ import java.util.Map;
 
 import com.example.trackexpense.adapters.AppNotificationAdapter;
 import com.example.trackexpense.data.model.AppNotification;
+import com.example.trackexpense.data.repository.CategoryStore;
+import com.example.trackexpense.data.repository.GuestNotificationRepository;
 import com.example.trackexpense.data.repository.NotificationRepository;
 
 public class DashboardFragment extends Fragment {
@@ -61,8 +65,10 @@ public class DashboardFragment extends Fragment {
     private MaterialCardView btnFilterAll, btnFilterIncome, btnFilterExpense;
     private View cardContainer;
 
-    private List<Expense> allExpenses = new ArrayList<>();
+    private static final int RECENT_LIMIT = 10;
+
     private String currentFilter = "ALL";
+    private androidx.lifecycle.LiveData<List<Expense>> recentExpenses;
 
     // Notification panel views
     private View notificationOverlay, notificationDimBackground, notificationPanel;
@@ -72,6 +78,10 @@ public class DashboardFragment extends Fragment {
     private TextView tvNotificationBadge, tvNotificationCount;
     private List<AppNotification> notificationsList = new ArrayList<>();
     private NotificationRepository notificationRepository;
+    private GuestNotificationRepository guestNotificationRepository;
+    // Latest guest notifications and unread count, kept current by Room LiveData
+    private List<AppNotification> guestNotifications = new ArrayList<>();
+    private int guestUnreadCount = 0;
 
     // Notification tabs
     private MaterialCardView tabAlerts, tabRequests;
@@ -110,9 +120,8 @@ public class DashboardFragment extends Fragment {
         expenseViewModel = new ViewModelProvider(this).get(ExpenseViewModel.class);
         preferenceManager = new PreferenceManager(requireContext());
 
-        // Check if data is already available (cached)
-        List<com.example.trackexpense.data.local.Expense> cachedData = expenseViewModel.getAllExpenses().getValue();
-        if (cachedData == null || cachedData.isEmpty()) {
+        // Skip the skeleton if another screen has already loaded the totals
+        if (!expenseViewModel.hasLoadedTotals()) {
             isFirstLoad = true;
             showSkeletonLoading(view);
         } else {
@@ -242,8 +251,10 @@ public class DashboardFragment extends Fragment {
         icTabAlerts = view.findViewById(R.id.icTabAlerts);
         icTabRequests = view.findViewById(R.id.icTabRequests);
 
-        // Initialize notification repository
+        // Initialize notification repositories
         notificationRepository = NotificationRepository.getInstance();
+        guestNotificationRepository = GuestNotificationRepository.getInstance(requireContext());
+        observeGuestNotifications();
 
         // Check if user is admin
         checkAdminStatus();
@@ -477,11 +488,14 @@ public class DashboardFragment extends Fragment {
     }
 
     private void setupRecyclerView() {
-        expenseAdapter = new ExpenseAdapter();
+        expenseAdapter = new ExpenseAdapter(requireContext());
         expenseAdapter.setCurrencySymbol(preferenceManager.getCurrencySymbol());
         expenseAdapter.setExpandableEnabled(false); // Disable expanding in dashboard
         rvRecentTransactions.setLayoutManager(new LinearLayoutManager(requireContext()));
         rvRecentTransactions.setAdapter(expenseAdapter);
+
+        CategoryStore.getInstance(requireContext()).getSnapshots()
+                .observe(getViewLifecycleOwner(), expenseAdapter::setCategories);
     }
 
     private void setupClickListeners(View view) {
@@ -508,49 +522,62 @@ public class DashboardFragment extends Fragment {
     }
 
     private void observeData() {
-        expenseViewModel.getAllExpenses().observe(getViewLifecycleOwner(), expenses -> {
-            if (expenses != null) {
-                allExpenses = expenses;
-
+        expenseViewModel.getTypeTotals().observe(getViewLifecycleOwner(), totals -> {
+            if (totals != null) {
                 if (isFirstLoad && skeletonView != null) {
                     new android.os.Handler(android.os.Looper.getMainLooper()).postDelayed(() -> {
                         hideSkeletonLoading(() -> {
-                            updateSummary(expenses);
-                            updateRecentTransactions();
+                            updateSummary(totals);
                             animateBalanceCard();
                         });
                     }, 500);
                 } else {
-                    updateSummary(expenses);
-                    updateRecentTransactions();
+                    updateSummary(totals);
                 }
             }
         });
+
+        expenseViewModel.getTypeTotalsForMonth(System.currentTimeMillis())
+                .observe(getViewLifecycleOwner(), totals -> {
+                    if (totals != null) {
+                        double monthlyExpense = 0;
+                        for (TypeTotal t : totals) {
+                            if (!"INCOME".equals(t.type)) {
+                                monthlyExpense += t.total;
+                            }
+                        }
+                        updateBudgetCard(preferenceManager.getCurrencySymbol(), monthlyExpense);
+                    }
+                });
+
+        observeRecentTransactions();
     }
 
-    private void updateSummary(List<Expense> expenses) {
+    /**
+     * Observe only the head window of recent transactions for the current filter.
+     */
+    private void observeRecentTransactions() {
+        if (recentExpenses != null) {
+            recentExpenses.removeObservers(getViewLifecycleOwner());
+        }
+        recentExpenses = expenseViewModel.getRecentExpenses(currentFilter, RECENT_LIMIT);
+        recentExpenses.observe(getViewLifecycleOwner(), expenses -> {
+            if (expenses != null) {
+                expenseAdapter.setExpenses(expenses);
+            }
+        });
+    }
+
+    private void updateSummary(List<TypeTotal> totals) {
         String symbol = preferenceManager.getCurrencySymbol();
         double totalIncome = 0;
         double totalExpense = 0;
-        double monthlyExpense = 0;
 
-        // Get current month start
-        Calendar cal = Calendar.getInstance();
-        cal.set(Calendar.DAY_OF_MONTH, 1);
-        cal.set(Calendar.HOUR_OF_DAY, 0);
-        cal.set(Calendar.MINUTE, 0);
-        cal.set(Calendar.SECOND, 0);
-        long monthStart = cal.getTimeInMillis();
-
-        for (Expense e : expenses) {
-            if ("INCOME".equals(e.getType())) {
-                totalIncome += e.getAmount();
+        for (TypeTotal t : totals) {
+            if ("INCOME".equals(t.type)) {
+                totalIncome += t.total;
             } else {
-                totalExpense += e.getAmount();
-                // Calculate monthly expense
-                if (e.getDate() >= monthStart) {
-                    monthlyExpense += e.getAmount();
-                }
+                totalExpense += t.total;
             }
         }
 
@@ -560,9 +587,6 @@ public class DashboardFragment extends Fragment {
         animateCounter(tvTotalBalance, 0, balance, symbol);
         animateCounter(tvTotalIncome, 0, totalIncome, symbol);
         animateCounter(tvTotalExpense, 0, totalExpense, symbol);
-
-        // Update budget card
-        updateBudgetCard(symbol, monthlyExpense);
     }
 
     private void animateCounter(TextView textView, double start, double end, String symbol) {
@@ -622,24 +646,10 @@ public class DashboardFragment extends Fragment {
         animator.start();
     }
 
-    private void updateRecentTransactions() {
-        List<Expense> filtered = new ArrayList<>();
-        if (allExpenses != null) {
-            for (Expense e : allExpenses) {
-                if ("ALL".equals(currentFilter) || currentFilter.equals(e.getType())) {
-                    filtered.add(e);
-                }
-            }
-        }
-        int count = Math.min(filtered.size(), 10); // Show up to 10
-
-        expenseAdapter.setExpenses(filtered.subList(0, count));
-    }
-
     private void applyFilter(String filter) {
         currentFilter = filter;
         updateFilterUI();
-        updateRecentTransactions();
+        observeRecentTransactions();
     }
 
     private void updateFilterUI() {
@@ -767,7 +777,7 @@ public class DashboardFragment extends Fragment {
                                     });
                         } else {
                             // Guest: Delete locally
-                            preferenceManager.deleteGuestNotification(notification.getId());
+                            guestNotificationRepository.delete(Long.parseLong(notification.getId()));
                             appNotificationAdapter.removeNotification(position);
                             updateNotificationCount();
                             checkEmptyState();
@@ -816,9 +826,9 @@ public class DashboardFragment extends Fragment {
                             if (currentUser != null) {
                                 notificationRepository.markAsRead(notification.getId(), null);
                             } else {
-                                preferenceManager.markGuestNotificationRead(notification.getId());
+                                guestNotificationRepository.markRead(Long.parseLong(notification.getId()));
                                 notification.setRead(true);
-                                appNotificationAdapter.notifyDataSetChanged();
+                                appNotificationAdapter.notifyReadChanged(notification);
                                 updateNotificationBadge();
                             }
                         }
@@ -856,7 +866,7 @@ public class DashboardFragment extends Fragment {
                 });
             } else {
                 // Guest: Clear local notifications
-                preferenceManager.clearGuestNotifications();
+                guestNotificationRepository.clear();
                 notificationsList.clear();
                 appNotificationAdapter.setNotifications(notificationsList);
                 updateNotificationCount();
@@ -1140,37 +1150,36 @@ public class DashboardFragment extends Fragment {
     }
 
     /**
-     * Load guest notifications from local storage and display in panel.
+     * Keep guest notifications and their unread count current from Room.
+     * Only acts on them while no user is signed in.
      */
-    private void loadGuestNotifications() {
-        String rawData = preferenceManager.getGuestNotificationsRaw();
-        notificationsList = new ArrayList<>();
-
-        if (rawData != null && !rawData.isEmpty()) {
-            String[] items = rawData.split(";");
-            for (String item : items) {
-                String[] parts = item.split("\\|");
-                if (parts.length >= 6) {
-                    try {
-                        String id = parts[0];
-                        String type = parts[1];
-                        String title = parts[2];
-                        String message = parts[3];
-                        long timestamp = Long.parseLong(parts[4]);
-                        boolean isRead = "true".equals(parts[5]);
-
-                        AppNotification notification = new AppNotification("guest", type, title, message);
-                        notification.setId(id);
-                        notification.setRead(isRead);
-                        notification.setCreatedAt(new java.util.Date(timestamp));
-
-                        notificationsList.add(notification);
-                    } catch (Exception e) {
-                        android.util.Log.e("DashboardFragment", "Error parsing guest notification: " + e.getMessage());
-                    }
-                }
+    private void observeGuestNotifications() {
+        guestNotificationRepository.getNotifications().observe(getViewLifecycleOwner(), rows -> {
+            List<AppNotification> notifications = new ArrayList<>(rows.size());
+            for (GuestNotification row : rows) {
+                AppNotification notification = new AppNotification("guest", row.type, row.title, row.message);
+                notification.setId(String.valueOf(row.id));
+                notification.setRead(row.isRead);
+                notification.setCreatedAt(new java.util.Date(row.createdAt));
+                notifications.add(notification);
             }
-        }
+            guestNotifications = notifications;
+            if (FirebaseAuth.getInstance().getCurrentUser() == null && isNotificationPanelOpen)
+                loadGuestNotifications();
+        });
+
+        guestNotificationRepository.getUnreadCount().observe(getViewLifecycleOwner(), count -> {
+            guestUnreadCount = count != null ? count : 0;
+            if (FirebaseAuth.getInstance().getCurrentUser() == null)
+                updateNotificationBadge();
+        });
+    }
+
+    /**
+     * Show the latest guest notifications from Room in the panel.
+     */
+    private void loadGuestNotifications() {
+        notificationsList = new ArrayList<>(guestNotifications);
 
         if (isNotificationPanelOpen && appNotificationAdapter != null) {
             appNotificationAdapter.setNotifications(notificationsList);
@@ -1237,8 +1246,8 @@ public class DashboardFragment extends Fragment {
                 }
             });
         } else {
-            // Guest user: Get unread count from local storage
-            int count = preferenceManager.getGuestUnreadNotificationCount();
+            // Guest user: Unread count from Room
+            int count = guestUnreadCount;
             if (isAdded() && tvNotificationBadge != null) {
                 if (count > 0) {
                     tvNotificationBadge.setVisibility(View.VISIBLE);
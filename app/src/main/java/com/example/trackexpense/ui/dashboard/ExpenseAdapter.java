@@ -2,7 +2,10 @@ package com.example.trackexpense.ui.dashboard;
 
 import android.content.Context;
 import android.graphics.Color;
+import android.graphics.drawable.Drawable;
 import android.graphics.drawable.GradientDrawable;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -12,84 +15,313 @@ import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 import androidx.core.content.ContextCompat;
+import androidx.core.graphics.ColorUtils;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.trackexpense.R;
 import com.example.trackexpense.data.local.Expense;
 import com.example.trackexpense.data.model.Category;
+import com.example.trackexpense.data.repository.CategoryStore;
 import com.example.trackexpense.utils.CategoryHelper;
-import com.example.trackexpense.utils.PreferenceManager;
+import com.example.trackexpense.utils.StableIds;
 import com.google.android.material.button.MaterialButton;
 
+import java.math.RoundingMode;
+import java.text.NumberFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Transaction list backed by {@link ListAdapter}. Each list passed to
+ * {@link #setExpenses} is turned into display rows (formatted date and
+ * amount, resolved icon and colors) on a background thread, then diffed off
+ * the main thread, so binding a row only assigns precomputed values.
+ * Row IDs are the Room IDs, so expanded rows stay expanded when the list updates.
+ */
+public class ExpenseAdapter extends ListAdapter<ExpenseAdapter.ExpenseRow, ExpenseAdapter.ExpenseViewHolder> {
+
+    // Partial-bind payloads
+    private static final Object PAYLOAD_PIN = new Object();
+    private static final Object PAYLOAD_EXPAND = new Object();
+
+    // Icon background is the category color at 15% opacity
+    private static final int ICON_BG_ALPHA = 38;
+
+    // Shared by all adapters; row building is short and ordered per adapter
+    private static final ExecutorService rowExecutor = Executors.newSingleThreadExecutor(
+            r -> new Thread(r, "expense-rows"));
+
+    private static final DiffUtil.ItemCallback<ExpenseRow> DIFF_CALLBACK = new DiffUtil.ItemCallback<ExpenseRow>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull ExpenseRow oldItem, @NonNull ExpenseRow newItem) {
+            return oldItem.id == newItem.id;
+        }
 
-public class ExpenseAdapter extends RecyclerView.Adapter<ExpenseAdapter.ExpenseViewHolder> {
+        @Override
+        public boolean areContentsTheSame(@NonNull ExpenseRow oldItem, @NonNull ExpenseRow newItem) {
+            return oldItem.sameExceptPin(newItem) && oldItem.pinned == newItem.pinned;
+        }
+
+        @Override
+        public Object getChangePayload(@NonNull ExpenseRow oldItem, @NonNull ExpenseRow newItem) {
+            // Only the pin state changed: update the pin views, keep the rest
+            return oldItem.sameExceptPin(newItem) ? PAYLOAD_PIN : null;
+        }
+    };
+
+    /**
+     * One expense with everything the row shows already formatted and resolved.
+     * Built off the main thread; the expense's pin state is read live so an
+     * in-place pin toggle shows before the next list arrives.
+     */
+    public static final class ExpenseRow {
+        final Expense expense;
+        final long id;
+        final boolean pinned;
+        final String category;
+        final String dateText;
+        final String amountText;
+        final String notesText;
+        final int amountColor;
+        final int iconRes;
+        final int iconColor;
+        final int iconBgColor;
+
+        ExpenseRow(Expense expense, String dateText, String amountText, String notesText, int amountColor,
+                int iconRes, int iconColor) {
+            this.expense = expense;
+            this.id = itemId(expense);
+            this.pinned = expense.isPinned();
+            this.category = expense.getCategory();
+            this.dateText = dateText;
+            this.amountText = amountText;
+            this.notesText = notesText;
+            this.amountColor = amountColor;
+            this.iconRes = iconRes;
+            this.iconColor = iconColor;
+            this.iconBgColor = ColorUtils.setAlphaComponent(iconColor, ICON_BG_ALPHA);
+        }
+
+        boolean sameExceptPin(ExpenseRow other) {
+            return amountColor == other.amountColor
+                    && iconRes == other.iconRes
+                    && iconColor == other.iconColor
+                    && Objects.equals(category, other.category)
+                    && dateText.equals(other.dateText)
+                    && amountText.equals(other.amountText)
+                    && notesText.equals(other.notesText);
+        }
+    }
+
+    /**
+     * Formats rows for one adapter. The formatters are not thread-safe, so an
+     * instance is only used from tasks on {@link #rowExecutor}, and they are
+     * rebuilt when the locale changes.
+     */
+    private static final class RowFormatter {
+        private Locale locale;
+        private SimpleDateFormat dateFormat;
+        private NumberFormat amountFormat;
+        private final Date date = new Date();
+        private final StringBuilder amount = new StringBuilder(24);
+
+        List<ExpenseRow> build(Context context, List<Expense> expenses, CategoryStore.Snapshot categories,
+                String currencySymbol) {
+            Locale current = Locale.getDefault();
+            if (!current.equals(locale)) {
+                locale = current;
+                dateFormat = new SimpleDateFormat("MMM dd, hh:mm a", current);
+                amountFormat = NumberFormat.getNumberInstance(current);
+                amountFormat.setMaximumFractionDigits(0);
+                amountFormat.setRoundingMode(RoundingMode.HALF_UP);
+            }
+
+            int incomeColor = ContextCompat.getColor(context, R.color.income_green);
+            int expenseColor = ContextCompat.getColor(context, R.color.expense_red);
+
+            List<ExpenseRow> rows = new ArrayList<>(expenses.size());
+            for (Expense expense : expenses) {
+                date.setTime(expense.getDate());
+                boolean income = "INCOME".equals(expense.getType());
+                amount.setLength(0);
+                amount.append(income ? '+' : '-').append(currencySymbol)
+                        .append(amountFormat.format(expense.getAmount()));
+
+                String notes = expense.getNotes();
+                String notesText = notes != null && !notes.trim().isEmpty() ? notes : "No notes available";
+
+                // Category info - stored Firestore data first, then CategoryHelper
+                int iconRes;
+                int iconColor;
+                Category category = categories != null ? categories.find(expense.getCategory()) : null;
+                if (category != null) {
+                    iconRes = category.getIconResource();
+                    iconColor = resolveColor(context, category);
+                } else {
+                    CategoryHelper.CategoryInfo categoryInfo = CategoryHelper.getCategoryInfo(expense.getCategory());
+                    iconRes = categoryInfo.iconRes;
+                    iconColor = ContextCompat.getColor(context, categoryInfo.colorRes);
+                }
+
+                rows.add(new ExpenseRow(expense, dateFormat.format(date), amount.toString(), notesText,
+                        income ? incomeColor : expenseColor, iconRes, iconColor));
+            }
+            return rows;
+        }
+
+        /**
+         * colorHex if it parses, otherwise the category's color resource.
+         */
+        private static int resolveColor(Context context, Category category) {
+            String colorHex = category.getColorHex();
+            if (colorHex != null && !colorHex.isEmpty()) {
+                try {
+                    return Color.parseColor(colorHex);
+                } catch (IllegalArgumentException e) {
+                    // Fall through to the resource color
+                }
+            }
+            return ContextCompat.getColor(context, category.getColorResource());
+        }
+    }
+
+    private final Context context;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Only touched on rowExecutor
+    private final RowFormatter rowFormatter = new RowFormatter();
 
-    private List<Expense> expenses = new ArrayList<>();
     private OnItemClickListener listener;
     private OnItemLongClickListener longClickListener;
     private OnEditClickListener editClickListener;
     private OnDeleteClickListener deleteClickListener;
     private OnPinClickListener pinClickListener;
     private String currencySymbol = "$";
-    private Set<Integer> expandedPositions = new HashSet<>();
+    private final Set<Long> expandedIds = new HashSet<>();
     private boolean expandableEnabled = true; // Default is enabled
 
-    // Category cache for dynamic icons/colors from Firestore
-    private Map<String, Category> categoryCache = new HashMap<>();
-    private PreferenceManager preferenceManager;
+    // Shared categories for dynamic icons/colors from Firestore
+    private CategoryStore.Snapshot categories;
+
+    // Latest list passed in, rebuilt when the categories or currency change
+    private List<Expense> expenses = Collections.emptyList();
+    // Rows built for an older list are dropped
+    private int generation = 0;
+
+    public ExpenseAdapter(Context context) {
+        super(DIFF_CALLBACK);
+        this.context = context.getApplicationContext();
+        this.categories = CategoryStore.getInstance(context).getSnapshot();
+        setHasStableIds(true);
+    }
 
     @NonNull
     @Override
     public ExpenseViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_expense, parent, false);
-
-        // Initialize category cache on first view creation
-        if (preferenceManager == null) {
-            preferenceManager = new PreferenceManager(parent.getContext());
-            loadCategoryCache();
-        }
-
         return new ExpenseViewHolder(view);
     }
 
     @Override
     public void onBindViewHolder(@NonNull ExpenseViewHolder holder, int position) {
-        Expense expense = expenses.get(position);
-        boolean isExpanded = expandedPositions.contains(position);
-        holder.bind(expense, isExpanded, position);
+        ExpenseRow row = getItem(position);
+        holder.bind(row, expandedIds.contains(row.id));
     }
 
     @Override
-    public int getItemCount() {
-        return expenses.size();
+    public void onBindViewHolder(@NonNull ExpenseViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+        ExpenseRow row = getItem(position);
+        for (Object payload : payloads) {
+            if (payload == PAYLOAD_PIN) {
+                holder.bindPin(row);
+            } else if (payload == PAYLOAD_EXPAND) {
+                holder.bindExpandState(expandedIds.contains(row.id));
+            } else {
+                onBindViewHolder(holder, position);
+                return;
+            }
+        }
     }
 
+    @Override
+    public long getItemId(int position) {
+        return getItem(position).id;
+    }
+
+    /**
+     * Room ID, or a hash of the Firestore ID for rows not stored locally.
+     */
+    private static long itemId(Expense expense) {
+        if (expense.getId() != 0)
+            return expense.getId();
+        return expense.getFirestoreId() != null ? StableIds.of(expense.getFirestoreId()) : RecyclerView.NO_ID;
+    }
+
+    /**
+     * Show a new list. Rows are built in the background and then diffed
+     * against the displayed ones; the list must not be modified afterwards.
+     */
     public void setExpenses(List<Expense> expenses) {
         this.expenses = expenses;
-        this.expandedPositions.clear();
-        notifyDataSetChanged();
+        rebuildRows();
+    }
+
+    private void rebuildRows() {
+        int requested = ++generation;
+        List<Expense> source = expenses;
+        CategoryStore.Snapshot snapshot = categories;
+        String symbol = currencySymbol;
+        rowExecutor.execute(() -> {
+            List<ExpenseRow> rows = rowFormatter.build(context, source, snapshot, symbol);
+            mainHandler.post(() -> {
+                if (requested == generation)
+                    submitList(rows);
+            });
+        });
     }
 
     public void setCurrencySymbol(String symbol) {
+        if (Objects.equals(this.currencySymbol, symbol))
+            return;
         this.currencySymbol = symbol;
+        if (!expenses.isEmpty())
+            rebuildRows();
     }
 
     public Expense getExpenseAt(int position) {
-        if (position >= 0 && position < expenses.size()) {
-            return expenses.get(position);
+        if (position >= 0 && position < getItemCount()) {
+            return getItem(position).expense;
         }
         return null;
     }
 
+    /**
+     * Rebind the pin views of a row whose expense was pinned or unpinned in place.
+     */
+    public void notifyPinChanged(Expense expense) {
+        List<ExpenseRow> rows = getCurrentList();
+        for (int i = 0; i < rows.size(); i++) {
+            if (rows.get(i).expense == expense) {
+                notifyItemChanged(i, PAYLOAD_PIN);
+                return;
+            }
+        }
+    }
+
     public void setOnItemClickListener(OnItemClickListener listener) {
         this.listener = listener;
     }
@@ -115,49 +347,21 @@ public class ExpenseAdapter extends RecyclerView.Adapter<ExpenseAdapter.ExpenseV
      * When disabled, the expand indicator is hidden and clicking won't expand.
      */
     public void setExpandableEnabled(boolean enabled) {
+        if (this.expandableEnabled == enabled)
+            return;
         this.expandableEnabled = enabled;
-        notifyDataSetChanged();
+        notifyItemRangeChanged(0, getItemCount(), PAYLOAD_EXPAND);
     }
 
     /**
-     * Load category data from cache for dynamic icons and colors.
+     * Use a newer category snapshot, rebuilding rows only if its version changed.
      */
-    private void loadCategoryCache() {
-        categoryCache.clear();
-
-        // Load expense categories
-        String expenseData = preferenceManager.getCachedExpenseCategories();
-        parseCacheData(expenseData, "EXPENSE");
-
-        // Load income categories
-        String incomeData = preferenceManager.getCachedIncomeCategories();
-        parseCacheData(incomeData, "INCOME");
-    }
-
-    /**
-     * Parse cache data string into Category objects.
-     */
-    private void parseCacheData(String data, String type) {
-        if (data == null || data.isEmpty())
+    public void setCategories(CategoryStore.Snapshot snapshot) {
+        if (snapshot == null || categories.getVersion() == snapshot.getVersion())
             return;
-
-        String[] items = data.split(";");
-        for (int i = 0; i < items.length; i++) {
-            String[] parts = items[i].split("\\|");
-            if (parts.length >= 3) {
-                Category cat = new Category(parts[0], type, parts[1], parts[2], i, true);
-                categoryCache.put(parts[0].toLowerCase(), cat);
-            }
-        }
-    }
-
-    /**
-     * Get category from cache or create fallback.
-     */
-    private Category getCachedCategory(String categoryName) {
-        if (categoryName == null)
-            return null;
-        return categoryCache.get(categoryName.toLowerCase());
+        categories = snapshot;
+        if (!expenses.isEmpty())
+            rebuildRows();
     }
 
     public interface OnItemClickListener {
@@ -187,6 +391,11 @@ public class ExpenseAdapter extends RecyclerView.Adapter<ExpenseAdapter.ExpenseV
         private LinearLayout expandableSection, notesContainer;
         private MaterialButton btnEdit, btnDelete, btnPin;
 
+        // Owned by this holder and recolored on bind instead of reallocated
+        private final GradientDrawable iconBgShape = new GradientDrawable();
+        private final Drawable pinIcon;
+        private final Drawable pinOutlineIcon;
+
         public ExpenseViewHolder(@NonNull View itemView) {
             super(itemView);
             iconBg = itemView.findViewById(R.id.iconBg);
@@ -202,157 +411,122 @@ public class ExpenseAdapter extends RecyclerView.Adapter<ExpenseAdapter.ExpenseV
             btnEdit = itemView.findViewById(R.id.btnEdit);
             btnDelete = itemView.findViewById(R.id.btnDelete);
             btnPin = itemView.findViewById(R.id.btnPin);
-        }
 
-        public void bind(Expense expense, boolean isExpanded, int position) {
-            tvCategory.setText(expense.getCategory());
-
-            // Format date with AM/PM
-            SimpleDateFormat sdf = new SimpleDateFormat("MMM dd, hh:mm a", Locale.getDefault());
-            tvDate.setText(sdf.format(new Date(expense.getDate())));
-
-            // Get category info - try cached Firestore data first, then fallback to
-            // CategoryHelper
-            int iconRes;
-            int categoryColor;
-
-            Category cachedCategory = getCachedCategory(expense.getCategory());
-            if (cachedCategory != null) {
-                // Use cached category from Firestore
-                iconRes = cachedCategory.getIconResource();
-
-                // Use colorHex if available, otherwise use color resource
-                if (cachedCategory.getColorHex() != null && !cachedCategory.getColorHex().isEmpty()) {
-                    try {
-                        categoryColor = Color.parseColor(cachedCategory.getColorHex());
-                    } catch (Exception e) {
-                        categoryColor = ContextCompat.getColor(itemView.getContext(),
-                                cachedCategory.getColorResource());
-                    }
-                } else {
-                    categoryColor = ContextCompat.getColor(itemView.getContext(), cachedCategory.getColorResource());
-                }
-            } else {
-                // Fallback to CategoryHelper for legacy support
-                CategoryHelper.CategoryInfo categoryInfo = CategoryHelper.getCategoryInfo(expense.getCategory());
-                iconRes = categoryInfo.iconRes;
-                categoryColor = ContextCompat.getColor(itemView.getContext(), categoryInfo.colorRes);
-            }
-
-            // Set icon with category color
-            ivIcon.setImageResource(iconRes);
-            ivIcon.setColorFilter(categoryColor);
-
-            // Set icon background with low opacity (15% opacity of category color)
-            GradientDrawable bgShape = new GradientDrawable();
-            bgShape.setShape(GradientDrawable.OVAL);
-            int lowOpacityColor = androidx.core.graphics.ColorUtils.setAlphaComponent(categoryColor, 38);
-            bgShape.setColor(lowOpacityColor);
-            iconBg.setBackground(bgShape);
-
-            // Set amount with color based on type (no decimals)
-            if ("INCOME".equals(expense.getType())) {
-                tvAmount.setText(String.format("+%s%,.0f", currencySymbol, expense.getAmount()));
-                tvAmount.setTextColor(ContextCompat.getColor(itemView.getContext(), R.color.income_green));
-            } else {
-                tvAmount.setText(String.format("-%s%,.0f", currencySymbol, expense.getAmount()));
-                tvAmount.setTextColor(ContextCompat.getColor(itemView.getContext(), R.color.expense_red));
-            }
+            iconBgShape.setShape(GradientDrawable.OVAL);
+            iconBg.setBackground(iconBgShape);
+            pinIcon = ContextCompat.getDrawable(itemView.getContext(), R.drawable.ic_pin);
+            pinOutlineIcon = ContextCompat.getDrawable(itemView.getContext(), R.drawable.ic_pin_outline);
 
-            // Pin indicator visibility
-            if (ivPinIndicator != null) {
-                ivPinIndicator.setVisibility(expense.isPinned() ? View.VISIBLE : View.GONE);
+            // Show notes - always show container with "No notes available" if empty
+            if (notesContainer != null) {
+                notesContainer.setVisibility(View.VISIBLE);
             }
 
-            // Handle expand indicator visibility based on expandableEnabled
-            if (ivExpandIndicator != null) {
-                if (expandableEnabled) {
-                    ivExpandIndicator.setVisibility(View.VISIBLE);
-                    ivExpandIndicator.setRotation(isExpanded ? 180f : 0f);
-                } else {
-                    ivExpandIndicator.setVisibility(View.GONE);
-                }
-            }
-
-            // Handle expandable section
-            if (expandableSection != null) {
-                if (expandableEnabled) {
-                    expandableSection.setVisibility(isExpanded ? View.VISIBLE : View.GONE);
-
-                    // Show notes - always show container with "No notes available" if empty
-                    if (notesContainer != null && tvNotes != null) {
-                        notesContainer.setVisibility(View.VISIBLE);
-                        String notes = expense.getNotes();
-                        if (notes != null && !notes.trim().isEmpty()) {
-                            tvNotes.setText(notes);
-                        } else {
-                            tvNotes.setText("No notes available");
-                        }
-                    }
-
-                    // Pin button
-                    if (btnPin != null) {
-                        boolean isPinned = expense.isPinned();
-                        btnPin.setText(isPinned ? "Unpin" : "Pin");
-                        btnPin.setIcon(ContextCompat.getDrawable(itemView.getContext(),
-                                isPinned ? R.drawable.ic_pin : R.drawable.ic_pin_outline));
-                        btnPin.setOnClickListener(v -> {
-                            if (pinClickListener != null) {
-                                pinClickListener.onPinClick(expense, position);
-                            }
-                        });
+            // Listeners are set once and look up the row's current item when clicked
+            if (btnPin != null) {
+                btnPin.setOnClickListener(v -> {
+                    int position = getBindingAdapterPosition();
+                    if (pinClickListener != null && position != RecyclerView.NO_POSITION) {
+                        pinClickListener.onPinClick(getItem(position).expense, position);
                     }
-
-                    // Edit button
-                    if (btnEdit != null) {
-                        btnEdit.setOnClickListener(v -> {
-                            if (editClickListener != null) {
-                                editClickListener.onEditClick(expense, position);
-                            }
-                        });
+                });
+            }
+            if (btnEdit != null) {
+                btnEdit.setOnClickListener(v -> {
+                    int position = getBindingAdapterPosition();
+                    if (editClickListener != null && position != RecyclerView.NO_POSITION) {
+                        editClickListener.onEditClick(getItem(position).expense, position);
                     }
-
-                    // Delete button
-                    if (btnDelete != null) {
-                        btnDelete.setOnClickListener(v -> {
-                            if (deleteClickListener != null) {
-                                deleteClickListener.onDeleteClick(expense, position);
-                            }
-                        });
+                });
+            }
+            if (btnDelete != null) {
+                btnDelete.setOnClickListener(v -> {
+                    int position = getBindingAdapterPosition();
+                    if (deleteClickListener != null && position != RecyclerView.NO_POSITION) {
+                        deleteClickListener.onDeleteClick(getItem(position).expense, position);
                     }
-                } else {
-                    expandableSection.setVisibility(View.GONE);
-                }
+                });
             }
 
             // Click to expand/collapse (only if expandable is enabled)
             itemView.setOnClickListener(v -> {
-                int adapterPosition = getAdapterPosition();
-                if (adapterPosition != RecyclerView.NO_POSITION) {
-                    if (expandableEnabled) {
-                        if (expandedPositions.contains(adapterPosition)) {
-                            expandedPositions.remove(adapterPosition);
-                        } else {
-                            expandedPositions.add(adapterPosition);
-                        }
-                        notifyItemChanged(adapterPosition);
+                int position = getBindingAdapterPosition();
+                if (position == RecyclerView.NO_POSITION)
+                    return;
+                ExpenseRow row = getItem(position);
+                if (expandableEnabled) {
+                    if (!expandedIds.remove(row.id)) {
+                        expandedIds.add(row.id);
                     }
+                    notifyItemChanged(position, PAYLOAD_EXPAND);
+                }
 
-                    if (listener != null) {
-                        listener.onItemClick(expense);
-                    }
+                if (listener != null) {
+                    listener.onItemClick(row.expense);
                 }
             });
 
             // Long click listener
             itemView.setOnLongClickListener(v -> {
-                int adapterPosition = getAdapterPosition();
-                if (longClickListener != null && adapterPosition != RecyclerView.NO_POSITION) {
-                    longClickListener.onItemLongClick(expense, adapterPosition);
+                int position = getBindingAdapterPosition();
+                if (longClickListener != null && position != RecyclerView.NO_POSITION) {
+                    longClickListener.onItemLongClick(getItem(position).expense, position);
                     return true;
                 }
                 return false;
             });
         }
+
+        public void bind(ExpenseRow row, boolean isExpanded) {
+            tvCategory.setText(row.category);
+            tvDate.setText(row.dateText);
+
+            ivIcon.setImageResource(row.iconRes);
+            ivIcon.setColorFilter(row.iconColor);
+            iconBgShape.setColor(row.iconBgColor);
+
+            tvAmount.setText(row.amountText);
+            tvAmount.setTextColor(row.amountColor);
+
+            if (tvNotes != null) {
+                tvNotes.setText(row.notesText);
+            }
+
+            bindPin(row);
+            bindExpandState(isExpanded);
+        }
+
+        /**
+         * Pin indicator and pin button only.
+         */
+        void bindPin(ExpenseRow row) {
+            boolean isPinned = row.expense.isPinned();
+            if (ivPinIndicator != null) {
+                ivPinIndicator.setVisibility(isPinned ? View.VISIBLE : View.GONE);
+            }
+            if (btnPin != null) {
+                btnPin.setText(isPinned ? "Unpin" : "Pin");
+                btnPin.setIcon(isPinned ? pinIcon : pinOutlineIcon);
+            }
+        }
+
+        /**
+         * Expand indicator and expandable section only.
+         */
+        void bindExpandState(boolean isExpanded) {
+            // Handle expand indicator visibility based on expandableEnabled
+            if (ivExpandIndicator != null) {
+                if (expandableEnabled) {
+                    ivExpandIndicator.setVisibility(View.VISIBLE);
+                    ivExpandIndicator.setRotation(isExpanded ? 180f : 0f);
+                } else {
+                    ivExpandIndicator.setVisibility(View.GONE);
+                }
+            }
+
+            if (expandableSection != null) {
+                expandableSection.setVisibility(expandableEnabled && isExpanded ? View.VISIBLE : View.GONE);
+            }
+        }
     }
 }
@@ -2,6 +2,7 @@ package com.example.trackexpense.ui.expense;
 
 import android.app.AlertDialog;
 import com.example.trackexpense.data.remote.FirestoreService;
+import com.example.trackexpense.data.repository.CategoryStore;
 
 import android.os.Bundle;
 import android.os.Handler;
@@ -32,6 +33,7 @@ import com.example.trackexpense.R;
 import com.example.trackexpense.data.local.Expense;
 import com.example.trackexpense.data.model.Category;
 import com.example.trackexpense.data.remote.FirestoreService;
+import com.example.trackexpense.data.repository.CategoryStore;
 import com.example.trackexpense.utils.CategoryHelper;
 import com.example.trackexpense.utils.NotificationHelper;
 import com.example.trackexpense.utils.PreferenceManager;
@@ -53,6 +55,7 @@ public class AddExpenseFragment extends Fragment {
 
     private ExpenseViewModel viewModel;
     private PreferenceManager preferenceManager;
+    private CategoryStore categoryStore;
     private NotificationHelper notificationHelper;
     private Calendar selectedDate = Calendar.getInstance();
     private String selectedType = "EXPENSE";
@@ -64,6 +67,8 @@ public class AddExpenseFragment extends Fragment {
     private MaterialCardView cardIncome, cardExpense;
     private RecyclerView rvCategories;
     private CategoryAdapter categoryAdapter;
+    // Store list currently in the grid, compared by reference to skip unchanged snapshots
+    private List<Category> shownCategories;
     private View btnBack;
     private LinearLayout datePickerRow;
     private TextView chip100, chip500, chip1000, chip5000;
@@ -102,9 +107,9 @@ public class AddExpenseFragment extends Fragment {
         setupClearButton();
         setupSaveButton();
 
-        // Initial check for cached categories to decide on skeleton
-        List<Category> cachedCategories = loadCachedCategories();
-        if (cachedCategories.isEmpty()) {
+        // Initial check for stored categories to decide on skeleton
+        categoryStore = CategoryStore.getInstance(requireContext());
+        if (categoryStore.getCategories(selectedType).isEmpty()) {
             isFirstLoad = true;
             showSkeletonLoading(view);
         } else {
@@ -113,76 +118,14 @@ public class AddExpenseFragment extends Fragment {
 
         setupCategoryGrid();
 
-        // Pre-fetch and cache both expense and income categories
-        prefetchAllCategories();
-    }
-
-    /**
-     * Pre-fetch and cache both expense and income categories from Firestore.
-     * This ensures guest users have access to all categories.
-     */
-    private void prefetchAllCategories() {
-        FirestoreService firestoreService = FirestoreService.getInstance();
-
-        // Fetch and cache expense categories
-        firestoreService.fetchCategoriesOnce("EXPENSE", new FirestoreService.OnCategoriesLoadedListener() {
-            @Override
-            public void onSuccess(List<Category> categories) {
-                if (!isAdded() || categories.isEmpty())
-                    return;
-                cacheCategoriesForType(categories, "EXPENSE");
-            }
-
-            @Override
-            public void onFailure(Exception e) {
-                Log.e(TAG, "Failed to prefetch expense categories", e);
+        // Refresh the other type too, so switching types is instant
+        categoryStore.refresh("INCOME".equals(selectedType) ? "EXPENSE" : "INCOME", null);
+        categoryStore.getSnapshots().observe(getViewLifecycleOwner(), snapshot -> {
+            List<Category> categories = snapshot.getCategories(selectedType);
+            if (!categories.isEmpty() && categories != shownCategories) {
+                showCategories(categories);
             }
         });
-
-        // Fetch and cache income categories
-        firestoreService.fetchCategoriesOnce("INCOME", new FirestoreService.OnCategoriesLoadedListener() {
-            @Override
-            public void onSuccess(List<Category> categories) {
-                if (!isAdded() || categories.isEmpty())
-                    return;
-                cacheCategoriesForType(categories, "INCOME");
-            }
-
-            @Override
-            public void onFailure(Exception e) {
-                Log.e(TAG, "Failed to prefetch income categories", e);
-            }
-        });
-    }
-
-    /**
-     * Cache categories for a specific type.
-     */
-    private void cacheCategoriesForType(List<Category> categories, String type) {
-        if (categories == null || categories.isEmpty())
-            return;
-
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < categories.size(); i++) {
-            Category cat = categories.get(i);
-            sb.append(cat.getName())
-                    .append("|")
-                    .append(cat.getIconName() != null ? cat.getIconName() : "ic_other")
-                    .append("|")
-                    .append(cat.getColorHex() != null ? cat.getColorHex() : "#64748B");
-            if (i < categories.size() - 1) {
-                sb.append(";");
-            }
-        }
-
-        String data = sb.toString();
-        if ("EXPENSE".equals(type)) {
-            preferenceManager.cacheExpenseCategories(data);
-            Log.d(TAG, "Prefetched and cached " + categories.size() + " expense categories");
-        } else {
-            preferenceManager.cacheIncomeCategories(data);
-            Log.d(TAG, "Prefetched and cached " + categories.size() + " income categories");
-        }
     }
 
     private void initViews(View view) {
@@ -386,163 +329,52 @@ public class AddExpenseFragment extends Fragment {
             rvCategories.setAdapter(categoryAdapter);
         }
 
-        // Try to load cached categories first for instant display
-        List<Category> cachedCategories = loadCachedCategories();
-        if (!cachedCategories.isEmpty()) {
-            Log.d(TAG, "Using cached categories for instant display");
-            categoryAdapter.setCategories(cachedCategories);
+        // Show stored categories instantly; the refresh publishes any change
+        shownCategories = null;
+        List<Category> storedCategories = categoryStore.getCategories(selectedType);
+        if (!storedCategories.isEmpty()) {
+            showCategories(storedCategories);
         }
 
-        // Fetch categories from Firestore (categories are stored globally)
-        FirestoreService firestoreService = FirestoreService.getInstance();
-
-        Log.d(TAG, "Fetching " + selectedType + " categories from Firestore");
-
-        firestoreService.fetchCategoriesOnce(selectedType, new FirestoreService.OnCategoriesLoadedListener() {
-            @Override
-            public void onSuccess(List<Category> categories) {
-                if (!isAdded())
-                    return;
-
-                Log.d(TAG, "Loaded " + categories.size() + " categories from Firestore");
-
-                Runnable updateAction = () -> {
-                    if (categories.isEmpty()) {
-                        // No categories found in Firestore, use defaults or cached
-                        Log.d(TAG, "No categories found in Firestore");
-                        if (cachedCategories.isEmpty()) {
-                            requireActivity().runOnUiThread(() -> loadDefaultCategories());
-                        }
-                    } else {
-                        // Cache the categories for guest users
-                        cacheCategories(categories);
-
-                        // Sort categories with "Other" at last
-                        List<Category> sortedCategories = sortCategoriesWithOtherLast(categories);
-
-                        requireActivity().runOnUiThread(() -> {
-                            if (categoryAdapter != null) {
-                                categoryAdapter.setCategories(sortedCategories);
-                            }
-                        });
-                    }
-                };
-
-                if (isFirstLoad && skeletonView != null) {
-                    new Handler(Looper.getMainLooper()).postDelayed(() -> hideSkeletonLoading(updateAction), 500);
-                } else {
-                    updateAction.run();
-                }
-            }
-
-            @Override
-            public void onFailure(Exception e) {
-                if (!isAdded())
-                    return;
-
-                Log.e(TAG, "Error loading categories from Firestore: " + e.getMessage());
-
-                Runnable errorAction = () -> {
-                    // If we already have cached categories displayed, don't overwrite
-                    if (cachedCategories.isEmpty()) {
-                        requireActivity().runOnUiThread(() -> loadDefaultCategories());
-                    }
-                };
+        Log.d(TAG, "Refreshing " + selectedType + " categories");
+        String type = selectedType;
+        categoryStore.refresh(type, success -> {
+            if (!isAdded() || !type.equals(selectedType))
+                return;
+            if (!success)
+                Log.e(TAG, "Error refreshing categories from Firestore");
 
+            // Nothing stored and nothing fetched, use defaults
+            if (categoryStore.getCategories(type).isEmpty()) {
+                Runnable fallbackAction = this::loadDefaultCategories;
                 if (isFirstLoad && skeletonView != null) {
-                    new Handler(Looper.getMainLooper()).postDelayed(() -> hideSkeletonLoading(errorAction), 500);
+                    new Handler(Looper.getMainLooper()).postDelayed(() -> hideSkeletonLoading(fallbackAction), 500);
                 } else {
-                    errorAction.run();
+                    fallbackAction.run();
                 }
             }
         });
     }
 
     /**
-     * Cache categories to SharedPreferences for guest users.
+     * Put a list from the store into the grid, clearing any selection.
      */
-    private void cacheCategories(List<Category> categories) {
-        if (categories == null || categories.isEmpty())
-            return;
-
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < categories.size(); i++) {
-            Category cat = categories.get(i);
-            sb.append(cat.getName())
-                    .append("|")
-                    .append(cat.getIconName() != null ? cat.getIconName() : "ic_other")
-                    .append("|")
-                    .append(cat.getColorHex() != null ? cat.getColorHex() : "#64748B");
-            if (i < categories.size() - 1) {
-                sb.append(";");
+    private void showCategories(List<Category> categories) {
+        shownCategories = categories;
+        selectedCategory = null;
+        Runnable updateAction = () -> {
+            if (categoryAdapter != null) {
+                categoryAdapter.setCategories(categories);
             }
-        }
+        };
 
-        String data = sb.toString();
-        if ("EXPENSE".equals(selectedType)) {
-            preferenceManager.cacheExpenseCategories(data);
-            Log.d(TAG, "Cached " + categories.size() + " expense categories");
+        if (isFirstLoad && skeletonView != null) {
+            new Handler(Looper.getMainLooper()).postDelayed(() -> hideSkeletonLoading(updateAction), 500);
         } else {
-            preferenceManager.cacheIncomeCategories(data);
-            Log.d(TAG, "Cached " + categories.size() + " income categories");
+            updateAction.run();
         }
     }
 
-    /**
-     * Load categories from cache.
-     */
-    private List<Category> loadCachedCategories() {
-        String cachedData = "INCOME".equals(selectedType)
-                ? preferenceManager.getCachedIncomeCategories()
-                : preferenceManager.getCachedExpenseCategories();
-
-        List<Category> categories = new ArrayList<>();
-
-        if (cachedData == null || cachedData.isEmpty()) {
-            return categories;
-        }
-
-        String[] items = cachedData.split(";");
-        for (int i = 0; i < items.length; i++) {
-            String[] parts = items[i].split("\\|");
-            if (parts.length >= 3) {
-                Category cat = new Category(parts[0], selectedType, parts[1], parts[2], i, true);
-                categories.add(cat);
-            }
-        }
-
-        Log.d(TAG, "Loaded " + categories.size() + " cached " + selectedType + " categories");
-        return sortCategoriesWithOtherLast(categories);
-    }
-
-    /**
-     * Sort categories to ensure "Other" is always at the end.
-     */
-    private List<Category> sortCategoriesWithOtherLast(List<Category> categories) {
-        if (categories == null || categories.isEmpty()) {
-            return categories;
-        }
-
-        // Find and remove "Other" category
-        Category otherCategory = null;
-        List<Category> sortedList = new ArrayList<>();
-
-        for (Category cat : categories) {
-            if ("Other".equalsIgnoreCase(cat.getName())) {
-                otherCategory = cat;
-            } else {
-                sortedList.add(cat);
-            }
-        }
-
-        // Add "Other" at the end if it exists
-        if (otherCategory != null) {
-            sortedList.add(otherCategory);
-        }
-
-        return sortedList;
-    }
-
     /**
      * Load default categories as fallback when Firestore is unavailable.
      * These categories match the structure stored in Firestore so users
@@ -915,7 +747,8 @@ public class AddExpenseFragment extends Fragment {
                                 percentage, currencySymbol, total, currencySymbol, budget);
 
                 String type = isExceeded ? "BUDGET_EXCEEDED" : "BUDGET_WARNING";
-                preferenceManager.addGuestNotification(type, title, message);
+                com.example.trackexpense.data.repository.GuestNotificationRepository.getInstance(requireContext())
+                        .add(type, title, message);
             } else {
                 // Logged-in user: Store in Firebase
                 if (isExceeded) {
@@ -0,0 +1,330 @@
+package com.example.trackexpense.ui.expense;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.trackexpense.data.ExpenseRepository;
+import com.example.trackexpense.data.local.Expense;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Searches transactions off the main thread: the text and the type, category
+ * and date filters go to the full-text index together through a
+ * {@link Searcher}, and the matches are split into pinned and unpinned rows.
+ * Search input is debounced, a newer request abandons an older one that is
+ * still running, and a request that only narrows the previous, complete
+ * result (for example typing another character) filters that result instead
+ * of searching again. Call from the main thread only.
+ */
+class TransactionFilter {
+
+    private static final String TAG = "TransactionFilter";
+
+    static final String ALL = "ALL";
+    // Most search matches kept; a search that reaches this may have missed rows
+    static final int SEARCH_LIMIT = 500;
+
+    private static final long SEARCH_DEBOUNCE_MS = 200;
+    // How often a running pass checks whether it has been superseded
+    private static final int CANCEL_CHECK_ROWS = 1024;
+
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(
+            r -> new Thread(r, "transaction-filter"));
+
+    interface Listener {
+        void onFiltered(Result result);
+    }
+
+    /**
+     * Full-text search, best match first, of rows with the given type and
+     * category (null for any) dated from {@code since}. The filters must apply
+     * before the limit. Called on the filter thread.
+     */
+    interface Searcher {
+        List<Expense> search(String text, String type, String category, long since, int limit);
+    }
+
+    /**
+     * What to show. Search text matches like the full-text index: every word
+     * must start a word of the notes or category, ignoring case. A numeric
+     * query also matches amounts containing it.
+     */
+    static final class Criteria {
+        final String type; // ALL, INCOME, EXPENSE
+        final String category; // ALL or a category name
+        final long since; // Start of the date range, 0 for ALL
+        final String query;
+        private final String[] words;
+        private final boolean amountQuery;
+
+        Criteria(String type, String category, String dateFilter, String query) {
+            this(type, category, startOf(dateFilter), query);
+        }
+
+        Criteria(String type, String category, long since, String query) {
+            this.type = type;
+            this.category = category;
+            this.since = since;
+            this.query = query.trim();
+            String match = ExpenseRepository.toPrefixMatch(this.query).replace("*", "");
+            this.words = match.isEmpty() ? new String[0] : match.split(" ");
+            this.amountQuery = ExpenseRepository.isAmountQuery(this.query);
+        }
+
+        boolean hasQuery() {
+            return words.length > 0 || amountQuery;
+        }
+
+        /**
+         * True if every row matching this also matches {@code previous}.
+         */
+        boolean narrows(Criteria previous) {
+            if (hasQuery() != previous.hasQuery())
+                return false;
+            if (!(ALL.equals(previous.type) || previous.type.equals(type))
+                    || !(ALL.equals(previous.category) || previous.category.equalsIgnoreCase(category))
+                    || since < previous.since)
+                return false;
+            // Each old word must be the start of a new word
+            for (String old : previous.words) {
+                boolean extended = false;
+                for (String word : words) {
+                    if (word.regionMatches(true, 0, old, 0, old.length())) {
+                        extended = true;
+                        break;
+                    }
+                }
+                if (!extended)
+                    return false;
+            }
+            // A new amount match must also be an old one
+            return !amountQuery || (previous.amountQuery && query.contains(previous.query));
+        }
+
+        /**
+         * Type, category and date range only.
+         */
+        boolean matchesFilters(Expense e) {
+            if (!ALL.equals(type) && !type.equals(e.getType()))
+                return false;
+            if (!ALL.equals(category) && !category.equalsIgnoreCase(e.getCategory()))
+                return false;
+            return e.getDate() >= since;
+        }
+
+        boolean matches(Expense e) {
+            return matchesFilters(e) && matchesQuery(e);
+        }
+
+        boolean matchesQuery(Expense e) {
+            if (!hasQuery())
+                return true;
+            if (amountQuery && String.valueOf(e.getAmount()).contains(query))
+                return true;
+            if (words.length == 0)
+                return false;
+            for (String word : words) {
+                if (!startsWord(e.getNotes(), word) && !startsWord(e.getCategory(), word))
+                    return false;
+            }
+            return true;
+        }
+
+        private static long startOf(String dateFilter) {
+            Calendar cal = Calendar.getInstance();
+            switch (dateFilter) {
+                case "TODAY":
+                    break;
+                case "WEEK":
+                    cal.add(Calendar.DAY_OF_YEAR, -7);
+                    return cal.getTimeInMillis();
+                case "MONTH":
+                    cal.set(Calendar.DAY_OF_MONTH, 1);
+                    break;
+                default:
+                    return 0;
+            }
+            cal.set(Calendar.HOUR_OF_DAY, 0);
+            cal.set(Calendar.MINUTE, 0);
+            cal.set(Calendar.SECOND, 0);
+            cal.set(Calendar.MILLISECOND, 0);
+            return cal.getTimeInMillis();
+        }
+    }
+
+    static final class Result {
+        final List<Expense> pinned;
+        final List<Expense> unpinned;
+        // False if the search was cut off at SEARCH_LIMIT
+        final boolean complete;
+
+        Result(List<Expense> pinned, List<Expense> unpinned, boolean complete) {
+            this.pinned = Collections.unmodifiableList(pinned);
+            this.unpinned = Collections.unmodifiableList(unpinned);
+            this.complete = complete;
+        }
+    }
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Listener listener;
+    private final Searcher searcher;
+
+    // Written on the main thread, read by running passes to detect they are stale
+    private volatile int generation = 0;
+    private Runnable pendingSearch;
+
+    // Last completed pass, reused when the next request narrows it
+    private Criteria lastCriteria;
+    private Result lastResult;
+
+    TransactionFilter(Listener listener, Searcher searcher) {
+        this.listener = listener;
+        this.searcher = searcher;
+    }
+
+    /**
+     * Search now, e.g. after a chip tap.
+     */
+    void search(Criteria criteria) {
+        cancelPendingSearch();
+        start(criteria);
+    }
+
+    /**
+     * Search once typing pauses.
+     */
+    void searchDebounced(Criteria criteria) {
+        cancelPendingSearch();
+        // Invalidate a pass that is already running for older text
+        generation++;
+        pendingSearch = () -> {
+            pendingSearch = null;
+            start(criteria);
+        };
+        mainHandler.postDelayed(pendingSearch, SEARCH_DEBOUNCE_MS);
+    }
+
+    /**
+     * Forget the last result after the data changed, so it is not narrowed again.
+     */
+    void invalidate() {
+        lastCriteria = null;
+        lastResult = null;
+    }
+
+    /**
+     * Drop pending and running work; no more results are delivered.
+     */
+    void cancel() {
+        cancelPendingSearch();
+        generation++;
+    }
+
+    private void cancelPendingSearch() {
+        if (pendingSearch != null) {
+            mainHandler.removeCallbacks(pendingSearch);
+            pendingSearch = null;
+        }
+    }
+
+    private void start(Criteria criteria) {
+        int requested = ++generation;
+        BooleanSupplier superseded = () -> requested != generation;
+        Result previous = lastResult != null && lastResult.complete && criteria.narrows(lastCriteria)
+                ? lastResult
+                : null;
+        executor.execute(() -> {
+            Result result = previous != null
+                    ? narrow(previous, criteria, superseded)
+                    : runSearch(criteria, superseded);
+            if (result == null)
+                return; // Superseded
+            mainHandler.post(() -> {
+                if (requested != generation)
+                    return;
+                lastCriteria = criteria;
+                lastResult = result;
+                listener.onFiltered(result);
+            });
+        });
+    }
+
+    private Result runSearch(Criteria criteria, BooleanSupplier superseded) {
+        List<Expense> matches;
+        try {
+            matches = searcher.search(criteria.query,
+                    ALL.equals(criteria.type) ? null : criteria.type,
+                    ALL.equals(criteria.category) ? null : criteria.category,
+                    criteria.since, SEARCH_LIMIT);
+        } catch (Exception e) {
+            Log.e(TAG, "search: Failed", e);
+            matches = Collections.emptyList();
+        }
+        return split(matches, criteria, matches.size() < SEARCH_LIMIT, superseded);
+    }
+
+    /**
+     * Split search matches into pinned and unpinned rows, keeping their rank
+     * order. The searcher has already applied the text and filters; they are
+     * checked again so a result never shows a row the criteria exclude.
+     */
+    static Result split(List<Expense> matches, Criteria criteria, boolean complete, BooleanSupplier superseded) {
+        List<Expense> pinned = new ArrayList<>();
+        List<Expense> unpinned = new ArrayList<>();
+        for (int i = 0; i < matches.size(); i++) {
+            if (i % CANCEL_CHECK_ROWS == 0 && superseded.getAsBoolean())
+                return null; // Superseded
+            Expense e = matches.get(i);
+            if (criteria.matchesFilters(e)) {
+                (e.isPinned() ? pinned : unpinned).add(e);
+            }
+        }
+        return new Result(pinned, unpinned, complete);
+    }
+
+    /**
+     * Filter the previous result, which is already split and ordered.
+     */
+    static Result narrow(Result previous, Criteria criteria, BooleanSupplier superseded) {
+        List<Expense> pinned = narrowList(previous.pinned, criteria, superseded);
+        List<Expense> unpinned = pinned != null ? narrowList(previous.unpinned, criteria, superseded) : null;
+        return unpinned != null ? new Result(pinned, unpinned, true) : null;
+    }
+
+    private static List<Expense> narrowList(List<Expense> rows, Criteria criteria, BooleanSupplier superseded) {
+        List<Expense> kept = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            if (i % CANCEL_CHECK_ROWS == 0 && superseded.getAsBoolean())
+                return null;
+            Expense e = rows.get(i);
+            if (criteria.matches(e))
+                kept.add(e);
+        }
+        return kept;
+    }
+
+    /**
+     * True if a word of {@code text} starts with {@code prefix}, ignoring case,
+     * where words are separated by anything but letters and digits. A null
+     * text matches nothing.
+     */
+    static boolean startsWord(String text, String prefix) {
+        if (text == null)
+            return false;
+        int length = prefix.length();
+        for (int i = 0, last = text.length() - length; i <= last; i++) {
+            if ((i == 0 || !Character.isLetterOrDigit(text.charAt(i - 1)))
+                    && text.regionMatches(true, i, prefix, 0, length))
+                return true;
+        }
+        return false;
+    }
+}
@@ -1,8 +1,10 @@
 package com.example.trackexpense.ui.expense;
 
+import android.content.res.ColorStateList;
 import android.os.Bundle;
 import android.text.Editable;
 import android.text.TextWatcher;
+import android.util.SparseArray;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -17,13 +19,17 @@ import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.core.content.ContextCompat;
+import androidx.core.widget.NestedScrollView;
 import androidx.fragment.app.Fragment;
 import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.trackexpense.R;
+import com.example.trackexpense.data.ExpensePager;
+import com.example.trackexpense.data.ExpenseRepository;
 import com.example.trackexpense.data.local.Expense;
+import com.example.trackexpense.data.repository.CategoryStore;
 import com.example.trackexpense.ui.dashboard.ExpenseAdapter;
 import com.example.trackexpense.utils.BeautifulNotification;
 import com.example.trackexpense.utils.NotificationHelper;
@@ -36,15 +42,17 @@ import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 import com.google.android.material.textfield.TextInputEditText;
 
 import java.util.ArrayList;
-import java.util.Calendar;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 public class TransactionsFragment extends Fragment {
 
     private static final int PAGE_SIZE = 15; // Number of transactions per page
+    private static final int PREFETCH_DISTANCE_DP = 600; // Fetch older history this far before the bottom
 
     private ExpenseViewModel viewModel;
     private PreferenceManager preferenceManager;
@@ -57,15 +65,26 @@ public class TransactionsFragment extends Fragment {
     private MaterialCardView chipAll, chipToday, chipWeek, chipMonth;
     private MaterialCardView btnTypeAll, btnTypeIncome, btnTypeExpense;
     private MaterialCardView chipCatAll;
+    // Category chips after "All", by category name
+    private final Map<String, MaterialCardView> categoryChips = new HashMap<>();
+    private final SparseArray<ColorStateList> chipColors = new SparseArray<>();
     private MaterialButton btnLoadMore;
     private ProgressBar progressLoadMore;
-    private List<Expense> allExpenses = new ArrayList<>();
+    private NestedScrollView scrollTransactions;
+    // Unpinned rows for the list and pinned rows for the section above it
     private List<Expense> filteredExpenses = new ArrayList<>();
     private List<Expense> pinnedExpenses = new ArrayList<>();
+    private int totalCount = 0;
+    // Without search text rows come from the pager; with it, from TransactionFilter
+    private ExpensePager pager;
+    private boolean searching = false;
+    private boolean moreLocalRows = false;
     private String currentTypeFilter = "ALL"; // ALL, INCOME, EXPENSE
     private String currentCategoryFilter = "ALL"; // ALL or specific category
     private String currentDateFilter = "ALL"; // ALL, TODAY, WEEK, MONTH
-    private int currentPage = 1;
+    private int currentPage = 1; // Search results shown, in pages of PAGE_SIZE
+    private final TransactionFilter transactionFilter = new TransactionFilter(this::onFiltered,
+            (text, type, category, since, limit) -> viewModel.searchExpensesSync(text, type, category, since, limit));
 
     // Skeleton loading
     private View skeletonView;
@@ -86,24 +105,36 @@ public class TransactionsFragment extends Fragment {
         preferenceManager = new PreferenceManager(requireContext());
         notificationHelper = new NotificationHelper(requireContext());
 
-        // Check if data is already available (cached)
-        List<com.example.trackexpense.data.local.Expense> cachedData = viewModel.getAllExpenses().getValue();
-        if (cachedData == null || cachedData.isEmpty()) {
+        // Skip the skeleton if another screen has already loaded the totals
+        if (!viewModel.hasLoadedTotals()) {
             isFirstLoad = true;
             showSkeletonLoading(view);
         } else {
             isFirstLoad = false;
         }
 
+        pager = viewModel.createPager(PAGE_SIZE);
+
         initViews(view);
         setupRecyclerView();
         setupSearch();
         setupDateFilters();
         setupTypeFilters();
         setupPagination();
+        setupCategoryChips();
         observeData();
     }
 
+    @Override
+    public void onDestroyView() {
+        // Drop pending searches so no result arrives for a destroyed view
+        transactionFilter.cancel();
+        pager.stop();
+        // The chips belong to this view; the next one builds its own
+        categoryChips.clear();
+        super.onDestroyView();
+    }
+
     /**
      * Show skeleton loading placeholder while data loads.
      */
@@ -156,6 +187,7 @@ public class TransactionsFragment extends Fragment {
         emptyState = view.findViewById(R.id.emptyState);
         btnLoadMore = view.findViewById(R.id.btnLoadMore);
         progressLoadMore = view.findViewById(R.id.progressLoadMore);
+        scrollTransactions = view.findViewById(R.id.scrollTransactions);
         categoryChipsContainer = view.findViewById(R.id.categoryChipsContainer);
         pinnedSection = view.findViewById(R.id.pinnedSection);
         allTransactionsHeader = view.findViewById(R.id.allTransactionsHeader);
@@ -177,7 +209,7 @@ public class TransactionsFragment extends Fragment {
 
     private void setupRecyclerView() {
         // Main transactions adapter
-        adapter = new ExpenseAdapter();
+        adapter = new ExpenseAdapter(requireContext());
         adapter.setCurrencySymbol(preferenceManager.getCurrencySymbol());
         rvTransactions.setLayoutManager(new LinearLayoutManager(requireContext()));
         rvTransactions.setAdapter(adapter);
@@ -192,7 +224,7 @@ public class TransactionsFragment extends Fragment {
         adapter.setOnPinClickListener((expense, position) -> togglePin(expense));
 
         // Pinned transactions adapter
-        pinnedAdapter = new ExpenseAdapter();
+        pinnedAdapter = new ExpenseAdapter(requireContext());
         pinnedAdapter.setCurrencySymbol(preferenceManager.getCurrencySymbol());
         if (rvPinnedTransactions != null) {
             rvPinnedTransactions.setLayoutManager(new LinearLayoutManager(requireContext()));
@@ -203,11 +235,18 @@ public class TransactionsFragment extends Fragment {
             pinnedAdapter.setOnDeleteClickListener((expense, position) -> confirmDelete(expense));
             pinnedAdapter.setOnPinClickListener((expense, position) -> togglePin(expense));
         }
+
+        CategoryStore.getInstance(requireContext()).getSnapshots().observe(getViewLifecycleOwner(), snapshot -> {
+            adapter.setCategories(snapshot);
+            pinnedAdapter.setCategories(snapshot);
+        });
     }
 
     private void togglePin(Expense expense) {
         expense.setPinned(!expense.isPinned());
         viewModel.updatePinStatus(expense);
+        adapter.notifyPinChanged(expense);
+        pinnedAdapter.notifyPinChanged(expense);
 
         // Use simple toast for faster, smoother feedback
         String message = expense.isPinned() ? "📌 Transaction pinned" : "📍 Transaction unpinned";
@@ -218,11 +257,85 @@ public class TransactionsFragment extends Fragment {
         if (btnLoadMore != null) {
             btnLoadMore.setOnClickListener(v -> loadMoreTransactions());
         }
+
+        // Start fetching older history from the server before the user reaches the bottom
+        if (scrollTransactions != null) {
+            int prefetchDistance = (int) (PREFETCH_DISTANCE_DP * getResources().getDisplayMetrics().density);
+            scrollTransactions.setOnScrollChangeListener(
+                    (NestedScrollView.OnScrollChangeListener) (v, scrollX, scrollY, oldScrollX, oldScrollY) -> {
+                        View content = v.getChildAt(0);
+                        if (content != null && scrollY > oldScrollY
+                                && scrollY + v.getHeight() >= content.getHeight() - prefetchDistance) {
+                            prefetchOlderTransactions();
+                        }
+                    });
+        }
     }
 
     private void loadMoreTransactions() {
-        currentPage++;
-        displayPaginatedResults();
+        if (searching && currentPage * PAGE_SIZE < filteredExpenses.size()) {
+            currentPage++;
+            displayPaginatedResults();
+        } else if (!searching && moreLocalRows) {
+            pager.loadNextPage();
+        } else {
+            fetchOlderTransactions(true);
+        }
+    }
+
+    /**
+     * Near the bottom, load the next local page, or fetch the next remote page
+     * once the rows already in Room are about to run out.
+     */
+    private void prefetchOlderTransactions() {
+        if (searching) {
+            if (filteredExpenses.size() - currentPage * PAGE_SIZE <= PAGE_SIZE)
+                fetchOlderTransactions(false);
+        } else if (moreLocalRows) {
+            pager.loadNextPage();
+        } else {
+            fetchOlderTransactions(false);
+        }
+    }
+
+    private void fetchOlderTransactions(boolean showMore) {
+        boolean started = viewModel.loadOlderRemoteExpenses(new ExpenseRepository.OnCompleteListener() {
+            @Override
+            public void onSuccess() {
+                runOnUiThread(() -> {
+                    if (progressLoadMore != null)
+                        progressLoadMore.setVisibility(View.GONE);
+                    // New rows reach the list through the pager's table observer
+                    if (showMore && searching) {
+                        currentPage++;
+                    } else if (showMore) {
+                        pager.loadNextPage();
+                    }
+                    displayPaginatedResults();
+                });
+            }
+
+            @Override
+            public void onError(String error) {
+                runOnUiThread(() -> {
+                    if (progressLoadMore != null)
+                        progressLoadMore.setVisibility(View.GONE);
+                    displayPaginatedResults();
+                });
+            }
+        });
+
+        if (started && showMore && progressLoadMore != null) {
+            progressLoadMore.setVisibility(View.VISIBLE);
+            if (btnLoadMore != null)
+                btnLoadMore.setVisibility(View.GONE);
+        }
+    }
+
+    private void runOnUiThread(Runnable action) {
+        if (getActivity() != null && isAdded()) {
+            getActivity().runOnUiThread(action);
+        }
     }
 
     private void setupDateFilters() {
@@ -313,25 +426,7 @@ public class TransactionsFragment extends Fragment {
         }
     }
 
-    private void setupCategoryChipsFromData() {
-        if (categoryChipsContainer == null)
-            return;
-
-        // Keep only the "All" chip, remove others
-        int childCount = categoryChipsContainer.getChildCount();
-        for (int i = childCount - 1; i > 0; i--) {
-            categoryChipsContainer.removeViewAt(i);
-        }
-
-        // Get unique categories from allExpenses
-        Set<String> uniqueCategories = new HashSet<>();
-        for (Expense expense : allExpenses) {
-            if (expense.getCategory() != null && !expense.getCategory().isEmpty()) {
-                uniqueCategories.add(expense.getCategory());
-            }
-        }
-
-        // Setup "All" chip click listener
+    private void setupCategoryChips() {
         if (chipCatAll != null) {
             chipCatAll.setOnClickListener(v -> {
                 currentCategoryFilter = "ALL";
@@ -340,14 +435,59 @@ public class TransactionsFragment extends Fragment {
                 filterExpenses();
             });
         }
+        viewModel.getDistinctCategories().observe(getViewLifecycleOwner(), this::updateCategoryChips);
+    }
+
+    /**
+     * Bring the chips after "All" in line with {@code categories}, reusing
+     * existing chips and touching only those that were added, removed or moved.
+     */
+    private void updateCategoryChips(List<String> categories) {
+        if (categoryChipsContainer == null)
+            return;
 
-        // Create chips for each category
-        for (String category : uniqueCategories) {
-            MaterialCardView chip = createCategoryChip(category);
-            categoryChipsContainer.addView(chip);
+        boolean changed = false;
+        Set<String> current = new HashSet<>(categories);
+        Iterator<Map.Entry<String, MaterialCardView>> iterator = categoryChips.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, MaterialCardView> entry = iterator.next();
+            if (!current.contains(entry.getKey())) {
+                categoryChipsContainer.removeView(entry.getValue());
+                iterator.remove();
+                changed = true;
+            }
         }
 
-        updateCategoryChipsUI();
+        // Index 0 is the "All" chip
+        for (int i = 0; i < categories.size(); i++) {
+            String category = categories.get(i);
+            MaterialCardView chip = categoryChips.get(category);
+            if (chip == null) {
+                chip = createCategoryChip(category);
+                categoryChips.put(category, chip);
+            } else if (categoryChipsContainer.getChildAt(i + 1) == chip) {
+                continue;
+            } else {
+                categoryChipsContainer.removeView(chip);
+            }
+            categoryChipsContainer.addView(chip, i + 1);
+            changed = true;
+        }
+
+        if (changed)
+            updateCategoryChipsUI();
+    }
+
+    /**
+     * Shared color state for chip backgrounds and strokes, one per color.
+     */
+    private ColorStateList chipColor(int color) {
+        ColorStateList colors = chipColors.get(color);
+        if (colors == null) {
+            colors = ColorStateList.valueOf(color);
+            chipColors.put(color, colors);
+        }
+        return colors;
     }
 
     private MaterialCardView createCategoryChip(String category) {
@@ -364,8 +504,8 @@ public class TransactionsFragment extends Fragment {
         int categoryColor = getCategoryColor(category);
         int categoryBgColor = getCategoryBgColor(category);
 
-        card.setCardBackgroundColor(categoryBgColor);
-        card.setStrokeColor(categoryColor);
+        card.setCardBackgroundColor(chipColor(categoryBgColor));
+        card.setStrokeColor(chipColor(categoryColor));
 
         LinearLayout inner = new LinearLayout(requireContext());
         inner.setOrientation(LinearLayout.HORIZONTAL);
@@ -418,7 +558,7 @@ public class TransactionsFragment extends Fragment {
         // Update "All" chip
         if (chipCatAll != null) {
             boolean isSelected = "ALL".equals(currentCategoryFilter);
-            chipCatAll.setCardBackgroundColor(isSelected ? primaryColor : whiteColor);
+            chipCatAll.setCardBackgroundColor(chipColor(isSelected ? primaryColor : whiteColor));
             TextView tv = chipCatAll.findViewById(R.id.tvCatAll);
             ImageView icon = chipCatAll.findViewById(R.id.iconCatAll);
             if (tv != null)
@@ -438,7 +578,7 @@ public class TransactionsFragment extends Fragment {
                 int categoryColor = getCategoryColor(category);
                 int categoryBgColor = getCategoryBgColor(category);
 
-                card.setCardBackgroundColor(isSelected ? categoryColor : categoryBgColor);
+                card.setCardBackgroundColor(chipColor(isSelected ? categoryColor : categoryBgColor));
 
                 LinearLayout inner = (LinearLayout) card.getChildAt(0);
                 if (inner != null && inner.getChildCount() >= 2) {
@@ -703,7 +843,13 @@ public class TransactionsFragment extends Fragment {
                 @Override
                 public void onTextChanged(CharSequence s, int start, int before, int count) {
                     currentPage = 1; // Reset pagination on search
-                    filterExpenses();
+                    TransactionFilter.Criteria criteria = currentCriteria();
+                    if (criteria.hasQuery()) {
+                        searching = true;
+                        transactionFilter.searchDebounced(criteria);
+                    } else {
+                        filterExpenses();
+                    }
                 }
 
                 @Override
@@ -714,99 +860,71 @@ public class TransactionsFragment extends Fragment {
     }
 
     private void observeData() {
-        viewModel.getAllExpenses().observe(getViewLifecycleOwner(), expenses -> {
-            allExpenses = expenses;
-            currentPage = 1;
-
-            // Setup category chips from actual data
-            setupCategoryChipsFromData();
-
+        pager.getPages().observe(getViewLifecycleOwner(), page -> {
             if (isFirstLoad && skeletonView != null) {
                 new android.os.Handler(android.os.Looper.getMainLooper()).postDelayed(() -> {
                     hideSkeletonLoading(() -> {
-                        filterExpenses();
+                        onPage(page);
                     });
                 }, 500);
             } else {
-                filterExpenses();
+                onPage(page);
             }
         });
+        pager.start();
+        filterExpenses();
     }
 
+    /**
+     * Re-run the filters now. Without search text the pager starts again at
+     * the first page; with it the result arrives in {@link #onFiltered}.
+     */
     private void filterExpenses() {
-        filteredExpenses = new ArrayList<>(allExpenses);
-
-        // Type filter (Income/Expense)
-        if (!"ALL".equals(currentTypeFilter)) {
-            filteredExpenses = filteredExpenses.stream()
-                    .filter(e -> currentTypeFilter.equals(e.getType()))
-                    .collect(Collectors.toList());
-        }
-
-        // Category filter
-        if (!"ALL".equals(currentCategoryFilter)) {
-            filteredExpenses = filteredExpenses.stream()
-                    .filter(e -> currentCategoryFilter.equalsIgnoreCase(e.getCategory()))
-                    .collect(Collectors.toList());
-        }
-
-        // Text search
-        String query = etSearch != null ? etSearch.getText().toString().toLowerCase() : "";
-        if (!query.isEmpty()) {
-            filteredExpenses = filteredExpenses.stream()
-                    .filter(e -> (e.getNotes() != null && e.getNotes().toLowerCase().contains(query)) ||
-                            e.getCategory().toLowerCase().contains(query) ||
-                            String.valueOf(e.getAmount()).contains(query))
-                    .collect(Collectors.toList());
-        }
-
-        // Date filter (using new currentDateFilter)
-        if (!"ALL".equals(currentDateFilter)) {
-            Calendar cal = Calendar.getInstance();
-
-            if ("TODAY".equals(currentDateFilter)) {
-                cal.set(Calendar.HOUR_OF_DAY, 0);
-                cal.set(Calendar.MINUTE, 0);
-                cal.set(Calendar.SECOND, 0);
-                long startOfDay = cal.getTimeInMillis();
-                filteredExpenses = filteredExpenses.stream()
-                        .filter(e -> e.getDate() >= startOfDay)
-                        .collect(Collectors.toList());
-            } else if ("WEEK".equals(currentDateFilter)) {
-                cal.add(Calendar.DAY_OF_YEAR, -7);
-                long weekAgo = cal.getTimeInMillis();
-                filteredExpenses = filteredExpenses.stream()
-                        .filter(e -> e.getDate() >= weekAgo)
-                        .collect(Collectors.toList());
-            } else if ("MONTH".equals(currentDateFilter)) {
-                cal.set(Calendar.DAY_OF_MONTH, 1);
-                cal.set(Calendar.HOUR_OF_DAY, 0);
-                long startOfMonth = cal.getTimeInMillis();
-                filteredExpenses = filteredExpenses.stream()
-                        .filter(e -> e.getDate() >= startOfMonth)
-                        .collect(Collectors.toList());
-            }
+        TransactionFilter.Criteria criteria = currentCriteria();
+        searching = criteria.hasQuery();
+        if (searching) {
+            transactionFilter.search(criteria);
+        } else {
+            transactionFilter.cancel();
+            pager.setFilter(new ExpensePager.Filter(criteria.type, criteria.category, criteria.since));
         }
+    }
 
-        // Separate pinned and unpinned transactions
-        pinnedExpenses = filteredExpenses.stream()
-                .filter(Expense::isPinned)
-                .sorted((e1, e2) -> Long.compare(e2.getDate(), e1.getDate()))
-                .collect(Collectors.toList());
+    private TransactionFilter.Criteria currentCriteria() {
+        String query = etSearch != null ? etSearch.getText().toString() : "";
+        return new TransactionFilter.Criteria(currentTypeFilter, currentCategoryFilter, currentDateFilter, query);
+    }
 
-        // Get unpinned transactions (these go in main list)
-        List<Expense> unpinnedExpenses = filteredExpenses.stream()
-                .filter(e -> !e.isPinned())
-                .sorted((e1, e2) -> Long.compare(e2.getDate(), e1.getDate()))
-                .collect(Collectors.toList());
+    private void onPage(ExpensePager.Page page) {
+        if (!isAdded())
+            return;
+        if (searching) {
+            // The table changed under the search results
+            transactionFilter.invalidate();
+            transactionFilter.search(currentCriteria());
+            return;
+        }
+        pinnedExpenses = page.pinned;
+        filteredExpenses = page.rows;
+        moreLocalRows = page.hasMore;
+        showResults(page.totalCount);
+    }
 
-        // Replace filteredExpenses with unpinned only for pagination
-        filteredExpenses = unpinnedExpenses;
+    private void onFiltered(TransactionFilter.Result result) {
+        if (!isAdded() || !searching)
+            return;
+        pinnedExpenses = result.pinned;
+        // Unpinned only, for pagination
+        filteredExpenses = result.unpinned;
+        moreLocalRows = false;
+        showResults(pinnedExpenses.size() + filteredExpenses.size());
+    }
 
+    private void showResults(int count) {
+        totalCount = count;
         // Update transaction count (total = pinned + unpinned)
         if (tvTransactionCount != null) {
-            int totalCount = pinnedExpenses.size() + filteredExpenses.size();
-            tvTransactionCount.setText(totalCount + " transaction" + (totalCount != 1 ? "s" : ""));
+            tvTransactionCount.setText(count + " transaction" + (count != 1 ? "s" : ""));
         }
 
         displayPaginatedResults();
@@ -833,19 +951,28 @@ public class TransactionsFragment extends Fragment {
             }
         }
 
-        // Display unpinned transactions with pagination
-        int totalItems = filteredExpenses.size();
-        int itemsToShow = Math.min(currentPage * PAGE_SIZE, totalItems);
+        // Display unpinned transactions; search results are sliced into pages
+        // here, while the pager has already loaded only the pages shown
+        int itemsToShow = searching
+                ? Math.min(currentPage * PAGE_SIZE, filteredExpenses.size())
+                : filteredExpenses.size();
+        int remaining = searching
+                ? filteredExpenses.size() - itemsToShow
+                : Math.max(0, totalCount - pinnedExpenses.size() - itemsToShow);
 
         List<Expense> paginatedList = filteredExpenses.subList(0, itemsToShow);
 
         adapter.setExpenses(new ArrayList<>(paginatedList));
 
-        // Show/hide Load More button
-        boolean hasMoreItems = itemsToShow < totalItems;
+        // Show/hide Load More button; past the local rows it pages in older server history
+        boolean hasMoreItems = searching ? remaining > 0 : moreLocalRows;
+        boolean hasMoreRemote = viewModel.hasMoreRemoteExpenses();
+        boolean fetching = progressLoadMore != null && progressLoadMore.getVisibility() == View.VISIBLE;
         if (btnLoadMore != null) {
-            btnLoadMore.setVisibility(hasMoreItems ? View.VISIBLE : View.GONE);
-            btnLoadMore.setText("Load More (" + (totalItems - itemsToShow) + " remaining)");
+            btnLoadMore.setVisibility((hasMoreItems || hasMoreRemote) && !fetching ? View.VISIBLE : View.GONE);
+            btnLoadMore.setText(hasMoreItems
+                    ? "Load More (" + remaining + " remaining)"
+                    : "Load Older Transactions");
         }
 
         // Show/hide empty state (only when both lists are empty)
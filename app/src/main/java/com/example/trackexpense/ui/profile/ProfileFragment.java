@@ -1,6 +1,7 @@
 package com.example.trackexpense.ui.profile;
 
 import android.content.Intent;
+import android.database.Cursor;
 import android.os.Bundle;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -19,6 +20,7 @@ import androidx.lifecycle.ViewModelProvider;
 
 import com.example.trackexpense.R;
 import com.example.trackexpense.data.ExpenseRepository;
+import com.example.trackexpense.data.local.TypeTotal;
 import com.example.trackexpense.data.remote.AdminService;
 import com.example.trackexpense.ui.admin.AdminActivity;
 import com.example.trackexpense.ui.auth.WelcomeActivity;
@@ -68,10 +70,8 @@ public class ProfileFragment extends Fragment {
         expenseViewModel = new ViewModelProvider(this).get(ExpenseViewModel.class);
         adminService = AdminService.getInstance();
 
-        // Check if data is already available (cached)
-        java.util.List<com.example.trackexpense.data.local.Expense> cachedData = expenseViewModel.getAllExpenses()
-                .getValue();
-        if (cachedData == null || cachedData.isEmpty()) {
+        // Skip the skeleton if another screen has already loaded the totals
+        if (!expenseViewModel.hasLoadedTotals()) {
             isFirstLoad = true;
             showSkeletonLoading(view);
         } else {
@@ -173,42 +173,45 @@ public class ProfileFragment extends Fragment {
     }
 
     private void observeData() {
-        expenseViewModel.getAllExpenses().observe(getViewLifecycleOwner(), expenses -> {
-            if (expenses != null) {
+        expenseViewModel.getTypeTotals().observe(getViewLifecycleOwner(), totals -> {
+            if (totals != null) {
                 if (isFirstLoad && skeletonView != null) {
                     new android.os.Handler(android.os.Looper.getMainLooper()).postDelayed(() -> {
                         hideSkeletonLoading(() -> {
-                            updateStats(expenses);
+                            updateTotalStats(totals);
                         });
                     }, 500);
                 } else {
-                    updateStats(expenses);
+                    updateTotalStats(totals);
                 }
             }
         });
+
+        // This month transactions
+        expenseViewModel.getTypeTotalsForMonth(System.currentTimeMillis())
+                .observe(getViewLifecycleOwner(), totals -> {
+                    if (totals != null) {
+                        updateMonthStats(totals);
+                    }
+                });
     }
 
-    private void updateStats(java.util.List<com.example.trackexpense.data.local.Expense> expenses) {
+    private void updateTotalStats(java.util.List<TypeTotal> totals) {
         // Total transactions
-        int totalCount = expenses.size();
+        int totalCount = 0;
+        for (TypeTotal t : totals) {
+            totalCount += t.count;
+        }
         animateCounter(tvTotalTransactions, 0, totalCount);
+    }
 
-        // This month transactions
-        java.util.Calendar cal = java.util.Calendar.getInstance();
-        cal.set(java.util.Calendar.DAY_OF_MONTH, 1);
-        cal.set(java.util.Calendar.HOUR_OF_DAY, 0);
-        cal.set(java.util.Calendar.MINUTE, 0);
-        cal.set(java.util.Calendar.SECOND, 0);
-        long monthStart = cal.getTimeInMillis();
-
+    private void updateMonthStats(java.util.List<TypeTotal> monthTotals) {
         int thisMonthCount = 0;
         double monthlyExpense = 0;
-        for (com.example.trackexpense.data.local.Expense e : expenses) {
-            if (e.getDate() >= monthStart) {
-                thisMonthCount++;
-                if ("EXPENSE".equals(e.getType())) {
-                    monthlyExpense += e.getAmount();
-                }
+        for (TypeTotal t : monthTotals) {
+            thisMonthCount += t.count;
+            if ("EXPENSE".equals(t.type)) {
+                monthlyExpense += t.total;
             }
         }
         animateCounter(tvThisMonth, 0, thisMonthCount);
@@ -652,19 +655,39 @@ public class ProfileFragment extends Fragment {
     }
 
     private void exportData() {
-        expenseViewModel.getAllExpenses().observe(getViewLifecycleOwner(), expenses -> {
-            if (expenses != null && !expenses.isEmpty()) {
-                try {
-                    File file = ExportUtils.exportToCsv(requireContext(), expenses,
-                            preferenceManager.getCurrencySymbol());
-                    ExportUtils.shareFile(requireContext(), file);
-                } catch (Exception e) {
-                    Toast.makeText(requireContext(), "Export failed: " + e.getMessage(),
-                            Toast.LENGTH_SHORT).show();
+        Toast.makeText(requireContext(), "Preparing export…", Toast.LENGTH_SHORT).show();
+        android.content.Context appContext = requireContext().getApplicationContext();
+        String currencySymbol = preferenceManager.getCurrencySymbol();
+
+        // Own thread: the export may wait on remote paging and must not tie up Room's reader pool
+        java.util.concurrent.Executors.newSingleThreadExecutor().execute(() -> {
+            File file = null;
+            String error = null;
+            try (Cursor cursor = expenseViewModel.openExportCursor()) {
+                if (cursor.getCount() > 0) {
+                    file = ExportUtils.exportToDocuments(appContext, cursor, ExportUtils.FORMAT_CSV, false,
+                            currencySymbol, null);
                 }
-            } else {
-                Toast.makeText(requireContext(), "No data to export", Toast.LENGTH_SHORT).show();
+            } catch (Exception e) {
+                error = e.getMessage();
             }
+
+            File exported = file;
+            String exportError = error;
+            if (getActivity() == null)
+                return;
+            getActivity().runOnUiThread(() -> {
+                if (!isAdded())
+                    return;
+                if (exportError != null) {
+                    Toast.makeText(requireContext(), "Export failed: " + exportError,
+                            Toast.LENGTH_SHORT).show();
+                } else if (exported == null) {
+                    Toast.makeText(requireContext(), "No data to export", Toast.LENGTH_SHORT).show();
+                } else {
+                    ExportUtils.shareFile(requireContext(), exported);
+                }
+            });
         });
     }
 
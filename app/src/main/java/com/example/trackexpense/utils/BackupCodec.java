@@ -0,0 +1,297 @@
+package com.example.trackexpense.utils;
+
+import com.example.trackexpense.data.local.Expense;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Binary backup file format, version 2.
+ *
+ * <pre>
+ * header   magic "TXBK", u16 version, u8 flags, i64 since, i64 createdAt
+ * body     deflate-compressed:
+ *          record*  i32 length (&gt; 0), then length bytes of record payload
+ *          trailer  i32 0, i64 record count, i32 CRC32
+ * </pre>
+ *
+ * The CRC32 covers the header and the uncompressed body up to the checksum
+ * itself. Payloads are length-prefixed so later versions can append fields
+ * that older readers skip. Strings are varint length + 1 (0 for null)
+ * followed by UTF-8 bytes.
+ *
+ * Version 2 adds deletion records: the last state of a deleted expense with
+ * the deleted flag set and updatedAt holding the time of the delete. Version 1
+ * files have the same layout and no deletions, so they are still read.
+ */
+public final class BackupCodec {
+
+    public static final int VERSION = 2;
+    public static final int FLAG_INCREMENTAL = 1;
+
+    private static final byte[] MAGIC = { 'T', 'X', 'B', 'K' };
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final int MAX_RECORD_BYTES = 1024 * 1024;
+
+    private static final int RECORD_PINNED = 1;
+    private static final int RECORD_DELETED = 2;
+
+    private BackupCodec() {
+    }
+
+    public static class Header {
+        public final int version;
+        public final int flags;
+        public final long since;
+        public final long createdAt;
+
+        Header(int version, int flags, long since, long createdAt) {
+            this.version = version;
+            this.flags = flags;
+            this.since = since;
+            this.createdAt = createdAt;
+        }
+
+        public boolean isIncremental() {
+            return (flags & FLAG_INCREMENTAL) != 0;
+        }
+    }
+
+    public static class Record {
+        public final Expense expense;
+        // True if the expense was deleted at expense.getUpdatedAt()
+        public final boolean deleted;
+
+        Record(Expense expense, boolean deleted) {
+            this.expense = expense;
+            this.deleted = deleted;
+        }
+    }
+
+    /**
+     * Streams records to a backup file. {@link #finish()} must be called for the
+     * file to be valid; closing without it leaves a file readers will reject.
+     */
+    public static class Writer implements Closeable {
+        private final OutputStream raw;
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        private final CRC32 crc = new CRC32();
+        private final DeflaterOutputStream compressed;
+        private final DataOutputStream body;
+        private final ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(256);
+        private final DataOutputStream record = new DataOutputStream(recordBytes);
+        private long count = 0;
+
+        public Writer(OutputStream output, boolean incremental, long since, long createdAt) throws IOException {
+            raw = new BufferedOutputStream(output, BUFFER_SIZE);
+            DataOutputStream header = new DataOutputStream(new CheckedOutputStream(raw, crc));
+            header.write(MAGIC);
+            header.writeShort(VERSION);
+            header.writeByte(incremental ? FLAG_INCREMENTAL : 0);
+            header.writeLong(since);
+            header.writeLong(createdAt);
+            header.flush();
+
+            compressed = new DeflaterOutputStream(raw, deflater, BUFFER_SIZE);
+            body = new DataOutputStream(new CheckedOutputStream(compressed, crc));
+        }
+
+        public void write(Expense expense) throws IOException {
+            writeRecord(expense, expense.isPinned() ? RECORD_PINNED : 0);
+        }
+
+        /**
+         * Record a delete; {@code expense} is the deleted row with updatedAt set
+         * to the time of the delete.
+         */
+        public void writeDeleted(Expense expense) throws IOException {
+            writeRecord(expense, RECORD_DELETED);
+        }
+
+        private void writeRecord(Expense expense, int flags) throws IOException {
+            recordBytes.reset();
+            record.writeLong(expense.getDate());
+            record.writeDouble(expense.getAmount());
+            record.writeByte(flags);
+            writeString(record, expense.getType());
+            writeString(record, expense.getCategory());
+            writeString(record, expense.getNotes());
+            writeString(record, expense.getFirestoreId());
+            record.writeLong(expense.getUpdatedAt());
+
+            body.writeInt(recordBytes.size());
+            recordBytes.writeTo(body);
+            count++;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public void finish() throws IOException {
+            body.writeInt(0);
+            body.writeLong(count);
+            body.writeInt((int) crc.getValue());
+            body.flush();
+            compressed.finish();
+            raw.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                raw.close();
+            } finally {
+                deflater.end();
+            }
+        }
+    }
+
+    /**
+     * Streams records out of a backup file. {@link #next()} verifies the record
+     * count and checksum when it reaches the trailer and throws if they do not
+     * match, so a caller that applies records as it reads must be able to roll back.
+     */
+    public static class Reader implements Closeable {
+        private final InputStream raw;
+        private final CRC32 crc = new CRC32();
+        private final DataInputStream body;
+        private final Header header;
+        private byte[] recordBuffer = new byte[256];
+        private long count = 0;
+        private boolean finished = false;
+
+        public Reader(InputStream input) throws IOException {
+            raw = new BufferedInputStream(input, BUFFER_SIZE);
+            DataInputStream headerIn = new DataInputStream(new CheckedInputStream(raw, crc));
+            byte[] magic = new byte[MAGIC.length];
+            try {
+                headerIn.readFully(magic);
+            } catch (EOFException e) {
+                throw new IOException("Not a backup file");
+            }
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (magic[i] != MAGIC[i])
+                    throw new IOException("Not a backup file");
+            }
+            int version = headerIn.readUnsignedShort();
+            if (version > VERSION)
+                throw new IOException("Backup was made by a newer version of the app");
+            header = new Header(version, headerIn.readUnsignedByte(), headerIn.readLong(), headerIn.readLong());
+
+            body = new DataInputStream(new CheckedInputStream(new InflaterInputStream(raw), crc));
+        }
+
+        public Header getHeader() {
+            return header;
+        }
+
+        /**
+         * @return the next record, or null after the trailer has been verified
+         */
+        public Record next() throws IOException {
+            if (finished)
+                return null;
+
+            int length = body.readInt();
+            if (length == 0) {
+                verifyTrailer();
+                finished = true;
+                return null;
+            }
+            if (length < 0 || length > MAX_RECORD_BYTES)
+                throw new IOException("Corrupt backup record");
+            if (recordBuffer.length < length)
+                recordBuffer = new byte[Math.max(length, recordBuffer.length * 2)];
+            body.readFully(recordBuffer, 0, length);
+            count++;
+
+            // Fields added by later versions follow these and are ignored
+            DataInputStream record = new DataInputStream(new ByteArrayInputStream(recordBuffer, 0, length));
+            Expense expense = new Expense();
+            expense.setDate(record.readLong());
+            expense.setAmount(record.readDouble());
+            int flags = record.readUnsignedByte();
+            expense.setPinned((flags & RECORD_PINNED) != 0);
+            expense.setType(readString(record));
+            expense.setCategory(readString(record));
+            expense.setNotes(readString(record));
+            expense.setFirestoreId(readString(record));
+            expense.setUpdatedAt(record.readLong());
+            return new Record(expense, (flags & RECORD_DELETED) != 0);
+        }
+
+        private void verifyTrailer() throws IOException {
+            long expectedCount = body.readLong();
+            int expectedCrc = (int) crc.getValue();
+            int storedCrc = body.readInt();
+            if (expectedCount != count || storedCrc != expectedCrc)
+                throw new IOException("Backup file is corrupt (checksum mismatch)");
+            // Reading to the end also makes the inflater check the stream's own trailer
+            if (body.read() != -1)
+                throw new IOException("Backup file is corrupt (data after trailer)");
+        }
+
+        @Override
+        public void close() throws IOException {
+            raw.close();
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length + 1);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = readVarInt(in);
+        if (length == 0)
+            return null;
+        // The record is fully buffered, so a longer string means a corrupt length
+        if (length < 0 || length - 1 > in.available())
+            throw new IOException("Corrupt backup record");
+        byte[] bytes = new byte[length - 1];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            out.writeByte((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IOException("Corrupt backup record");
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.trackexpense.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming RFC 4180 CSV tokenizer.
+ * Handles quoted fields with embedded commas, doubled quotes and line breaks,
+ * accepts both CRLF and LF record endings, and skips a leading UTF-8 byte
+ * order mark. Only one record is held in memory at a time.
+ */
+public class CsvReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position = 0;
+    private int limit = 0;
+    private boolean started = false;
+
+    private final List<String> record = new ArrayList<>();
+    private final StringBuilder field = new StringBuilder();
+
+    public CsvReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Read the next record. The returned list is reused by the next call, so
+     * copy it if it must outlive that call.
+     *
+     * @return the fields of the next record, or null at end of input
+     */
+    public List<String> readRecord() throws IOException {
+        record.clear();
+        field.setLength(0);
+
+        int c = read();
+        if (!started) {
+            started = true;
+            if (c == '\uFEFF')
+                c = read();
+        }
+        if (c == -1)
+            return null;
+
+        boolean quoted = false;
+        boolean fieldStarted = false;
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    // Unterminated quote: keep what was read
+                    break;
+                } else if (c == '"') {
+                    int next = peek();
+                    if (next == '"') {
+                        read();
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == -1 || c == '\n') {
+                break;
+            } else if (c == '\r') {
+                if (peek() == '\n')
+                    read();
+                break;
+            } else if (c == ',') {
+                record.add(field.toString());
+                field.setLength(0);
+                fieldStarted = false;
+            } else if (c == '"' && !fieldStarted) {
+                quoted = true;
+                fieldStarted = true;
+            } else {
+                field.append((char) c);
+                fieldStarted = true;
+            }
+            c = read();
+        }
+
+        record.add(field.toString());
+        return record;
+    }
+
+    private int read() throws IOException {
+        if (position >= limit && !fill())
+            return -1;
+        return buffer[position++];
+    }
+
+    private int peek() throws IOException {
+        if (position >= limit && !fill())
+            return -1;
+        return buffer[position];
+    }
+
+    private boolean fill() throws IOException {
+        limit = reader.read(buffer, 0, buffer.length);
+        position = 0;
+        return limit > 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -2,55 +2,201 @@ package com.example.trackexpense.utils;
 
 import android.content.Context;
 import android.content.Intent;
+import android.database.Cursor;
 import android.net.Uri;
 import android.os.Environment;
+import android.util.JsonWriter;
 
 import androidx.core.content.FileProvider;
 
-import com.example.trackexpense.data.local.Expense;
-
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.List;
 import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
 
+/**
+ * Streams expenses from a Room cursor straight to a file, one row at a time,
+ * so memory use does not depend on the size of the ledger. The cursor must
+ * have the columns date, type, category, amount and notes.
+ */
 public class ExportUtils {
 
-    public static File exportToCsv(Context context, List<Expense> expenses, String currencySymbol) throws IOException {
-        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
-        SimpleDateFormat fileNameFormat = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault());
+    public static final String FORMAT_CSV = "csv";
+    public static final String FORMAT_JSON = "json";
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+    // Report progress every this many rows
+    private static final int PROGRESS_STEP_ROWS = 500;
 
-        String fileName = "expenses_" + fileNameFormat.format(new Date()) + ".csv";
+    public interface ProgressListener {
+        void onProgress(int rowsWritten, int totalRows);
+    }
+
+    /**
+     * Export to the app's Documents folder, e.g. for sharing.
+     */
+    public static File exportToDocuments(Context context, Cursor cursor, String format, boolean gzip,
+            String currencySymbol, ProgressListener listener) throws IOException {
+        SimpleDateFormat fileNameFormat = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault());
+        String fileName = "expenses_" + fileNameFormat.format(new Date()) + "." + format + (gzip ? ".gz" : "");
         File file = new File(context.getExternalFilesDir(Environment.DIRECTORY_DOCUMENTS), fileName);
+        exportToFile(file, cursor, format, gzip, currencySymbol, listener);
+        return file;
+    }
+
+    /**
+     * Write the cursor to a file as CSV or JSON, optionally gzip-compressed.
+     * A partially written file is deleted if the export fails.
+     *
+     * @param currencySymbol prefixed to CSV amounts, or null for plain numbers
+     */
+    public static void exportToFile(File file, Cursor cursor, String format, boolean gzip,
+            String currencySymbol, ProgressListener listener) throws IOException {
+        boolean success = false;
+        try (Writer writer = openWriter(file, gzip)) {
+            if (FORMAT_JSON.equals(format)) {
+                writeJson(cursor, writer, listener);
+            } else {
+                writeCsv(cursor, writer, currencySymbol, listener);
+            }
+            success = true;
+        } finally {
+            if (!success)
+                file.delete();
+        }
+    }
+
+    private static Writer openWriter(File file, boolean gzip) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        if (gzip) {
+            out = new GZIPOutputStream(out, BUFFER_SIZE);
+        }
+        return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    public static void writeCsv(Cursor cursor, Writer writer, String currencySymbol,
+            ProgressListener listener) throws IOException {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
+        Date date = new Date();
+        int dateIdx = cursor.getColumnIndexOrThrow("date");
+        int typeIdx = cursor.getColumnIndexOrThrow("type");
+        int categoryIdx = cursor.getColumnIndexOrThrow("category");
+        int amountIdx = cursor.getColumnIndexOrThrow("amount");
+        int notesIdx = cursor.getColumnIndexOrThrow("notes");
+        int total = cursor.getCount();
 
-        StringBuilder csvContent = new StringBuilder();
-        csvContent.append("Date,Category,Type,Amount,Notes\n");
+        writer.write("Date,Type,Category,Amount,Notes\n");
+        int rows = 0;
+        cursor.moveToPosition(-1);
+        while (cursor.moveToNext()) {
+            date.setTime(cursor.getLong(dateIdx));
+            writer.write(dateFormat.format(date));
+            writer.write(',');
+            writeCsvField(writer, cursor.getString(typeIdx));
+            writer.write(',');
+            writeCsvField(writer, cursor.getString(categoryIdx));
+            writer.write(',');
+            if (currencySymbol != null) {
+                writeCsvField(writer, currencySymbol + cursor.getDouble(amountIdx));
+            } else {
+                writer.write(String.valueOf(cursor.getDouble(amountIdx)));
+            }
+            writer.write(',');
+            writeCsvField(writer, cursor.getString(notesIdx));
+            writer.write('\n');
 
-        for (Expense expense : expenses) {
-            csvContent.append(dateFormat.format(new Date(expense.getDate()))).append(",");
-            csvContent.append(expense.getCategory()).append(",");
-            csvContent.append(expense.getType()).append(",");
-            csvContent.append(currencySymbol).append(expense.getAmount()).append(",");
-            csvContent.append("\"").append(expense.getNotes() != null ? expense.getNotes() : "").append("\"");
-            csvContent.append("\n");
+            rows++;
+            if (listener != null && rows % PROGRESS_STEP_ROWS == 0)
+                listener.onProgress(rows, total);
         }
+        if (listener != null)
+            listener.onProgress(rows, total);
+    }
+
+    public static void writeJson(Cursor cursor, Writer writer, ProgressListener listener) throws IOException {
+        int dateIdx = cursor.getColumnIndexOrThrow("date");
+        int typeIdx = cursor.getColumnIndexOrThrow("type");
+        int categoryIdx = cursor.getColumnIndexOrThrow("category");
+        int amountIdx = cursor.getColumnIndexOrThrow("amount");
+        int notesIdx = cursor.getColumnIndexOrThrow("notes");
+        int total = cursor.getCount();
+
+        // JsonWriter escapes strings and writes straight through to the file
+        JsonWriter json = new JsonWriter(writer);
+        json.setIndent("  ");
+        json.beginArray();
+        int rows = 0;
+        cursor.moveToPosition(-1);
+        while (cursor.moveToNext()) {
+            String notes = cursor.getString(notesIdx);
+            json.beginObject();
+            json.name("date").value(cursor.getLong(dateIdx));
+            json.name("type").value(cursor.getString(typeIdx));
+            json.name("category").value(cursor.getString(categoryIdx));
+            json.name("amount").value(cursor.getDouble(amountIdx));
+            json.name("notes").value(notes != null ? notes : "");
+            json.endObject();
 
-        try (FileOutputStream fos = new FileOutputStream(file)) {
-            fos.write(csvContent.toString().getBytes());
+            rows++;
+            if (listener != null && rows % PROGRESS_STEP_ROWS == 0)
+                listener.onProgress(rows, total);
         }
+        json.endArray();
+        json.flush();
+        if (listener != null)
+            listener.onProgress(rows, total);
+    }
 
-        return file;
+    /**
+     * RFC 4180 field: quoted when it contains a comma, quote or line break,
+     * with embedded quotes doubled.
+     */
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null)
+            return;
+        boolean needsQuotes = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                needsQuotes = true;
+                break;
+            }
+        }
+        if (!needsQuotes) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"')
+                writer.write('"');
+            writer.write(c);
+        }
+        writer.write('"');
     }
 
     public static void shareFile(Context context, File file) {
         Uri uri = FileProvider.getUriForFile(context,
                 context.getPackageName() + ".fileprovider", file);
 
+        String name = file.getName();
         Intent shareIntent = new Intent(Intent.ACTION_SEND);
-        shareIntent.setType("text/csv");
+        if (name.endsWith(".gz")) {
+            shareIntent.setType("application/gzip");
+        } else if (name.endsWith(".json")) {
+            shareIntent.setType("application/json");
+        } else {
+            shareIntent.setType("text/csv");
+        }
         shareIntent.putExtra(Intent.EXTRA_STREAM, uri);
         shareIntent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
 
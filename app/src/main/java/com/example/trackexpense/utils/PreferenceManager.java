@@ -207,64 +207,28 @@ public class PreferenceManager {
         return sharedPreferences.getLong(KEY_LAST_BACKUP, 0);
     }
 
-    // Category Caching for Guest Users
+    // Category cache from before CategoryStore, read once to seed Room
     private static final String KEY_CACHED_EXPENSE_CATEGORIES = "cached_expense_categories";
     private static final String KEY_CACHED_INCOME_CATEGORIES = "cached_income_categories";
     private static final String KEY_CATEGORIES_CACHE_TIME = "categories_cache_time";
 
     /**
-     * Cache expense categories as JSON string.
-     * Format: "name1|iconName1|colorHex1;name2|iconName2|colorHex2;..."
+     * Old "name|iconName|colorHex;..." string for one type, or "" if none.
      */
-    public void cacheExpenseCategories(String categoriesData) {
-        sharedPreferences.edit()
-                .putString(KEY_CACHED_EXPENSE_CATEGORIES, categoriesData)
-                .putLong(KEY_CATEGORIES_CACHE_TIME, System.currentTimeMillis())
-                .apply();
-    }
-
-    /**
-     * Get cached expense categories.
-     */
-    public String getCachedExpenseCategories() {
-        return sharedPreferences.getString(KEY_CACHED_EXPENSE_CATEGORIES, "");
+    public String getLegacyCategories(String type) {
+        return sharedPreferences.getString("INCOME".equals(type)
+                ? KEY_CACHED_INCOME_CATEGORIES
+                : KEY_CACHED_EXPENSE_CATEGORIES, "");
     }
 
-    /**
-     * Cache income categories as JSON string.
-     */
-    public void cacheIncomeCategories(String categoriesData) {
+    public void clearLegacyCategories() {
         sharedPreferences.edit()
-                .putString(KEY_CACHED_INCOME_CATEGORIES, categoriesData)
-                .putLong(KEY_CATEGORIES_CACHE_TIME, System.currentTimeMillis())
+                .remove(KEY_CACHED_EXPENSE_CATEGORIES)
+                .remove(KEY_CACHED_INCOME_CATEGORIES)
+                .remove(KEY_CATEGORIES_CACHE_TIME)
                 .apply();
     }
 
-    /**
-     * Get cached income categories.
-     */
-    public String getCachedIncomeCategories() {
-        return sharedPreferences.getString(KEY_CACHED_INCOME_CATEGORIES, "");
-    }
-
-    /**
-     * Check if categories cache is valid (less than 24 hours old).
-     */
-    public boolean isCategoriesCacheValid() {
-        long cacheTime = sharedPreferences.getLong(KEY_CATEGORIES_CACHE_TIME, 0);
-        long oneDayMs = 24 * 60 * 60 * 1000; // 24 hours
-        return (System.currentTimeMillis() - cacheTime) < oneDayMs;
-    }
-
-    /**
-     * Check if categories are cached.
-     */
-    public boolean hasCachedCategories() {
-        String expense = getCachedExpenseCategories();
-        String income = getCachedIncomeCategories();
-        return !expense.isEmpty() && !income.isEmpty();
-    }
-
     // User Profile Caching
     private static final String KEY_CACHED_USER_NAME = "cached_user_name";
     private static final String KEY_CACHED_USER_EMAIL = "cached_user_email";
@@ -317,130 +281,73 @@ public class PreferenceManager {
     }
 
     // ========== Guest Local Notifications ==========
+    // Guest notifications now live in Room (GuestNotificationRepository); this key
+    // only holds data written by older versions until it has been migrated.
     private static final String KEY_GUEST_NOTIFICATIONS = "guest_notifications";
 
     /**
-     * Add a notification for guest user (stored locally).
-     * Format: "id|type|title|message|timestamp|isRead;..."
+     * Notifications stored by older versions as "id|type|title|message|timestamp|isRead;...".
      */
-    public void addGuestNotification(String type, String title, String message) {
-        String existing = sharedPreferences.getString(KEY_GUEST_NOTIFICATIONS, "");
-        String id = String.valueOf(System.currentTimeMillis());
-        String newNotification = id + "|" + type + "|" + title + "|" + message + "|" + System.currentTimeMillis()
-                + "|false";
-
-        String updated;
-        if (existing.isEmpty()) {
-            updated = newNotification;
-        } else {
-            updated = newNotification + ";" + existing; // Add at beginning (newest first)
-        }
+    public String getLegacyGuestNotifications() {
+        return sharedPreferences.getString(KEY_GUEST_NOTIFICATIONS, "");
+    }
 
-        sharedPreferences.edit().putString(KEY_GUEST_NOTIFICATIONS, updated).apply();
+    public void clearLegacyGuestNotifications() {
+        sharedPreferences.edit().remove(KEY_GUEST_NOTIFICATIONS).apply();
     }
 
-    /**
-     * Get all guest notifications as raw string.
-     */
-    public String getGuestNotificationsRaw() {
-        return sharedPreferences.getString(KEY_GUEST_NOTIFICATIONS, "");
+    // Schema version and time zone the rollup tables were last verified for
+    private static final String KEY_ROLLUPS_VERIFIED = "rollups_verified";
+
+    public String getRollupsVerified() {
+        return sharedPreferences.getString(KEY_ROLLUPS_VERIFIED, "");
     }
 
-    /**
-     * Get count of unread guest notifications.
-     */
-    public int getGuestUnreadNotificationCount() {
-        String data = getGuestNotificationsRaw();
-        if (data.isEmpty())
-            return 0;
-
-        int count = 0;
-        String[] items = data.split(";");
-        for (String item : items) {
-            String[] parts = item.split("\\|");
-            if (parts.length >= 6 && "false".equals(parts[5])) {
-                count++;
-            }
-        }
-        return count;
+    public void setRollupsVerified(String marker) {
+        sharedPreferences.edit().putString(KEY_ROLLUPS_VERIFIED, marker).apply();
     }
 
-    /**
-     * Mark all guest notifications as read.
-     */
-    public void markAllGuestNotificationsRead() {
-        String data = getGuestNotificationsRaw();
-        if (data.isEmpty())
-            return;
-
-        StringBuilder sb = new StringBuilder();
-        String[] items = data.split(";");
-        for (int i = 0; i < items.length; i++) {
-            String[] parts = items[i].split("\\|");
-            if (parts.length >= 6) {
-                parts[5] = "true"; // Mark as read
-                sb.append(String.join("|", parts));
-                if (i < items.length - 1)
-                    sb.append(";");
-            }
-        }
+    // Remote history paging cursor: the last document of the previous page
+    private static final String KEY_REMOTE_CURSOR_USER = "remote_cursor_user";
+    private static final String KEY_REMOTE_CURSOR_DATE = "remote_cursor_date";
+    private static final String KEY_REMOTE_CURSOR_ID = "remote_cursor_id";
 
-        sharedPreferences.edit().putString(KEY_GUEST_NOTIFICATIONS, sb.toString()).apply();
+    public void setRemoteCursor(String userId, long date, String documentId) {
+        sharedPreferences.edit()
+                .putString(KEY_REMOTE_CURSOR_USER, userId)
+                .putLong(KEY_REMOTE_CURSOR_DATE, date)
+                .putString(KEY_REMOTE_CURSOR_ID, documentId)
+                .apply();
     }
 
     /**
-     * Mark a specific guest notification as read.
+     * Date of the stored cursor, or null if there is none for {@code userId}.
      */
-    public void markGuestNotificationRead(String notificationId) {
-        String data = getGuestNotificationsRaw();
-        if (data.isEmpty())
-            return;
-
-        StringBuilder sb = new StringBuilder();
-        String[] items = data.split(";");
-        for (int i = 0; i < items.length; i++) {
-            String[] parts = items[i].split("\\|");
-            if (parts.length >= 6) {
-                if (parts[0].equals(notificationId)) {
-                    parts[5] = "true"; // Mark as read
-                }
-                sb.append(String.join("|", parts));
-                if (i < items.length - 1)
-                    sb.append(";");
-            }
-        }
-
-        sharedPreferences.edit().putString(KEY_GUEST_NOTIFICATIONS, sb.toString()).apply();
+    public Long getRemoteCursorDate(String userId) {
+        if (!hasRemoteCursor(userId))
+            return null;
+        return sharedPreferences.getLong(KEY_REMOTE_CURSOR_DATE, 0);
     }
 
     /**
-     * Clear all guest notifications.
+     * Document ID of the stored cursor, or null if there is none for {@code userId}.
      */
-    public void clearGuestNotifications() {
-        sharedPreferences.edit().remove(KEY_GUEST_NOTIFICATIONS).apply();
+    public String getRemoteCursorId(String userId) {
+        if (!hasRemoteCursor(userId))
+            return null;
+        return sharedPreferences.getString(KEY_REMOTE_CURSOR_ID, null);
     }
 
-    /**
-     * Delete a specific guest notification by ID.
-     */
-    public void deleteGuestNotification(String notificationId) {
-        String data = getGuestNotificationsRaw();
-        if (data.isEmpty())
-            return;
-
-        StringBuilder sb = new StringBuilder();
-        String[] items = data.split(";");
-        boolean first = true;
-        for (String item : items) {
-            String[] parts = item.split("\\|");
-            if (parts.length >= 1 && !parts[0].equals(notificationId)) {
-                if (!first)
-                    sb.append(";");
-                sb.append(item);
-                first = false;
-            }
-        }
+    private boolean hasRemoteCursor(String userId) {
+        return userId != null && userId.equals(sharedPreferences.getString(KEY_REMOTE_CURSOR_USER, null))
+                && sharedPreferences.contains(KEY_REMOTE_CURSOR_ID);
+    }
 
-        sharedPreferences.edit().putString(KEY_GUEST_NOTIFICATIONS, sb.toString()).apply();
+    public void clearRemoteCursor() {
+        sharedPreferences.edit()
+                .remove(KEY_REMOTE_CURSOR_USER)
+                .remove(KEY_REMOTE_CURSOR_DATE)
+                .remove(KEY_REMOTE_CURSOR_ID)
+                .apply();
     }
 }
@@ -0,0 +1,25 @@
+package com.example.trackexpense.utils;
+
+/**
+ * RecyclerView stable IDs for items keyed by a string, such as a Firestore
+ * document ID. 64-bit FNV-1a, so collisions are negligible for list sizes.
+ */
+public final class StableIds {
+
+    // 64-bit FNV-1a parameters, shared with Expense.computeContentHash
+    public static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    public static final long FNV_PRIME = 0x100000001b3L;
+
+    private StableIds() {
+    }
+
+    public static long of(String key) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        // RecyclerView.NO_ID is -1
+        return hash == -1 ? 0 : hash;
+    }
+}
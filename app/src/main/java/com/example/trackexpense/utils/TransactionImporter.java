@@ -0,0 +1,282 @@
+package com.example.trackexpense.utils;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import com.example.trackexpense.data.local.Expense;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Streams transactions out of a CSV or JSON export one row at a time.
+ * Rows are handed to a {@link RowHandler} as they are parsed, so memory use
+ * does not depend on the file size. Gzip-compressed files are detected and
+ * decompressed on the fly. Not thread-safe; use one instance per import.
+ */
+public class TransactionImporter {
+
+    private static final String[] DATE_PATTERNS = {
+            "yyyy-MM-dd",
+            "dd/MM/yyyy",
+            "MM/dd/yyyy",
+            "yyyy-MM-dd'T'HH:mm:ss",
+            "yyyy-MM-dd HH:mm:ss"
+    };
+
+    // Report progress at most this often (bytes)
+    private static final long PROGRESS_STEP_BYTES = 256 * 1024;
+
+    public interface RowHandler {
+        /**
+         * @return false to stop reading the rest of the file
+         */
+        boolean onRow(Expense expense) throws Exception;
+    }
+
+    public interface ProgressListener {
+        /**
+         * @param totalBytes file size, or -1 if unknown
+         */
+        void onProgress(long bytesRead, long totalBytes);
+    }
+
+    // Built once per import instead of once per row and pattern
+    private final SimpleDateFormat[] dateFormats = new SimpleDateFormat[DATE_PATTERNS.length];
+    private final ParsePosition parsePosition = new ParsePosition(0);
+    private final ProgressListener progressListener;
+
+    public TransactionImporter(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+        for (int i = 0; i < DATE_PATTERNS.length; i++) {
+            dateFormats[i] = new SimpleDateFormat(DATE_PATTERNS[i], Locale.getDefault());
+            // Reject impossible dates such as 13/01 in MM/dd instead of rolling them over
+            dateFormats[i].setLenient(false);
+        }
+    }
+
+    /**
+     * Read a CSV file with a header row. Only the amount column is required;
+     * category, type, notes (or note) and date are optional.
+     *
+     * @return number of valid rows passed to the handler
+     */
+    public int importCsv(InputStream input, long totalBytes, RowHandler handler) throws Exception {
+        CountingInputStream counting = new CountingInputStream(input, totalBytes);
+        try (CsvReader csv = new CsvReader(
+                new BufferedReader(new InputStreamReader(decode(counting), StandardCharsets.UTF_8)))) {
+            List<String> header = csv.readRecord();
+            if (header == null)
+                return 0;
+
+            int amountIdx = -1, categoryIdx = -1, typeIdx = -1, notesIdx = -1, dateIdx = -1;
+            for (int i = 0; i < header.size(); i++) {
+                String h = header.get(i).trim().toLowerCase(Locale.ROOT);
+                if (h.equals("amount"))
+                    amountIdx = i;
+                else if (h.equals("category"))
+                    categoryIdx = i;
+                else if (h.equals("type"))
+                    typeIdx = i;
+                else if (h.equals("notes") || h.equals("note"))
+                    notesIdx = i;
+                else if (h.equals("date"))
+                    dateIdx = i;
+            }
+            if (amountIdx == -1)
+                return 0; // Amount is required
+
+            int rows = 0;
+            List<String> values;
+            while ((values = csv.readRecord()) != null) {
+                if (amountIdx >= values.size())
+                    continue;
+                double amount;
+                try {
+                    amount = Double.parseDouble(values.get(amountIdx).trim());
+                } catch (NumberFormatException e) {
+                    continue; // Skip invalid rows
+                }
+
+                Expense expense = toExpense(amount,
+                        column(values, categoryIdx),
+                        column(values, typeIdx),
+                        column(values, notesIdx),
+                        parseDate(column(values, dateIdx)));
+                rows++;
+                if (!handler.onRow(expense))
+                    break;
+                counting.reportProgress();
+            }
+            return rows;
+        }
+    }
+
+    /**
+     * Read a JSON array of transaction objects. Objects without an amount are skipped.
+     *
+     * @return number of valid rows passed to the handler
+     */
+    public int importJson(InputStream input, long totalBytes, RowHandler handler) throws Exception {
+        CountingInputStream counting = new CountingInputStream(input, totalBytes);
+        try (JsonReader json = new JsonReader(
+                new BufferedReader(new InputStreamReader(decode(counting), StandardCharsets.UTF_8)))) {
+            int rows = 0;
+            json.beginArray();
+            while (json.hasNext()) {
+                Double amount = null;
+                String category = null, type = null, notes = null;
+                long date = 0;
+                boolean hasDate = false;
+
+                json.beginObject();
+                while (json.hasNext()) {
+                    String name = json.nextName();
+                    if (json.peek() == JsonToken.NULL) {
+                        json.skipValue();
+                        continue;
+                    }
+                    switch (name) {
+                        case "amount":
+                            if (json.peek() == JsonToken.NUMBER) {
+                                amount = json.nextDouble();
+                            } else {
+                                try {
+                                    amount = Double.parseDouble(json.nextString().trim());
+                                } catch (NumberFormatException e) {
+                                    amount = null;
+                                }
+                            }
+                            break;
+                        case "category":
+                            category = json.nextString();
+                            break;
+                        case "type":
+                            type = json.nextString();
+                            break;
+                        case "notes":
+                        case "note":
+                            notes = json.nextString();
+                            break;
+                        case "date":
+                            // Epoch millis as written by the app's own export, or a date string
+                            if (json.peek() == JsonToken.NUMBER) {
+                                date = json.nextLong();
+                            } else {
+                                date = parseDate(json.nextString());
+                            }
+                            hasDate = true;
+                            break;
+                        default:
+                            json.skipValue();
+                    }
+                }
+                json.endObject();
+
+                if (amount == null)
+                    continue;
+                rows++;
+                if (!handler.onRow(toExpense(amount, category, type, notes,
+                        hasDate ? date : System.currentTimeMillis())))
+                    break;
+                counting.reportProgress();
+            }
+            return rows;
+        }
+    }
+
+    /**
+     * Transparently decompress gzip input, as written by the compressed export.
+     */
+    private static InputStream decode(InputStream input) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(input);
+        buffered.mark(2);
+        int b1 = buffered.read();
+        int b2 = buffered.read();
+        buffered.reset();
+        if (b1 == 0x1f && b2 == 0x8b)
+            return new GZIPInputStream(buffered);
+        return buffered;
+    }
+
+    /**
+     * Parse a date in one of the supported patterns, which must match the
+     * whole string; falls back to now.
+     */
+    public long parseDate(String dateStr) {
+        if (dateStr == null || dateStr.isEmpty()) {
+            return System.currentTimeMillis();
+        }
+        for (SimpleDateFormat format : dateFormats) {
+            parsePosition.setIndex(0);
+            parsePosition.setErrorIndex(-1);
+            Date date = format.parse(dateStr, parsePosition);
+            // A shorter pattern may match just a prefix, e.g. the date part of a timestamp
+            if (date != null && parsePosition.getIndex() == dateStr.length())
+                return date.getTime();
+        }
+        return System.currentTimeMillis();
+    }
+
+    private static String column(List<String> values, int index) {
+        return index >= 0 && index < values.size() ? values.get(index).trim() : "";
+    }
+
+    private static Expense toExpense(double amount, String category, String type, String notes, long date) {
+        if (category == null || category.isEmpty())
+            category = "Other";
+        type = type != null ? type.toUpperCase(Locale.ROOT) : "EXPENSE";
+        if (!type.equals("INCOME") && !type.equals("EXPENSE"))
+            type = "EXPENSE";
+        return new Expense(amount, category, date, notes != null ? notes : "", type);
+    }
+
+    /**
+     * Counts bytes pulled from the file so progress can be reported without
+     * knowing how many rows it holds.
+     */
+    private class CountingInputStream extends FilterInputStream {
+        private final long totalBytes;
+        private long bytesRead = 0;
+        private long lastReported = 0;
+
+        CountingInputStream(InputStream in, long totalBytes) {
+            super(in);
+            this.totalBytes = totalBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1)
+                bytesRead++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0)
+                bytesRead += n;
+            return n;
+        }
+
+        void reportProgress() {
+            if (progressListener != null && bytesRead - lastReported >= PROGRESS_STEP_BYTES) {
+                lastReported = bytesRead;
+                progressListener.onProgress(bytesRead, totalBytes);
+            }
+        }
+    }
+}
@@ -1,30 +1,84 @@
 package com.example.trackexpense.viewmodel;
 
 import android.app.Application;
+import android.database.Cursor;
 
 import androidx.annotation.NonNull;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
 
+import com.example.trackexpense.data.ExpensePager;
 import com.example.trackexpense.data.ExpenseRepository;
 import com.example.trackexpense.data.remote.FirestoreService;
+import com.example.trackexpense.data.local.CategoryTotal;
 import com.example.trackexpense.data.local.Expense;
+import com.example.trackexpense.data.local.PeriodTotal;
+import com.example.trackexpense.data.local.TypeTotal;
 
 import java.util.List;
 
 public class ExpenseViewModel extends AndroidViewModel {
 
     private final ExpenseRepository repository;
-    private final LiveData<List<Expense>> allExpenses;
 
     public ExpenseViewModel(@NonNull Application application) {
         super(application);
         repository = new ExpenseRepository(application);
-        allExpenses = repository.getAllExpenses();
     }
 
-    public LiveData<List<Expense>> getAllExpenses() {
-        return allExpenses;
+    /**
+     * True if the totals have already been loaded, so there is no need for a loading skeleton.
+     */
+    public boolean hasLoadedTotals() {
+        return repository.hasLoadedTotals();
+    }
+
+    public LiveData<List<Expense>> getRecentExpenses(String type, int limit) {
+        return repository.getRecentExpenses(type, limit);
+    }
+
+    public ExpensePager createPager(int pageSize) {
+        return repository.createPager(pageSize);
+    }
+
+    public boolean hasMoreRemoteExpenses() {
+        return repository.hasMoreRemoteExpenses();
+    }
+
+    public boolean loadOlderRemoteExpenses(ExpenseRepository.OnCompleteListener listener) {
+        return repository.loadOlderRemoteExpenses(listener);
+    }
+
+    public Cursor openExportCursor() throws Exception {
+        return repository.openExportCursor();
+    }
+
+    public LiveData<List<TypeTotal>> getTypeTotals() {
+        return repository.getTypeTotals();
+    }
+
+    public LiveData<List<TypeTotal>> getTypeTotalsBetween(long startDate, long endDate) {
+        return repository.getTypeTotalsBetween(startDate, endDate);
+    }
+
+    public LiveData<List<TypeTotal>> getTypeTotalsForMonth(long date) {
+        return repository.getTypeTotalsForMonth(date);
+    }
+
+    public LiveData<List<String>> getDistinctCategories() {
+        return repository.getDistinctCategories();
+    }
+
+    public LiveData<List<CategoryTotal>> getCategoryTotals(String type) {
+        return repository.getCategoryTotals(type);
+    }
+
+    public LiveData<List<PeriodTotal>> getDailyTotals(long startDate, long endDate) {
+        return repository.getDailyTotals(startDate, endDate);
+    }
+
+    public LiveData<List<PeriodTotal>> getMonthlyTotals(long startDate, long endDate) {
+        return repository.getMonthlyTotals(startDate, endDate);
     }
 
     public LiveData<Double> getTotalExpense() {
@@ -54,4 +108,16 @@ public class ExpenseViewModel extends AndroidViewModel {
     public void getCurrentMonthTotal(FirestoreService.OnTotalLoadedListener listener) {
         repository.getCurrentMonthTotal(listener);
     }
+
+    public void searchExpenses(String text, int limit, ExpenseRepository.OnSearchResultsListener listener) {
+        repository.searchExpenses(text, limit, listener);
+    }
+
+    public List<Expense> searchExpensesSync(String text, int limit) {
+        return repository.searchExpensesSync(text, limit);
+    }
+
+    public List<Expense> searchExpensesSync(String text, String type, String category, long since, int limit) {
+        return repository.searchExpensesSync(text, type, category, since, limit);
+    }
 }
@@ -0,0 +1,82 @@
+package com.example.trackexpense.data.local;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class DatabaseWriteQueueTest {
+
+    @Test
+    public void coalescedWriteRunsAfterEarlierWrites() throws InterruptedException {
+        DatabaseWriteQueue queue = new DatabaseWriteQueue();
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+
+        // Hold the writer so the next writes stay queued
+        queue.execute(() -> {
+            try {
+                blocked.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        queue.executeCoalesced("pin:1", () -> order.add("pin 1st"));
+        queue.execute(() -> order.add("edit"));
+        queue.executeCoalesced("pin:1", () -> order.add("pin 2nd"));
+        queue.execute(done::countDown);
+
+        blocked.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("edit", "pin 2nd"), order);
+        assertEquals(1, queue.getCoalescedCount());
+    }
+
+    @Test
+    public void differentKeysAreNotCoalesced() throws InterruptedException {
+        DatabaseWriteQueue queue = new DatabaseWriteQueue();
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(1);
+
+        queue.executeCoalesced("pin:1", () -> order.add("1"));
+        queue.executeCoalesced("pin:2", () -> order.add("2"));
+        queue.execute(done::countDown);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("1", "2"), order);
+        assertEquals(0, queue.getCoalescedCount());
+    }
+
+    @Test
+    public void startedWriteIsNotSuperseded() throws InterruptedException {
+        DatabaseWriteQueue queue = new DatabaseWriteQueue();
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+
+        queue.executeCoalesced("pin:1", () -> {
+            running.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            order.add("first");
+        });
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        queue.executeCoalesced("pin:1", () -> order.add("second"));
+        queue.execute(done::countDown);
+
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("first", "second"), order);
+    }
+}
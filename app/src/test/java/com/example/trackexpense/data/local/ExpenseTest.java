@@ -0,0 +1,105 @@
+package com.example.trackexpense.data.local;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Duplicate detection: {@link Expense#computeContentHash} and
+ * {@link Expense#hasSameContent} must agree.
+ */
+public class ExpenseTest {
+
+    private static final long DATE = 1_700_000_000_000L;
+
+    private static Expense expense(double amount, String category, String type, long date, String notes) {
+        Expense e = new Expense(amount, category, date, notes, type);
+        e.updateContentHash();
+        return e;
+    }
+
+    @Test
+    public void sameContentHasSameHash() {
+        Expense a = expense(12.50, "Food", "EXPENSE", DATE, "Lunch");
+        Expense b = expense(12.50, "Food", "EXPENSE", DATE, "Lunch");
+
+        assertEquals(a.getContentHash(), b.getContentHash());
+        assertTrue(a.hasSameContent(b));
+    }
+
+    @Test
+    public void notesAreTrimmedAndCaseInsensitive() {
+        Expense a = expense(5, "Food", "EXPENSE", DATE, "  Coffee ");
+        Expense b = expense(5, "Food", "EXPENSE", DATE, "coffee");
+
+        assertEquals(a.getContentHash(), b.getContentHash());
+        assertTrue(a.hasSameContent(b));
+    }
+
+    @Test
+    public void nullAndEmptyNotesMatch() {
+        Expense a = expense(5, "Food", "EXPENSE", DATE, null);
+        Expense b = expense(5, "Food", "EXPENSE", DATE, "");
+
+        assertEquals(a.getContentHash(), b.getContentHash());
+        assertTrue(a.hasSameContent(b));
+    }
+
+    @Test
+    public void amountsCompareToTheCent() {
+        Expense a = expense(10.001, "Food", "EXPENSE", DATE, "x");
+        Expense b = expense(10.004, "Food", "EXPENSE", DATE, "x");
+        Expense c = expense(10.01, "Food", "EXPENSE", DATE, "x");
+
+        assertEquals(a.getContentHash(), b.getContentHash());
+        assertTrue(a.hasSameContent(b));
+        assertNotEquals(a.getContentHash(), c.getContentHash());
+        assertFalse(a.hasSameContent(c));
+    }
+
+    @Test
+    public void eachFieldChangesTheHash() {
+        Expense base = expense(5, "Food", "EXPENSE", DATE, "x");
+        Expense[] changed = {
+                expense(6, "Food", "EXPENSE", DATE, "x"),
+                expense(5, "Transport", "EXPENSE", DATE, "x"),
+                expense(5, "Food", "INCOME", DATE, "x"),
+                expense(5, "Food", "EXPENSE", DATE + 1, "x"),
+                expense(5, "Food", "EXPENSE", DATE, "y"),
+        };
+        for (Expense e : changed) {
+            assertNotEquals(base.getContentHash(), e.getContentHash());
+            assertFalse(base.hasSameContent(e));
+        }
+    }
+
+    @Test
+    public void fieldBoundariesAreSeparated() {
+        // Same characters split differently between category and type
+        Expense a = expense(5, "ab", "c", DATE, "x");
+        Expense b = expense(5, "a", "bc", DATE, "x");
+
+        assertNotEquals(a.getContentHash(), b.getContentHash());
+        assertFalse(a.hasSameContent(b));
+    }
+
+    @Test
+    public void categoryIsCaseSensitive() {
+        Expense a = expense(5, "Food", "EXPENSE", DATE, "x");
+        Expense b = expense(5, "food", "EXPENSE", DATE, "x");
+
+        assertNotEquals(a.getContentHash(), b.getContentHash());
+        assertFalse(a.hasSameContent(b));
+    }
+
+    @Test
+    public void updateContentHashTracksEdits() {
+        Expense e = expense(5, "Food", "EXPENSE", DATE, "x");
+        long before = e.getContentHash();
+        e.setAmount(7);
+        e.updateContentHash();
+
+        assertNotEquals(before, e.getContentHash());
+        assertEquals(Expense.computeContentHash(7, "Food", "EXPENSE", DATE, "x"), e.getContentHash());
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.trackexpense.ui.expense;
+
+import com.example.trackexpense.data.local.Expense;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Narrowing and cancellation in {@link TransactionFilter}.
+ */
+public class TransactionFilterTest {
+
+    private static final String ALL = TransactionFilter.ALL;
+
+    private static Expense expense(int id, double amount, String category, String type, String notes, boolean pinned) {
+        Expense e = new Expense(amount, category, 1_000L * id, notes, type);
+        e.setId(id);
+        e.setPinned(pinned);
+        return e;
+    }
+
+    private static TransactionFilter.Criteria criteria(String type, String category, String query) {
+        return new TransactionFilter.Criteria(type, category, 0L, query);
+    }
+
+    private static final List<Expense> ROWS = Arrays.asList(
+            expense(1, 12.5, "Food", "EXPENSE", "Coffee shop", false),
+            expense(2, 120.0, "Food", "EXPENSE", "Coffee beans", true),
+            expense(3, 40.0, "Transport", "EXPENSE", "Coffee on the train", false),
+            expense(4, 2500.0, "Salary", "INCOME", "March salary", false));
+
+    @Test
+    public void categoryAllToSpecificNarrows() {
+        TransactionFilter.Criteria all = criteria(ALL, ALL, "coffee");
+        TransactionFilter.Criteria food = criteria(ALL, "Food", "coffee");
+
+        assertTrue(food.narrows(all));
+        assertFalse(all.narrows(food));
+        assertFalse(criteria(ALL, "Transport", "coffee").narrows(food));
+    }
+
+    @Test
+    public void extendingTheQueryNarrows() {
+        TransactionFilter.Criteria cof = criteria(ALL, ALL, "cof");
+        TransactionFilter.Criteria coffeeSh = criteria(ALL, ALL, "coffee sh");
+
+        assertTrue(coffeeSh.narrows(cof));
+        assertFalse(cof.narrows(coffeeSh));
+        // Replacing a word is not an extension
+        assertFalse(criteria(ALL, ALL, "tea").narrows(cof));
+        // Clearing the query widens to the unfiltered list
+        assertFalse(criteria(ALL, ALL, "").narrows(cof));
+    }
+
+    @Test
+    public void numericQueryMatchesAmounts() {
+        TransactionFilter.Criteria twelve = criteria(ALL, ALL, "12");
+        TransactionFilter.Criteria twelveFive = criteria(ALL, ALL, "12.5");
+
+        assertTrue(twelve.matchesQuery(ROWS.get(0)));
+        assertTrue(twelve.matchesQuery(ROWS.get(1)));
+        assertFalse(twelve.matchesQuery(ROWS.get(2)));
+        assertTrue(twelveFive.matchesQuery(ROWS.get(0)));
+        assertFalse(twelveFive.matchesQuery(ROWS.get(1)));
+
+        assertTrue(twelveFive.narrows(twelve));
+        assertFalse(twelve.narrows(twelveFive));
+    }
+
+    @Test
+    public void narrowingMatchesAFreshSplit() {
+        TransactionFilter.Criteria wide = criteria(ALL, ALL, "cof");
+        TransactionFilter.Criteria narrow = criteria("EXPENSE", "Food", "coffee sh");
+        TransactionFilter.Result previous = TransactionFilter.split(ROWS, wide, true, () -> false);
+
+        TransactionFilter.Result narrowed = TransactionFilter.narrow(previous, narrow, () -> false);
+        List<Expense> matches = new ArrayList<>();
+        for (Expense e : ROWS) {
+            if (narrow.matchesQuery(e))
+                matches.add(e);
+        }
+        TransactionFilter.Result fresh = TransactionFilter.split(matches, narrow, true, () -> false);
+
+        assertEquals(fresh.pinned, narrowed.pinned);
+        assertEquals(fresh.unpinned, narrowed.unpinned);
+        assertEquals(Collections.singletonList(ROWS.get(0)), narrowed.unpinned);
+        assertTrue(narrowed.pinned.isEmpty());
+    }
+
+    @Test
+    public void splitKeepsRankOrderAndSeparatesPinned() {
+        List<Expense> ranked = Arrays.asList(ROWS.get(2), ROWS.get(1), ROWS.get(0));
+        TransactionFilter.Result result = TransactionFilter.split(ranked, criteria(ALL, ALL, "coffee"), false, () -> false);
+
+        assertEquals(Collections.singletonList(ROWS.get(1)), result.pinned);
+        assertEquals(Arrays.asList(ROWS.get(2), ROWS.get(0)), result.unpinned);
+        assertFalse(result.complete);
+    }
+
+    @Test
+    public void supersededPassReturnsNothing() {
+        TransactionFilter.Criteria c = criteria(ALL, ALL, "coffee");
+        TransactionFilter.Result previous = TransactionFilter.split(ROWS, c, true, () -> false);
+
+        assertNull(TransactionFilter.split(ROWS, c, true, () -> true));
+        assertNull(TransactionFilter.narrow(previous, c, () -> true));
+    }
+
+    @Test
+    public void startsWordIgnoresCaseAndMidWordMatches() {
+        assertTrue(TransactionFilter.startsWord("Coffee shop", "SHO"));
+        assertTrue(TransactionFilter.startsWord("take-away", "away"));
+        assertFalse(TransactionFilter.startsWord("Espresso", "press"));
+        assertFalse(TransactionFilter.startsWord(null, "a"));
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.trackexpense.utils;
+
+import com.example.trackexpense.data.local.Expense;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BackupCodecTest {
+
+    private static Expense expense(double amount, String category, long date, String notes, String type,
+            boolean pinned, String firestoreId) {
+        Expense e = new Expense(amount, category, date, notes, type);
+        e.setPinned(pinned);
+        e.setFirestoreId(firestoreId);
+        e.setUpdatedAt(date + 1);
+        return e;
+    }
+
+    private static final List<Expense> EXPENSES = Arrays.asList(
+            expense(12.5, "Food", 1_700_000_000_000L, "Lunch, with \"team\"", "EXPENSE", false, "doc1"),
+            expense(2500, "Salary", 1_700_100_000_000L, null, "INCOME", true, null),
+            expense(0.01, "Other", 0L, "Ünïcødé ✓ and a long note " + "x".repeat(300), "EXPENSE", false, ""));
+
+    private static byte[] write(List<Expense> expenses, boolean incremental, long since) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (BackupCodec.Writer writer = new BackupCodec.Writer(out, incremental, since, 42L)) {
+            for (Expense e : expenses) {
+                writer.write(e);
+            }
+            writer.finish();
+        }
+        return out.toByteArray();
+    }
+
+    private static List<Expense> readAll(byte[] data) throws IOException {
+        List<Expense> expenses = new ArrayList<>();
+        for (BackupCodec.Record r : readRecords(data)) {
+            assertFalse(r.deleted);
+            expenses.add(r.expense);
+        }
+        return expenses;
+    }
+
+    private static List<BackupCodec.Record> readRecords(byte[] data) throws IOException {
+        List<BackupCodec.Record> records = new ArrayList<>();
+        try (BackupCodec.Reader reader = new BackupCodec.Reader(new ByteArrayInputStream(data))) {
+            BackupCodec.Record r;
+            while ((r = reader.next()) != null) {
+                records.add(r);
+            }
+        }
+        return records;
+    }
+
+    @Test
+    public void roundTripKeepsEveryField() throws IOException {
+        List<Expense> read = readAll(write(EXPENSES, false, 0));
+
+        assertEquals(EXPENSES.size(), read.size());
+        for (int i = 0; i < EXPENSES.size(); i++) {
+            Expense expected = EXPENSES.get(i);
+            Expense actual = read.get(i);
+            assertEquals(expected.getDate(), actual.getDate());
+            assertEquals(expected.getAmount(), actual.getAmount(), 0);
+            assertEquals(expected.isPinned(), actual.isPinned());
+            assertEquals(expected.getType(), actual.getType());
+            assertEquals(expected.getCategory(), actual.getCategory());
+            assertEquals(expected.getNotes(), actual.getNotes());
+            assertEquals(expected.getFirestoreId(), actual.getFirestoreId());
+            assertEquals(expected.getUpdatedAt(), actual.getUpdatedAt());
+        }
+    }
+
+    @Test
+    public void deletionsAreReadBackInOrder() throws IOException {
+        Expense deleted = expense(7, "Food", 1_700_000_000_000L, "Snack", "EXPENSE", false, "doc9");
+        deleted.setUpdatedAt(1_700_200_000_000L);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (BackupCodec.Writer writer = new BackupCodec.Writer(out, true, 1L, 42L)) {
+            writer.write(EXPENSES.get(0));
+            writer.writeDeleted(deleted);
+            writer.finish();
+        }
+
+        List<BackupCodec.Record> records = readRecords(out.toByteArray());
+        assertEquals(2, records.size());
+        assertFalse(records.get(0).deleted);
+        assertTrue(records.get(1).deleted);
+        Expense actual = records.get(1).expense;
+        assertEquals("doc9", actual.getFirestoreId());
+        assertEquals(1_700_200_000_000L, actual.getUpdatedAt());
+        assertTrue(deleted.hasSameContent(actual));
+    }
+
+    @Test
+    public void headerIsReadBack() throws IOException {
+        byte[] data = write(EXPENSES, true, 1234L);
+        try (BackupCodec.Reader reader = new BackupCodec.Reader(new ByteArrayInputStream(data))) {
+            BackupCodec.Header header = reader.getHeader();
+            assertEquals(BackupCodec.VERSION, header.version);
+            assertTrue(header.isIncremental());
+            assertEquals(1234L, header.since);
+            assertEquals(42L, header.createdAt);
+        }
+    }
+
+    @Test
+    public void emptyBackupHasNoRecords() throws IOException {
+        assertTrue(readAll(write(new ArrayList<>(), false, 0)).isEmpty());
+    }
+
+    @Test
+    public void unfinishedBackupIsRejected() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (BackupCodec.Writer writer = new BackupCodec.Writer(out, false, 0, 42L)) {
+            writer.write(EXPENSES.get(0));
+        }
+        assertThrows(IOException.class, () -> readAll(out.toByteArray()));
+    }
+
+    @Test
+    public void everyTruncationIsRejected() throws IOException {
+        byte[] data = write(EXPENSES, false, 0);
+        for (int length = 0; length < data.length; length++) {
+            byte[] truncated = Arrays.copyOf(data, length);
+            assertThrows("Truncated to " + length, IOException.class, () -> readAll(truncated));
+        }
+    }
+
+    @Test
+    public void everyFlippedByteIsRejected() throws IOException {
+        byte[] data = write(EXPENSES, false, 0);
+        for (int i = 0; i < data.length; i++) {
+            byte[] corrupt = data.clone();
+            corrupt[i] ^= 0x5a;
+            assertThrows("Byte " + i + " flipped", IOException.class, () -> readAll(corrupt));
+        }
+    }
+
+    @Test
+    public void otherFilesAreRejected() {
+        assertThrows(IOException.class, () -> readAll("amount,category\n".getBytes()));
+        assertThrows(IOException.class, () -> readAll(new byte[0]));
+    }
+}
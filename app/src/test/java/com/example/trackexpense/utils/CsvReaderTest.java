@@ -0,0 +1,99 @@
+package com.example.trackexpense.utils;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CsvReaderTest {
+
+    private static List<List<String>> readAll(String csv) throws IOException {
+        List<List<String>> records = new ArrayList<>();
+        try (CsvReader reader = new CsvReader(new StringReader(csv))) {
+            List<String> record;
+            while ((record = reader.readRecord()) != null) {
+                records.add(new ArrayList<>(record));
+            }
+        }
+        return records;
+    }
+
+    @Test
+    public void plainFieldsAndLfEndings() throws IOException {
+        assertEquals(Arrays.asList(
+                Arrays.asList("amount", "category"),
+                Arrays.asList("12.5", "Food")),
+                readAll("amount,category\n12.5,Food\n"));
+    }
+
+    @Test
+    public void quotedFieldKeepsCommas() throws IOException {
+        assertEquals(Arrays.asList(Arrays.asList("10", "Lunch, with team", "Food")),
+                readAll("10,\"Lunch, with team\",Food"));
+    }
+
+    @Test
+    public void doubledQuotesBecomeOneQuote() throws IOException {
+        assertEquals(Arrays.asList(Arrays.asList("Said \"hi\"", "")),
+                readAll("\"Said \"\"hi\"\"\",\"\""));
+    }
+
+    @Test
+    public void crlfInsideQuotesIsPartOfTheField() throws IOException {
+        assertEquals(Arrays.asList(
+                Arrays.asList("line one\r\nline two", "x"),
+                Arrays.asList("next", "y")),
+                readAll("\"line one\r\nline two\",x\r\nnext,y\r\n"));
+    }
+
+    @Test
+    public void crlfAndLfEndingsBothEndARecord() throws IOException {
+        assertEquals(Arrays.asList(
+                Arrays.asList("a"),
+                Arrays.asList("b"),
+                Arrays.asList("c")),
+                readAll("a\r\nb\nc"));
+    }
+
+    @Test
+    public void unterminatedQuoteKeepsTheRestOfTheInput() throws IOException {
+        assertEquals(Arrays.asList(
+                Arrays.asList("1", "never closed\n2,more")),
+                readAll("1,\"never closed\n2,more"));
+    }
+
+    @Test
+    public void leadingByteOrderMarkIsSkipped() throws IOException {
+        List<List<String>> records = readAll("\uFEFF\"amount\",notes\n5,\uFEFFkept\n");
+        assertEquals(Arrays.asList("amount", "notes"), records.get(0));
+        // Only the first character of the input is treated as a BOM
+        assertEquals(Arrays.asList("5", "\uFEFFkept"), records.get(1));
+    }
+
+    @Test
+    public void quoteInsideUnquotedFieldIsLiteral() throws IOException {
+        assertEquals(Arrays.asList(Arrays.asList("5\" screen", "x")),
+                readAll("5\" screen,x"));
+    }
+
+    @Test
+    public void emptyInputHasNoRecords() throws IOException {
+        assertTrue(readAll("").isEmpty());
+    }
+
+    @Test
+    public void recordsLongerThanTheBufferAreRead() throws IOException {
+        StringBuilder notes = new StringBuilder();
+        for (int i = 0; i < 40_000; i++) {
+            notes.append(i % 10);
+        }
+        List<List<String>> records = readAll("1,\"" + notes + "\"\n2,x");
+        assertEquals(notes.toString(), records.get(0).get(1));
+        assertEquals(Arrays.asList("2", "x"), records.get(1));
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.trackexpense.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class StableIdsTest {
+
+    @Test
+    public void matchesFnv1aReferenceValues() {
+        assertEquals(StableIds.FNV_OFFSET_BASIS, StableIds.of(""));
+        assertEquals(0xaf63dc4c8601ec8cL, StableIds.of("a"));
+        assertEquals(0x85944171f73967e8L, StableIds.of("foobar"));
+    }
+
+    @Test
+    public void differentKeysGetDifferentIds() {
+        assertNotEquals(StableIds.of("doc-1"), StableIds.of("doc-2"));
+        assertEquals(StableIds.of("doc-1"), StableIds.of("doc-1"));
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.trackexpense.utils;
+
+import org.junit.Test;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+public class TransactionImporterTest {
+
+    private final TransactionImporter importer = new TransactionImporter(null);
+
+    private static long time(String pattern, String value) throws ParseException {
+        return new SimpleDateFormat(pattern, Locale.getDefault()).parse(value).getTime();
+    }
+
+    @Test
+    public void timestampIsNotCutToItsDatePart() throws ParseException {
+        assertEquals(time("yyyy-MM-dd'T'HH:mm:ss", "2024-03-05T14:30:00"),
+                importer.parseDate("2024-03-05T14:30:00"));
+        assertEquals(time("yyyy-MM-dd HH:mm:ss", "2024-03-05 14:30:00"),
+                importer.parseDate("2024-03-05 14:30:00"));
+    }
+
+    @Test
+    public void impossibleDayFirstDateFallsThroughToMonthFirst() throws ParseException {
+        // 13 is not a month, so this is March 13 rather than a rolled-over dd/MM date
+        assertEquals(time("MM/dd/yyyy", "03/13/2024"), importer.parseDate("03/13/2024"));
+        assertEquals(time("dd/MM/yyyy", "05/03/2024"), importer.parseDate("05/03/2024"));
+    }
+
+    @Test
+    public void trailingGarbageFallsBackToNow() {
+        long before = System.currentTimeMillis();
+        long parsed = importer.parseDate("2024-03-05 later");
+        assertTrue(parsed >= before);
+    }
+}
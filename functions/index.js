@@ -6,13 +6,20 @@
  */
 
 const { onCall, HttpsError } = require("firebase-functions/v2/https");
+const { onDocumentWritten } = require("firebase-functions/v2/firestore");
 const { initializeApp } = require("firebase-admin/app");
 const { getAuth } = require("firebase-admin/auth");
-const { getFirestore } = require("firebase-admin/firestore");
+const { getFirestore, FieldPath, FieldValue, Timestamp } = require("firebase-admin/firestore");
 
 // Initialize Firebase Admin
 initializeApp();
 
+// How long processed trigger event IDs are kept for de-duplication
+const EVENT_MARKER_TTL_MS = 7 * 24 * 60 * 60 * 1000;
+
+// Expense documents read per query when rebuilding stats
+const REBUILD_PAGE_SIZE = 500;
+
 /**
  * Delete a user from Firebase Authentication
  * 
@@ -64,29 +71,68 @@ exports.deleteUser = onCall(async (request) => {
         await getAuth().deleteUser(targetUserId);
         
         console.log(`Successfully deleted user ${targetUserId} from Firebase Auth`);
-        
-        return {
-            success: true,
-            message: `User ${targetUserId} deleted from Firebase Authentication`
-        };
     } catch (error) {
-        console.error(`Error deleting user ${targetUserId}:`, error);
-        
         // If user doesn't exist in Auth, that's okay - maybe they were already deleted
-        if (error.code === "auth/user-not-found") {
-            return {
-                success: true,
-                message: "User not found in Authentication (may already be deleted)"
-            };
+        if (error.code !== "auth/user-not-found") {
+            console.error(`Error deleting user ${targetUserId}:`, error);
+            throw new HttpsError(
+                "internal",
+                `Failed to delete user: ${error.message}`
+            );
         }
-        
-        throw new HttpsError(
-            "internal",
-            `Failed to delete user: ${error.message}`
-        );
+        console.log(`User ${targetUserId} not found in Auth (may already be deleted)`);
     }
+
+    try {
+        await deleteUserData(db, targetUserId);
+    } catch (error) {
+        console.error(`Error deleting Firestore data for ${targetUserId}:`, error);
+        // Auth deletion succeeded; the client falls back to deleting the data itself
+        return {
+            success: true,
+            dataDeleted: false,
+            message: `User ${targetUserId} deleted from Authentication, data cleanup failed`
+        };
+    }
+
+    return {
+        success: true,
+        dataDeleted: true,
+        message: `User ${targetUserId} and all their data deleted`
+    };
 });
 
+/**
+ * Delete users/{uid} and every subcollection under it.
+ * recursiveDelete pages through the tree with a BulkWriter, which batches
+ * and throttles the deletes and retries failed writes.
+ *
+ * Each expense delete fires updateExpenseStats, which would write stats and
+ * stats_events documents back under the user. The user document is flagged
+ * first so the trigger skips those deletes, expenses go before the rest of
+ * the tree, and the stats documents are deleted last with the user document.
+ */
+async function deleteUserData(db, userId) {
+    const writer = db.bulkWriter();
+    let failures = 0;
+    writer.onWriteError((error) => {
+        if (error.failedAttempts < 5) {
+            return true;
+        }
+        failures++;
+        console.error(`Giving up on ${error.documentRef.path}:`, error.message);
+        return false;
+    });
+
+    const userRef = db.collection("users").doc(userId);
+    await userRef.set({ deleting: true }, { merge: true });
+    await db.recursiveDelete(userRef.collection("expenses"), writer);
+    await db.recursiveDelete(userRef, writer);
+    if (failures > 0) {
+        throw new Error(`${failures} documents could not be deleted`);
+    }
+}
+
 /**
  * Block a user by disabling their Firebase Auth account
  * 
@@ -126,3 +172,186 @@ exports.blockUser = onCall(async (request) => {
         throw new HttpsError("internal", error.message);
     }
 });
+
+// ==================== RUNNING TOTALS ====================
+
+/**
+ * Month bucket for an expense date (epoch millis), e.g. "2024-05".
+ * Buckets are computed in UTC because the server does not know the user's time zone.
+ */
+function monthKey(date) {
+    const d = new Date(Number(date) || 0);
+    return `${d.getUTCFullYear()}-${String(d.getUTCMonth() + 1).padStart(2, "0")}`;
+}
+
+/**
+ * Add one expense document's contribution (sign = 1 or -1) to the per-month
+ * changes being collected in `deltas`.
+ */
+function addContribution(deltas, data, sign) {
+    if (!data || !data.type) {
+        return;
+    }
+    const month = monthKey(data.date);
+    const amount = (Number(data.amount) || 0) * sign;
+    const category = data.category || "";
+
+    const delta = deltas[month] || (deltas[month] = { totals: {}, counts: {}, categories: {} });
+    delta.totals[data.type] = (delta.totals[data.type] || 0) + amount;
+    delta.counts[data.type] = (delta.counts[data.type] || 0) + sign;
+    const byCategory = delta.categories[data.type] || (delta.categories[data.type] = {});
+    byCategory[category] = (byCategory[category] || 0) + amount;
+}
+
+/**
+ * True if a month's collected changes add up to nothing, as for an edit that
+ * only touches fields outside the stats (notes, isPinned).
+ */
+function isEmptyDelta(delta) {
+    const zero = (values) => Object.values(values).every((value) => value === 0);
+    return zero(delta.totals) && zero(delta.counts) && Object.values(delta.categories).every(zero);
+}
+
+/**
+ * Turn collected changes into a merge payload of FieldValue.increment values.
+ * Nested maps are used rather than dotted paths so category names may contain dots.
+ */
+function toIncrements(delta) {
+    const wrap = (values) => Object.fromEntries(
+        Object.entries(values).map(([key, value]) => [key, FieldValue.increment(value)]));
+
+    const categories = {};
+    for (const [type, values] of Object.entries(delta.categories)) {
+        categories[type] = wrap(values);
+    }
+    return {
+        totals: wrap(delta.totals),
+        counts: wrap(delta.counts),
+        categories,
+        updatedAt: FieldValue.serverTimestamp()
+    };
+}
+
+/**
+ * Absolute values for a rebuilt stats document.
+ */
+function toValues(delta) {
+    const categories = {};
+    for (const [type, values] of Object.entries(delta.categories)) {
+        categories[type] = { ...values };
+    }
+    return {
+        totals: { ...delta.totals },
+        counts: { ...delta.counts },
+        categories,
+        updatedAt: FieldValue.serverTimestamp()
+    };
+}
+
+/**
+ * Keep users/{uid}/stats/{yyyy-MM} in step with every expense write.
+ *
+ * Each stats document holds per-type totals and counts plus per-type,
+ * per-category totals for one month. The old version of the document is
+ * subtracted and the new one added, so edits that move an expense between
+ * months, types or categories are handled. Triggers can be delivered more
+ * than once, so each event ID is recorded in the same transaction and
+ * repeats are ignored. Writes that leave every total unchanged, such as a
+ * pin toggle, return before the transaction. Deletes are ignored while the user's data is being
+ * deleted (see deleteUserData), so no stats are written back for them.
+ */
+exports.updateExpenseStats = onDocumentWritten("users/{uid}/expenses/{expenseId}", async (event) => {
+    const { uid } = event.params;
+    const before = event.data.before.exists ? event.data.before.data() : null;
+    const after = event.data.after.exists ? event.data.after.data() : null;
+
+    const deltas = {};
+    addContribution(deltas, before, -1);
+    addContribution(deltas, after, 1);
+    for (const [month, delta] of Object.entries(deltas)) {
+        if (isEmptyDelta(delta)) {
+            delete deltas[month];
+        }
+    }
+    // Nothing to count, or the old and new versions cancel out: no transaction
+    if (Object.keys(deltas).length === 0) {
+        return;
+    }
+
+    const db = getFirestore();
+    const userRef = db.collection("users").doc(uid);
+    const eventRef = userRef.collection("stats_events").doc(event.id);
+
+    await db.runTransaction(async (transaction) => {
+        const processed = await transaction.get(eventRef);
+        if (processed.exists) {
+            return;
+        }
+        if (!after) {
+            const user = await transaction.get(userRef);
+            if (!user.exists || user.data().deleting) {
+                return;
+            }
+        }
+        for (const [month, delta] of Object.entries(deltas)) {
+            transaction.set(userRef.collection("stats").doc(month), toIncrements(delta), { merge: true });
+        }
+        transaction.set(eventRef, {
+            processedAt: FieldValue.serverTimestamp(),
+            // Expired markers are removed by the TTL policy in firestore.indexes.json
+            expireAt: Timestamp.fromMillis(Date.now() + EVENT_MARKER_TTL_MS)
+        });
+    });
+});
+
+/**
+ * Recompute the caller's stats documents from their raw expenses.
+ * Used to backfill users whose expenses predate updateExpenseStats.
+ * Expenses are read in pages of REBUILD_PAGE_SIZE, and the stats documents
+ * are replaced in one batch, so readers never see them deleted or half
+ * rewritten.
+ */
+exports.rebuildExpenseStats = onCall(async (request) => {
+    if (!request.auth) {
+        throw new HttpsError("unauthenticated", "Must be logged in.");
+    }
+
+    const db = getFirestore();
+    const userRef = db.collection("users").doc(request.auth.uid);
+
+    const deltas = {};
+    let expenseCount = 0;
+    let last = null;
+    for (;;) {
+        let query = userRef.collection("expenses").orderBy(FieldPath.documentId()).limit(REBUILD_PAGE_SIZE);
+        if (last) {
+            query = query.startAfter(last);
+        }
+        const page = await query.get();
+        page.forEach((doc) => addContribution(deltas, doc.data(), 1));
+        expenseCount += page.size;
+        if (page.size < REBUILD_PAGE_SIZE) {
+            break;
+        }
+        last = page.docs[page.docs.length - 1];
+    }
+
+    const statsRef = userRef.collection("stats");
+    const batch = db.batch();
+    const existing = await statsRef.listDocuments();
+    existing.forEach((ref) => {
+        if (!deltas[ref.id]) {
+            batch.delete(ref);
+        }
+    });
+    for (const [month, delta] of Object.entries(deltas)) {
+        batch.set(statsRef.doc(month), toValues(delta));
+    }
+    await batch.commit();
+
+    return {
+        success: true,
+        months: Object.keys(deltas).length,
+        expenses: expenseCount
+    };
+});
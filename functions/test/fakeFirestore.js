@@ -0,0 +1,274 @@
+/**
+ * In-memory stand-in for the parts of the Admin Firestore API used by index.js.
+ * Documents live in a Map keyed by path; sentinels from FieldValue are applied
+ * when a write commits, the way the server does.
+ */
+
+const DOCUMENT_ID = "__name__";
+
+class Sentinel {
+    constructor(op, operand) {
+        this.op = op;
+        this.operand = operand;
+    }
+}
+
+const FieldValue = {
+    increment: (n) => new Sentinel("increment", n),
+    serverTimestamp: () => new Sentinel("serverTimestamp")
+};
+
+const Timestamp = {
+    fromMillis: (millis) => ({ millis })
+};
+
+const FieldPath = {
+    documentId: () => DOCUMENT_ID
+};
+
+function isPlainObject(value) {
+    return value !== null && typeof value === "object" && !Array.isArray(value) && !(value instanceof Sentinel);
+}
+
+function resolve(value, existing) {
+    if (value instanceof Sentinel) {
+        if (value.op === "increment") {
+            return (typeof existing === "number" ? existing : 0) + value.operand;
+        }
+        return { millis: Date.now() };
+    }
+    if (isPlainObject(value)) {
+        const out = {};
+        for (const [key, child] of Object.entries(value)) {
+            out[key] = resolve(child, undefined);
+        }
+        return out;
+    }
+    return value;
+}
+
+function merge(target, source) {
+    const out = isPlainObject(target) ? { ...target } : {};
+    for (const [key, value] of Object.entries(source)) {
+        out[key] = isPlainObject(value) && isPlainObject(out[key])
+            ? merge(out[key], value)
+            : resolve(value, out[key]);
+    }
+    return out;
+}
+
+class DocumentSnapshot {
+    constructor(ref, data) {
+        this.ref = ref;
+        this.id = ref.id;
+        this.exists = data !== undefined;
+        this._data = data;
+    }
+
+    data() {
+        return this.exists ? structuredClone(this._data) : undefined;
+    }
+}
+
+class QuerySnapshot {
+    constructor(docs) {
+        this.docs = docs;
+        this.size = docs.length;
+        this.empty = docs.length === 0;
+    }
+
+    forEach(callback) {
+        this.docs.forEach(callback);
+    }
+}
+
+class DocumentReference {
+    constructor(db, path) {
+        this._db = db;
+        this.path = path;
+        this.id = path.split("/").pop();
+    }
+
+    collection(name) {
+        return new CollectionReference(this._db, `${this.path}/${name}`);
+    }
+
+    async get() {
+        return this._db._snapshot(this);
+    }
+
+    async set(data, options) {
+        this._db._apply([{ type: "set", ref: this, data, options }]);
+    }
+
+    async delete() {
+        this._db._apply([{ type: "delete", ref: this }]);
+    }
+}
+
+class Query {
+    constructor(db, path, spec) {
+        this._db = db;
+        this.path = path;
+        this._spec = spec || { limit: Infinity, after: null, ordered: false };
+    }
+
+    _with(change) {
+        return new Query(this._db, this.path, { ...this._spec, ...change });
+    }
+
+    orderBy(field) {
+        if (field !== DOCUMENT_ID) {
+            throw new Error(`fake Firestore only orders by document ID, not ${field}`);
+        }
+        return this._with({ ordered: true });
+    }
+
+    limit(n) {
+        return this._with({ limit: n });
+    }
+
+    startAfter(snapshot) {
+        return this._with({ after: typeof snapshot === "string" ? snapshot : snapshot.id });
+    }
+
+    async get() {
+        this._db.queries.push({ path: this.path, limit: this._spec.limit });
+        let ids = this._db._childIds(this.path).sort();
+        if (this._spec.after !== null) {
+            ids = ids.filter((id) => id > this._spec.after);
+        }
+        const docs = ids.slice(0, this._spec.limit)
+            .map((id) => this._db._snapshot(new DocumentReference(this._db, `${this.path}/${id}`)));
+        return new QuerySnapshot(docs);
+    }
+}
+
+class CollectionReference extends Query {
+    constructor(db, path) {
+        super(db, path);
+        this.id = path.split("/").pop();
+    }
+
+    doc(id) {
+        return new DocumentReference(this._db, `${this.path}/${id}`);
+    }
+
+    async listDocuments() {
+        return this._db._childIds(this.path).map((id) => this.doc(id));
+    }
+}
+
+class WriteBatch {
+    constructor(db) {
+        this._db = db;
+        this._writes = [];
+    }
+
+    set(ref, data, options) {
+        this._writes.push({ type: "set", ref, data, options });
+        return this;
+    }
+
+    delete(ref) {
+        this._writes.push({ type: "delete", ref });
+        return this;
+    }
+
+    async commit() {
+        this._db.commits++;
+        this._db._apply(this._writes);
+    }
+}
+
+class Transaction extends WriteBatch {
+    async get(ref) {
+        if (this._writes.length > 0) {
+            throw new Error("Firestore transactions require all reads to be executed before all writes.");
+        }
+        return this._db._snapshot(ref);
+    }
+}
+
+class FakeFirestore {
+    constructor() {
+        this.docs = new Map();
+        this.queries = [];
+        this.commits = 0;
+        // Called after each recursiveDelete pass, to interleave trigger deliveries in tests
+        this.onRecursiveDelete = null;
+    }
+
+    collection(name) {
+        return new CollectionReference(this, name);
+    }
+
+    doc(path) {
+        return new DocumentReference(this, path);
+    }
+
+    batch() {
+        return new WriteBatch(this);
+    }
+
+    bulkWriter() {
+        return { onWriteError() {} };
+    }
+
+    async runTransaction(updateFunction) {
+        const transaction = new Transaction(this);
+        const result = await updateFunction(transaction);
+        this.commits++;
+        this._apply(transaction._writes);
+        return result;
+    }
+
+    async recursiveDelete(ref) {
+        const prefix = `${ref.path}/`;
+        for (const path of [...this.docs.keys()]) {
+            if (path === ref.path || path.startsWith(prefix)) {
+                this.docs.delete(path);
+            }
+        }
+        if (this.onRecursiveDelete) {
+            await this.onRecursiveDelete(ref);
+        }
+    }
+
+    /** Plain data of the document at path, or undefined. */
+    data(path) {
+        const data = this.docs.get(path);
+        return data === undefined ? undefined : structuredClone(data);
+    }
+
+    /** IDs of the documents directly under a collection path. */
+    _childIds(path) {
+        const prefix = `${path}/`;
+        const ids = [];
+        for (const key of this.docs.keys()) {
+            if (key.startsWith(prefix) && !key.slice(prefix.length).includes("/")) {
+                ids.push(key.slice(prefix.length));
+            }
+        }
+        return ids;
+    }
+
+    _snapshot(ref) {
+        return new DocumentSnapshot(ref, this.docs.get(ref.path));
+    }
+
+    _apply(writes) {
+        for (const write of writes) {
+            const path = write.ref.path;
+            if (write.type === "delete") {
+                this.docs.delete(path);
+            } else if (write.options && write.options.merge) {
+                this.docs.set(path, merge(this.docs.get(path), write.data));
+            } else {
+                this.docs.set(path, resolve(write.data, undefined));
+            }
+        }
+    }
+}
+
+module.exports = { FakeFirestore, FieldPath, FieldValue, Timestamp };
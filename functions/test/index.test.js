@@ -0,0 +1,235 @@
+const { Change } = require("firebase-functions/v2");
+const { FakeFirestore } = require("./fakeFirestore");
+
+let mockDb;
+const mockAuth = {
+    deleteUser: jest.fn(async () => {}),
+    updateUser: jest.fn(async () => {})
+};
+
+jest.mock("firebase-admin/app", () => ({ initializeApp: jest.fn() }));
+jest.mock("firebase-admin/auth", () => ({ getAuth: () => mockAuth }));
+jest.mock("firebase-admin/firestore", () => {
+    const fake = require("./fakeFirestore");
+    return {
+        ...jest.requireActual("firebase-admin/firestore"),
+        FieldPath: fake.FieldPath,
+        FieldValue: fake.FieldValue,
+        Timestamp: fake.Timestamp,
+        getFirestore: () => mockDb
+    };
+});
+
+const test = require("firebase-functions-test")();
+const functions = require("../index");
+
+const UID = "user1";
+const MAY = Date.UTC(2024, 4, 10);
+const JUNE = Date.UTC(2024, 5, 2);
+
+const updateExpenseStats = test.wrap(functions.updateExpenseStats);
+const rebuildExpenseStats = test.wrap(functions.rebuildExpenseStats);
+const deleteUser = test.wrap(functions.deleteUser);
+
+function snapshot(data) {
+    return { exists: data !== undefined, data: () => data };
+}
+
+function write(eventId, before, after, expenseId = "e1") {
+    return updateExpenseStats({
+        id: eventId,
+        params: { uid: UID, expenseId },
+        data: new Change(snapshot(before), snapshot(after))
+    });
+}
+
+function stats(month) {
+    return mockDb.data(`users/${UID}/stats/${month}`);
+}
+
+function expense(amount, type, category, date) {
+    return { amount, type, category, date, notes: "" };
+}
+
+beforeEach(() => {
+    mockDb = new FakeFirestore();
+    mockDb.docs.set(`users/${UID}`, { email: "user1@example.com" });
+});
+
+afterAll(() => {
+    test.cleanup();
+});
+
+describe("updateExpenseStats", () => {
+    it("adds a created expense to its month", async () => {
+        await write("evt-1", undefined, expense(12.5, "EXPENSE", "Food", MAY));
+
+        const may = stats("2024-05");
+        expect(may.totals).toEqual({ EXPENSE: 12.5 });
+        expect(may.counts).toEqual({ EXPENSE: 1 });
+        expect(may.categories).toEqual({ EXPENSE: { Food: 12.5 } });
+        expect(mockDb.data(`users/${UID}/stats_events/evt-1`)).toBeDefined();
+    });
+
+    it("ignores a replayed event id", async () => {
+        const created = expense(12.5, "EXPENSE", "Food", MAY);
+        await write("evt-1", undefined, created);
+        await write("evt-1", undefined, created);
+
+        const may = stats("2024-05");
+        expect(may.totals).toEqual({ EXPENSE: 12.5 });
+        expect(may.counts).toEqual({ EXPENSE: 1 });
+    });
+
+    it("moves the amount and count when the type changes", async () => {
+        const before = expense(40, "EXPENSE", "Salary", MAY);
+        await write("evt-1", undefined, before);
+        await write("evt-2", before, expense(40, "INCOME", "Salary", MAY));
+
+        const may = stats("2024-05");
+        expect(may.totals).toEqual({ EXPENSE: 0, INCOME: 40 });
+        expect(may.counts).toEqual({ EXPENSE: 0, INCOME: 1 });
+        expect(may.categories).toEqual({ EXPENSE: { Salary: 0 }, INCOME: { Salary: 40 } });
+    });
+
+    it("moves the amount but not the count when the category changes", async () => {
+        const before = expense(8, "EXPENSE", "Food", MAY);
+        await write("evt-1", undefined, before);
+        await write("evt-2", before, expense(10, "EXPENSE", "Transport", MAY));
+
+        const may = stats("2024-05");
+        expect(may.totals).toEqual({ EXPENSE: 10 });
+        expect(may.counts).toEqual({ EXPENSE: 1 });
+        expect(may.categories).toEqual({ EXPENSE: { Food: 0, Transport: 10 } });
+    });
+
+    it("moves the expense between months when its date changes", async () => {
+        const before = expense(5, "EXPENSE", "Food", MAY);
+        await write("evt-1", undefined, before);
+        await write("evt-2", before, expense(5, "EXPENSE", "Food", JUNE));
+
+        expect(stats("2024-05").totals).toEqual({ EXPENSE: 0 });
+        expect(stats("2024-05").counts).toEqual({ EXPENSE: 0 });
+        expect(stats("2024-06").totals).toEqual({ EXPENSE: 5 });
+        expect(stats("2024-06").counts).toEqual({ EXPENSE: 1 });
+    });
+
+    it("subtracts a deleted expense", async () => {
+        const created = expense(20, "EXPENSE", "Food", MAY);
+        await write("evt-1", undefined, created);
+        await write("evt-2", undefined, expense(3, "EXPENSE", "Food", MAY), "e2");
+        await write("evt-3", created, undefined);
+
+        const may = stats("2024-05");
+        expect(may.totals).toEqual({ EXPENSE: 3 });
+        expect(may.counts).toEqual({ EXPENSE: 1 });
+        expect(may.categories).toEqual({ EXPENSE: { Food: 3 } });
+    });
+
+    it("ignores deletes once the user document is gone", async () => {
+        const created = expense(20, "EXPENSE", "Food", MAY);
+        await write("evt-1", undefined, created);
+        mockDb.docs.clear();
+
+        await write("evt-2", created, undefined);
+
+        expect([...mockDb.docs.keys()]).toEqual([]);
+    });
+
+    it("skips the transaction when an edit leaves the totals unchanged", async () => {
+        const before = expense(12.5, "EXPENSE", "Food", MAY);
+        await write("evt-1", undefined, before);
+        const commits = mockDb.commits;
+
+        await write("evt-2", before, { ...before, notes: "lunch", isPinned: true });
+
+        expect(mockDb.commits).toBe(commits);
+        expect(stats("2024-05").totals).toEqual({ EXPENSE: 12.5 });
+        expect(mockDb.data(`users/${UID}/stats_events/evt-2`)).toBeUndefined();
+    });
+
+    it("ignores writes to documents without a type", async () => {
+        await write("evt-1", undefined, { amount: 1, date: MAY });
+
+        expect(stats("2024-05")).toBeUndefined();
+        expect(mockDb.commits).toBe(0);
+    });
+});
+
+describe("rebuildExpenseStats", () => {
+    it("rejects unauthenticated callers", async () => {
+        await expect(rebuildExpenseStats({ data: {} })).rejects.toThrow("Must be logged in.");
+    });
+
+    it("pages through expenses and replaces the stats in one batch", async () => {
+        const count = 1201;
+        for (let i = 0; i < count; i++) {
+            const date = i % 2 === 0 ? MAY : JUNE;
+            mockDb.docs.set(`users/${UID}/expenses/e${String(i).padStart(5, "0")}`,
+                expense(1, "EXPENSE", i % 3 === 0 ? "Food" : "Rent", date));
+        }
+        // Drifted and stale documents from before the rebuild
+        mockDb.docs.set(`users/${UID}/stats/2024-05`, {
+            totals: { EXPENSE: 999, INCOME: 50 },
+            counts: { EXPENSE: 7, INCOME: 1 },
+            categories: { EXPENSE: { Old: 999 }, INCOME: { Salary: 50 } }
+        });
+        mockDb.docs.set(`users/${UID}/stats/2023-01`, { totals: { EXPENSE: 10 } });
+
+        const result = await rebuildExpenseStats({ auth: { uid: UID }, data: {} });
+
+        expect(result).toEqual({ success: true, months: 2, expenses: count });
+        const pages = mockDb.queries.filter((q) => q.path === `users/${UID}/expenses`);
+        expect(pages).toHaveLength(3);
+        pages.forEach((page) => expect(page.limit).toBe(500));
+        expect(mockDb.commits).toBe(1);
+
+        const may = stats("2024-05");
+        expect(may.totals).toEqual({ EXPENSE: 601 });
+        expect(may.counts).toEqual({ EXPENSE: 601 });
+        expect(may.categories.EXPENSE.Food + may.categories.EXPENSE.Rent).toBe(601);
+        expect(may.categories.Old).toBeUndefined();
+        expect(stats("2024-06").counts).toEqual({ EXPENSE: 600 });
+        expect(stats("2023-01")).toBeUndefined();
+    });
+
+    it("removes all stats when the user has no expenses", async () => {
+        mockDb.docs.set(`users/${UID}/stats/2024-05`, { totals: { EXPENSE: 10 } });
+
+        const result = await rebuildExpenseStats({ auth: { uid: UID }, data: {} });
+
+        expect(result).toEqual({ success: true, months: 0, expenses: 0 });
+        expect(stats("2024-05")).toBeUndefined();
+    });
+});
+
+describe("deleteUser", () => {
+    it("leaves nothing behind when expense deletes are delivered during the delete", async () => {
+        mockDb.docs.set("users/admin", { isAdmin: true });
+        const expenses = [
+            ["e1", expense(20, "EXPENSE", "Food", MAY)],
+            ["e2", expense(30, "INCOME", "Salary", JUNE)]
+        ];
+        for (const [id, data] of expenses) {
+            mockDb.docs.set(`users/${UID}/expenses/${id}`, data);
+            await write(`create-${id}`, undefined, data, id);
+        }
+
+        // Deliver each expense's delete trigger after every recursiveDelete pass
+        let pass = 0;
+        mockDb.onRecursiveDelete = async () => {
+            pass++;
+            for (const [id, data] of expenses) {
+                await write(`delete-${id}-${pass}`, data, undefined, id);
+            }
+        };
+
+        const result = await deleteUser({ auth: { uid: "admin" }, data: { userId: UID } });
+
+        expect(result.dataDeleted).toBe(true);
+        expect(mockAuth.deleteUser.mock.calls).toEqual([[UID]]);
+        expect(pass).toBe(2);
+        const left = [...mockDb.docs.keys()].filter((path) => path.startsWith(`users/${UID}`));
+        expect(left).toEqual([]);
+    });
+});